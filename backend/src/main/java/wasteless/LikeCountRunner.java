@@ -0,0 +1,55 @@
+package wasteless;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.repository.SaleItemRepository;
+import wasteless.service.ListingPopularityService;
+
+/**
+ * A runner that corrects the like counts of sale items that do not match their likes when the application starts,
+ * such as the sale items liked before the count was kept, then builds the popularity rankings of the listing feeds
+ * from them. The rankings are rebuilt on the schedule given by listings.popularity.rebuild.cron if one is set.
+ */
+@Component
+public class LikeCountRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LikeCountRunner.class);
+
+    private final SaleItemRepository saleItemRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ListingPopularityService listingPopularityService;
+
+    @Autowired
+    public LikeCountRunner(SaleItemRepository saleItemRepository, TransactionTemplate transactionTemplate,
+                           ListingPopularityService listingPopularityService) {
+        this.saleItemRepository = saleItemRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.listingPopularityService = listingPopularityService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Integer corrected = transactionTemplate.execute(status -> saleItemRepository.recountLikes());
+        if (corrected != null && corrected > 0) {
+            logger.info("Corrected the like counts of {} sale items", corrected);
+        }
+        logger.info("Ranked {} liked listings", listingPopularityService.rebuild());
+    }
+
+    /**
+     * Rebuilds the popularity rankings, correcting any likes and purchases that were not recorded as they were made.
+     * Disabled unless listings.popularity.rebuild.cron is set in the application.properties file.
+     */
+    @Scheduled(cron = "${listings.popularity.rebuild.cron:-}")
+    public void periodicRebuild() {
+        listingPopularityService.rebuild();
+    }
+}
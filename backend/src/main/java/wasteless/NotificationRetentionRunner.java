@@ -0,0 +1,41 @@
+package wasteless;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import wasteless.service.NotificationRetentionService;
+import wasteless.service.NotificationRetentionService.RetentionReport;
+
+/**
+ * A runner that deletes old read notifications and superseded like notifications on the schedule given by
+ * notifications.retention.cron, and logs how many were deleted.
+ */
+@Component
+@EnableScheduling
+public class NotificationRetentionRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationRetentionRunner.class);
+
+    private final NotificationRetentionService notificationRetentionService;
+
+    @Autowired
+    public NotificationRetentionRunner(NotificationRetentionService notificationRetentionService) {
+        this.notificationRetentionService = notificationRetentionService;
+    }
+
+    /**
+     * Purges the notification table.
+     * Runs at 3:30am each night, as set by notifications.retention.cron in the application.properties file. Disabled if
+     * notifications.retention.cron is removed or set to "-".
+     */
+    @Scheduled(cron = "${notifications.retention.cron:-}")
+    public void periodicPurge() {
+        logger.info("Purging notifications... ");
+        RetentionReport report = notificationRetentionService.purge();
+        logger.info("Deleted {} notifications: {} read notifications past their retention age, {} superseded like "
+                + "notifications", report.getTotalDeleted(), report.getExpiredDeleted(), report.getLikesCollapsed());
+    }
+}
@@ -0,0 +1,46 @@
+package wasteless;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import wasteless.service.SalesRollupService;
+
+/**
+ * A runner that backfills the daily sales rollup from the sold sale items when the application starts with an empty
+ * rollup, and rebuilds it on the schedule given by sales.rollup.rebuild.cron if one is set.
+ */
+@Component
+@EnableScheduling
+public class SalesRollupRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupRunner.class);
+
+    private final SalesRollupService salesRollupService;
+
+    @Autowired
+    public SalesRollupRunner(SalesRollupService salesRollupService) {
+        this.salesRollupService = salesRollupService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (salesRollupService.isEmpty()) {
+            logger.info("Backfilling daily sales rollup");
+            salesRollupService.rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the rollup, correcting any sales that were not added to it as they were made.
+     * Disabled unless sales.rollup.rebuild.cron is set in the application.properties file.
+     */
+    @Scheduled(cron = "${sales.rollup.rebuild.cron:-}")
+    public void periodicRebuild() {
+        salesRollupService.rebuild();
+    }
+}
@@ -2,12 +2,17 @@ package wasteless.controller;
 
 import org.json.simple.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import wasteless.controller.jsonobjects.ProductUpsertResult;
 import wasteless.controller.jsonobjects.SaleItemJson;
 import wasteless.controller.jsonobjects.SalesReportJson;
 import wasteless.model.Business;
@@ -15,13 +20,18 @@ import wasteless.model.InventoryItem;
 import wasteless.model.Product;
 import wasteless.model.SaleItem;
 import wasteless.service.BusinessService;
+import wasteless.service.InventoryImportService.InventoryImportFormat;
+import wasteless.service.SalesExportService.SalesExportFormat;
 import wasteless.service.searching_service.SearchingService;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 
 @RestController
 public class BusinessController {
@@ -81,13 +91,42 @@ public class BusinessController {
    * returned. Otherwise if successful, returns an HTTP 200 response and the requested business
    * object.
    *
+   * <p>If page or size is given, only that page of the catalogue is returned, and the
+   * Total-Length header holds the number of products matching the filter. Otherwise the whole
+   * catalogue is returned.
+   *
    * @param id The ID of the business to be retrieved
+   * @param page Page number, starting from 0. Optional, default value is 0.
+   * @param size Number of products in a page, at most 100. Optional, default value is 10.
+   * @param sort Field to sort by: id, name, manufacturer, recommendedRetailPrice or created.
+   *     Optional, default value is id.
+   * @param order Either asc or desc. Optional, default value is asc.
+   * @param filter Text the product code, name or manufacturer must contain. Optional.
    * @return A response to the get request
    */
   @GetMapping(path = "/businesses/{id}/products")
-  public ResponseEntity<Object> retrieveProduct(@PathVariable long id) {
-    List<Product> products = businessService.getProducts(id);
-    return new ResponseEntity<>(products, HttpStatus.OK);
+  public ResponseEntity<Object> retrieveProduct(
+      @PathVariable long id,
+      @RequestParam(required = false) Optional<Integer> page,
+      @RequestParam(required = false) Optional<Integer> size,
+      @RequestParam(required = false) Optional<String> sort,
+      @RequestParam(required = false) Optional<String> order,
+      @RequestParam(required = false) Optional<String> filter) {
+    if (page.isEmpty() && size.isEmpty()) {
+      List<Product> products = businessService.getProducts(id);
+      return new ResponseEntity<>(products, HttpStatus.OK);
+    }
+    Page<Product> products =
+        businessService.getProductsPage(
+            id,
+            page.orElse(0),
+            size.orElse(10),
+            sort.orElse("id"),
+            order.orElse("asc"),
+            filter.orElse(null));
+    HttpHeaders responseHeader = new HttpHeaders();
+    responseHeader.add("Total-Length", String.valueOf(products.getTotalElements()));
+    return ResponseEntity.ok().headers(responseHeader).body(products.getContent());
   }
 
   /**
@@ -108,6 +147,25 @@ public class BusinessController {
     return new ResponseEntity<>(productId, HttpStatus.CREATED);
   }
 
+  /**
+   * Creates or updates many products of the catalogue of a business at once. Products whose codes
+   * are already in the catalogue are updated, and the others are created. Either every product is
+   * saved or none are.
+   *
+   * @param id The ID of the business
+   * @param products The products to create or update
+   * @return 200 OK with how many products were created and updated, 400 Bad Request if a product is
+   *     invalid or a product code appears more than once, 403 Forbidden if the user is not an
+   *     administrator of the business, 406 Not Acceptable if the business does not exist, 409
+   *     Conflict if the catalogue was changed by someone else during the update
+   */
+  @PutMapping(path = "/businesses/{id}/products")
+  public ResponseEntity<Object> upsertProducts(
+      @PathVariable long id, @RequestBody List<Product> products) {
+    ProductUpsertResult result = businessService.upsertProducts(id, products);
+    return new ResponseEntity<>(result, HttpStatus.OK);
+  }
+
   /**
    * This method checks if the product code for a new product is valid
    *
@@ -232,6 +290,33 @@ public class BusinessController {
         "{ \"inventoryItemId\": " + savedItem.getInventoryItemId() + " }", HttpStatus.CREATED);
   }
 
+  /**
+   * This method imports many items into the inventory of a business from a CSV or NDJSON file sent
+   * as the request body. The body is read as it arrives, and valid rows are saved in batches.
+   *
+   * <p>If the file was imported, a HTTP 200 OK Response is returned with the result of each row:
+   * rows that cannot be read, fail validation, or name a product code the business does not have
+   * are rejected with the reasons, without stopping the import. If the format is not csv or
+   * ndjson, or a CSV file has no header, a HTTP 400 Bad Request is returned. If the user does not
+   * administer the business AND the user is not a global application admin, then a HTTP 403
+   * Forbidden is returned. If the business does not exist, a HTTP 406 is returned.
+   *
+   * @param id The ID of the business that the inventory items will be added to.
+   * @param format The format of the file, either csv (the default) or ndjson.
+   * @param request The request, whose body is the file.
+   * @return The number of created and rejected rows, and the result of each row.
+   * @throws IOException If the request body cannot be read.
+   */
+  @PostMapping(path = "/businesses/{id}/inventory/import")
+  public ResponseEntity<Object> importInventory(
+      @PathVariable long id,
+      @RequestParam(defaultValue = "csv") String format,
+      HttpServletRequest request) throws IOException {
+    InventoryImportFormat importFormat = InventoryImportFormat.fromName(format);
+    return new ResponseEntity<>(
+        businessService.importInventory(id, importFormat, request.getInputStream()), HttpStatus.OK);
+  }
+
   /**
    * Gets the specified business' product inventory. The product inventory are instances of products
    * with a quantity, price for each unit of product and total price for the whole quantity.
@@ -242,13 +327,42 @@ public class BusinessController {
    * controller returns HTTP 403 Forbidden. If the requested route is not specified e.g. an invalid
    * business, the controller returns a HTTP 406 response.
    *
+   * <p>If page or size is given, only that page of the inventory is returned, and the Total-Length
+   * header holds the number of items matching the filter. Otherwise the whole inventory is
+   * returned.
+   *
    * @param id Id of the business to retrieve inventory of.
+   * @param page Page number, starting from 0. Optional, default value is 0.
+   * @param size Number of items in a page, at most 100. Optional, default value is 10.
+   * @param sort Field to sort by: productId, name, quantity, pricePerItem, totalPrice,
+   *     manufactured, sellBy, bestBefore, expires or created. Optional, default value is expires.
+   * @param order Either asc or desc. Optional, default value is asc.
+   * @param filter Text the product code or product name must contain. Optional.
    * @return List containing instances of InventoryItems belonging to the specified business.
    */
   @GetMapping(path = "/businesses/{id}/inventory")
-  public ResponseEntity<Object> getInventory(@PathVariable long id) {
-    List<InventoryItem> items = businessService.retrieveInventory(id);
-    return new ResponseEntity<>(items, HttpStatus.OK);
+  public ResponseEntity<Object> getInventory(
+      @PathVariable long id,
+      @RequestParam(required = false) Optional<Integer> page,
+      @RequestParam(required = false) Optional<Integer> size,
+      @RequestParam(required = false) Optional<String> sort,
+      @RequestParam(required = false) Optional<String> order,
+      @RequestParam(required = false) Optional<String> filter) {
+    if (page.isEmpty() && size.isEmpty()) {
+      List<InventoryItem> items = businessService.retrieveInventory(id);
+      return new ResponseEntity<>(items, HttpStatus.OK);
+    }
+    Page<InventoryItem> items =
+        businessService.retrieveInventoryPage(
+            id,
+            page.orElse(0),
+            size.orElse(10),
+            sort.orElse("expires"),
+            order.orElse("asc"),
+            filter.orElse(null));
+    HttpHeaders responseHeader = new HttpHeaders();
+    responseHeader.add("Total-Length", String.valueOf(items.getTotalElements()));
+    return ResponseEntity.ok().headers(responseHeader).body(items.getContent());
   }
 
   /**
@@ -302,8 +416,9 @@ public class BusinessController {
    * This method sets the SOLD attribute of sale item to TRUE. If the user is not logged in, an HTTP
    * 401 Unauthorized response is returned. If there was some error with the data supplied by the
    * user, an HTTP 400 Bad Request is returned. If a Listing with the specified ID cannot be found,
-   * an HTTP 406 Not Acceptable request is returned. Otherwise if successful, returns an HTTP 200
-   * response and the relevant sale listing ID.
+   * an HTTP 406 Not Acceptable request is returned. If the listing is purchased by another user at the same
+   * time, or its inventory item no longer has enough quantity, an HTTP 409 Conflict is returned. Otherwise if
+   * successful, returns an HTTP 200 response and the relevant sale listing ID.
    *
    * @param id The ID of the business corresponding to sale list.
    * @param listingId The ID of the sale listing.
@@ -328,7 +443,7 @@ public class BusinessController {
    * @param id the ID of the business
    * @param periodStart the start of the report period
    * @param periodEnd the end of the report period
-   * @param granularity how the data should be summarised (TOTAL or MONTHLY)
+   * @param granularity how the data should be summarised (TOTAL, DAILY, WEEKLY, MONTHLY or YEARLY)
    * @return an HTTP response ot the GET request
    */
   @GetMapping(path = "/businesses/{id}/sales-report")
@@ -347,6 +462,37 @@ public class BusinessController {
     return new ResponseEntity<>(saleReport.toString(), HttpStatus.OK);
   }
 
+  /**
+   * This method exports the complete sales history of a business as a CSV or NDJSON file, with one row for each sold
+   * listing. The sold listings are streamed to the response as they are read from the database.
+   * If the format is not csv or ndjson -> 400
+   * If the user is not logged in -> 401
+   * If a business with the given ID does not exist -> 406
+   * If the user is not a GAA or business admin -> 403
+   * Otherwise the sales history is returned with 200
+   * @param id the ID of the business
+   * @param format the format of the export, either csv (the default) or ndjson
+   * @return an HTTP response to the GET request
+   */
+  @GetMapping(path = "/businesses/{id}/sales-export")
+  public ResponseEntity<StreamingResponseBody> exportSales(
+          @PathVariable long id,
+          @RequestParam(defaultValue = "csv") String format) {
+    Business business;
+    try {
+      business = businessService.getBusiness(id);
+    } catch (NoSuchElementException exception) {
+      throw new NotAcceptableStatusException("No business found with ID " + id);
+    }
+    SalesExportFormat exportFormat = SalesExportFormat.fromName(format);
+    StreamingResponseBody salesExport = businessService.exportSales(business, exportFormat);
+    return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"sales-" + id + "." + exportFormat.getExtension() + "\"")
+            .body(salesExport);
+  }
+
   /**
    * This method adds the user to the likedUsers for a sale item. If the user is not logged in, an HTTP
    * 401 Unauthorized response is returned. If there was some error with the data supplied by the
@@ -1,34 +1,116 @@
 package wasteless.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import wasteless.exception.ForbiddenException;
+import wasteless.model.NotificationCategory;
+import wasteless.security.AuthUtil;
+import wasteless.service.NotificationDispatcher;
 import wasteless.service.NotificationService;
 
+import java.util.Map;
+
 /**
  * This controller contains endpoints related to notifications for users.
  */
 @RestController
 public class NotificationsController {
     private final NotificationService notificationService;
+    private final NotificationDispatcher notificationDispatcher;
+    private final AuthUtil authUtil;
 
     @Autowired
-    public NotificationsController(NotificationService notificationService) {
+    public NotificationsController(NotificationService notificationService,
+                                   NotificationDispatcher notificationDispatcher,
+                                   AuthUtil authUtil) {
         this.notificationService = notificationService;
+        this.notificationDispatcher = notificationDispatcher;
+        this.authUtil = authUtil;
+    }
+
+    /**
+     * Retrieves the statistics of the background notification dispatcher: how many fan-outs were queued, written by
+     * their caller or dropped because the queue was full, how many notifications were written, dropped or failed, and
+     * the current and maximum depth of the queue. Only global application administrators can retrieve the statistics.
+     *
+     * @return 200 OK with the statistics, or 403 Forbidden if the user is not a global application administrator
+     */
+    @GetMapping(path = "/notifications/dispatch")
+    public ResponseEntity<Object> getDispatchStatistics() {
+        if (!authUtil.isCurrentUserGlobalAdmin()) {
+            throw new ForbiddenException("Current user is not a global admin");
+        }
+        return new ResponseEntity<>(notificationDispatcher.getStatistics(), HttpStatus.OK);
     }
 
     /**
      * This is a GET endpoint to retrieve notifications for a specific user.
+     *
+     * If a size or either cursor is given, one page of the notifications is returned, newest first. Older pages are
+     * requested with the Next-Cursor header of the previous page as the before cursor, and the header is omitted from
+     * the last page. Notifications created since the newest one the client has are requested with its ID as the since
+     * cursor. Otherwise every notification of the user is returned.
+     *
      * @param userId the user id to get notifications for.
+     * @param size the most notifications to return in the page, 20 if not given.
+     * @param before the cursor of the page, only notifications older than the notification with this ID are returned.
+     * @param since only notifications newer than the notification with this ID are returned.
      * @return A list of notifications that are related to the given user.
      */
     @GetMapping(path = "/notifications/{userId}")
-    public ResponseEntity<Object> getNotificationsForUser(@PathVariable long userId) {
-        return new ResponseEntity<>(notificationService.getNotificationsForUser(userId), HttpStatus.OK);
+    public ResponseEntity<Object> getNotificationsForUser(@PathVariable long userId,
+                                                          @RequestParam(value = "size", required = false) Integer size,
+                                                          @RequestParam(value = "before", required = false) Long before,
+                                                          @RequestParam(value = "since", required = false) Long since) {
+        if (size == null && before == null && since == null) {
+            return new ResponseEntity<>(notificationService.getNotificationsForUser(userId), HttpStatus.OK);
+        }
+        NotificationService.NotificationPage page = notificationService.getNotificationPage(
+                userId, before, since, size == null ? 20 : size);
+        HttpHeaders responseHeader = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            responseHeader.add("Next-Cursor", String.valueOf(page.getNextCursor()));
+        }
+        return ResponseEntity.ok().headers(responseHeader).body(page.getNotifications());
+    }
+
+    /**
+     * GET endpoint to count the unread notifications of a user, for polling without reading the notifications.
+     * @param userId the user id to count notifications for
+     * @return 200 OK with the number of unread notifications, or 403 Forbidden if the current user is neither the
+     *         given user nor a global application administrator
+     */
+    @GetMapping(path = "/notifications/{userId}/unreadCount")
+    public ResponseEntity<Object> countUnreadNotifications(@PathVariable long userId) {
+        return new ResponseEntity<>(Map.of("unreadCount", notificationService.countUnreadNotifications(userId)),
+                HttpStatus.OK);
+    }
+
+    /**
+     * GET endpoint that opens a server-sent event stream of the user's notifications. Each notification created after
+     * the stream is opened is sent as a "notification" event, with the notification's ID as the event ID, and a
+     * heartbeat comment is sent periodically. When the client reconnects it is first sent the notifications created
+     * since the event ID in the Last-Event-ID header, or the since parameter, if either is given.
+     * @param userId the user id to stream notifications for
+     * @param lastEventId the ID of the last notification the client was sent, set by browsers when they reconnect
+     * @param since the ID of the last notification the client has, used if no Last-Event-ID header is given
+     * @return the stream, or 403 Forbidden if the current user is neither the given user nor a global application
+     *         administrator
+     */
+    @GetMapping(path = "/notifications/{userId}/stream")
+    public SseEmitter streamNotifications(@PathVariable long userId,
+                                          @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                          @RequestParam(value = "since", required = false) Long since) {
+        return notificationService.streamNotifications(userId, lastEventId != null ? lastEventId : since);
     }
 
     /**
@@ -42,4 +124,26 @@ public class NotificationsController {
         notificationService.markAsRead(userId, notificationId);
         return new ResponseEntity<>(HttpStatus.OK);
     }
+
+    /**
+     * PATCH endpoint to mark many of a user's notifications as read at once, such as when clearing the notification
+     * list. With no parameters every notification is marked.
+     * @param userId the user id that the notifications belong to
+     * @param upTo only notifications with this ID or smaller are marked, normally the newest the client has shown
+     * @param category only notifications of this category are marked
+     * @param actionId only notifications about the entity with this ID are marked, used with a category
+     * @return 200 OK with the number of notifications marked, 400 Bad Request if an action ID is given without a
+     *         category, or 403 Forbidden if the current user is neither the given user nor a global application
+     *         administrator
+     */
+    @PatchMapping(path = "/notifications/{userId}/read")
+    public ResponseEntity<Object> markNotificationsAsRead(@PathVariable long userId,
+                                                          @RequestParam(value = "upTo", required = false) Long upTo,
+                                                          @RequestParam(value = "category", required = false)
+                                                                  NotificationCategory category,
+                                                          @RequestParam(value = "actionId", required = false)
+                                                                  Integer actionId) {
+        int marked = notificationService.markAllAsRead(userId, upTo, category, actionId);
+        return new ResponseEntity<>(Map.of("marked", marked), HttpStatus.OK);
+    }
 }
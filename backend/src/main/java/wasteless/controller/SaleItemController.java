@@ -1,6 +1,7 @@
 package wasteless.controller;
 
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -11,7 +12,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import wasteless.exception.BadRequestException;
+import wasteless.exception.ForbiddenException;
 import wasteless.model.SaleItem;
+import wasteless.security.AuthUtil;
 import wasteless.service.BusinessService;
 import wasteless.service.SaleItemService;
 import wasteless.service.searching_service.SearchParamsParser;
@@ -31,19 +34,24 @@ public class SaleItemController {
 
     private final BusinessService businessService;
 
+    private final AuthUtil authUtil;
+
     /**
      * Autowired SaleItemController constructor method to initialize saleItemRepository.
      *
      * @param saleItemService Instance of SaleItemService.
      * @param businessService
+     * @param authUtil Instance of AuthUtil.
      */
     @Autowired
-    public SaleItemController(SaleItemService saleItemService, BusinessService businessService) {
+    public SaleItemController(SaleItemService saleItemService, BusinessService businessService, AuthUtil authUtil) {
         this.saleItemService = saleItemService;
         this.businessService = businessService;
+        this.authUtil = authUtil;
     }
 
     @Getter
+    @EqualsAndHashCode
     public static class FilterQuery {
 
         private final String businessType;
@@ -78,9 +86,13 @@ public class SaleItemController {
      * not logged in, a HTTP 401 Unauthorized response is returned. Otherwise, an HTTP 200 response is
      * returned, along with the Sale Item object.
      *
+     * Pages are requested either by page number, or by the cursor returned in the Next-Cursor header of the previous
+     * page. An empty cursor requests the first page. The Next-Cursor header is omitted from the last page.
+     *
      * @param searchQuery A string containing the search parameters
      * @param filterQuery A Filter Query containing the queries for filtering the search results by
-     * @param pageNum The current page that frontend will display.
+     * @param pageNum The current page that frontend will display. Required unless a cursor is given.
+     * @param cursor The cursor of the page that frontend will display.
      * @param perPage Total items each page will display.
      * @param sortBy The field name that needs to be sorted.
      * @param orderBy The order in asc or desc.
@@ -89,31 +101,88 @@ public class SaleItemController {
     @GetMapping(path = "listings/search")
     public ResponseEntity<Object> getListingsSearch(@RequestParam(value = "searchQuery", required = false) String searchQuery,
                                                     FilterQuery filterQuery,
-                                                    @RequestParam(value = "pageNum") @NotNull Integer pageNum,
+                                                    @RequestParam(value = "pageNum", required = false) Integer pageNum,
+                                                    @RequestParam(value = "cursor", required = false) String cursor,
                                                     @RequestParam(value = "perPage") @NotNull Integer perPage,
                                                     @RequestParam(value = "sortBy")  @NotNull String sortBy,
                                                     @RequestParam(value = "orderBy") @NotNull String orderBy) {
         if (searchQuery == null) {
             searchQuery = "";
         }
-        SearchingService.SearchResult foundListings = saleItemService.searchSaleListings(
-                SearchParamsParser.parse(searchQuery),
-                filterQuery,
-                pageNum,
-                perPage,
-                sortBy,
-                orderBy);
+        SearchingService.SearchResult foundListings;
+        if (cursor != null) {
+            foundListings = saleItemService.searchSaleListingsAfter(
+                    SearchParamsParser.parse(searchQuery),
+                    filterQuery,
+                    cursor,
+                    perPage,
+                    sortBy,
+                    orderBy);
+        } else if (pageNum != null) {
+            foundListings = saleItemService.searchSaleListings(
+                    SearchParamsParser.parse(searchQuery),
+                    filterQuery,
+                    pageNum,
+                    perPage,
+                    sortBy,
+                    orderBy);
+        } else {
+            throw new IllegalArgumentException("Either a page number or a cursor is required");
+        }
         HttpHeaders responseHeader = new HttpHeaders();
         responseHeader.add("Total-length", String.valueOf(foundListings.getResultsLength()));
+        if (foundListings.getNextCursor() != null) {
+            responseHeader.add("Next-Cursor", foundListings.getNextCursor());
+        }
         return ResponseEntity.ok().headers(responseHeader).body(foundListings.getResult());
     }
 
+    /**
+     * Retrieves the statistics of the listing search result cache: its hit, miss, eviction and invalidation counts,
+     * and the number of pages it holds. Only global application administrators can retrieve the statistics.
+     *
+     * @return 200 OK with the statistics, or 403 Forbidden if the user is not a global application administrator
+     */
+    @GetMapping(path = "/listings/search/cache")
+    public ResponseEntity<Object> getListingsSearchCacheStatistics() {
+        if (!authUtil.isCurrentUserGlobalAdmin()) {
+            throw new ForbiddenException("Current user is not a global admin");
+        }
+        return new ResponseEntity<>(saleItemService.getSearchCacheStatistics(), HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves the most liked open sale listings, most liked first. Listings nobody has liked are not included.
+     * If the size is not between 1 and 100, an HTTP 400 Bad Request response is returned.
+     *
+     * @param size The most listings to return, 10 by default.
+     * @return 200 OK with the listings
+     */
+    @GetMapping(path = "/listings/most-liked")
+    public ResponseEntity<Object> getMostLikedListings(@RequestParam(value = "size", defaultValue = "10") int size) {
+        return new ResponseEntity<>(saleItemService.getMostLikedListings(size), HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves the trending open sale listings: those liked the most recently, with likes counting half as much for
+     * each half-life (a day by default) since they were made. Listings nobody has liked are not included.
+     * If the size is not between 1 and 100, an HTTP 400 Bad Request response is returned.
+     *
+     * @param size The most listings to return, 10 by default.
+     * @return 200 OK with the listings
+     */
+    @GetMapping(path = "/listings/trending")
+    public ResponseEntity<Object> getTrendingListings(@RequestParam(value = "size", defaultValue = "10") int size) {
+        return new ResponseEntity<>(saleItemService.getTrendingListings(size), HttpStatus.OK);
+    }
+
     /**
      * This method retrieves a sale item given a specific ID.
      *
      * If the user is not logged in, an HTTP 401 Unauthorized response is returned.
      * If the sale item with given ID does not exist, an HTTP 406 Not Acceptable response is returned.
-     * If otherwise successful, an HTTP 200 response is returned along with the user object.
+     * If otherwise successful, an HTTP 200 response is returned along with the sale item, including whether the
+     * current user likes it.
      *
      * @param listingId the id of the listing to be retrieved
      * @return
@@ -121,7 +190,7 @@ public class SaleItemController {
     @GetMapping(path = "/listings/{listingId}")
     public ResponseEntity<Object> getListingById(@PathVariable long listingId) {
         SaleItem saleItem = businessService.getSaleItemById(listingId);
-        return new ResponseEntity<>(saleItem, HttpStatus.OK);
+        return new ResponseEntity<>(saleItemService.getListing(saleItem), HttpStatus.OK);
     }
 
 }
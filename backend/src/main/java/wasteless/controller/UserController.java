@@ -111,8 +111,13 @@ public class UserController {
    * not logged in, a HTTP 401 Unauthorized response is returned. Otherwise, an HTTP 200 response is
    * returned, along with the user object.
    *
+   * <p>Pages are requested either by page number, or by the cursor returned in the Next-Cursor header
+   * of the previous page. An empty cursor requests the first page. The Next-Cursor header is omitted
+   * from the last page.
+   *
    * @param searchQuery A string containing the search parameters
-   * @param pageNum The current page that frontend will display.
+   * @param pageNum The current page that frontend will display. Required unless a cursor is given.
+   * @param cursor The cursor of the page that frontend will display.
    * @param perPage Total items each page will display.
    * @param sortBy The field name that needs to be sorted.
    * @param orderBy The order in asc or desc.
@@ -120,14 +125,25 @@ public class UserController {
    */
   @GetMapping(path = "/users/search")
   public ResponseEntity<Object> searchForUser(@RequestParam String searchQuery,
-                                              @RequestParam long pageNum,
+                                              @RequestParam(required = false) Long pageNum,
+                                              @RequestParam(required = false) String cursor,
                                               @RequestParam long perPage,
                                               @RequestParam String sortBy,
                                               @RequestParam String orderBy) {
     authUtil.getCurrentUser();
-    SearchingService.SearchResult foundUsers = userService.findUsers(searchQuery, pageNum, perPage, sortBy, orderBy);
+    SearchingService.SearchResult foundUsers;
+    if (cursor != null) {
+      foundUsers = userService.findUsersAfter(searchQuery, cursor, perPage, sortBy, orderBy);
+    } else if (pageNum != null) {
+      foundUsers = userService.findUsers(searchQuery, pageNum, perPage, sortBy, orderBy);
+    } else {
+      throw new IllegalArgumentException("Either a page number or a cursor is required");
+    }
     HttpHeaders responseHeader = new HttpHeaders();
     responseHeader.add("Total-length", String.valueOf(foundUsers.getResultsLength()));
+    if (foundUsers.getNextCursor() != null) {
+      responseHeader.add("Next-Cursor", foundUsers.getNextCursor());
+    }
     return ResponseEntity.ok().headers(responseHeader).body(foundUsers.getResult());
 
   }
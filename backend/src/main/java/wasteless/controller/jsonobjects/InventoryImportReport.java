@@ -0,0 +1,63 @@
+package wasteless.controller.jsonobjects;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a bulk inventory import: how many rows were created and rejected, and the result of each row.
+ */
+@Getter
+public class InventoryImportReport {
+
+    private int created = 0;
+
+    private int rejected = 0;
+
+    private final List<RowResult> rows = new ArrayList<>();
+
+    /**
+     * The result of one row of an import. Rows are numbered from 1, not counting the header of a CSV file.
+     */
+    @Getter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RowResult {
+
+        private final long row;
+
+        private String status;
+
+        private Long inventoryItemId;
+
+        private List<String> errors;
+
+        private RowResult(long row) {
+            this.row = row;
+        }
+    }
+
+    /**
+     * Adds the result of a row that has not been written yet.
+     * @param row the number of the row
+     * @return the result, to be completed once the row has been written or rejected
+     */
+    public RowResult addRow(long row) {
+        RowResult result = new RowResult(row);
+        rows.add(result);
+        return result;
+    }
+
+    public void created(RowResult result, Long inventoryItemId) {
+        result.status = "created";
+        result.inventoryItemId = inventoryItemId;
+        created++;
+    }
+
+    public void rejected(RowResult result, List<String> errors) {
+        result.status = "rejected";
+        result.errors = errors;
+        rejected++;
+    }
+}
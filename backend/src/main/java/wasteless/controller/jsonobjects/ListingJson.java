@@ -0,0 +1,177 @@
+package wasteless.controller.jsonobjects;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+import wasteless.model.Address;
+import wasteless.model.InventoryItem;
+import wasteless.model.Product;
+import wasteless.model.SaleItem;
+import wasteless.model.Searchable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The response of a sale listing, as returned by the listing search, feeds and /listings/{id}. It holds a copy of
+ * everything the response shows, read once by SaleItemService, so serializing it never loads anything from the
+ * database. Its JSON matches that of a SaleItem entity.
+ */
+@Getter
+public class ListingJson implements Searchable {
+
+    private final long id;
+
+    private final InventoryItemJson inventoryItem;
+
+    private final boolean sold;
+
+    private final Integer quantity;
+
+    private final Double price;
+
+    private final String moreInfo;
+
+    private final LocalDateTime created;
+
+    private final LocalDateTime closes;
+
+    private final LocalDateTime purchased;
+
+    private final int numberOfLikes;
+
+    private final String country;
+
+    private final long businessId;
+
+    /**
+     * Whether the current user likes the listing. Only set when a single listing is read, and left out of the
+     * response otherwise.
+     */
+    @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean likedByCurrentUser;
+
+    /**
+     * @param saleItem The sale listing, with its inventory item, product and business (and its address) loaded.
+     * @param images The images of the product of the listing.
+     */
+    public ListingJson(SaleItem saleItem, List<ImageJson> images) {
+        InventoryItem inventoryItem = saleItem.getInventoryItem();
+        Address address = inventoryItem.getBusiness().getAddress();
+        this.id = saleItem.getSaleItemId();
+        this.inventoryItem = new InventoryItemJson(inventoryItem, images);
+        this.sold = saleItem.isSold();
+        this.quantity = saleItem.getQuantity();
+        this.price = saleItem.getPrice();
+        this.moreInfo = saleItem.getMoreInfo();
+        this.created = saleItem.getCreated();
+        this.closes = saleItem.getCloses();
+        this.purchased = saleItem.getPurchased();
+        this.numberOfLikes = saleItem.getNumberOfLikes();
+        this.country = address == null ? null : address.getCountry();
+        this.businessId = inventoryItem.getBusiness().getBusinessId();
+    }
+
+    /**
+     * The inventory item a listing is for.
+     */
+    @Getter
+    public static class InventoryItemJson {
+
+        private final Long inventoryItemId;
+
+        private final ProductJson product;
+
+        private final Integer quantity;
+
+        private final Double pricePerItem;
+
+        private final Double totalPrice;
+
+        private final LocalDate manufactured;
+
+        private final LocalDate sellBy;
+
+        private final LocalDate bestBefore;
+
+        private final LocalDate expires;
+
+        private final LocalDateTime created;
+
+        private InventoryItemJson(InventoryItem inventoryItem, List<ImageJson> images) {
+            this.inventoryItemId = inventoryItem.getInventoryItemId();
+            this.product = new ProductJson(inventoryItem.getProduct(), images);
+            this.quantity = inventoryItem.getQuantity();
+            this.pricePerItem = inventoryItem.getPricePerItem();
+            this.totalPrice = inventoryItem.getTotalPrice();
+            this.manufactured = inventoryItem.getManufactured();
+            this.sellBy = inventoryItem.getSellBy();
+            this.bestBefore = inventoryItem.getBestBefore();
+            this.expires = inventoryItem.getExpires();
+            this.created = inventoryItem.getCreated();
+        }
+    }
+
+    /**
+     * The product of the inventory item a listing is for.
+     */
+    @Getter
+    public static class ProductJson {
+
+        @JsonProperty("id")
+        private final String productId;
+
+        private final String name;
+
+        private final String description;
+
+        private final String manufacturer;
+
+        private final double recommendedRetailPrice;
+
+        private final LocalDate created;
+
+        private final List<ImageJson> images;
+
+        private ProductJson(Product product, List<ImageJson> images) {
+            this.productId = product.getProductId();
+            this.name = product.getName();
+            this.description = product.getDescription();
+            this.manufacturer = product.getManufacturer();
+            this.recommendedRetailPrice = product.getRecommendedRetailPrice();
+            this.created = product.getCreated();
+            this.images = images;
+        }
+
+        /**
+         * @return The image of the product set to primary, or null if there is none.
+         */
+        public ImageJson getPrimaryProductImage() {
+            for (ImageJson image : images) {
+                if (image.isPrimary()) {
+                    return image;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * An image of the product of a listing.
+     */
+    @Getter
+    public static class ImageJson {
+
+        private final long productImageId;
+
+        private final boolean primary;
+
+        public ImageJson(long productImageId, boolean primary) {
+            this.productImageId = productImageId;
+            this.primary = primary;
+        }
+    }
+}
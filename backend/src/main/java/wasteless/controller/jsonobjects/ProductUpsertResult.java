@@ -0,0 +1,17 @@
+package wasteless.controller.jsonobjects;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The result of a bulk product catalogue upsert: how many products were created, and how many existing products were
+ * updated.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductUpsertResult {
+
+    private final int created;
+
+    private final int updated;
+}
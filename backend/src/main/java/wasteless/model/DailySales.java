@@ -0,0 +1,63 @@
+package wasteless.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * This class defines the daily sales rollup, which totals the sales of a business for each day it made sales.
+ * Sales reports are summarised from these totals rather than from the sold sale items themselves.
+ *
+ * Totals are added to as sale items are purchased, and can be rebuilt from the sold sale items by the
+ * SalesRollupService.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@IdClass(DailySales.DailySalesId.class)
+public class DailySales {
+
+  @Id
+  private long businessId;
+
+  @Id
+  private LocalDate salesDate;
+
+  // Number of sale items purchased on the day
+  private long numberOfSales;
+
+  // Total price of the sale items purchased on the day
+  private double valueOfSales;
+
+  // Total quantity of the sale items purchased on the day
+  private long unitsSold;
+
+  public DailySales(long businessId, LocalDate salesDate, long numberOfSales, double valueOfSales, long unitsSold) {
+    this.businessId = businessId;
+    this.salesDate = salesDate;
+    this.numberOfSales = numberOfSales;
+    this.valueOfSales = valueOfSales;
+    this.unitsSold = unitsSold;
+  }
+
+  /**
+   * Composite primary key of the daily sales rollup.
+   */
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class DailySalesId implements Serializable {
+    private long businessId;
+    private LocalDate salesDate;
+
+    public DailySalesId(long businessId, LocalDate salesDate) {
+      this.businessId = businessId;
+      this.salesDate = salesDate;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package wasteless.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * This class defines the next unallocated id of each table whose ids are generated by the PooledIdGenerator.
+ * It is only read and written by the generator itself; it is mapped so that its table is created with the schema.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+public class IdBlock {
+
+  // Name of the table the ids are generated for
+  @Id
+  private String blockName;
+
+  // First id that has not yet been allocated to a block
+  private long nextVal;
+}
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -25,7 +26,8 @@ public class InventoryItem {
 
   @Id
   @Column
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "inventory_item_id")
+  @GenericGenerator(name = "inventory_item_id", strategy = PooledIdGenerator.STRATEGY)
   private Long inventoryItemId;
 
   @NotBlank(message = "Product ID is required")
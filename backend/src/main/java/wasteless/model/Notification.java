@@ -13,8 +13,18 @@ import java.time.LocalDateTime;
  * This class defines the notifications that relate to users.
  * Notifications are stored with a category which will be used by the frontend to decide the
  * necessary action.
+ *
+ * Notifications are read newest first by ID, which increases as they are created, so the feed is indexed on the user
+ * and ID. Unread notifications are counted from the index on the user and read status, and old read notifications are
+ * found for deletion from the index on read status and creation date.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_notification_user_id", columnList = "userId, id"),
+        @Index(name = "idx_notification_user_read_created", columnList = "userId, notificationRead, created"),
+        @Index(name = "idx_notification_read_created", columnList = "notificationRead, created"),
+        @Index(name = "idx_notification_category_user_action", columnList = "category, userId, actionId, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,118 @@
+package wasteless.model;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.jdbc.AbstractReturningWork;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Generates ids in blocks, so that Hibernate can batch inserts. Entities with IDENTITY ids cannot be batched, as each
+ * insert has to be executed on its own to read back the id the database assigned.
+ *
+ * Each table has a row in the id_block table ({@link IdBlock}) holding the next id that has not been allocated. A block
+ * of wasteless.id.allocation_size ids (50 by default) is reserved by moving that id forward in its own transaction, and
+ * the ids of the block are then handed out from memory. A block never starts at or below the largest id in the table,
+ * so tables first filled with IDENTITY ids, and rows inserted with explicit ids, do not collide with generated ids.
+ * Ids left unused in a block when the application stops are skipped.
+ */
+public class PooledIdGenerator implements IdentifierGenerator, Configurable {
+
+  public static final String STRATEGY = "wasteless.model.PooledIdGenerator";
+
+  public static final String ALLOCATION_SIZE_SETTING = "wasteless.id.allocation_size";
+
+  private static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+  private String tableName;
+  private String columnName;
+  private int allocationSize;
+
+  private long nextId = 0;
+  private long blockEnd = 0;
+
+  @Override
+  public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+    if (type.getReturnedClass() != Long.class) {
+      throw new MappingException("PooledIdGenerator can only generate long ids");
+    }
+    tableName = params.getProperty(PersistentIdentifierGenerator.TABLE);
+    columnName = params.getProperty(PersistentIdentifierGenerator.PK);
+    allocationSize = Math.max(1, ConfigurationHelper.getInt(ALLOCATION_SIZE_SETTING,
+            serviceRegistry.getService(ConfigurationService.class).getSettings(), DEFAULT_ALLOCATION_SIZE));
+  }
+
+  @Override
+  public synchronized Serializable generate(SharedSessionContractImplementor session, Object object) {
+    if (nextId >= blockEnd) {
+      nextId = allocateBlock(session);
+      blockEnd = nextId + allocationSize;
+    }
+    return nextId++;
+  }
+
+  /**
+   * Reserves the next block of ids, outside of the transaction of the session.
+   * @return the first id of the block
+   */
+  private long allocateBlock(SharedSessionContractImplementor session) {
+    AbstractReturningWork<Long> work = new AbstractReturningWork<>() {
+      @Override
+      public Long execute(Connection connection) throws SQLException {
+        return allocateBlock(connection);
+      }
+    };
+    try {
+      return session.getTransactionCoordinator().createIsolationDelegate().delegateWork(work, true);
+    } catch (HibernateException e) {
+      // Another instance created the row of the table first, so it can now be moved forward
+      return session.getTransactionCoordinator().createIsolationDelegate().delegateWork(work, true);
+    }
+  }
+
+  private long allocateBlock(Connection connection) throws SQLException {
+    Long stored = null;
+    try (PreparedStatement select = connection.prepareStatement(
+            "SELECT next_val FROM id_block WHERE block_name = ? FOR UPDATE")) {
+      select.setString(1, tableName);
+      try (ResultSet resultSet = select.executeQuery()) {
+        if (resultSet.next()) {
+          stored = resultSet.getLong(1);
+        }
+      }
+    }
+
+    long maximum;
+    try (PreparedStatement select = connection.prepareStatement(
+            "SELECT MAX(" + columnName + ") FROM " + tableName);
+         ResultSet resultSet = select.executeQuery()) {
+      resultSet.next();
+      // MAX is null, read as 0, when the table is empty
+      maximum = resultSet.getLong(1);
+    }
+
+    long start = Math.max(stored == null ? 1 : stored, maximum + 1);
+    String write = stored == null
+            ? "INSERT INTO id_block (next_val, block_name) VALUES (?, ?)"
+            : "UPDATE id_block SET next_val = ? WHERE block_name = ?";
+    try (PreparedStatement statement = connection.prepareStatement(write)) {
+      statement.setLong(1, start + allocationSize);
+      statement.setString(2, tableName);
+      statement.executeUpdate();
+    }
+    return start;
+  }
+}
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -17,13 +18,19 @@ import java.util.List;
 @Entity // Declares user as a JPA entity
 @Setter
 @Getter
-@Table(name = "product")
+@Table(
+    name = "product",
+    uniqueConstraints =
+        @UniqueConstraint(
+            name = "uk_product_business_product_id",
+            columnNames = {"businessId", "productId"}))
 public class Product {
 
   /** Catalogue Id, that will be auto generated, for current version. */
   @Id
   @JsonIgnore
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "product_row_id")
+  @GenericGenerator(name = "product_row_id", strategy = PooledIdGenerator.STRATEGY)
   private long rowId;
 
   /** The foreign key businessId from Business table. */
@@ -1,12 +1,12 @@
 package wasteless.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -22,7 +22,8 @@ public class SaleItem implements Searchable {
   /** SaleItem Id, that will be auto generated, for current version. */
   @Id
   @Column
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "sale_item_id")
+  @GenericGenerator(name = "sale_item_id", strategy = PooledIdGenerator.STRATEGY)
   private Long saleItemId;
 
   /** The foreign key of inventoryId from inventory entity. */
@@ -68,11 +69,21 @@ public class SaleItem implements Searchable {
   @JoinTable(
           name = "sale_listing_like",
           joinColumns = @JoinColumn(name = "saleItemId"),
-          inverseJoinColumns = @JoinColumn(name = "userId")
+          inverseJoinColumns = @JoinColumn(name = "userId"),
+          uniqueConstraints = @UniqueConstraint(name = "uk_sale_listing_like", columnNames = {"saleItemId", "userId"})
   )
-  @JsonIgnoreProperties("likedByUsers")
+  @JsonIgnore
   private Set<User> likedByUsers;
 
+  /**
+   * The number of users who like the sale item. It is changed only by the statements that add and remove likes (see
+   * SaleItemRepository), in the same transaction, and is never written from the entity, so a stale copy of the sale
+   * item cannot overwrite it.
+   */
+  @JsonIgnore
+  @Column(nullable = false, updatable = false)
+  private int likeCount = 0;
+
   /**
    * The constructor for saleItem entity.
    *
@@ -100,7 +111,7 @@ public class SaleItem implements Searchable {
 
   @JsonProperty("numberOfLikes")
   public int getNumberOfLikes() {
-    return likedByUsers.size();
+    return likeCount;
   }
 
   @JsonProperty("id")
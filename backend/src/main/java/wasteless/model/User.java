@@ -111,7 +111,11 @@ public class User implements Searchable {
   @JoinTable(
       name = "admins",
       joinColumns = @JoinColumn(name = "userId"),
-      inverseJoinColumns = @JoinColumn(name = "businessId"))
+      inverseJoinColumns = @JoinColumn(name = "businessId"),
+      uniqueConstraints =
+          @UniqueConstraint(
+              name = "uk_admins_business_user",
+              columnNames = {"businessId", "userId"}))
   private List<Business> businessesAdministered;
 
   /**  A list of all the sale items purchased by the user. */
@@ -2,6 +2,7 @@ package wasteless.repository;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import wasteless.model.Business;
 
@@ -29,4 +30,29 @@ public interface BusinessRepository extends JpaRepository<Business, Long> {
    */
   List<Business> findAllByPrimaryAdminId(long id);
 
+  /**
+   * Method to find the IDs of all businesses that a given user administers or is the primary admin
+   * of, without loading the businesses
+   *
+   * @param userId The ID of the user
+   * @return The IDs of the businesses
+   */
+  @Query(
+      "SELECT DISTINCT b.businessId FROM Business b LEFT JOIN b.admins a "
+          + "WHERE b.primaryAdminId = ?1 OR a.userId = ?1")
+  List<Long> findAdministeredBusinessIds(long userId);
+
+  /**
+   * Method to check whether a given user administers or is the primary admin of a business, without
+   * loading the business's administrators
+   *
+   * @param businessId The ID of the business
+   * @param userId The ID of the user
+   * @return Whether the user is an administrator of the business
+   */
+  @Query(
+      "SELECT CASE WHEN COUNT(b) > 0 THEN TRUE ELSE FALSE END FROM Business b LEFT JOIN b.admins a "
+          + "WHERE b.businessId = ?1 AND (b.primaryAdminId = ?2 OR a.userId = ?2)")
+  boolean isAdministeredBy(long businessId, long userId);
+
 }
@@ -0,0 +1,98 @@
+package wasteless.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import wasteless.model.DailySales;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DailySalesRepository defines the methods to be called on the JPA repository to retrieve and maintain the daily
+ * sales rollup.
+ */
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySales, DailySales.DailySalesId> {
+
+  /**
+   * A method to find the daily sales totals of a business within a period.
+   *
+   * @param businessId the ID of the business
+   * @param from the first day of the period
+   * @param to the last day of the period
+   * @return the totals of the days with sales, ordered by day
+   */
+  List<DailySales> findByBusinessIdAndSalesDateBetweenOrderBySalesDate(long businessId, LocalDate from, LocalDate to);
+
+  /**
+   * A method to add a sale to the total of a business for a day, creating the total from the sale if the business has
+   * none for the day yet. The insert and the update are one statement, so it can run in the transaction of the
+   * purchase, and concurrent purchases on the same day wait for each other rather than fail.
+   *
+   * @param businessId the ID of the business
+   * @param salesDate the day of the sale
+   * @param value the price of the sale item sold
+   * @param units the quantity of the sale item sold
+   * @return the number of rows affected
+   */
+  @Modifying
+  @Query(
+          value =
+                  "INSERT INTO daily_sales (business_id, sales_date, number_of_sales, value_of_sales, units_sold) "
+                          + "VALUES (?1, ?2, 1, ?3, ?4) ON DUPLICATE KEY UPDATE "
+                          + "number_of_sales = number_of_sales + 1, value_of_sales = value_of_sales + ?3, "
+                          + "units_sold = units_sold + ?4",
+          nativeQuery = true)
+  int upsertSale(long businessId, LocalDate salesDate, double value, long units);
+
+  /**
+   * A method to delete the daily totals of every business.
+   */
+  @Modifying
+  @Query("DELETE FROM DailySales d")
+  int deleteAllTotals();
+
+  /**
+   * A method to delete the daily totals of a business.
+   *
+   * @param businessId the ID of the business
+   */
+  @Modifying
+  @Query("DELETE FROM DailySales d WHERE d.businessId = ?1")
+  int deleteTotalsByBusiness(long businessId);
+
+  /**
+   * A method to total the sold sale items of every business for each day.
+   *
+   * @return the number of totals created
+   */
+  @Modifying
+  @Query(
+          value =
+                  "INSERT INTO daily_sales (business_id, sales_date, number_of_sales, value_of_sales, units_sold) "
+                          + "SELECT i.business_id, CAST(s.purchased AS DATE), COUNT(*), SUM(s.price), SUM(s.quantity) "
+                          + "FROM sale_item s JOIN inventory_item i ON s.inventory_item_id = i.inventory_item_id "
+                          + "WHERE s.sold IS TRUE AND s.purchased IS NOT NULL "
+                          + "GROUP BY i.business_id, CAST(s.purchased AS DATE)",
+          nativeQuery = true)
+  int insertTotalsFromSoldListings();
+
+  /**
+   * A method to total the sold sale items of a business for each day.
+   *
+   * @param businessId the ID of the business
+   * @return the number of totals created
+   */
+  @Modifying
+  @Query(
+          value =
+                  "INSERT INTO daily_sales (business_id, sales_date, number_of_sales, value_of_sales, units_sold) "
+                          + "SELECT i.business_id, CAST(s.purchased AS DATE), COUNT(*), SUM(s.price), SUM(s.quantity) "
+                          + "FROM sale_item s JOIN inventory_item i ON s.inventory_item_id = i.inventory_item_id "
+                          + "WHERE i.business_id = ?1 AND s.sold IS TRUE AND s.purchased IS NOT NULL "
+                          + "GROUP BY i.business_id, CAST(s.purchased AS DATE)",
+          nativeQuery = true)
+  int insertTotalsFromSoldListingsByBusiness(long businessId);
+}
@@ -1,7 +1,11 @@
 package wasteless.repository;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import wasteless.model.InventoryItem;
 
@@ -22,4 +26,31 @@ public interface InventoryItemRepository extends JpaRepository<InventoryItem, Lo
    * @return The InventoryItem with the specified ID
    */
   Optional<InventoryItem> findByInventoryItemId(long id);
+
+  /**
+   * A method to remove quantity from an InventoryItem, only if it has enough quantity. The check and the update are
+   * made by one statement, so concurrent purchases can never take the quantity below zero.
+   *
+   * @param inventoryItemId The ID of the Inventory
+   * @param quantity The quantity to remove
+   * @return The number of InventoryItem updated; 0 if it does not exist or has less than the quantity to remove
+   */
+  @Modifying
+  @Query("UPDATE InventoryItem i SET i.quantity = i.quantity - ?2 WHERE i.inventoryItemId = ?1 AND i.quantity >= ?2")
+  int decrementQuantity(long inventoryItemId, int quantity);
+
+  /**
+   * A method to find a page of the inventory of a business, along with the product of each item, keeping only the
+   * items whose product code or product name, in lower case, matches the given LIKE pattern ('!' escapes wildcards).
+   *
+   * @param businessId The ID of the business
+   * @param pattern The LIKE pattern the product code or name must match
+   * @param pageable The page to find, and how to sort the inventory
+   * @return The page of InventoryItem
+   */
+  @Query(value = "SELECT i FROM InventoryItem i JOIN FETCH i.product p WHERE i.business.businessId = ?1"
+          + " AND (LOWER(p.productId) LIKE ?2 ESCAPE '!' OR LOWER(p.name) LIKE ?2 ESCAPE '!')",
+          countQuery = "SELECT COUNT(i) FROM InventoryItem i JOIN i.product p WHERE i.business.businessId = ?1"
+          + " AND (LOWER(p.productId) LIKE ?2 ESCAPE '!' OR LOWER(p.name) LIKE ?2 ESCAPE '!')")
+  Page<InventoryItem> findInventoryPage(long businessId, String pattern, Pageable pageable);
 }
@@ -1,11 +1,18 @@
 package wasteless.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import wasteless.model.Notification;
 import wasteless.model.NotificationCategory;
 import wasteless.model.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,4 +21,117 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
 
     List<Notification> findNotificationsByRelatedUserAndActionIdAndCategoryAndNotificationReadFalse(
             User user, Integer actionId, NotificationCategory category);
+
+    /**
+     * Gets a user's notifications with IDs between two cursors, newest first, without loading the user.
+     * @param userId the ID of the user
+     * @param since only notifications with greater IDs are returned
+     * @param before only notifications with smaller IDs are returned
+     * @param pageable limits the number of notifications returned
+     * @return the notifications
+     */
+    @Query("SELECT n FROM Notification n WHERE n.relatedUser.userId = :userId AND n.id > :since AND n.id < :before "
+            + "ORDER BY n.id DESC")
+    List<Notification> findFeedPage(@Param("userId") long userId, @Param("since") long since,
+                                    @Param("before") long before, Pageable pageable);
+
+    /**
+     * Counts a user's unread notifications without loading the user or the notifications.
+     * @param userId the ID of the user
+     * @return the number of unread notifications
+     */
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.relatedUser.userId = :userId AND n.notificationRead = false")
+    long countUnread(@Param("userId") long userId);
+
+    /**
+     * Marks one of a user's notifications as read.
+     * @param userId the ID of the user the notification must belong to
+     * @param notificationId the ID of the notification
+     * @return the number of notifications marked; 0 if it does not exist, belongs to another user or is already read
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notification n SET n.notificationRead = TRUE "
+            + "WHERE n.id = :notificationId AND n.relatedUser.userId = :userId AND n.notificationRead = FALSE")
+    int markRead(@Param("userId") long userId, @Param("notificationId") long notificationId);
+
+    /**
+     * Marks a user's unread notifications up to a cursor as read.
+     * @param userId the ID of the user
+     * @param upTo only notifications with this ID or smaller are marked
+     * @return the number of notifications marked
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notification n SET n.notificationRead = TRUE "
+            + "WHERE n.relatedUser.userId = :userId AND n.id <= :upTo AND n.notificationRead = FALSE")
+    int markReadUpTo(@Param("userId") long userId, @Param("upTo") long upTo);
+
+    /**
+     * Marks a user's unread notifications of a category up to a cursor as read.
+     * @param userId the ID of the user
+     * @param category the category of the notifications
+     * @param upTo only notifications with this ID or smaller are marked
+     * @return the number of notifications marked
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notification n SET n.notificationRead = TRUE "
+            + "WHERE n.relatedUser.userId = :userId AND n.category = :category AND n.id <= :upTo "
+            + "AND n.notificationRead = FALSE")
+    int markReadByCategory(@Param("userId") long userId, @Param("category") NotificationCategory category,
+                           @Param("upTo") long upTo);
+
+    /**
+     * Marks a user's unread notifications of a category about one entity up to a cursor as read.
+     * @param userId the ID of the user
+     * @param category the category of the notifications
+     * @param actionId the ID of the entity the notifications are about
+     * @param upTo only notifications with this ID or smaller are marked
+     * @return the number of notifications marked
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notification n SET n.notificationRead = TRUE "
+            + "WHERE n.relatedUser.userId = :userId AND n.category = :category AND n.actionId = :actionId "
+            + "AND n.id <= :upTo AND n.notificationRead = FALSE")
+    int markReadByCategoryAndActionId(@Param("userId") long userId, @Param("category") NotificationCategory category,
+                                      @Param("actionId") Integer actionId, @Param("upTo") long upTo);
+
+    /**
+     * Gets the IDs of read notifications created before a date, oldest first. The notifications are found and ordered
+     * by idx_notification_read_created, so a batch only reads the rows it returns.
+     * @param before only notifications created before this date are found
+     * @param pageable limits the number of IDs returned
+     * @return the IDs of the notifications
+     */
+    @Query("SELECT n.id FROM Notification n WHERE n.notificationRead = TRUE AND n.created < :before "
+            + "ORDER BY n.created, n.id")
+    List<Long> findReadIdsCreatedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * Gets the IDs of notifications of a category that are superseded by a newer notification of the same category,
+     * for the same user and entity, oldest first. Notifications with no action ID are never superseded. Each newer
+     * notification is looked up by idx_notification_category_user_action, and the scan starts after the given ID, so
+     * batches do not read the notifications earlier batches have already passed.
+     * @param category the category of the notifications
+     * @param afterId only notifications with a larger ID are found
+     * @param pageable limits the number of IDs returned
+     * @return the IDs of the notifications
+     */
+    @Query("SELECT n.id FROM Notification n WHERE n.category = :category AND n.id > :afterId AND EXISTS ("
+            + "SELECT m.id FROM Notification m WHERE m.category = n.category AND m.relatedUser = n.relatedUser "
+            + "AND m.actionId = n.actionId AND m.id > n.id) "
+            + "ORDER BY n.id")
+    List<Long> findSupersededIds(@Param("category") NotificationCategory category, @Param("afterId") long afterId,
+                                 Pageable pageable);
+
+    /**
+     * Deletes notifications by ID without loading them.
+     * @param ids the IDs of the notifications
+     * @return the number of notifications deleted
+     */
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
 }
@@ -2,11 +2,36 @@ package wasteless.repository;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import wasteless.model.ProductImage;
 
+import java.util.Collection;
+import java.util.List;
+
 @Qualifier("productImage")
 @Repository
 public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
 
+  /**
+   * An image of a product, with the row ID of the product it belongs to.
+   */
+  interface ListingImage {
+    Long getRowId();
+
+    Long getProductImageId();
+
+    Boolean getIsPrimary();
+  }
+
+  /**
+   * A method to find the images of the given products, without loading the images or products themselves. Used by
+   * the listing read path, so the images of a page of listings are read by one query.
+   *
+   * @param rowIds the row IDs of the products
+   * @return the images of the products, in the order they were added
+   */
+  @Query("SELECT i.product.rowId AS rowId, i.productImageId AS productImageId, i.isPrimary AS isPrimary "
+          + "FROM ProductImage i WHERE i.product.rowId IN ?1 ORDER BY i.productImageId")
+  List<ListingImage> findListingImages(Collection<Long> rowIds);
 }
@@ -1,11 +1,15 @@
 package wasteless.repository;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import wasteless.model.Business;
 import wasteless.model.Product;
 
+import java.util.Collection;
 import java.util.List;
 
 @Qualifier("products")
@@ -19,4 +23,45 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
   List<Product> findByRowId(long rowId);
 
   List<Product> findByBusinessAndProductId(Business business, String productId);
+
+  /**
+   * Returns the products of the specified business with any of the given product codes, in one
+   * query using the unique index on (business, product code).
+   */
+  List<Product> findByBusinessBusinessIdAndProductIdIn(long businessId, Collection<String> productIds);
+
+  /** The product code of a product, along with the row id it is stored under. */
+  interface ProductCode {
+    String getProductId();
+
+    Long getRowId();
+  }
+
+  /**
+   * Returns the product codes of every product of the specified business, without loading the
+   * products themselves.
+   */
+  @Query("SELECT p.productId AS productId, p.rowId AS rowId FROM Product p WHERE p.business.businessId = ?1")
+  List<ProductCode> findProductCodesByBusiness(long businessId);
+
+  /**
+   * Returns a page of the catalogue of the specified business, keeping only the products whose
+   * code, name or manufacturer, in lower case, matches the given LIKE pattern ('!' escapes
+   * wildcards). Images are not loaded; see {@link #fetchImages}.
+   */
+  @Query(
+      value =
+          "SELECT p FROM Product p WHERE p.business.businessId = ?1 AND (LOWER(p.productId) LIKE ?2 ESCAPE '!'"
+              + " OR LOWER(p.name) LIKE ?2 ESCAPE '!' OR LOWER(p.manufacturer) LIKE ?2 ESCAPE '!')",
+      countQuery =
+          "SELECT COUNT(p) FROM Product p WHERE p.business.businessId = ?1 AND (LOWER(p.productId) LIKE ?2 ESCAPE '!'"
+              + " OR LOWER(p.name) LIKE ?2 ESCAPE '!' OR LOWER(p.manufacturer) LIKE ?2 ESCAPE '!')")
+  Page<Product> findCataloguePage(long businessId, String pattern, Pageable pageable);
+
+  /**
+   * Loads the images of the given products with one query. Products already in the persistence
+   * context have their image lists filled in, instead of loading them one product at a time.
+   */
+  @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.images WHERE p IN ?1")
+  List<Product> fetchImages(Collection<Product> products);
 }
@@ -2,12 +2,23 @@ package wasteless.repository;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import wasteless.model.SaleItem;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * SaleItemRepository defines the methods to be called on the JPA repository to retrieve SaleItem.
@@ -59,4 +70,155 @@ public interface SaleItemRepository extends JpaRepository<SaleItem, Long> {
                   "SELECT * FROM sale_item s JOIN inventory_item i ON s.inventory_item_id = i.inventory_item_id WHERE (i.business_id = ?1 and s.sold is TRUE)",
           nativeQuery = true)
   List<SaleItem>findSoldListingsByBusiness(long businessId);
+
+  /**
+   * A method to find a SaleItem by ID and lock its row until the transaction ends, so that of any concurrent purchases
+   * of the SaleItem, each sees whether the ones before it sold the SaleItem. Must be called within a transaction.
+   *
+   * @param saleItemId The ID of the SaleItem
+   * @return The SaleItem with the specified ID
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT s FROM SaleItem s WHERE s.saleItemId = ?1")
+  Optional<SaleItem> findByIdForUpdate(long saleItemId);
+
+  /**
+   * A sold sale item, with the product it was listed for.
+   */
+  interface SoldListing {
+    Long getSaleItemId();
+
+    String getProductId();
+
+    String getProductName();
+
+    Double getPrice();
+
+    Integer getQuantity();
+
+    LocalDateTime getPurchased();
+  }
+
+  /**
+   * A method to stream every sold sale item of a given business, in order of purchase. The rows are fetched from the
+   * database in batches as the stream is consumed, so the stream must be consumed and closed within a transaction.
+   *
+   * @param businessId the ID of the business
+   * @return a stream of the sold sale items
+   */
+  @QueryHints({
+          @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+          @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  @Query(
+          "SELECT s.saleItemId AS saleItemId, p.productId AS productId, p.name AS productName, s.price AS price, "
+                  + "s.quantity AS quantity, s.purchased AS purchased "
+                  + "FROM SaleItem s JOIN s.inventoryItem i JOIN i.product p "
+                  + "WHERE i.business.businessId = ?1 AND s.isSold = TRUE ORDER BY s.purchased, s.saleItemId")
+  Stream<SoldListing> streamSoldListingsByBusiness(long businessId);
+
+  /**
+   * A method to find the IDs of the users who have liked a sale item, without loading the users themselves.
+   *
+   * @param saleItemId the ID of the sale item
+   * @return the IDs of the users who have liked the sale item
+   */
+  @Query("SELECT u.userId FROM SaleItem s JOIN s.likedByUsers u WHERE s.saleItemId = ?1")
+  List<Long> findLikedUserIds(long saleItemId);
+
+  /**
+   * A method to find the SaleItems with the given IDs, along with everything a listing response shows of them: the
+   * inventory item, its product and business, and the address of the business. Used by the listing read path, which
+   * builds the responses of a page of listings from these and one query for their images. The users who liked a
+   * listing are not fetched, as the response only shows the like count, so the query returns one row per listing
+   * however many likes it has.
+   *
+   * @param saleItemIds the IDs of the SaleItems
+   * @return the SaleItems that exist, in no particular order
+   */
+  @Query("SELECT s FROM SaleItem s JOIN FETCH s.inventoryItem i JOIN FETCH i.product JOIN FETCH i.business b "
+          + "LEFT JOIN FETCH b.address WHERE s.saleItemId IN ?1")
+  List<SaleItem> findListingsById(Collection<Long> saleItemIds);
+
+  /**
+   * A method to count the likes a user has given a sale item, which is 0 or 1.
+   *
+   * @param saleItemId the ID of the sale item
+   * @param userId the ID of the user
+   * @return 1 if the user likes the sale item, 0 otherwise
+   */
+  @Query("SELECT COUNT(u) FROM SaleItem s JOIN s.likedByUsers u WHERE s.saleItemId = ?1 AND u.userId = ?2")
+  long countLikesByUser(long saleItemId, long userId);
+
+  /**
+   * A method to add a like from a user to a sale item, without loading the users who already like it. The unique
+   * constraint on the like table rejects a second like from the same user.
+   *
+   * @param saleItemId the ID of the sale item
+   * @param userId the ID of the user
+   * @return the number of likes added
+   */
+  @Modifying
+  @Query(value = "INSERT INTO sale_listing_like (sale_item_id, user_id) VALUES (?1, ?2)", nativeQuery = true)
+  int insertLike(long saleItemId, long userId);
+
+  /**
+   * A method to remove the like of a user from a sale item, without loading the users who like it.
+   *
+   * @param saleItemId the ID of the sale item
+   * @param userId the ID of the user
+   * @return the number of likes removed; 0 if the user did not like the sale item
+   */
+  @Modifying
+  @Query(value = "DELETE FROM sale_listing_like WHERE sale_item_id = ?1 AND user_id = ?2", nativeQuery = true)
+  int deleteLike(long saleItemId, long userId);
+
+  /**
+   * A method to add to the like count of a sale item. Must be called in the transaction that added or removed the
+   * likes, so the count always matches the like table.
+   *
+   * @param saleItemId the ID of the sale item
+   * @param change the number of likes added, or minus the number removed
+   * @return the number of SaleItem updated
+   */
+  @Modifying
+  @Query(value = "UPDATE sale_item SET like_count = like_count + ?2 WHERE sale_item_id = ?1", nativeQuery = true)
+  int changeLikeCount(long saleItemId, int change);
+
+  /**
+   * A method to set the like count of every sale item whose count does not match the like table, such as the sale
+   * items created before the count was kept.
+   *
+   * @return the number of SaleItem corrected
+   */
+  @Modifying
+  @Query(
+          value =
+                  "UPDATE sale_item SET like_count = (SELECT COUNT(*) FROM sale_listing_like l "
+                          + "WHERE l.sale_item_id = sale_item.sale_item_id) "
+                          + "WHERE like_count <> (SELECT COUNT(*) FROM sale_listing_like l "
+                          + "WHERE l.sale_item_id = sale_item.sale_item_id)",
+          nativeQuery = true)
+  int recountLikes();
+
+  /**
+   * The like count of a sale item, and when it was listed.
+   */
+  interface ListingLikes {
+    Long getSaleItemId();
+
+    Integer getLikeCount();
+
+    LocalDateTime getCreated();
+  }
+
+  /**
+   * A method to find the like counts of every unsold sale item that has been liked.
+   *
+   * @return the like counts of the sale items
+   */
+  @Query(
+          "SELECT s.saleItemId AS saleItemId, s.likeCount AS likeCount, s.created AS created "
+                  + "FROM SaleItem s WHERE s.isSold = FALSE AND s.likeCount > 0")
+  List<ListingLikes> findLikedListings();
 }
@@ -8,19 +8,33 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.server.ResponseStatusException;
 import wasteless.model.User;
+import wasteless.repository.BusinessRepository;
 import wasteless.repository.UserRepository;
 
-import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Optional;
 
-/** Authorization util class using JWT */
+/**
+ * Authorization util class using JWT
+ *
+ * <p>The logged in user's principal (their ID, role and administered businesses) is kept in the
+ * request and in the session once it has been read, so the user is not looked up by email on every
+ * call. The user itself is then found by ID, which the persistence context a request keeps open
+ * answers without a query after the first time.
+ */
 @Component
 public class AuthUtil {
+  private static final String PRINCIPAL_ATTRIBUTE = AuthUtil.class.getName() + ".PRINCIPAL";
+
   @Autowired MyUserDetailsService myUserDetailsService;
   @Autowired AuthenticationManager authenticationManager;
   @Autowired private UserRepository userRepository;
+  @Autowired private BusinessRepository businessRepository;
+  @Autowired private PrincipalCache principalCache;
 
   /**
    * Authenticates user given username and password
@@ -47,11 +61,109 @@ public class AuthUtil {
    */
   public User getCurrentUser() {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-    return getUserFromAuthentication(authentication);
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null) {
+      return getUserFromAuthentication(authentication);
+    }
+    AuthenticatedPrincipal principal = getCachedPrincipal(attributes, getUsername(authentication));
+    if (principal != null) {
+      // Boxed, so the inherited findById is called, which checks the persistence context first
+      Optional<User> user = userRepository.findById((Long) principal.getUserId());
+      if (user.isPresent()) {
+        return user.get();
+      }
+    }
+    User user = getUserFromAuthentication(authentication);
+    cachePrincipal(attributes, user);
+    return user;
   }
 
   public boolean isCurrentUserGlobalAdmin() {
-    return Arrays.asList("global_admin", "default_global_admin").contains(getCurrentUser().getRole());
+    return getCurrentPrincipal().isGlobalAdmin();
+  }
+
+  /**
+   * Gets the principal of the current user, from the request or session if it has been read
+   * before and is still current.
+   *
+   * @return The principal of the current user.
+   * @throws ResponseStatusException 401 if the user does not exist or is not authenticated
+   */
+  public AuthenticatedPrincipal getCurrentPrincipal() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes != null) {
+      AuthenticatedPrincipal principal = getCachedPrincipal(attributes, getUsername(authentication));
+      if (principal != null) {
+        return principal;
+      }
+    }
+    User user = getUserFromAuthentication(authentication);
+    return attributes == null ? readPrincipal(user) : cachePrincipal(attributes, user);
+  }
+
+  /**
+   * Gets the principal of the current user if it has already been read in this request or session
+   * and is still current, without reading it from the database.
+   *
+   * @return The principal of the current user, or null if there is none to reuse.
+   */
+  public AuthenticatedPrincipal findCachedPrincipal() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null
+        || authentication == null
+        || !(authentication.getPrincipal() instanceof UserDetails)) {
+      return null;
+    }
+    return getCachedPrincipal(attributes, ((UserDetails) authentication.getPrincipal()).getUsername());
+  }
+
+  private AuthenticatedPrincipal getCachedPrincipal(RequestAttributes attributes, String username) {
+    for (int scope : new int[] {RequestAttributes.SCOPE_REQUEST, RequestAttributes.SCOPE_SESSION}) {
+      Object cached = attributes.getAttribute(PRINCIPAL_ATTRIBUTE, scope);
+      if (cached instanceof AuthenticatedPrincipal) {
+        AuthenticatedPrincipal principal = (AuthenticatedPrincipal) cached;
+        if (principal.getEmail().equals(username) && principalCache.isCurrent(principal)) {
+          if (scope == RequestAttributes.SCOPE_SESSION) {
+            attributes.setAttribute(PRINCIPAL_ATTRIBUTE, principal, RequestAttributes.SCOPE_REQUEST);
+          }
+          return principal;
+        }
+      }
+    }
+    return null;
+  }
+
+  private AuthenticatedPrincipal cachePrincipal(RequestAttributes attributes, User user) {
+    AuthenticatedPrincipal principal = readPrincipal(user);
+    attributes.setAttribute(PRINCIPAL_ATTRIBUTE, principal, RequestAttributes.SCOPE_REQUEST);
+    attributes.setAttribute(PRINCIPAL_ATTRIBUTE, principal, RequestAttributes.SCOPE_SESSION);
+    return principal;
+  }
+
+  private AuthenticatedPrincipal readPrincipal(User user) {
+    // The version is read first, so a change made while the principal is read makes it stale
+    long version = principalCache.getVersion(user.getUserId());
+    return new AuthenticatedPrincipal(
+        user.getUserId(),
+        user.getEmail(),
+        user.getRole(),
+        new HashSet<>(businessRepository.findAdministeredBusinessIds(user.getUserId())),
+        version,
+        System.currentTimeMillis());
+  }
+
+  /**
+   * Gets the username of an authentication.
+   *
+   * @throws ResponseStatusException 401 if there is no authenticated user
+   */
+  private String getUsername(Authentication authentication) {
+    if (authentication != null && authentication.getPrincipal() instanceof UserDetails) {
+      return ((UserDetails) authentication.getPrincipal()).getUsername();
+    }
+    throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
   }
 
   /**
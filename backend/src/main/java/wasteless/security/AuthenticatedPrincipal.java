@@ -0,0 +1,72 @@
+package wasteless.security;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * What the authorization checks need to know about the logged in user: their ID, email and role, and the IDs of the
+ * businesses they administer. Kept in the user's session by AuthUtil, so it is not read from the database on every
+ * request.
+ */
+public class AuthenticatedPrincipal implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final long userId;
+  private final String email;
+  private final String role;
+  private final Set<Long> administeredBusinessIds;
+  private final long version;
+  private final long loadedAt;
+
+  /**
+   * Constructor for a principal read from the database.
+   *
+   * @param userId The ID of the user.
+   * @param email The email the user logs in with.
+   * @param role The role of the user.
+   * @param administeredBusinessIds The IDs of the businesses the user administers or is the primary admin of.
+   * @param version The version of the user's principal when it was read, from PrincipalCache.
+   * @param loadedAt The time it was read, in milliseconds since the epoch.
+   */
+  public AuthenticatedPrincipal(long userId, String email, String role, Set<Long> administeredBusinessIds,
+                                long version, long loadedAt) {
+    this.userId = userId;
+    this.email = email;
+    this.role = role;
+    this.administeredBusinessIds = Set.copyOf(administeredBusinessIds);
+    this.version = version;
+    this.loadedAt = loadedAt;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public String getRole() {
+    return role;
+  }
+
+  public Set<Long> getAdministeredBusinessIds() {
+    return administeredBusinessIds;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public long getLoadedAt() {
+    return loadedAt;
+  }
+
+  public boolean isGlobalAdmin() {
+    return "global_admin".equals(role) || "default_global_admin".equals(role);
+  }
+
+  public boolean isAdminOf(long businessId) {
+    return administeredBusinessIds.contains(businessId);
+  }
+}
@@ -0,0 +1,56 @@
+package wasteless.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether a principal kept in a session is still current. Each user has a version, which is moved on whenever
+ * their role, details or administered businesses change, so every session holding an older principal reads it again.
+ * Principals are also read again once they are auth.principal.ttl-seconds old, which bounds how long a change made
+ * through another instance of the application goes unseen.
+ */
+@Component
+public class PrincipalCache {
+
+  private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+  private final long ttlMillis;
+
+  public PrincipalCache(@Value("${auth.principal.ttl-seconds:60}") long ttlSeconds) {
+    this.ttlMillis = ttlSeconds * 1000;
+  }
+
+  /**
+   * Gets the current version of a user's principal. Must be read before the principal is read from the database, so
+   * a change made while it is being read makes it stale.
+   *
+   * @param userId The ID of the user.
+   * @return The version.
+   */
+  public long getVersion(long userId) {
+    return versions.getOrDefault(userId, 0L);
+  }
+
+  /**
+   * Makes every principal of a user held in a session or request stale.
+   *
+   * @param userId The ID of the user whose role, details or administered businesses have changed.
+   */
+  public void invalidate(long userId) {
+    versions.merge(userId, 1L, Long::sum);
+  }
+
+  /**
+   * Checks whether a principal can still be used.
+   *
+   * @param principal The principal held in a session or request.
+   * @return Whether it is no older than the TTL and no change has been made to the user since it was read.
+   */
+  public boolean isCurrent(AuthenticatedPrincipal principal) {
+    return principal.getVersion() == getVersion(principal.getUserId())
+        && System.currentTimeMillis() - principal.getLoadedAt() < ttlMillis;
+  }
+}
@@ -0,0 +1,94 @@
+package wasteless.service;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import wasteless.model.Business;
+import wasteless.model.User;
+import wasteless.repository.BusinessRepository;
+import wasteless.security.AuthUtil;
+import wasteless.security.AuthenticatedPrincipal;
+
+import java.util.List;
+
+/**
+ * Answers whether a user is an administrator of a business without loading the business's
+ * administrators.
+ *
+ * <p>The current user's administered businesses are taken from their principal, which AuthUtil
+ * keeps in the session and which is read again whenever they are added to or removed from the
+ * admins of a business. Any other user is checked with one query on the admins table, using its
+ * (business, user) index. The administrators already loaded with a business are used as they are.
+ */
+@Service
+public class BusinessAuthorizationService {
+
+  private static final String GLOBAL_ADMIN = "global_admin";
+
+  private static final String DEFAULT_GLOBAL_ADMIN = "default_global_admin";
+
+  private final BusinessRepository businessRepository;
+
+  private final AuthUtil authUtil;
+
+  @Autowired
+  public BusinessAuthorizationService(BusinessRepository businessRepository, AuthUtil authUtil) {
+    this.businessRepository = businessRepository;
+    this.authUtil = authUtil;
+  }
+
+  /**
+   * Checks whether a user is the primary administrator or one of the administrators of a business.
+   *
+   * @param user The user.
+   * @param business The business.
+   * @return Whether the user is an administrator of the business.
+   */
+  public boolean isAdmin(User user, Business business) {
+    return user.getUserId() == business.getPrimaryAdminId() || isInAdmins(user, business);
+  }
+
+  /**
+   * Checks whether a user is one of the administrators of a business, which the primary
+   * administrator is added to when they create it.
+   *
+   * @param user The user.
+   * @param business The business.
+   * @return Whether the user is one of the administrators of the business.
+   */
+  public boolean isInAdmins(User user, Business business) {
+    List<User> admins = business.getAdmins();
+    if (admins != null && Hibernate.isInitialized(admins)) {
+      return admins.stream().anyMatch(admin -> admin.getUserId() == user.getUserId());
+    }
+    return isAdmin(user.getUserId(), business.getBusinessId());
+  }
+
+  /**
+   * Checks whether a user is the primary administrator or one of the administrators of a business.
+   *
+   * @param userId The ID of the user.
+   * @param businessId The ID of the business.
+   * @return Whether the user is an administrator of the business.
+   */
+  public boolean isAdmin(long userId, long businessId) {
+    AuthenticatedPrincipal principal = authUtil.findCachedPrincipal();
+    if (principal != null && principal.getUserId() == userId) {
+      return principal.isAdminOf(businessId);
+    }
+    return businessRepository.isAdministeredBy(businessId, userId);
+  }
+
+  /**
+   * Checks whether a user is a global application administrator or an administrator of a business.
+   *
+   * @param user The user.
+   * @param business The business.
+   * @return Whether the user can administer the business.
+   */
+  public boolean isAdminOrGlobalAdmin(User user, Business business) {
+    return GLOBAL_ADMIN.equals(user.getRole())
+        || DEFAULT_GLOBAL_ADMIN.equals(user.getRole())
+        || isAdmin(user, business);
+  }
+}
@@ -1,12 +1,27 @@
 package wasteless.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import wasteless.controller.jsonobjects.InventoryImportReport;
+import wasteless.controller.jsonobjects.ProductUpsertResult;
 import wasteless.controller.jsonobjects.SaleItemJson;
 import wasteless.controller.jsonobjects.SalesReportJson;
 import wasteless.controller.jsonobjects.SalesReportSection;
 import wasteless.exception.BadRequestException;
+import wasteless.exception.ConflictException;
 import wasteless.exception.ForbiddenException;
 import wasteless.exception.InsufficientInventoryException;
 import wasteless.model.*;
@@ -15,16 +30,28 @@ import wasteless.repository.InventoryItemRepository;
 import wasteless.repository.ProductRepository;
 import wasteless.repository.SaleItemRepository;
 import wasteless.security.AuthUtil;
+import wasteless.security.PrincipalCache;
 import wasteless.service.searching_service.SearchParamsParser;
 import wasteless.service.searching_service.SearchToken;
 import wasteless.service.searching_service.SearchingService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
 
 @Service
 public class BusinessService {
@@ -45,12 +72,58 @@ public class BusinessService {
 
   private final NotificationService notificationService;
 
+  private final SalesRollupService salesRollupService;
+
+  private final SalesExportService salesExportService;
+
+  private final InventoryImportService inventoryImportService;
+
+  private final ProductCatalogueService productCatalogueService;
+
+  private final ListingPopularityService listingPopularityService;
+
+  private final PrincipalCache principalCache;
+
+  private final BusinessAuthorizationService businessAuthorizationService;
+
+  private final TransactionTemplate transactionTemplate;
+
+  /** Runs work after a transaction has committed in a transaction of its own, as the committed one cannot be used */
+  private final TransactionTemplate afterCommitTemplate;
+
+  private static final Logger logger = LoggerFactory.getLogger(BusinessService.class);
+
   private static final String GLOBAL_ADMIN = "global_admin";
 
   private static final String DEFAULT_GLOBAL_ADMIN = "default_global_admin";
 
   private static final String USER_NOT_ADMIN = "User is not a business administrator or global application administrator";
 
+  private static final int MAX_PAGE_SIZE = 100;
+
+  /** The fields a catalogue page can be sorted by, and the product properties they sort on. */
+  private static final Map<String, String> PRODUCT_SORT_FIELDS =
+      Map.of(
+          "id", "productId",
+          "name", "name",
+          "manufacturer", "manufacturer",
+          "recommendedRetailPrice", "recommendedRetailPrice",
+          "created", "created");
+
+  /** The fields an inventory page can be sorted by, and the inventory item properties they sort on. */
+  private static final Map<String, String> INVENTORY_SORT_FIELDS =
+      Map.of(
+          "productId", "productId",
+          "name", "product.name",
+          "quantity", "quantity",
+          "pricePerItem", "pricePerItem",
+          "totalPrice", "totalPrice",
+          "manufactured", "manufactured",
+          "sellBy", "sellBy",
+          "bestBefore", "bestBefore",
+          "expires", "expires",
+          "created", "created");
+
   @Autowired
   public BusinessService(
           ProductRepository productRepository,
@@ -60,7 +133,15 @@ public class BusinessService {
           AuthUtil authUtil,
           UserService userService,
           SearchingService businessSearchService,
-          NotificationService notificationService) {
+          NotificationService notificationService,
+          SalesRollupService salesRollupService,
+          SalesExportService salesExportService,
+          InventoryImportService inventoryImportService,
+          ProductCatalogueService productCatalogueService,
+          ListingPopularityService listingPopularityService,
+          PrincipalCache principalCache,
+          BusinessAuthorizationService businessAuthorizationService,
+          TransactionTemplate transactionTemplate) {
     this.productRepository = productRepository;
     this.businessRepository = businessRepository;
     this.inventoryItemRepository = inventoryItemRepository;
@@ -69,6 +150,17 @@ public class BusinessService {
     this.userService = userService;
     this.businessSearchService = businessSearchService;
     this.notificationService = notificationService;
+    this.salesRollupService = salesRollupService;
+    this.salesExportService = salesExportService;
+    this.inventoryImportService = inventoryImportService;
+    this.productCatalogueService = productCatalogueService;
+    this.listingPopularityService = listingPopularityService;
+    this.principalCache = principalCache;
+    this.businessAuthorizationService = businessAuthorizationService;
+    this.transactionTemplate = transactionTemplate;
+    this.afterCommitTemplate =
+        new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+    this.afterCommitTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
   }
 
   /**
@@ -97,7 +189,9 @@ public class BusinessService {
     business.setRegistrationDate(LocalDate.now());
     business.setAdmins(admins);
 
-    return businessRepository.save(business);
+    Business savedBusiness = businessRepository.save(business);
+    principalCache.invalidate(currentUser.getUserId());
+    return savedBusiness;
   }
 
   /**
@@ -155,6 +249,43 @@ public class BusinessService {
     return business.getProductCatalogue();
   }
 
+  /**
+   * Gets one page of an existing business' catalogue. Requires an authenticated user to be a Global
+   * Application Admin, or otherwise an administrator of the business. The products of the page are
+   * loaded with one query, and their images with a second, however many products there are.
+   *
+   * @param id Id of the business to retrieve catalogue from.
+   * @param page Page number, starting from 0.
+   * @param size Number of products in a page, at most 100.
+   * @param sortBy Field to sort by: id, name, manufacturer, recommendedRetailPrice or created.
+   * @param sortOrder Either asc or desc.
+   * @param filter Text the product code, name or manufacturer must contain, ignoring case. May be
+   *     null.
+   * @return The page of products, with the total number of matching products.
+   */
+  public Page<Product> getProductsPage(
+      long id, int page, int size, String sortBy, String sortOrder, String filter) {
+    User currentUser = authUtil.getCurrentUser();
+    Business business = getBusinessById(id);
+
+    requireAdminOrGAA(currentUser, business);
+
+    PageRequest pageRequest =
+        pageRequest(page, size, PRODUCT_SORT_FIELDS.get(sortBy), sortOrder, "rowId");
+    return transactionTemplate.execute(
+        status -> {
+          Page<Product> products =
+              productRepository.findCataloguePage(
+                  business.getBusinessId(), likePattern(filter), pageRequest);
+          if (products.hasContent()) {
+            // Fills in the images of the products of the page, which are in the same persistence
+            // context
+            productRepository.fetchImages(products.getContent());
+          }
+          return products;
+        });
+  }
+
   /**
    * Requires an authorized user to be an Global Application Admin, or otherwise an administrator of
    * an existing business. Creates a new instance of the product in argument and saves it into the
@@ -195,36 +326,37 @@ public class BusinessService {
 
   /**
    * If current user is NOT a global application admin AND user is not an admin of the business,
-   * throw ForbiddenException
+   * throw ForbiddenException. The business's administrators are not loaded to check this.
    *
    * @param currentUser Instance of current user.
    * @param business Instance of business to check user administrates.
    */
   public void requireAdminOrGAA(User currentUser, Business business) {
-
-    Long userId = currentUser.getUserId();
-    Long primaryAdminId = business.getPrimaryAdminId();
-
-    // Gets a list of user Ids in business' administrators
-    List<Long> administrators = new ArrayList<>();
-    for (User admin : business.getAdmins()) {
-      administrators.add(admin.getUserId());
-    }
-
-    Boolean userIsGAA =
-        currentUser.getRole().equals(GLOBAL_ADMIN)
-            || currentUser.getRole().equals(DEFAULT_GLOBAL_ADMIN);
-    Boolean userIsBusinessAdmin =
-        administrators.contains(userId)
-            || userId.equals(primaryAdminId);
-
     // if the user is NOT a GAA OR Business Admin
-    if (!(userIsGAA || userIsBusinessAdmin)) {
+    if (!businessAuthorizationService.isAdminOrGlobalAdmin(currentUser, business)) {
       throw new ForbiddenException(
           USER_NOT_ADMIN);
     }
   }
 
+  /**
+   * Requires an authorized user to be an Global Application Admin, or otherwise an administrator of
+   * an existing business. Creates the products whose codes are not yet in the catalogue of the
+   * business and updates those that are, checking the administrators of the business only once.
+   *
+   * @param businessId Id of the business whose catalogue is updated.
+   * @param products Products to create or update, matched to the catalogue by product code.
+   * @return How many products were created and updated.
+   */
+  public ProductUpsertResult upsertProducts(long businessId, List<Product> products) {
+    User currentUser = authUtil.getCurrentUser();
+    Business business = getBusinessById(businessId);
+
+    requireAdminOrGAA(currentUser, business);
+
+    return productCatalogueService.upsertProducts(business.getBusinessId(), products);
+  }
+
   public void checkProductCode(Long id, String productCode) {
     authUtil.getCurrentUser();
     Business business = getBusinessById(id);
@@ -297,19 +429,16 @@ public class BusinessService {
 
     requireAdminOrGAA(currentUser, targetBusiness);
 
-    List<Long> adminIds = new ArrayList<>();
-    for (User admin : targetBusiness.getAdmins()) {
-      adminIds.add(admin.getUserId());
-    }
-
-    if (adminIds.contains(targetUser.getUserId())
-        || targetUser.getUserId() == targetBusiness.getPrimaryAdminId()) {
+    if (businessAuthorizationService.isAdmin(targetUser, targetBusiness)) {
       throw new ForbiddenException("Target user is already an admin of the business");
     }
 
+    long previousPrimaryAdminId = targetBusiness.getPrimaryAdminId();
     targetBusiness.setPrimaryAdminId(targetUser.getUserId());
 
     businessRepository.save(targetBusiness);
+    principalCache.invalidate(previousPrimaryAdminId);
+    principalCache.invalidate(targetUser.getUserId());
   }
 
   /**
@@ -328,9 +457,8 @@ public class BusinessService {
     User targetUser = userService.getUserById(userId);
 
     requireAdminOrGAA(currentUser, targetBusiness);
-    List<Business> businesses = businessRepository.findAllByPrimaryAdminId(currentUser.getUserId());
     String role = currentUser.getRole();
-    if (!(businesses.contains(targetBusiness)
+    if (!(targetBusiness.getPrimaryAdminId() == currentUser.getUserId()
         || role.equals(GLOBAL_ADMIN)
         || role.equals(DEFAULT_GLOBAL_ADMIN))) {
       throw new ForbiddenException(
@@ -343,6 +471,7 @@ public class BusinessService {
 
     targetUser.addBusinessAdministered(targetBusiness);
     businessRepository.save(targetBusiness);
+    principalCache.invalidate(targetUser.getUserId());
   }
 
   /**
@@ -360,9 +489,8 @@ public class BusinessService {
     Business targetBusiness = getBusinessById(id);
     User targetUser = userService.getUserById(userId);
 
-    List<Business> businesses = businessRepository.findAllByPrimaryAdminId(currentUser.getUserId());
     String role = currentUser.getRole();
-    if (!(businesses.contains(targetBusiness)
+    if (!(targetBusiness.getPrimaryAdminId() == currentUser.getUserId()
         || role.equals(GLOBAL_ADMIN)
         || role.equals(DEFAULT_GLOBAL_ADMIN))) {
       throw new ForbiddenException(
@@ -376,6 +504,7 @@ public class BusinessService {
 
     targetUser.getBusinessesAdministered().remove(targetBusiness);
     businessRepository.save(targetBusiness);
+    principalCache.invalidate(targetUser.getUserId());
   }
 
   /**
@@ -410,6 +539,27 @@ public class BusinessService {
     return inventoryItemRepository.save(item);
   }
 
+  /**
+   * Requires an authorized user to be an Global Application Admin, or otherwise an administrator of
+   * an existing business. Imports the inventory items in a CSV or NDJSON file into the inventory of
+   * the business, checking the administrators of the business only once for the whole file.
+   *
+   * @param id Id of the business to import the items into.
+   * @param format Format of the file.
+   * @param input The file, which is read as it is imported.
+   * @return The result of each row of the file.
+   * @throws IOException If the file cannot be read.
+   */
+  public InventoryImportReport importInventory(Long id, InventoryImportService.InventoryImportFormat format,
+                                               InputStream input) throws IOException {
+    User currentUser = authUtil.getCurrentUser();
+    Business business = getBusinessById(id);
+
+    requireAdminOrGAA(currentUser, business);
+
+    return inventoryImportService.importInventory(business.getBusinessId(), format, input);
+  }
+
   /**
    * Method to retrieve the contents of a business's product inventory.
    *
@@ -425,6 +575,88 @@ public class BusinessService {
     return business.getInventoryItems();
   }
 
+  /**
+   * Method to retrieve one page of a business's product inventory. Requires an authenticated user
+   * to be a Global Application Admin, or otherwise an administrator of the business. The items are
+   * loaded along with their products by one query, and the images of the products by a second.
+   *
+   * @param id id of business to retrieve inventory from.
+   * @param page Page number, starting from 0.
+   * @param size Number of items in a page, at most 100.
+   * @param sortBy Field to sort by: productId, name (of the product), quantity, pricePerItem,
+   *     totalPrice, manufactured, sellBy, bestBefore, expires or created.
+   * @param sortOrder Either asc or desc.
+   * @param filter Text the product code or product name must contain, ignoring case. May be null.
+   * @return The page of InventoryItem instances, with the total number of matching items.
+   */
+  public Page<InventoryItem> retrieveInventoryPage(
+      long id, int page, int size, String sortBy, String sortOrder, String filter) {
+    User currentUser = authUtil.getCurrentUser();
+    Business business = getBusinessById(id);
+
+    requireAdminOrGAA(currentUser, business);
+
+    PageRequest pageRequest =
+        pageRequest(page, size, INVENTORY_SORT_FIELDS.get(sortBy), sortOrder, "inventoryItemId");
+    return transactionTemplate.execute(
+        status -> {
+          Page<InventoryItem> items =
+              inventoryItemRepository.findInventoryPage(
+                  business.getBusinessId(), likePattern(filter), pageRequest);
+          List<Product> products =
+              items.stream().map(InventoryItem::getProduct).distinct().collect(Collectors.toList());
+          if (!products.isEmpty()) {
+            productRepository.fetchImages(products);
+          }
+          return items;
+        });
+  }
+
+  /**
+   * Builds the page request of a paginated endpoint, throwing BadRequestException if any parameter
+   * is invalid. The id property is sorted on last, so rows with equal sort values keep the same
+   * order from one page to the next.
+   */
+  private static PageRequest pageRequest(
+      int page, int size, String sortProperty, String sortOrder, String idProperty) {
+    if (page < 0) {
+      throw new BadRequestException("Invalid page number: page number less than 0");
+    }
+    if (size < 1 || size > MAX_PAGE_SIZE) {
+      throw new BadRequestException(
+          "Invalid page size: page size must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    if (sortProperty == null) {
+      throw new BadRequestException("Unrecognized sorting field");
+    }
+    Sort.Direction direction;
+    if ("asc".equals(sortOrder)) {
+      direction = Sort.Direction.ASC;
+    } else if ("desc".equals(sortOrder)) {
+      direction = Sort.Direction.DESC;
+    } else {
+      throw new BadRequestException("Unrecognized ordering field");
+    }
+    return PageRequest.of(
+        page, size, Sort.by(direction, sortProperty).and(Sort.by(direction, idProperty)));
+  }
+
+  /**
+   * Turns the text of a filter into a LIKE pattern matching any lower case value containing it,
+   * with '!' escaping the wildcards in the text.
+   */
+  private static String likePattern(String filter) {
+    if (filter == null || filter.isBlank()) {
+      return "%";
+    }
+    String escaped =
+        filter.strip().toLowerCase()
+            .replace("!", "!!")
+            .replace("%", "!%")
+            .replace("_", "!_");
+    return "%" + escaped + "%";
+  }
+
   /**
    * Validation for saleItem. if the inventoryItemId are empty, an 400 BadRequest exception will
    * raise. If the quantity of the saleItem will be over the quantity of corresponding inventoryItem
@@ -535,6 +767,15 @@ public class BusinessService {
    * Method for when sale item for a business when it has been purchased.
    * Requires a user to be logged in
    *
+   * The sale item is marked as sold and its quantity removed from the inventory in one transaction. The sale item is
+   * read with its row locked, so of any concurrent purchases of it, only the first can find it unsold; the others fail
+   * with a 400 once it has been sold, or a 409 if they time out waiting for the lock. The quantity is removed by a
+   * conditional update that only succeeds if the inventory still has enough, and fails with a 409 otherwise. The sale
+   * is added to the daily sales rollup in the same transaction.
+   *
+   * The listing popularity feeds and the purchaser's notification are updated once the purchase has committed. A
+   * failure to update them is logged rather than returned, as the purchase has been made.
+   *
    * @param saleItemId the id of the sale item being removed
    */
   public SaleItem purchaseSaleItem(Long businessId, Long saleItemId) {
@@ -542,50 +783,78 @@ public class BusinessService {
     User purchaser = authUtil.getCurrentUser();
 
     Business targetBusiness = getBusiness(businessId);
-    SaleItem targetSaleItem = getSaleItemById(saleItemId);
 
-    if (targetBusiness.getBusinessId() != targetSaleItem.getInventoryItem().getBusiness().getBusinessId()) {
-      throw new BadRequestException("Sale listing does not belong to the provided business.");
-    }
+    SaleItem purchasedListing;
+    try {
+      purchasedListing = transactionTemplate.execute(status -> {
+        SaleItem targetSaleItem = saleItemRepository.findByIdForUpdate(saleItemId).orElseThrow();
 
-    Integer quantityPurchased = targetSaleItem.getQuantity();
-    Long inventoryItemId = targetSaleItem.getInventoryItem().getInventoryItemId();
+        if (targetBusiness.getBusinessId() != targetSaleItem.getInventoryItem().getBusiness().getBusinessId()) {
+          throw new BadRequestException("Sale listing does not belong to the provided business.");
+        }
+        if (targetSaleItem.isSold()) {
+          throw new BadRequestException("Cannot purchase an already sold Sale Listing");
+        }
 
-    if (targetSaleItem.isSold()) {
-      throw new BadRequestException("Cannot purchase an already sold Sale Listing");
-    } else {
-      targetSaleItem.setSold(true);
-      targetSaleItem.setPurchased(LocalDateTime.now());
-      targetSaleItem.setPurchaser(purchaser);
-    }
-    try {
-      decrementInventoryItemQuantity(inventoryItemId, quantityPurchased);
-    } catch (InsufficientInventoryException e) {
-      throw new BadRequestException("Insufficient inventory to make purchase.");
+        try {
+          decrementInventoryItemQuantity(targetSaleItem.getInventoryItem().getInventoryItemId(),
+                  targetSaleItem.getQuantity());
+        } catch (InsufficientInventoryException e) {
+          throw new ConflictException("Insufficient inventory to make purchase.");
+        }
+
+        // Flushed as one update when the transaction commits, which reports the sale item to the search caches and
+        // indexes
+        LocalDateTime purchased = LocalDateTime.now();
+        targetSaleItem.setSold(true);
+        targetSaleItem.setPurchased(purchased);
+        targetSaleItem.setPurchaser(purchaser);
+
+        salesRollupService.recordSale(targetBusiness.getBusinessId(), purchased.toLocalDate(),
+                targetSaleItem.getPrice(), targetSaleItem.getQuantity());
+        runAfterCommit("remove the purchased sale item from the popularity feeds",
+                () -> listingPopularityService.recordPurchase(saleItemId));
+        runAfterCommit("notify the purchaser", () -> notificationService.createPurchaseNotification(targetSaleItem));
+        return targetSaleItem;
+      });
+    } catch (ConcurrencyFailureException e) {
+      // The database could not lock the sale item or inventory item for a concurrent purchase in time
+      throw new ConflictException("Sale listing is being purchased by another user.");
     }
 
-    SaleItem purchasedListing = saleItemRepository.save(targetSaleItem);
-    notificationService.createPurchaseNotification(purchasedListing);
     return purchasedListing;
   }
 
+  /**
+   * Runs work once the current transaction has committed, in a transaction of its own. Failures are logged, as the
+   * transaction the work follows has already committed and cannot be undone.
+   *
+   * @param description what the work does, for the log
+   * @param work the work to run
+   */
+  private void runAfterCommit(String description, Runnable work) {
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        try {
+          afterCommitTemplate.executeWithoutResult(status -> work.run());
+        } catch (RuntimeException e) {
+          logger.error("Could not {} after the transaction committed", description, e);
+        }
+      }
+    });
+  }
+
   /**
    * Method to decrement the quantity of a inventory item when the corresponding sale item has been purchased.
-   * If the quantity of the inventory item is zero then it is removed from
+   * The quantity is checked and decremented by one conditional update, so must be called within a transaction.
    * @param inventoryItemId the id of the inventory item that the quantity is being decremented
    * @param quantityRemoved the quantity that has been removed via purchasing of the sale listing
+   * @throws InsufficientInventoryException if the inventory item does not have enough quantity
    */
   public void decrementInventoryItemQuantity(Long inventoryItemId, Integer quantityRemoved) {
-    InventoryItem targetInventoryItem = getInventoryItemById(inventoryItemId);
-
-    Integer inventoryItemQuantity = targetInventoryItem.getQuantity();
-    inventoryItemQuantity = inventoryItemQuantity - quantityRemoved;
-
-    if (inventoryItemQuantity < 0) {
+    if (inventoryItemRepository.decrementQuantity(inventoryItemId, quantityRemoved) == 0) {
       throw new InsufficientInventoryException("Cannot decrement inventory below zero.");
-    } else {
-      targetInventoryItem.setQuantity(inventoryItemQuantity);
-      inventoryItemRepository.save(targetInventoryItem);
     }
   }
 
@@ -593,27 +862,57 @@ public class BusinessService {
   /**
    * Sends a notification to all users who have liked a sale item that has been purchased by another user.
    * This method should be called after the item's purchaser has been set.
+   * The notifications are written in the background, so this method returns once they have been dispatched.
    * @param saleItemId the ID of the sale item that has been purchased.
    */
   public void sendPurchaseNotificationToOtherUsers(long saleItemId) {
     SaleItem saleItem =  saleItemRepository.findById(saleItemId).orElseThrow(() -> new NotAcceptableStatusException("No sale item with ID " + saleItemId + " found"));
-    Set<User> usersWhoLikedSaleItem = saleItem.getLikedByUsers();
-    for (User user : usersWhoLikedSaleItem) {
-      // Only send notification if the user is not the purchaser.
-      if (user.getUserId() != saleItem.getPurchaser().getUserId()) {
-        notificationService.createLikedItemPurchaseNotification(saleItem, user);
-      }
+    long purchaserId = saleItem.getPurchaser().getUserId();
+    // Only send notification if the user is not the purchaser.
+    List<Long> recipientIds = saleItemRepository.findLikedUserIds(saleItemId).stream()
+            .filter(userId -> userId != purchaserId)
+            .collect(Collectors.toList());
+    if (!recipientIds.isEmpty()) {
+      notificationService.createLikedItemPurchaseNotifications(saleItem, recipientIds);
+    }
+  }
+
+
+  /**
+   * The granularities that divide a sales report into more than one section. Each section ends at the end of the
+   * day, week, month or year it starts in, or at the end of the report period. Weeks start on Sunday.
+   */
+  private enum SalesReportGranularity {
+    DAILY(date -> date,
+            date -> date.format(DAY_FORMAT)),
+    WEEKLY(date -> date.with(TemporalAdjusters.nextOrSame(DayOfWeek.SATURDAY)),
+            date -> "Week of " + date.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY)).format(DAY_FORMAT)),
+    MONTHLY(date -> date.withDayOfMonth(date.lengthOfMonth()),
+            date -> date.getMonth().getValue() + "/" + date.getYear()),
+    YEARLY(date -> date.withDayOfYear(date.lengthOfYear()),
+            date -> String.valueOf(date.getYear()));
+
+    private final UnaryOperator<LocalDate> sectionEnd;
+
+    private final Function<LocalDate, String> sectionName;
+
+    SalesReportGranularity(UnaryOperator<LocalDate> sectionEnd, Function<LocalDate, String> sectionName) {
+      this.sectionEnd = sectionEnd;
+      this.sectionName = sectionName;
     }
   }
 
+  private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("d/M/yyyy");
 
   /**
    * This function will return a POJO containing information required for a sales report.
    * Will throw a 403 if the current user is not a GAA or admin of the business.
+   * The report is summarised from the daily sales rollup, so takes time proportional to the number of days with sales
+   * and the number of sections rather than the number of sales.
    * @param business the business the report is for
    * @param periodStart the start of the period the report is for
    * @param periodEnd the end of the period the report is for
-   * @param granularity either TOTAL or MONTHLY. Determines how the data is summarised.
+   * @param granularity either TOTAL, DAILY, WEEKLY, MONTHLY or YEARLY. Determines how the data is summarised.
    * @return a POJO containing data for a sales report.
    */
   public SalesReportJson getSalesReport(Business business, LocalDate periodStart,
@@ -621,99 +920,127 @@ public class BusinessService {
     // Throw 403 if user is not a GAA or business admin
     requireAdminOrGAA(authUtil.getCurrentUser(), business);
 
-    // Get the businesses sold sales listings in the given period.
-    List<SaleItem> soldListings = retrieveSaleItems(business.getBusinessId(), true);
+    SalesReportGranularity sectionGranularity = null;
+    if (!granularity.equals("TOTAL")) {
+      try {
+        sectionGranularity = SalesReportGranularity.valueOf(granularity);
+      } catch (IllegalArgumentException e) {
+        throw new BadRequestException("granularity must be TOTAL, DAILY, WEEKLY, MONTHLY or YEARLY");
+      }
+    }
+
+    // Get the businesses daily sales totals in the given period.
+    NavigableMap<LocalDate, SalesTotal> dailySales = new TreeMap<>();
+    if (!periodStart.isAfter(periodEnd)) {
+      for (DailySales day : salesRollupService.getDailySales(business.getBusinessId(), periodStart, periodEnd)) {
+        dailySales.put(day.getSalesDate(), new SalesTotal((int) day.getNumberOfSales(), day.getValueOfSales()));
+      }
+    }
 
     List<SalesReportSection> sections;
-    if (granularity.equals("TOTAL")) {
-      sections = getSectionsTotalGranularity(soldListings, periodStart, periodEnd);
-    } else if (granularity.equals("MONTHLY")) {
-      sections = getSectionsMonthlyGranularity(soldListings, periodStart, periodEnd);
+    if (sectionGranularity == null) {
+      sections = getSectionsTotalGranularity(dailySales, periodStart, periodEnd);
     } else {
-      throw new BadRequestException("granularity must be TOTAL or MONTHLY");
+      sections = getSections(dailySales, periodStart, periodEnd, sectionGranularity);
     }
 
 
     return new SalesReportJson(periodStart, periodEnd, sections, business);
   }
 
+  /**
+   * Number and value of the sales in one section of a sales report.
+   */
+  private static class SalesTotal {
+    private int numberOfSales;
+    private double valueOfSales;
+
+    private SalesTotal(int numberOfSales, double valueOfSales) {
+      this.numberOfSales = numberOfSales;
+      this.valueOfSales = valueOfSales;
+    }
+
+    private void add(SalesTotal other) {
+      numberOfSales += other.numberOfSales;
+      valueOfSales += other.valueOfSales;
+    }
+  }
+
+  /**
+   * Totals the sales made between two days.
+   * @param dailySales the number and value of the sales for each day with sales
+   * @param start the first day to total
+   * @param end the last day to total
+   * @return the number and value of the sales made between start and end
+   */
+  private SalesTotal totalBetween(NavigableMap<LocalDate, SalesTotal> dailySales, LocalDate start, LocalDate end) {
+    SalesTotal total = new SalesTotal(0, 0);
+    if (!start.isAfter(end)) {
+      dailySales.subMap(start, true, end, true).values().forEach(total::add);
+    }
+    return total;
+  }
 
   /**
    * Returns a list with length 1 of SalesReportSections, with all data for the period in one section
-   * @param soldListings a list of the businesses sold sale listings
+   * @param dailySales the number and value of the sales for each day with sales
    * @param periodStart the start of the report period
    * @param periodEnd the end of the report period
    * @return a list of SalesReportSections
    */
-  public List<SalesReportSection> getSectionsTotalGranularity(List<SaleItem> soldListings,
+  private List<SalesReportSection> getSectionsTotalGranularity(NavigableMap<LocalDate, SalesTotal> dailySales,
                                                                LocalDate periodStart,
                                                                LocalDate periodEnd) {
+    SalesTotal total = totalBetween(dailySales, periodStart, periodEnd);
     ArrayList<SalesReportSection> sections = new ArrayList<>();
-    int numberOfSales = 0;
-    double valueOfSales = 0;
-    for (SaleItem listing : soldListings) {
-      // If the listing was purchased between periodStart and periodEnd, increase numberOfSales and valueOfSales
-      if (listing.getPurchased().toLocalDate().compareTo(periodStart) >= 0
-              && listing.getPurchased().toLocalDate().compareTo(periodEnd) <= 0) {
-        numberOfSales++;
-        valueOfSales += listing.getPrice();
-      }
-    }
-    SalesReportSection section = new SalesReportSection("TOTAL", periodStart, periodEnd, numberOfSales, valueOfSales);
-    sections.add(section);
+    sections.add(new SalesReportSection("TOTAL", periodStart, periodEnd, total.numberOfSales, total.valueOfSales));
     return sections;
   }
 
   /**
-   * Returns a list of SalesReportSections, with each section correlating to a month of sales.
-   * The sections are divided into months of the year
-   * @param soldListings a list of the businesses sold sale listings
+   * Returns a list of SalesReportSections, with each section correlating to a day, week, month or year of sales.
+   * The first section starts at periodStart and the last section ends at periodEnd.
+   * @param dailySales the number and value of the sales for each day with sales
    * @param periodStart the start of the report period
    * @param periodEnd the end of the report period
+   * @param granularity the granularity that divides the period into sections
    * @return a list of SalesReportSections
    */
-  public List<SalesReportSection> getSectionsMonthlyGranularity(List<SaleItem> soldListings,
-                                                              LocalDate periodStart,
-                                                              LocalDate periodEnd) {
+  private List<SalesReportSection> getSections(NavigableMap<LocalDate, SalesTotal> dailySales,
+                                               LocalDate periodStart,
+                                               LocalDate periodEnd,
+                                               SalesReportGranularity granularity) {
     ArrayList<SalesReportSection> sections = new ArrayList<>();
-    LocalDate granularityStart;
-    LocalDate granularityEnd;
-    // Loop through the set period monthly to create sections for each month
-    for (LocalDate date = periodStart; date.isBefore(periodEnd.plusMonths(1)); date = date.plusMonths(1)) {
-      int numberOfSales = 0;
-      double valueOfSales = 0;
-      String granularName = date.getMonth().getValue() + "/" + date.getYear();
-
-      if (date == periodStart) {
-        // On the first run through the loop the start of the month section will be the periodStart
-        granularityStart= periodStart;
-      } else {
-        // On subsequent runs through the loop the start of the section will be the first day of the month
-        granularityStart = date.withDayOfMonth(1);
-      }
-      granularityEnd = date.withDayOfMonth(date.lengthOfMonth());
+    LocalDate granularityStart = periodStart;
+    while (!granularityStart.isAfter(periodEnd)) {
+      LocalDate granularityEnd = granularity.sectionEnd.apply(granularityStart);
       if (granularityEnd.isAfter(periodEnd)) {
         // When the periodEnd is reached the end of the section will be the periodEnd
         granularityEnd = periodEnd;
       }
-
-      for (SaleItem listing : soldListings) {
-        // If the listing was purchased between granularityStart and granularityEnd, increase numberOfSales and valueOfSales
-        if (listing.getPurchased().toLocalDate().compareTo(granularityStart) >= 0
-                && listing.getPurchased().toLocalDate().compareTo(granularityEnd) <= 0) {
-          numberOfSales++;
-          valueOfSales += listing.getPrice();
-        }
-      }
-
-      SalesReportSection section = new SalesReportSection(granularName, granularityStart, granularityEnd, numberOfSales, valueOfSales);
-      if (!granularityStart.isAfter(periodEnd)) {
-        sections.add(section);
-      }
+      SalesTotal sales = totalBetween(dailySales, granularityStart, granularityEnd);
+      sections.add(new SalesReportSection(granularity.sectionName.apply(granularityStart), granularityStart,
+              granularityEnd, sales.numberOfSales, sales.valueOfSales));
+      granularityStart = granularityEnd.plusDays(1);
     }
     return sections;
   }
 
+  /**
+   * This function will prepare an export of the complete sales history of a business.
+   * Will throw a 403 if the current user is not a GAA or admin of the business.
+   * @param business the business the export is for
+   * @param format the format to export the sold listings in
+   * @return a response body that streams the sold listings once the request has been handled
+   */
+  public StreamingResponseBody exportSales(Business business, SalesExportService.SalesExportFormat format) {
+    // Throw 403 if user is not a GAA or business admin
+    requireAdminOrGAA(authUtil.getCurrentUser(), business);
+
+    long businessId = business.getBusinessId();
+    return outputStream -> salesExportService.writeSales(businessId, format, outputStream);
+  }
+
   /**
    * Gets a sale item from repository. If no sale item is found, throws NoSuchElementException.
    * @param id Id of the sale item to search the database for.
@@ -723,15 +1050,6 @@ public class BusinessService {
     return saleItemRepository.findById(id).orElseThrow();
   }
 
-  /**
-   * Gets an inventory item from repository. If no inventory item is found, throws NoSuchElementException.
-   * @param id Id of the inventory item to search the database for.
-   * @return Instance of InventoryItem, if one is found.
-   */
-  private InventoryItem getInventoryItemById(long id) {
-    return inventoryItemRepository.findByInventoryItemId(id).orElseThrow();
-  }
-
   /**
    * This function LIKES a sale item.
    * @param businessId The business ID owning the sale item to like.
@@ -752,7 +1070,10 @@ public class BusinessService {
 
   /**
    * This function is to like and unlike sale items.
-   * The user it uses to like the sale item is the currently logged in user.
+   * The user it uses to like the sale item is the currently logged in user. The like is added or
+   * removed with one statement, in the same transaction as the change to the like count of the sale
+   * item, so the users who already like the sale item are never loaded. Changes are also recorded
+   * in the popularity rankings of the listing feeds.
    * @param businessId The ID of the business that owns the sale item.
    * @param saleItemId The ID of the sale item to like or unlike.
    * @param unlike Boolean to indicate whether to unlike the sale item.
@@ -772,17 +1093,54 @@ public class BusinessService {
       throw new NotAcceptableStatusException("SaleItem not related to business.");
     }
 
-    Set<User> likedUsers = saleItem.getLikedByUsers();
-    if (unlike) {
-      boolean change = likedUsers.remove(currentUser);
-      if (change) notificationService.createUnlikedAnItemNotification(saleItem, currentUser);
-    } else {
-      boolean change = likedUsers.add(currentUser);
-      if (change) notificationService.createLikedAnItemNotification(saleItem, currentUser);
+    long userId = currentUser.getUserId();
+    boolean change;
+    try {
+      change = Boolean.TRUE.equals(transactionTemplate.execute(status -> unlike
+              ? removeLike(saleItemId, userId)
+              : addLike(saleItemId, userId)));
+    } catch (DataIntegrityViolationException e) {
+      // The same user liked the sale item in another request since it was checked
+      change = false;
+    }
+
+    if (change && unlike) {
+      listingPopularityService.recordUnlike(saleItemId);
+      notificationService.createUnlikedAnItemNotification(saleItem, currentUser);
+    } else if (change) {
+      if (!saleItem.isSold()) {
+        listingPopularityService.recordLike(saleItemId);
+      }
+      notificationService.createLikedAnItemNotification(saleItem, currentUser);
+    }
+  }
+
+  /**
+   * Adds the like of a user to a sale item, if the user does not already like it.
+   *
+   * @return Whether the like was added.
+   */
+  private boolean addLike(long saleItemId, long userId) {
+    if (saleItemRepository.countLikesByUser(saleItemId, userId) > 0
+            || saleItemRepository.insertLike(saleItemId, userId) == 0) {
+      return false;
     }
+    saleItemRepository.changeLikeCount(saleItemId, 1);
+    return true;
+  }
 
-    saleItem.setLikedByUsers(likedUsers);
-    saleItemRepository.save(saleItem);
+  /**
+   * Removes the like of a user from a sale item, if the user likes it.
+   *
+   * @return Whether the like was removed.
+   */
+  private boolean removeLike(long saleItemId, long userId) {
+    int removed = saleItemRepository.deleteLike(saleItemId, userId);
+    if (removed == 0) {
+      return false;
+    }
+    saleItemRepository.changeLikeCount(saleItemId, -removed);
+    return true;
   }
 
 }
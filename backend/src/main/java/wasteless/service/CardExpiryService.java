@@ -0,0 +1,200 @@
+package wasteless.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.model.NotificationCategory;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Notifies the creators of marketplace cards that have expired, and deletes the cards that have been expired for more
+ * than a day, with set-based statements rather than by loading and saving each card.
+ *
+ * Cards are swept in chunks of marketplace.expired.batch-size, in order of their IDs, one transaction per chunk. The
+ * cards of a chunk are locked as they are selected, so a card renewed during the sweep is either renewed before it is
+ * swept or after. For each chunk of newly expired cards, the expiry notifications are inserted in one batch and the
+ * cards are marked as notified in one update. For each chunk of cards expired for more than a day, the deletion
+ * notifications are inserted in one batch, the expiry notifications of the cards are marked as read in one update, and
+ * the cards are deleted with their keywords in one statement each.
+ */
+@Service
+public class CardExpiryService {
+
+    private static final String SELECT_EXPIRING_CARDS = "SELECT marketplace_card_id, creator_id, title, "
+            + "display_period_end FROM marketplace_card "
+            + "WHERE display_period_end BETWEEN :oneDayAgo AND :now AND notified_expiring = FALSE "
+            + "AND marketplace_card_id > :afterId "
+            + "ORDER BY marketplace_card_id LIMIT :limit FOR UPDATE";
+
+    private static final String SELECT_INEXTENSIBLE_CARDS = "SELECT marketplace_card_id, creator_id, title, "
+            + "display_period_end FROM marketplace_card "
+            + "WHERE display_period_end < :oneDayAgo AND marketplace_card_id > :afterId "
+            + "ORDER BY marketplace_card_id LIMIT :limit FOR UPDATE";
+
+    private static final String MARK_NOTIFIED = "UPDATE marketplace_card SET notified_expiring = TRUE "
+            + "WHERE marketplace_card_id IN (:cardIds)";
+
+    private static final String READ_EXPIRY_WARNINGS = "UPDATE notification SET notification_read = TRUE "
+            + "WHERE category = :category AND action_id IN (:cardIds) AND notification_read = FALSE";
+
+    private static final String DELETE_CARD_KEYWORDS = "DELETE FROM card_keywords "
+            + "WHERE marketplace_card_id IN (:cardIds)";
+
+    private static final String DELETE_CARDS = "DELETE FROM marketplace_card WHERE marketplace_card_id IN (:cardIds)";
+
+    /**
+     * The columns of an expired card needed to notify its creator.
+     */
+    private static class ExpiredCard {
+        private final int cardId;
+        private final long creatorId;
+        private final String title;
+        private final LocalDateTime displayPeriodEnd;
+
+        private ExpiredCard(int cardId, long creatorId, String title, LocalDateTime displayPeriodEnd) {
+            this.cardId = cardId;
+            this.creatorId = creatorId;
+            this.title = title;
+            this.displayPeriodEnd = displayPeriodEnd;
+        }
+    }
+
+    private static final RowMapper<ExpiredCard> EXPIRED_CARD_MAPPER = (resultSet, rowNumber) -> new ExpiredCard(
+            resultSet.getInt("marketplace_card_id"),
+            resultSet.getLong("creator_id"),
+            resultSet.getString("title"),
+            resultSet.getTimestamp("display_period_end").toLocalDateTime());
+
+    /**
+     * The number of cards handled by a sweep.
+     */
+    @Getter
+    public static class SweepReport {
+        /** Cards whose creators were notified that they have expired */
+        private final long notified;
+        /** Cards deleted for being expired for more than a day */
+        private final long deleted;
+
+        public SweepReport(long notified, long deleted) {
+            this.notified = notified;
+            this.deleted = deleted;
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationStreamService notificationStreamService;
+
+    private final int batchSize;
+
+    @Autowired
+    public CardExpiryService(NamedParameterJdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             NotificationStreamService notificationStreamService,
+                             @Value("${marketplace.expired.batch-size:500}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Card expiry batch size must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.notificationStreamService = notificationStreamService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Notifies the creators of the cards that expired in the last day and have not been notified, then deletes the
+     * cards that expired more than a day ago and notifies their creators.
+     * @param now the time to sweep the cards as of
+     * @return the number of cards notified and deleted
+     */
+    public SweepReport sweep(LocalDateTime now) {
+        LocalDateTime oneDayAgo = now.minusDays(1L);
+        long notified = sweepInChunks(SELECT_EXPIRING_CARDS, now, oneDayAgo, this::notifyExpired);
+        long deleted = sweepInChunks(SELECT_INEXTENSIBLE_CARDS, now, oneDayAgo, this::deleteExpired);
+        return new SweepReport(notified, deleted);
+    }
+
+    /**
+     * Selects the cards matched by a query in chunks after the last card of the previous chunk, handling each chunk in
+     * its own transaction, until a chunk is not full.
+     * @return the number of cards handled
+     */
+    private long sweepInChunks(String selectCards, LocalDateTime now, LocalDateTime oneDayAgo,
+                               Consumer<List<ExpiredCard>> handler) {
+        long handled = 0;
+        int afterId = 0;
+        while (true) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("now", Timestamp.valueOf(now))
+                    .addValue("oneDayAgo", Timestamp.valueOf(oneDayAgo))
+                    .addValue("afterId", afterId)
+                    .addValue("limit", batchSize);
+            List<ExpiredCard> cards = Objects.requireNonNull(transactionTemplate.execute(status -> {
+                List<ExpiredCard> chunk = jdbcTemplate.query(selectCards, parameters, EXPIRED_CARD_MAPPER);
+                if (!chunk.isEmpty()) {
+                    handler.accept(chunk);
+                }
+                return chunk;
+            }));
+            if (cards.isEmpty()) {
+                break;
+            }
+            handled += cards.size();
+            notificationStreamService.publishWritten(
+                    cards.stream().map(card -> card.creatorId).collect(Collectors.toSet()));
+            if (cards.size() < batchSize) {
+                break;
+            }
+            afterId = cards.get(cards.size() - 1).cardId;
+        }
+        return handled;
+    }
+
+    private void notifyExpired(List<ExpiredCard> cards) {
+        insertNotifications(cards, NotificationCategory.CARD_EXPIRY_WARNING, NotificationService.CARD_EXPIRY_TITLE,
+                card -> NotificationService.cardExpiryMessage(card.title, card.displayPeriodEnd));
+        jdbcTemplate.update(MARK_NOTIFIED, new MapSqlParameterSource("cardIds", cardIds(cards)));
+    }
+
+    private void deleteExpired(List<ExpiredCard> cards) {
+        insertNotifications(cards, NotificationCategory.CARD_EXPIRED, NotificationService.CARD_DELETION_TITLE,
+                card -> NotificationService.cardDeletionMessage(card.title));
+        MapSqlParameterSource byCard = new MapSqlParameterSource("cardIds", cardIds(cards));
+        // Notification.category is mapped by the ordinal of the category
+        jdbcTemplate.update(READ_EXPIRY_WARNINGS,
+                byCard.addValue("category", NotificationCategory.CARD_EXPIRY_WARNING.ordinal()));
+        jdbcTemplate.update(DELETE_CARD_KEYWORDS, byCard);
+        jdbcTemplate.update(DELETE_CARDS, byCard);
+    }
+
+    private static List<Integer> cardIds(List<ExpiredCard> cards) {
+        return cards.stream().map(card -> card.cardId).collect(Collectors.toList());
+    }
+
+    private void insertNotifications(List<ExpiredCard> cards, NotificationCategory category, String title,
+                                     Function<ExpiredCard, String> message) {
+        Timestamp created = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.getJdbcOperations().batchUpdate(NotificationDispatcher.INSERT_NOTIFICATION, cards, cards.size(),
+                (statement, card) -> {
+                    statement.setLong(1, card.creatorId);
+                    statement.setTimestamp(2, created);
+                    // Notification.category is mapped by the ordinal of the category
+                    statement.setInt(3, category.ordinal());
+                    statement.setString(4, title);
+                    statement.setString(5, message.apply(card));
+                    statement.setInt(6, card.cardId);
+                });
+    }
+}
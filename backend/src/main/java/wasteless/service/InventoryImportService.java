@@ -0,0 +1,334 @@
+package wasteless.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.controller.jsonobjects.InventoryImportReport;
+import wasteless.controller.jsonobjects.InventoryImportReport.RowResult;
+import wasteless.exception.BadRequestException;
+import wasteless.model.Business;
+import wasteless.model.InventoryItem;
+import wasteless.model.Product;
+import wasteless.repository.InventoryItemRepository;
+import wasteless.repository.ProductRepository;
+import wasteless.repository.ProductRepository.ProductCode;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Imports inventory items in bulk from a CSV or NDJSON file.
+ *
+ * The file is read one row at a time as it arrives, and valid rows are written in batches of inventory.import.batch-size
+ * rows, one transaction per batch, so only one batch of inventory items is held at a time. The report still keeps a
+ * result for every row, so it grows with the number of rows in the file. The product codes of the business are loaded
+ * once per import. Rows that cannot be read, fail validation or name a product code the
+ * business does not have are rejected without stopping the import.
+ *
+ * CSV files must start with a header naming the columns, which are the fields of an inventory item: productId,
+ * quantity, pricePerItem, totalPrice, manufactured, sellBy, bestBefore and expires. NDJSON files have one inventory
+ * item, as it would be posted to the single item endpoint, on each line.
+ */
+@Service
+public class InventoryImportService {
+
+  private static final Logger logger = LoggerFactory.getLogger(InventoryImportService.class);
+
+  private static final String UNKNOWN_PRODUCT_CODE =
+          "Inventory item's product code does not exist in the specified business";
+
+  /**
+   * The formats inventory can be imported from.
+   */
+  public enum InventoryImportFormat {
+    CSV,
+    NDJSON;
+
+    /**
+     * Gets the format with the given name, ignoring case.
+     * @param name the name of the format
+     * @return the format
+     * @throws BadRequestException if there is no format with the name
+     */
+    public static InventoryImportFormat fromName(String name) {
+      for (InventoryImportFormat format : values()) {
+        if (format.name().equalsIgnoreCase(name)) {
+          return format;
+        }
+      }
+      throw new BadRequestException("format must be csv or ndjson");
+    }
+  }
+
+  /**
+   * A row that has passed validation and is waiting to be written.
+   */
+  private static class PendingRow {
+    private final RowResult result;
+    private final InventoryItem item;
+    private final long productRowId;
+
+    private PendingRow(RowResult result, InventoryItem item, long productRowId) {
+      this.result = result;
+      this.item = item;
+      this.productRowId = productRowId;
+    }
+  }
+
+  private final ProductRepository productRepository;
+
+  private final InventoryItemRepository inventoryItemRepository;
+
+  private final ObjectMapper objectMapper;
+
+  private final Validator validator;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final int batchSize;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  public InventoryImportService(ProductRepository productRepository,
+                                InventoryItemRepository inventoryItemRepository,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${inventory.import.batch-size:500}") int batchSize) {
+    this.productRepository = productRepository;
+    this.inventoryItemRepository = inventoryItemRepository;
+    this.objectMapper = objectMapper;
+    this.validator = validator;
+    this.transactionTemplate = transactionTemplate;
+    this.batchSize = Math.max(batchSize, 1);
+  }
+
+  /**
+   * Imports the inventory items in a file into the inventory of a business.
+   * @param businessId the ID of the business
+   * @param format the format of the file
+   * @param input the file. It is read to its end but not closed.
+   * @return the result of each row of the file
+   * @throws BadRequestException if the file is a CSV file without a header
+   * @throws IOException if the file cannot be read
+   */
+  public InventoryImportReport importInventory(long businessId, InventoryImportFormat format, InputStream input)
+          throws IOException {
+    Map<String, Long> productRowIds = productRepository.findProductCodesByBusiness(businessId).stream()
+            .collect(Collectors.toMap(ProductCode::getProductId, ProductCode::getRowId, (first, second) -> first));
+    BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    InventoryImportReport report = new InventoryImportReport();
+    List<PendingRow> batch = new ArrayList<>(batchSize);
+
+    List<String> header = null;
+    if (format == InventoryImportFormat.CSV) {
+      header = readCsvRecord(reader);
+      if (header == null) {
+        throw new BadRequestException("CSV file must start with a header");
+      }
+      header = header.stream().map(String::trim).collect(Collectors.toList());
+    }
+
+    long rowNumber = 0;
+    while (true) {
+      Map<String, Object> fields;
+      List<String> errors = new ArrayList<>();
+      if (format == InventoryImportFormat.CSV) {
+        List<String> record = readCsvRecord(reader);
+        if (record == null) {
+          break;
+        }
+        rowNumber++;
+        if (record.size() == 1 && record.get(0).isBlank()) {
+          continue;
+        }
+        fields = csvFields(header, record, errors);
+      } else {
+        String line = reader.readLine();
+        if (line == null) {
+          break;
+        }
+        rowNumber++;
+        if (line.isBlank()) {
+          continue;
+        }
+        fields = jsonFields(line, errors);
+      }
+
+      RowResult result = report.addRow(rowNumber);
+      InventoryItem item = errors.isEmpty() ? toInventoryItem(fields, errors) : null;
+      Long productRowId = item == null ? null : productRowIds.get(item.getProductId());
+      if (item != null && productRowId == null) {
+        errors.add(UNKNOWN_PRODUCT_CODE);
+      }
+
+      if (!errors.isEmpty()) {
+        report.rejected(result, errors);
+      } else {
+        item.setCreated(LocalDateTime.now());
+        batch.add(new PendingRow(result, item, productRowId));
+        if (batch.size() >= batchSize) {
+          saveBatch(businessId, batch, report);
+        }
+      }
+    }
+    saveBatch(businessId, batch, report);
+    return report;
+  }
+
+  /**
+   * Writes a batch of rows in one transaction, then empties the batch. If the batch cannot be written, every row in
+   * it is rejected.
+   */
+  private void saveBatch(long businessId, List<PendingRow> batch, InventoryImportReport report) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<InventoryItem> items = batch.stream().map(row -> row.item).collect(Collectors.toList());
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        // References set the foreign keys without loading the business and products
+        Business business = entityManager.getReference(Business.class, businessId);
+        for (PendingRow row : batch) {
+          row.item.setBusiness(business);
+          row.item.setProduct(entityManager.getReference(Product.class, row.productRowId));
+        }
+        inventoryItemRepository.saveAll(items);
+        // Detach the written items, so they are not held until the end of the request
+        entityManager.flush();
+        entityManager.clear();
+      });
+      for (PendingRow row : batch) {
+        report.created(row.result, row.item.getInventoryItemId());
+      }
+    } catch (DataAccessException e) {
+      logger.error("Failed to import a batch of {} inventory items", batch.size(), e);
+      for (PendingRow row : batch) {
+        report.rejected(row.result, List.of("Inventory item could not be saved"));
+      }
+    }
+    batch.clear();
+  }
+
+  /**
+   * Converts the fields of a row into an inventory item and validates it.
+   * @return the inventory item, or null if the fields are not a valid inventory item
+   */
+  private InventoryItem toInventoryItem(Map<String, Object> fields, List<String> errors) {
+    InventoryItem item;
+    try {
+      item = objectMapper.convertValue(fields, InventoryItem.class);
+    } catch (IllegalArgumentException e) {
+      errors.add(describeConversionError(e));
+      return null;
+    }
+    // Rows only ever create inventory items
+    item.setInventoryItemId(null);
+    for (ConstraintViolation<InventoryItem> violation : validator.validate(item)) {
+      errors.add(violation.getMessage());
+    }
+    Collections.sort(errors);
+    return errors.isEmpty() ? item : null;
+  }
+
+  private static String describeConversionError(IllegalArgumentException e) {
+    if (e.getCause() instanceof JsonMappingException) {
+      List<JsonMappingException.Reference> path = ((JsonMappingException) e.getCause()).getPath();
+      if (!path.isEmpty() && path.get(0).getFieldName() != null) {
+        return "Invalid value for " + path.get(0).getFieldName();
+      }
+    }
+    return "Row could not be read";
+  }
+
+  private static Map<String, Object> csvFields(List<String> header, List<String> record, List<String> errors) {
+    if (record.size() != header.size()) {
+      errors.add("Row has " + record.size() + " columns but the header has " + header.size());
+      return null;
+    }
+    Map<String, Object> fields = new HashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      // Empty values are left out, so they are read as missing rather than as empty strings
+      if (!record.get(i).isEmpty()) {
+        fields.put(header.get(i), record.get(i));
+      }
+    }
+    return fields;
+  }
+
+  private Map<String, Object> jsonFields(String line, List<String> errors) {
+    try {
+      return objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {});
+    } catch (JsonProcessingException e) {
+      errors.add("Row is not a JSON object");
+      return null;
+    }
+  }
+
+  /**
+   * Reads the next record of a CSV file. Fields may be quoted, in which case they can contain separators, line breaks
+   * and quotes (written as two quotes).
+   * @param reader the reader of the file, which must support mark
+   * @return the fields of the record, or null at the end of the file
+   * @throws IOException if the file cannot be read
+   */
+  static List<String> readCsvRecord(Reader reader) throws IOException {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    boolean read = false;
+    int c;
+    while ((c = reader.read()) != -1) {
+      read = true;
+      if (quoted) {
+        if (c == '"') {
+          reader.mark(1);
+          if (reader.read() == '"') {
+            field.append('"');
+          } else {
+            reader.reset();
+            quoted = false;
+          }
+        } else {
+          field.append((char) c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\n') {
+        fields.add(field.toString());
+        return fields;
+      } else if (c != '\r') {
+        field.append((char) c);
+      }
+    }
+    if (!read) {
+      return null;
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+}
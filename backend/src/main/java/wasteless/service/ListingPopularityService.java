@@ -0,0 +1,236 @@
+package wasteless.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.repository.SaleItemRepository;
+import wasteless.repository.SaleItemRepository.ListingLikes;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Ranks the unsold sale listings by popularity, for the most liked and trending feeds.
+ *
+ * The likes of each listing and its trending score are held in memory, in sets ordered by each ranking, so the top
+ * listings are read without querying the database and each like, unlike or purchase only moves one listing. The
+ * trending score adds up the likes of a listing with a weight that halves every listings.trending.half-life-hours
+ * hours. Rather than decaying every score as time passes, each like is weighted by how long after a fixed epoch it was
+ * made (forward decay), which ranks the listings the same way.
+ *
+ * The rankings are rebuilt from the like counts of the sale items when the application starts. The like table does
+ * not record when each like was made, so a rebuilt listing's likes are weighted as if they were made when it was
+ * listed.
+ */
+@Service
+public class ListingPopularityService {
+
+  /**
+   * The most listings a feed can return.
+   */
+  public static final int MAX_FEED_SIZE = 100;
+
+  /**
+   * The epoch is moved forward once it is this many half-lives old, well before the weights could overflow.
+   */
+  private static final double MAX_EPOCH_AGE = 512;
+
+  /**
+   * The popularity of one listing. Fields must only be changed while it is out of the ranking sets.
+   */
+  private static class Popularity {
+    private final long saleItemId;
+    private int likes;
+    private double trendingScore;
+
+    private Popularity(long saleItemId) {
+      this.saleItemId = saleItemId;
+    }
+  }
+
+  private static final Comparator<Popularity> BY_LIKES = Comparator
+          .comparingInt((Popularity popularity) -> popularity.likes).reversed()
+          .thenComparingLong(popularity -> popularity.saleItemId);
+
+  private static final Comparator<Popularity> BY_TRENDING_SCORE = Comparator
+          .comparingDouble((Popularity popularity) -> popularity.trendingScore).reversed()
+          .thenComparingLong(popularity -> popularity.saleItemId);
+
+  private final SaleItemRepository saleItemRepository;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final Clock clock;
+
+  /**
+   * The decay rate of the trending score, per millisecond.
+   */
+  private final double decayRate;
+
+  private final Map<Long, Popularity> listings = new HashMap<>();
+
+  private final TreeSet<Popularity> mostLiked = new TreeSet<>(BY_LIKES);
+
+  private final TreeSet<Popularity> trending = new TreeSet<>(BY_TRENDING_SCORE);
+
+  private long epochMillis;
+
+  @Autowired
+  public ListingPopularityService(SaleItemRepository saleItemRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${listings.trending.half-life-hours:24}") double halfLifeHours) {
+    this(saleItemRepository, transactionTemplate, halfLifeHours, Clock.systemDefaultZone());
+  }
+
+  ListingPopularityService(SaleItemRepository saleItemRepository, TransactionTemplate transactionTemplate,
+                           double halfLifeHours, Clock clock) {
+    this.saleItemRepository = saleItemRepository;
+    this.transactionTemplate = transactionTemplate;
+    this.clock = clock;
+    this.decayRate = Math.log(2) / (Math.max(halfLifeHours, 0.01) * 3_600_000);
+    this.epochMillis = clock.millis();
+  }
+
+  /**
+   * Records a like added to a listing.
+   * @param saleItemId the ID of the sale item liked
+   */
+  public synchronized void recordLike(long saleItemId) {
+    double weight = weight(clock.millis());
+    Popularity popularity = unrank(saleItemId);
+    if (popularity == null) {
+      popularity = new Popularity(saleItemId);
+    }
+    popularity.likes++;
+    popularity.trendingScore += weight;
+    add(popularity);
+  }
+
+  /**
+   * Records a like removed from a listing. The trending score loses the weight a like made now would add, so recent
+   * likes taken back leave the score as it was, and old ones cannot take it below zero.
+   * @param saleItemId the ID of the sale item unliked
+   */
+  public synchronized void recordUnlike(long saleItemId) {
+    double weight = weight(clock.millis());
+    Popularity popularity = unrank(saleItemId);
+    if (popularity == null) {
+      return;
+    }
+    popularity.likes = Math.max(popularity.likes - 1, 0);
+    popularity.trendingScore = Math.max(popularity.trendingScore - weight, 0);
+    add(popularity);
+  }
+
+  /**
+   * Records the purchase of a listing, which takes it out of the feeds.
+   * @param saleItemId the ID of the sale item purchased
+   */
+  public void recordPurchase(long saleItemId) {
+    remove(saleItemId);
+  }
+
+  /**
+   * Takes a listing out of the feeds, such as one that has been sold, has closed or no longer exists.
+   * @param saleItemId the ID of the sale item
+   */
+  public synchronized void remove(long saleItemId) {
+    unrank(saleItemId);
+  }
+
+  /**
+   * Gets the IDs of the most liked listings, most liked first. Listings with no likes are not ranked.
+   * @param size the most IDs to return
+   * @return the IDs of the listings
+   */
+  public synchronized List<Long> getMostLikedIds(int size) {
+    return topIds(mostLiked, size);
+  }
+
+  /**
+   * Gets the IDs of the trending listings, highest trending score first. Listings with no likes are not ranked.
+   * @param size the most IDs to return
+   * @return the IDs of the listings
+   */
+  public synchronized List<Long> getTrendingIds(int size) {
+    return topIds(trending, size);
+  }
+
+  /**
+   * Rebuilds the rankings from the like counts of the unsold sale items, correcting any likes and purchases that were
+   * not recorded as they were made, such as those made through another instance of the application.
+   * @return the number of listings ranked
+   */
+  public int rebuild() {
+    List<ListingLikes> likedListings = transactionTemplate.execute(status -> saleItemRepository.findLikedListings());
+    synchronized (this) {
+      listings.clear();
+      mostLiked.clear();
+      trending.clear();
+      epochMillis = clock.millis();
+      for (ListingLikes likedListing : Objects.requireNonNull(likedListings)) {
+        Popularity popularity = new Popularity(likedListing.getSaleItemId());
+        popularity.likes = likedListing.getLikeCount();
+        LocalDateTime created = likedListing.getCreated();
+        long likedMillis = created == null
+                ? epochMillis
+                : created.atZone(clock.getZone()).toInstant().toEpochMilli();
+        popularity.trendingScore = popularity.likes * weight(Math.min(likedMillis, epochMillis));
+        add(popularity);
+      }
+      return listings.size();
+    }
+  }
+
+  /**
+   * The weight of a like made at the given time, relative to a like made at the epoch. May move the epoch, so must be
+   * called while every ranked listing is in the ranking sets.
+   */
+  private double weight(long millis) {
+    if ((millis - epochMillis) * decayRate > MAX_EPOCH_AGE * Math.log(2)) {
+      moveEpoch(millis);
+    }
+    return Math.exp((millis - epochMillis) * decayRate);
+  }
+
+  /**
+   * Moves the epoch forward, scaling every trending score down by the same factor, which keeps their order.
+   */
+  private void moveEpoch(long newEpochMillis) {
+    double scale = Math.exp(-(newEpochMillis - epochMillis) * decayRate);
+    trending.clear();
+    for (Popularity popularity : listings.values()) {
+      popularity.trendingScore *= scale;
+      trending.add(popularity);
+    }
+    epochMillis = newEpochMillis;
+  }
+
+  private Popularity unrank(long saleItemId) {
+    Popularity popularity = listings.remove(saleItemId);
+    if (popularity != null) {
+      mostLiked.remove(popularity);
+      trending.remove(popularity);
+    }
+    return popularity;
+  }
+
+  private void add(Popularity popularity) {
+    if (popularity.likes > 0) {
+      listings.put(popularity.saleItemId, popularity);
+      mostLiked.add(popularity);
+      trending.add(popularity);
+    }
+  }
+
+  private static List<Long> topIds(TreeSet<Popularity> ranking, int size) {
+    List<Long> ids = new ArrayList<>(Math.min(Math.max(size, 0), ranking.size()));
+    Iterator<Popularity> iterator = ranking.iterator();
+    while (ids.size() < size && iterator.hasNext()) {
+      ids.add(iterator.next().saleItemId);
+    }
+    return ids;
+  }
+}
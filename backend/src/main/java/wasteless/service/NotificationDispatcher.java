@@ -0,0 +1,309 @@
+package wasteless.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.model.NotificationCategory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes notifications that are sent to many users at once (fan-outs) in the background, so the request that causes
+ * them only has to enqueue them.
+ *
+ * Fan-outs are held in a bounded queue and taken by worker threads, which insert their notifications with JDBC batch
+ * inserts of up to notifications.dispatch.batch-size rows, one transaction per batch. A batch that fails is retried up
+ * to notifications.dispatch.retries times before its notifications are discarded.
+ *
+ * When the queue is full, a fan-out waits up to notifications.dispatch.enqueue-timeout milliseconds for space. If there
+ * is still none, notifications.dispatch.overflow decides what happens to it: CALLER_RUNS writes it on the calling
+ * thread, so no notification is lost but the caller is slowed down, and DROP discards it so the caller never is.
+ * With notifications.dispatch.workers set to 0 every fan-out is written on the calling thread.
+ *
+ * Queued fan-outs are only held in memory. They are written before the application shuts down, for up to
+ * notifications.dispatch.shutdown-timeout seconds, and are lost if the application stops without shutting down.
+ *
+ * Once a batch is written, its notifications are pushed to the recipients that have a notification stream open.
+ */
+@Service
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    static final String INSERT_NOTIFICATION = "INSERT INTO notification "
+            + "(user_id, notification_read, created, category, title, message, action_id) "
+            + "VALUES (?, FALSE, ?, ?, ?, ?, ?)";
+
+    private static final long POLL_MILLIS = 250;
+
+    /**
+     * What happens to a fan-out that cannot be enqueued because the queue is full.
+     */
+    public enum OverflowPolicy {
+        CALLER_RUNS,
+        DROP
+    }
+
+    /**
+     * A notification sent to many users. Each recipient is sent a notification with the same contents.
+     */
+    public static class FanOut {
+        private final List<Long> recipientIds;
+        private final NotificationCategory category;
+        private final String title;
+        private final String message;
+        private final Integer actionId;
+        private final LocalDateTime created;
+
+        public FanOut(List<Long> recipientIds, NotificationCategory category, String title, String message,
+                      Integer actionId) {
+            this.recipientIds = List.copyOf(recipientIds);
+            this.category = category;
+            this.title = title;
+            this.message = message;
+            this.actionId = actionId;
+            this.created = LocalDateTime.now();
+        }
+
+        public List<Long> getRecipientIds() {
+            return recipientIds;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationStreamService notificationStreamService;
+
+    private final int workers;
+    private final int batchSize;
+    private final int retries;
+    private final long enqueueTimeoutMillis;
+    private final long shutdownTimeoutSeconds;
+    private final OverflowPolicy overflowPolicy;
+
+    private final BlockingQueue<FanOut> queue;
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private volatile boolean shuttingDown = false;
+
+    private final AtomicLong fanOutsDispatched = new AtomicLong();
+    private final AtomicLong fanOutsRunByCaller = new AtomicLong();
+    private final AtomicLong fanOutsDropped = new AtomicLong();
+    private final AtomicLong notificationsWritten = new AtomicLong();
+    private final AtomicLong notificationsDropped = new AtomicLong();
+    private final AtomicLong notificationsFailed = new AtomicLong();
+    private final AtomicLong batchesRetried = new AtomicLong();
+    private final AtomicLong maximumQueueDepth = new AtomicLong();
+
+    @Autowired
+    public NotificationDispatcher(JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  NotificationStreamService notificationStreamService,
+                                  @Value("${notifications.dispatch.workers:2}") int workers,
+                                  @Value("${notifications.dispatch.queue-capacity:1000}") int queueCapacity,
+                                  @Value("${notifications.dispatch.batch-size:500}") int batchSize,
+                                  @Value("${notifications.dispatch.retries:2}") int retries,
+                                  @Value("${notifications.dispatch.enqueue-timeout:0}") long enqueueTimeoutMillis,
+                                  @Value("${notifications.dispatch.overflow:CALLER_RUNS}") OverflowPolicy overflowPolicy,
+                                  @Value("${notifications.dispatch.shutdown-timeout:10}") long shutdownTimeoutSeconds) {
+        if (queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Notification queue capacity and batch size must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.notificationStreamService = notificationStreamService;
+        this.workers = Math.max(workers, 0);
+        this.batchSize = batchSize;
+        this.retries = Math.max(retries, 0);
+        this.enqueueTimeoutMillis = Math.max(enqueueTimeoutMillis, 0);
+        this.overflowPolicy = overflowPolicy;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Starts the worker threads.
+     */
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::work, "notification-dispatcher-" + (i + 1));
+            thread.setDaemon(true);
+            workerThreads.add(thread);
+            thread.start();
+        }
+        logger.info("Started {} notification dispatcher workers", workers);
+    }
+
+    /**
+     * Stops accepting fan-outs onto the queue, and waits for the workers to write the fan-outs already queued.
+     * Fan-outs still queued once the shutdown timeout has passed are discarded.
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(shutdownTimeoutSeconds);
+        try {
+            for (Thread thread : workerThreads) {
+                thread.join(Math.max(deadline - System.currentTimeMillis(), 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workerThreads.forEach(Thread::interrupt);
+        List<FanOut> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (FanOut fanOut : remaining) {
+            drop(fanOut);
+        }
+        if (!remaining.isEmpty()) {
+            logger.warn("Discarded {} queued notification fan-outs on shutdown", remaining.size());
+        }
+    }
+
+    /**
+     * Enqueues a fan-out to be written by the workers, or handles it by the overflow policy if the queue is full.
+     * @param fanOut The fan-out to write. Fan-outs with no recipients are ignored.
+     */
+    public void dispatch(FanOut fanOut) {
+        if (fanOut.recipientIds.isEmpty()) {
+            return;
+        }
+        fanOutsDispatched.incrementAndGet();
+        if (workers == 0 || shuttingDown) {
+            write(fanOut);
+            return;
+        }
+        if (offer(fanOut)) {
+            maximumQueueDepth.accumulateAndGet(queue.size(), Math::max);
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            logger.warn("Notification queue is full, discarding {} notifications", fanOut.recipientIds.size());
+            drop(fanOut);
+        } else {
+            fanOutsRunByCaller.incrementAndGet();
+            write(fanOut);
+        }
+    }
+
+    private boolean offer(FanOut fanOut) {
+        if (enqueueTimeoutMillis == 0) {
+            return queue.offer(fanOut);
+        }
+        try {
+            return queue.offer(fanOut, enqueueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void drop(FanOut fanOut) {
+        fanOutsDropped.incrementAndGet();
+        notificationsDropped.addAndGet(fanOut.recipientIds.size());
+    }
+
+    /**
+     * Takes fan-outs from the queue and writes them until the dispatcher shuts down and the queue is empty.
+     */
+    private void work() {
+        try {
+            while (!shuttingDown || !queue.isEmpty()) {
+                FanOut fanOut = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (fanOut != null) {
+                    write(fanOut);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the notifications of a fan-out in batches.
+     * @param fanOut The fan-out to write.
+     */
+    private void write(FanOut fanOut) {
+        List<Long> recipientIds = fanOut.recipientIds;
+        for (int start = 0; start < recipientIds.size(); start += batchSize) {
+            List<Long> batch = recipientIds.subList(start, Math.min(start + batchSize, recipientIds.size()));
+            writeBatch(fanOut, batch);
+        }
+    }
+
+    private void writeBatch(FanOut fanOut, List<Long> batch) {
+        if (!insertBatch(fanOut, batch)) {
+            return;
+        }
+        // Outside the retries, so a failure to publish the committed batch cannot write it again
+        try {
+            notificationStreamService.publishWritten(batch);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to publish {} written notifications to their streams", batch.size(), e);
+        }
+    }
+
+    /**
+     * Inserts the notifications of a batch, retrying a failed insert up to the configured number of times.
+     * @return Whether the batch was written.
+     */
+    private boolean insertBatch(FanOut fanOut, List<Long> batch) {
+        Timestamp created = Timestamp.valueOf(fanOut.created);
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION, batch, batch.size(), (statement, userId) -> {
+                            statement.setLong(1, userId);
+                            statement.setTimestamp(2, created);
+                            // Notification.category is mapped by the ordinal of the category
+                            statement.setInt(3, fanOut.category.ordinal());
+                            statement.setString(4, fanOut.title);
+                            statement.setString(5, fanOut.message);
+                            statement.setObject(6, fanOut.actionId);
+                        }));
+                notificationsWritten.addAndGet(batch.size());
+                return true;
+            } catch (DataAccessException e) {
+                if (attempt < retries) {
+                    batchesRetried.incrementAndGet();
+                    logger.warn("Failed to write {} notifications, retrying", batch.size(), e);
+                } else {
+                    notificationsFailed.addAndGet(batch.size());
+                    logger.error("Failed to write {} notifications, discarding them", batch.size(), e);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of fan-outs dispatched, written by their caller and dropped, the number of notifications
+     * written, dropped and failed, the number of batches retried, and the current and maximum depth of the queue.
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("fanOutsDispatched", fanOutsDispatched.get());
+        statistics.put("fanOutsRunByCaller", fanOutsRunByCaller.get());
+        statistics.put("fanOutsDropped", fanOutsDropped.get());
+        statistics.put("notificationsWritten", notificationsWritten.get());
+        statistics.put("notificationsDropped", notificationsDropped.get());
+        statistics.put("notificationsFailed", notificationsFailed.get());
+        statistics.put("batchesRetried", batchesRetried.get());
+        statistics.put("queueDepth", (long) queue.size());
+        statistics.put("maximumQueueDepth", maximumQueueDepth.get());
+        return statistics;
+    }
+}
@@ -0,0 +1,116 @@
+package wasteless.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.model.NotificationCategory;
+import wasteless.repository.NotificationRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongFunction;
+
+/**
+ * Deletes notifications that are no longer needed, so the notification table does not grow without bound.
+ *
+ * Read notifications are deleted once they are notifications.retention.read-max-age-days days old. Notifications that
+ * a user is sent each time they like or unlike a listing (LIKED_A_LISTING) are collapsed to the newest for each user
+ * and listing, as only it describes whether the listing is still liked.
+ *
+ * Notifications are deleted in batches of notifications.retention.batch-size, one transaction per batch, so no
+ * statement locks much of the table at once. At most notifications.retention.max-batches batches of each kind are
+ * deleted in one purge, and any left are deleted by the next.
+ */
+@Service
+public class NotificationRetentionService {
+
+    /**
+     * The number of notifications deleted by a purge.
+     */
+    @Getter
+    public static class RetentionReport {
+        /** Read notifications deleted for being older than the maximum age */
+        private final long expiredDeleted;
+        /** Like and unlike notifications deleted for being superseded by a newer one */
+        private final long likesCollapsed;
+
+        public RetentionReport(long expiredDeleted, long likesCollapsed) {
+            this.expiredDeleted = expiredDeleted;
+            this.likesCollapsed = likesCollapsed;
+        }
+
+        public long getTotalDeleted() {
+            return expiredDeleted + likesCollapsed;
+        }
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final long readMaxAgeDays;
+    private final int batchSize;
+    private final int maxBatches;
+
+    @Autowired
+    public NotificationRetentionService(NotificationRepository notificationRepository,
+                                        TransactionTemplate transactionTemplate,
+                                        @Value("${notifications.retention.read-max-age-days:30}") long readMaxAgeDays,
+                                        @Value("${notifications.retention.batch-size:500}") int batchSize,
+                                        @Value("${notifications.retention.max-batches:100}") int maxBatches) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Notification retention batch size must be at least 1");
+        }
+        this.notificationRepository = notificationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.readMaxAgeDays = readMaxAgeDays;
+        this.batchSize = batchSize;
+        this.maxBatches = Math.max(maxBatches, 1);
+    }
+
+    /**
+     * Deletes the read notifications older than the maximum age, and the like and unlike notifications superseded by a
+     * newer one.
+     * @return the number of notifications deleted
+     */
+    public RetentionReport purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(readMaxAgeDays);
+        long expiredDeleted = deleteInBatches(afterId ->
+                notificationRepository.findReadIdsCreatedBefore(cutoff, PageRequest.of(0, batchSize)));
+        long likesCollapsed = deleteInBatches(afterId -> notificationRepository.findSupersededIds(
+                NotificationCategory.LIKED_A_LISTING, afterId, PageRequest.of(0, batchSize)));
+        return new RetentionReport(expiredDeleted, likesCollapsed);
+    }
+
+    /**
+     * Deletes the notifications found by a query in batches, until it finds less than a full batch or the most
+     * batches have been deleted.
+     * @param findBatch finds the IDs of the next batch of notifications to delete, given the last ID of the previous
+     *                  batch (0 for the first batch), so queries that find notifications in order of ID can continue
+     *                  from where the previous batch ended
+     * @return the number of notifications deleted
+     */
+    private long deleteInBatches(LongFunction<List<Long>> findBatch) {
+        long deleted = 0;
+        long lastId = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            long afterId = lastId;
+            List<Long> ids = Objects.requireNonNull(transactionTemplate.execute(status -> {
+                List<Long> found = findBatch.apply(afterId);
+                if (!found.isEmpty()) {
+                    notificationRepository.deleteByIds(found);
+                }
+                return found;
+            }));
+            deleted += ids.size();
+            if (ids.size() < batchSize) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+        }
+        return deleted;
+    }
+}
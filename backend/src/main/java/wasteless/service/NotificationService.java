@@ -1,8 +1,12 @@
 package wasteless.service;
 
+import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import wasteless.exception.BadRequestException;
 import wasteless.exception.ForbiddenException;
 import wasteless.exception.UnauthorizedException;
 import wasteless.model.*;
@@ -10,6 +14,7 @@ import wasteless.repository.MarketplaceCardRepository;
 import wasteless.repository.NotificationRepository;
 import wasteless.repository.UserRepository;
 import wasteless.security.AuthUtil;
+import wasteless.security.AuthenticatedPrincipal;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -24,20 +29,35 @@ import java.util.List;
 @Service
 public class NotificationService {
 
+    /**
+     * The most notifications a page of the feed can hold.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    static final String CARD_EXPIRY_TITLE = "Card Expired";
+
+    static final String CARD_DELETION_TITLE = "Card Deleted";
+
     private final NotificationRepository notificationRepository;
     private final MarketplaceCardRepository marketplaceCardRepository;
     private final UserRepository userRepository;
     private final AuthUtil authUtil;
+    private final NotificationDispatcher notificationDispatcher;
+    private final NotificationStreamService notificationStreamService;
 
     @Autowired
     public NotificationService(NotificationRepository notificationRepository,
                                MarketplaceCardRepository marketplaceCardRepository,
                                UserRepository userRepository,
-                               AuthUtil authUtil) {
+                               AuthUtil authUtil,
+                               NotificationDispatcher notificationDispatcher,
+                               NotificationStreamService notificationStreamService) {
         this.notificationRepository = notificationRepository;
         this.marketplaceCardRepository = marketplaceCardRepository;
         this.userRepository = userRepository;
         this.authUtil = authUtil;
+        this.notificationDispatcher = notificationDispatcher;
+        this.notificationStreamService = notificationStreamService;
     }
 
     /**
@@ -49,6 +69,64 @@ public class NotificationService {
         return notificationRepository.findAllByRelatedUser(user);
     }
 
+    /**
+     * Gets a page of a user's notifications, newest first. Older pages are requested with the cursor of the previous
+     * page as the before cursor, and notifications created since the client last looked are requested with the ID of
+     * the newest notification it has as the since cursor. Only the user and global application administrators can
+     * read the notifications.
+     * @param userId the ID of the user
+     * @param before only notifications older than the notification with this ID are returned, if given
+     * @param since only notifications newer than the notification with this ID are returned, if given
+     * @param size the most notifications to return
+     * @return the page of notifications, and the cursor of the next older page, or null if it is the last page
+     */
+    public NotificationPage getNotificationPage(long userId, Long before, Long since, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        requireOwnerOrGlobalAdmin(userId);
+        // One extra notification is read to tell whether there is an older page
+        List<Notification> notifications = notificationRepository.findFeedPage(
+                userId,
+                since == null ? 0 : since,
+                before == null ? Long.MAX_VALUE : before,
+                PageRequest.of(0, size + 1));
+        if (notifications.size() <= size) {
+            return new NotificationPage(notifications, null);
+        }
+        notifications = notifications.subList(0, size);
+        return new NotificationPage(notifications, notifications.get(size - 1).getId());
+    }
+
+    /**
+     * Counts a user's unread notifications. Only the user and global application administrators can count them.
+     * @param userId the ID of the user
+     * @return the number of unread notifications
+     */
+    public long countUnreadNotifications(long userId) {
+        requireOwnerOrGlobalAdmin(userId);
+        return notificationRepository.countUnread(userId);
+    }
+
+    /**
+     * Opens a stream that a user's new notifications are pushed to as they are created. Only the user and global
+     * application administrators can open it.
+     * @param userId the ID of the user
+     * @param since the ID of the last notification the client was sent, if it is reconnecting
+     * @return the stream
+     */
+    public SseEmitter streamNotifications(long userId, Long since) {
+        requireOwnerOrGlobalAdmin(userId);
+        return notificationStreamService.subscribe(userId, since);
+    }
+
+    private void requireOwnerOrGlobalAdmin(long userId) {
+        AuthenticatedPrincipal principal = authUtil.getCurrentPrincipal();
+        if (principal.getUserId() != userId && !principal.isGlobalAdmin()) {
+            throw new ForbiddenException("Notifications of the user with ID " + userId + " are not visible to the current user");
+        }
+    }
+
     /**
      * Creates a notification in the database with the given attributes.
      * @param title The title of the notification that would be shown to the user.
@@ -61,6 +139,7 @@ public class NotificationService {
     public void createNotification(String title, String message, NotificationCategory category, User targetUser, Integer actionId) {
         Notification notification = new Notification(targetUser, category, title, message, actionId);
         notificationRepository.save(notification);
+        notificationStreamService.publish(notification);
     }
 
     /**
@@ -73,11 +152,8 @@ public class NotificationService {
      */
     public void createCardExpiryNotification(MarketplaceCard card) {
         User recipient = card.getCreator();
-        LocalDateTime expired = card.getDisplayPeriodEnd();
-        String formattedDate = expired.format(DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM));
-        String title = "Card Expired";
-        String message = "Your card \"" + card.getTitle() + "\" has expired on " + formattedDate + ". Please renew or delete your " +
-                "card or it will be automatically deleted in 24 hours.";
+        String title = CARD_EXPIRY_TITLE;
+        String message = cardExpiryMessage(card.getTitle(), card.getDisplayPeriodEnd());
         Integer actionId = card.getMarketplaceCardId();
         if (card.getNotifiedExpiring().equals(Boolean.FALSE)) {
             createNotification(
@@ -92,6 +168,26 @@ public class NotificationService {
         }
     }
 
+    /**
+     * @param cardTitle the title of a marketplace card that has expired
+     * @param expired when the card expired
+     * @return the message of the notification sent when the card expires
+     */
+    static String cardExpiryMessage(String cardTitle, LocalDateTime expired) {
+        String formattedDate = expired.format(DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM));
+        return "Your card \"" + cardTitle + "\" has expired on " + formattedDate + ". Please renew or delete your " +
+                "card or it will be automatically deleted in 24 hours.";
+    }
+
+    /**
+     * @param cardTitle the title of a marketplace card that has been deleted
+     * @return the message of the notification sent when the card is automatically deleted
+     */
+    static String cardDeletionMessage(String cardTitle) {
+        return "Your card \"" + cardTitle + "\" has not been renewed for 24 hours, the card has been " +
+                "automatically deleted";
+    }
+
     /**
      * Prepares notification title and message for a marketplace card that has expired for more than 24 hours, and has
      * been automatically deleted.
@@ -101,9 +197,8 @@ public class NotificationService {
      */
     public void createDeletionNotification(MarketplaceCard card) {
         User recipient = card.getCreator();
-        String title = "Card Deleted";
-        String message = "Your card \"" + card.getTitle() + "\" has not been renewed for 24 hours, the card has been " +
-                "automatically deleted";
+        String title = CARD_DELETION_TITLE;
+        String message = cardDeletionMessage(card.getTitle());
         Integer actionId = card.getMarketplaceCardId();
         createNotification(
                 title,
@@ -116,43 +211,34 @@ public class NotificationService {
     }
 
     /**
-     * Finds notifications given a recipient user and related ID, that has the category CARD_EXPIRY_WARNING. 
-     * Sets notifications to read. 
+     * Marks a recipient's unread notifications about a card with the category CARD_EXPIRY_WARNING as read, in one
+     * update.
      * @param recipient ID of the user
      * @param actionId ID of the related card
      */
     public void readExpiryWarningNotifications(User recipient, Integer actionId) {
-        // find the notification with the same action ID as the deletion notification and the category "CARD_EXPIRY_WARNING"
-        List<Notification> notifications = notificationRepository
-                .findNotificationsByRelatedUserAndActionIdAndCategoryAndNotificationReadFalse(
-                        recipient, actionId, NotificationCategory.CARD_EXPIRY_WARNING);
-        if (notifications != null) {
-            for (Notification notification : notifications) {
-                if (!notification.isNotificationRead()) {
-                    notification.setNotificationRead(true);
-                    notificationRepository.save(notification);
-                }
-            }
-        }
+        notificationRepository.markReadByCategoryAndActionId(
+                recipient.getUserId(), NotificationCategory.CARD_EXPIRY_WARNING, actionId, Long.MAX_VALUE);
     }
 
     /**
-     * Prepares a notification for user's who have liked (bookmarked) an item which has been sold to another user.
+     * Prepares notifications for the users who have liked (bookmarked) an item which has been sold to another user,
+     * and dispatches them to be written in the background by {@link NotificationDispatcher}.
      * @param saleItem the sale item that has been purchased
-     * @param user the user to send the notification to
+     * @param userIds the IDs of the users to send the notification to
      */
-    public void createLikedItemPurchaseNotification(SaleItem saleItem, User user) {
+    public void createLikedItemPurchaseNotifications(SaleItem saleItem, List<Long> userIds) {
         String productName = saleItem.getInventoryItem().getProduct().getName();
         String title = "\"" + productName + "\" Listing No Longer Available";
         String message = "The \"" + productName + "\" listing that you liked was purchased by another user.";
         Long actionId = saleItem.getSaleItemId();
-        createNotification(
+        notificationDispatcher.dispatch(new NotificationDispatcher.FanOut(
+                userIds,
+                NotificationCategory.LIKED_LISTING_SOLD,
                 title,
                 message,
-                NotificationCategory.LIKED_LISTING_SOLD,
-                user,
                 actionId.intValue()
-        );
+        ));
     }
 
     /**
@@ -213,25 +299,64 @@ public class NotificationService {
     }
 
     /**
-     * This sets a notification as read so that the frontend can highlight unread notifications.
+     * This sets a notification as read so that the frontend can highlight unread notifications. The notification is
+     * marked in one update, and only read to tell why if it could not be.
      * @param userId The UserId of the user who has called the method for the target notification
      * @param notificationId The ID of the target notification.
      */
     public void markAsRead(long userId, long notificationId) {
         User currentUser = authUtil.getCurrentUser();
+        if (currentUser != null && notificationRepository.markRead(userId, notificationId) > 0) {
+            return;
+        }
         Notification notification = notificationRepository.findById(notificationId).orElse(null);
         if (notification == null) {
             throw new NotAcceptableStatusException("No notification found with ID " + notificationId);
         } else if (currentUser == null) {
             throw new UnauthorizedException("No user exists with ID " + userId);
+        } else if (userId != notification.getRelatedUser().getUserId()) {
+            throw new ForbiddenException("This notification is not owned by the user with ID " + userId);
+        }
+        // Otherwise the notification was already read
+    }
+
+    /**
+     * Marks a user's unread notifications as read in one update: all of them, those of a category, or those of a
+     * category about one entity. Only the user and global application administrators can mark them.
+     * @param userId the ID of the user
+     * @param upTo only notifications with this ID or smaller are marked, if given, so notifications created after the
+     *             client last looked are left unread
+     * @param category only notifications of this category are marked, if given
+     * @param actionId only notifications about the entity with this ID are marked, if given. Requires a category.
+     * @return the number of notifications marked
+     */
+    public int markAllAsRead(long userId, Long upTo, NotificationCategory category, Integer actionId) {
+        if (actionId != null && category == null) {
+            throw new BadRequestException("A category is required to mark notifications read by action ID");
+        }
+        requireOwnerOrGlobalAdmin(userId);
+        long cursor = upTo == null ? Long.MAX_VALUE : upTo;
+        if (category == null) {
+            return notificationRepository.markReadUpTo(userId, cursor);
+        } else if (actionId == null) {
+            return notificationRepository.markReadByCategory(userId, category, cursor);
         } else {
-            if (userId != notification.getRelatedUser().getUserId()) {
-                throw new ForbiddenException("This notification is not owned by the user with ID " + userId);
-            } else {
-                notification.setNotificationRead(true);
-                notificationRepository.save(notification);
-            }
+            return notificationRepository.markReadByCategoryAndActionId(userId, category, actionId, cursor);
+        }
+    }
+
+    /**
+     * A page of a user's notifications, newest first.
+     */
+    @Getter
+    public static class NotificationPage {
+        private final List<Notification> notifications;
+        /** ID to request the next older page with, or null on the last page */
+        private final Long nextCursor;
 
+        public NotificationPage(List<Notification> notifications, Long nextCursor) {
+            this.notifications = notifications;
+            this.nextCursor = nextCursor;
         }
     }
 }
@@ -0,0 +1,275 @@
+package wasteless.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import wasteless.model.Notification;
+import wasteless.repository.NotificationRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes new notifications to their users over server-sent event streams, so clients are sent only the notifications
+ * created since they connected rather than polling for all of them.
+ *
+ * Open streams are kept in a registry by user. Streams are asynchronous responses, so an open stream holds a
+ * connection but no request thread. Each notification is sent as a "notification" event with the notification's ID as
+ * the event ID, and a comment is sent on every stream each notifications.stream.heartbeat-period milliseconds so idle
+ * connections are not closed by proxies, and closed connections are found and removed. Heartbeats are sent by a thread
+ * of their own rather than the shared task scheduler, so slow clients cannot hold up scheduled jobs. Streams are closed
+ * after notifications.stream.timeout milliseconds, and a user may hold at most notifications.stream.max-per-user
+ * streams, the oldest being closed first.
+ *
+ * A client that reconnects gives the ID of the last notification it was sent, as browsers do in the Last-Event-ID
+ * header, and is first sent the notifications created since, up to {@link NotificationService#MAX_PAGE_SIZE} of the
+ * newest. Notifications are sent in the order of their IDs and never twice on one stream.
+ *
+ * The registry is held in memory, so only notifications created by this instance of the application are pushed.
+ */
+@Service
+public class NotificationStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamService.class);
+
+    private static final String EVENT_NAME = "notification";
+
+    /**
+     * An open stream of a user's notifications.
+     */
+    private static class Subscription {
+        private final long userId;
+        private final SseEmitter emitter;
+        // ID of the newest notification sent on the stream, guarded by the subscription
+        private long lastEventId;
+
+        private Subscription(long userId, SseEmitter emitter, long lastEventId) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.lastEventId = lastEventId;
+        }
+    }
+
+    private final NotificationRepository notificationRepository;
+
+    private final long timeoutMillis;
+    private final int maxPerUser;
+    private final long heartbeatPeriodMillis;
+
+    private final Map<Long, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notification-stream-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public NotificationStreamService(NotificationRepository notificationRepository,
+                                     @Value("${notifications.stream.timeout:1800000}") long timeoutMillis,
+                                     @Value("${notifications.stream.max-per-user:5}") int maxPerUser,
+                                     @Value("${notifications.stream.heartbeat-period:25000}")
+                                             long heartbeatPeriodMillis) {
+        this.notificationRepository = notificationRepository;
+        this.timeoutMillis = timeoutMillis;
+        this.maxPerUser = Math.max(maxPerUser, 1);
+        this.heartbeatPeriodMillis = heartbeatPeriodMillis;
+    }
+
+    /**
+     * Starts sending heartbeats, unless the heartbeat period is not positive.
+     */
+    @PostConstruct
+    public void start() {
+        if (heartbeatPeriodMillis > 0) {
+            heartbeatExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    sendHeartbeats();
+                } catch (RuntimeException e) {
+                    // Thrown out of the task, it would cancel every later heartbeat
+                    logger.warn("Failed to send notification stream heartbeats", e);
+                }
+            }, heartbeatPeriodMillis, heartbeatPeriodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops sending heartbeats. Open streams are left to be closed with their connections.
+     */
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    /**
+     * Opens a stream of a user's notifications.
+     * @param userId the ID of the user
+     * @param since the ID of the last notification the client was sent, if it is reconnecting. Notifications created
+     *              since are sent first.
+     * @return the stream, to be returned as the response
+     */
+    public SseEmitter subscribe(long userId, Long since) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        long lastEventId = since == null ? findNewestId(userId) : since;
+        Subscription subscription = new Subscription(userId, emitter, lastEventId);
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> {
+            remove(subscription);
+            emitter.complete();
+        });
+        emitter.onError(error -> remove(subscription));
+        add(subscription);
+
+        try {
+            // Sent straight away so the response is committed and the client knows it has connected
+            emitter.send(SseEmitter.event().comment("connected"));
+        } catch (IOException e) {
+            remove(subscription);
+            return emitter;
+        }
+        if (since != null) {
+            sendSince(subscription);
+        }
+        return emitter;
+    }
+
+    /**
+     * Sends a notification to the open streams of its user. If the notification is being created in a transaction,
+     * it is sent once the transaction commits, and not at all if it rolls back.
+     * @param notification the notification, which must have been saved
+     */
+    public void publish(Notification notification) {
+        long userId = notification.getRelatedUser().getUserId();
+        if (!subscriptions.containsKey(userId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendToUser(userId, notification);
+                }
+            });
+        } else {
+            sendToUser(userId, notification);
+        }
+    }
+
+    /**
+     * Sends the notifications written without being saved as entities, such as those written in batches by
+     * {@link NotificationDispatcher}, to the open streams of their users. The notifications are read for each user
+     * with an open stream, so must have been committed.
+     * @param userIds the IDs of the users notifications were written for
+     */
+    public void publishWritten(Collection<Long> userIds) {
+        for (Long userId : new HashSet<>(userIds)) {
+            List<Subscription> userSubscriptions = subscriptions.get(userId);
+            if (userSubscriptions != null) {
+                userSubscriptions.forEach(this::sendSince);
+            }
+        }
+    }
+
+    /**
+     * Sends a comment on every open stream, which keeps idle connections open and removes those the client has closed.
+     */
+    public void sendHeartbeats() {
+        for (List<Subscription> userSubscriptions : subscriptions.values()) {
+            for (Subscription subscription : userSubscriptions) {
+                synchronized (subscription) {
+                    try {
+                        subscription.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } catch (IOException | IllegalStateException e) {
+                        remove(subscription);
+                    }
+                }
+            }
+        }
+    }
+
+    private long findNewestId(long userId) {
+        List<Notification> newest = notificationRepository.findFeedPage(userId, 0, Long.MAX_VALUE, PageRequest.of(0, 1));
+        return newest.isEmpty() ? 0 : newest.get(0).getId();
+    }
+
+    /**
+     * Sends the notifications created since the last one sent on a stream, oldest first.
+     */
+    private void sendSince(Subscription subscription) {
+        long since;
+        synchronized (subscription) {
+            since = subscription.lastEventId;
+        }
+        List<Notification> notifications = new ArrayList<>(notificationRepository.findFeedPage(
+                subscription.userId, since, Long.MAX_VALUE, PageRequest.of(0, NotificationService.MAX_PAGE_SIZE)));
+        Collections.reverse(notifications);
+        for (Notification notification : notifications) {
+            send(subscription, notification);
+        }
+    }
+
+    private void sendToUser(long userId, Notification notification) {
+        List<Subscription> userSubscriptions = subscriptions.get(userId);
+        if (userSubscriptions != null) {
+            for (Subscription subscription : userSubscriptions) {
+                send(subscription, notification);
+            }
+        }
+    }
+
+    private void send(Subscription subscription, Notification notification) {
+        synchronized (subscription) {
+            if (notification.getId() <= subscription.lastEventId) {
+                return;
+            }
+            try {
+                subscription.emitter.send(SseEmitter.event()
+                        .id(String.valueOf(notification.getId()))
+                        .name(EVENT_NAME)
+                        .data(notification, MediaType.APPLICATION_JSON));
+                subscription.lastEventId = notification.getId();
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Closing notification stream of user {}", subscription.userId, e);
+                remove(subscription);
+            }
+        }
+    }
+
+    private void add(Subscription subscription) {
+        List<Subscription> evicted = new ArrayList<>();
+        subscriptions.compute(subscription.userId, (userId, userSubscriptions) -> {
+            if (userSubscriptions == null) {
+                userSubscriptions = new CopyOnWriteArrayList<>();
+            }
+            while (userSubscriptions.size() >= maxPerUser) {
+                evicted.add(userSubscriptions.remove(0));
+            }
+            userSubscriptions.add(subscription);
+            return userSubscriptions;
+        });
+        for (Subscription oldest : evicted) {
+            oldest.emitter.complete();
+        }
+    }
+
+    private void remove(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.userId, (userId, userSubscriptions) -> {
+            userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+}
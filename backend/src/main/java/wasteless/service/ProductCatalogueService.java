@@ -0,0 +1,151 @@
+package wasteless.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.controller.jsonobjects.ProductUpsertResult;
+import wasteless.exception.BadRequestException;
+import wasteless.exception.ConflictException;
+import wasteless.model.Business;
+import wasteless.model.Product;
+import wasteless.repository.ProductRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates and updates the products of a business catalogue in bulk, matching products by their product code.
+ *
+ * The products are handled products.upsert.batch-size at a time: the existing products with the codes of a batch are
+ * loaded with one query, and the updated and new products are then written with batched statements. The unique index
+ * on (business, product code) keeps the catalogue free of duplicate codes, including when two syncs of the same
+ * catalogue run at once.
+ */
+@Service
+public class ProductCatalogueService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ProductCatalogueService.class);
+
+  private final ProductRepository productRepository;
+
+  private final Validator validator;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final int batchSize;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  public ProductCatalogueService(ProductRepository productRepository,
+                                 Validator validator,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${products.upsert.batch-size:1000}") int batchSize) {
+    this.productRepository = productRepository;
+    this.validator = validator;
+    this.transactionTemplate = transactionTemplate;
+    this.batchSize = Math.max(batchSize, 1);
+  }
+
+  /**
+   * Creates the products whose codes are not in the catalogue of a business, and updates the name, description,
+   * manufacturer and recommended retail price of those that are. Either every product is written or none are.
+   * @param businessId the ID of the business
+   * @param products the products to create or update
+   * @return how many products were created and updated
+   * @throws BadRequestException if a product is invalid, or a product code appears more than once
+   * @throws ConflictException if the catalogue was changed by someone else while the products were being written,
+   * even after trying again
+   */
+  public ProductUpsertResult upsertProducts(long businessId, List<Product> products) {
+    validate(products);
+    try {
+      return transactionTemplate.execute(status -> writeProducts(businessId, products));
+    } catch (DataIntegrityViolationException e) {
+      // A product code was added by someone else after it was looked up, so it is updated when trying again
+      logger.warn("Product catalogue of business {} changed during an upsert, trying again", businessId);
+    }
+    try {
+      return transactionTemplate.execute(status -> writeProducts(businessId, products));
+    } catch (DataIntegrityViolationException e) {
+      throw new ConflictException("Product catalogue was changed while it was being updated, please try again");
+    }
+  }
+
+  /**
+   * Validates every product before any are written, so the errors of all of them are reported at once. Products are
+   * numbered from 1 in the error messages.
+   */
+  private void validate(List<Product> products) {
+    List<String> errors = new ArrayList<>();
+    Set<String> productIds = new HashSet<>();
+    for (int i = 0; i < products.size(); i++) {
+      Product product = products.get(i);
+      if (product == null) {
+        errors.add("Product " + (i + 1) + ": Product must not be null");
+        continue;
+      }
+      for (ConstraintViolation<Product> violation : validator.validate(product)) {
+        errors.add("Product " + (i + 1) + ": " + violation.getMessage());
+      }
+      if (product.getProductId() != null && !productIds.add(product.getProductId())) {
+        errors.add("Product " + (i + 1) + ": Product code " + product.getProductId() + " appears more than once");
+      }
+    }
+    if (!errors.isEmpty()) {
+      Collections.sort(errors);
+      throw new BadRequestException(String.join("; ", errors));
+    }
+  }
+
+  private ProductUpsertResult writeProducts(long businessId, List<Product> products) {
+    int created = 0;
+    int updated = 0;
+    for (int start = 0; start < products.size(); start += batchSize) {
+      List<Product> batch = products.subList(start, Math.min(start + batchSize, products.size()));
+      Map<String, Product> existing = productRepository
+              .findByBusinessBusinessIdAndProductIdIn(businessId,
+                      batch.stream().map(Product::getProductId).collect(Collectors.toList()))
+              .stream()
+              .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+
+      // A reference sets the foreign key without loading the business
+      Business business = entityManager.getReference(Business.class, businessId);
+      List<Product> newProducts = new ArrayList<>();
+      for (Product product : batch) {
+        Product current = existing.get(product.getProductId());
+        if (current == null) {
+          newProducts.add(new Product(business, product.getProductId(), product.getName(),
+                  product.getManufacturer(), product.getDescription(), product.getRecommendedRetailPrice(),
+                  LocalDate.now()));
+        } else {
+          // Updates are written when the batch is flushed
+          current.setName(product.getName());
+          current.setDescription(product.getDescription());
+          current.setManufacturer(product.getManufacturer());
+          current.setRecommendedRetailPrice(product.getRecommendedRetailPrice());
+          updated++;
+        }
+      }
+      productRepository.saveAll(newProducts);
+      created += newProducts.size();
+
+      // Flushing through the repository turns a duplicate product code into a DataIntegrityViolationException
+      productRepository.flush();
+      // Detach the written products, so they are not held until the end of the request
+      entityManager.clear();
+    }
+    return new ProductUpsertResult(created, updated);
+  }
+}
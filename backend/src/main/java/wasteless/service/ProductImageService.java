@@ -60,17 +60,21 @@ public class ProductImageService {
 
     private final AuthUtil authUtil;
 
+    private final BusinessAuthorizationService businessAuthorizationService;
+
     Logger logger = LoggerFactory.getLogger(ProductImageService.class);
 
     @Autowired
     ProductImageService(ProductImageRepository productImageRespository,
                         ProductRepository productRepository,
                         BusinessRepository businessRepository,
-                        AuthUtil authUtil) {
+                        AuthUtil authUtil,
+                        BusinessAuthorizationService businessAuthorizationService) {
         this.productImageRepository = productImageRespository;
         this.productRepository = productRepository;
         this.businessRepository = businessRepository;
         this.authUtil = authUtil;
+        this.businessAuthorizationService = businessAuthorizationService;
     }
 
     /**
@@ -211,8 +215,9 @@ public class ProductImageService {
         Business business = businessRepository.findById(businessId).orElse(null);
         if (business == null) {throw new NotAcceptableStatusException("The business ID does not exist.");}
 
-        // Checking if user has required permission
-        if (!business.getAdmins().contains(authUtil.getCurrentUser()) && !authUtil.isCurrentUserGlobalAdmin()) {
+        // Checking if user has required permission, without loading the business's administrators
+        if (!authUtil.isCurrentUserGlobalAdmin()
+                && !businessAuthorizationService.isInAdmins(authUtil.getCurrentUser(), business)) {
             throw new ForbiddenException("You do not have permission to change this product.");
         }
         return business;
@@ -3,12 +3,27 @@ package wasteless.service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import wasteless.controller.SaleItemController.FilterQuery;
+import wasteless.controller.jsonobjects.ListingJson;
+import wasteless.controller.jsonobjects.ListingJson.ImageJson;
+import wasteless.model.SaleItem;
+import wasteless.model.Searchable;
+import wasteless.repository.ProductImageRepository;
+import wasteless.repository.ProductImageRepository.ListingImage;
+import wasteless.repository.SaleItemRepository;
+import wasteless.security.AuthUtil;
 import wasteless.service.searching_service.SaleItemSearchService;
+import wasteless.service.searching_service.SearchCursor;
+import wasteless.service.searching_service.SearchResultCache;
 import wasteless.service.searching_service.SearchToken;
 import wasteless.service.searching_service.SearchingService.SearchResult;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service class that handles the business rule validation in-between the SaleItemController and SaleItemSearchService,
@@ -19,13 +34,36 @@ public class SaleItemService {
 
     private final SaleItemSearchService saleItemSearchService;
 
+    private final SearchResultCache listingResultCache;
+
+    private final SaleItemRepository saleItemRepository;
+
+    private final ProductImageRepository productImageRepository;
+
+    private final ListingPopularityService listingPopularityService;
+
+    private final AuthUtil authUtil;
+
     @Autowired
-    public SaleItemService(SaleItemSearchService saleItemSearchService) { this.saleItemSearchService = saleItemSearchService; }
+    public SaleItemService(SaleItemSearchService saleItemSearchService,
+                           SearchResultCache listingResultCache,
+                           SaleItemRepository saleItemRepository,
+                           ProductImageRepository productImageRepository,
+                           ListingPopularityService listingPopularityService,
+                           AuthUtil authUtil) {
+        this.saleItemSearchService = saleItemSearchService;
+        this.listingResultCache = listingResultCache;
+        this.saleItemRepository = saleItemRepository;
+        this.productImageRepository = productImageRepository;
+        this.listingPopularityService = listingPopularityService;
+        this.authUtil = authUtil;
+    }
 
     /**
      * Validates the input from the controller (business requirement validation, such as pagination needing to start
      * from 1).
-     * If validation checks pass (no exception is thrown), calls find method on saleItemSearchService.
+     * If validation checks pass (no exception is thrown), calls find method on saleItemSearchService. Pages of results
+     * are cached by listingResultCache. The results are ListingJson responses.
      * @param tokens List of SearchTokens passed from web layer.
      * @param filterQuery Instance of FilterQuery passed from web layer. Contains filter parameters.
      * @param pageNum Page number. Must be validated to be more than 1 (search service assumes it is more than 0)
@@ -43,7 +81,167 @@ public class SaleItemService {
                                             String orderBy) {
         validateFilters(filterQuery);
         validatePagination(pageNum, perPage);
-        return saleItemSearchService.find(tokens, filterQuery, pageNum, perPage, sortBy, orderBy);
+        return listingResultCache.find(tokens, filterQuery, sortBy, orderBy, pageNum, perPage,
+                () -> toListings(saleItemSearchService.find(tokens, filterQuery, pageNum, perPage, sortBy, orderBy)),
+                this::retrieveInOrder);
+    }
+
+    /**
+     * Builds the response of a single sale listing, including whether the current user likes it, which is read from
+     * the like table rather than the users who like it.
+     * @param saleItem Sale listing, with its inventory item, product and business loaded.
+     * @return The response of the sale listing.
+     */
+    public ListingJson getListing(SaleItem saleItem) {
+        ListingJson listing = toListingJson(List.of(saleItem)).get(0);
+        long userId = authUtil.getCurrentPrincipal().getUserId();
+        listing.setLikedByCurrentUser(saleItemRepository.countLikesByUser(saleItem.getSaleItemId(), userId) > 0);
+        return listing;
+    }
+
+    /**
+     * Retrieves the most liked open sale listings, most liked first.
+     * @param size Most listings to return. Must be between 1 and ListingPopularityService.MAX_FEED_SIZE.
+     * @return List of sale listings, in order of their likes.
+     */
+    public List<ListingJson> getMostLikedListings(int size) {
+        validateFeedSize(size);
+        return retrieveFeed(listingPopularityService.getMostLikedIds(size));
+    }
+
+    /**
+     * Retrieves the trending open sale listings, the listings with the most recent likes first.
+     * @param size Most listings to return. Must be between 1 and ListingPopularityService.MAX_FEED_SIZE.
+     * @return List of sale listings, in order of their trending score.
+     */
+    public List<ListingJson> getTrendingListings(int size) {
+        validateFeedSize(size);
+        return retrieveFeed(listingPopularityService.getTrendingIds(size));
+    }
+
+    /**
+     * Retrieves the responses of the sale listings of a feed, in the order of the ids. Listings that no longer exist,
+     * have been sold or have closed are skipped and taken out of the feeds.
+     * @param ids Ordered list of sale listing ids.
+     * @return List of ListingJson responses, in the order of the ids.
+     */
+    private List<ListingJson> retrieveFeed(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, SaleItem> saleItems = new HashMap<>();
+        for (SaleItem saleItem : saleItemRepository.findListingsById(ids)) {
+            saleItems.put(saleItem.getSaleItemId(), saleItem);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<SaleItem> results = new ArrayList<>();
+        for (Long id : ids) {
+            SaleItem saleItem = saleItems.get(id);
+            if (saleItem == null || saleItem.isSold()
+                    || (saleItem.getCloses() != null && saleItem.getCloses().isBefore(now))) {
+                listingPopularityService.remove(id);
+            } else {
+                results.add(saleItem);
+            }
+        }
+        return toListingJson(results);
+    }
+
+    /**
+     * @return The hit, miss, eviction and invalidation counts of the listing search result cache, and its size.
+     */
+    public Map<String, Long> getSearchCacheStatistics() {
+        return listingResultCache.getStatistics();
+    }
+
+    /**
+     * Retrieves the responses of the sale listings with the given ids, in the order of the ids. Listings that no
+     * longer exist are skipped.
+     * @param ids Ordered list of sale listing ids.
+     * @return List of ListingJson responses, in the order of the ids.
+     */
+    private List<Searchable> retrieveInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, SaleItem> saleItems = new HashMap<>();
+        for (SaleItem saleItem : saleItemRepository.findListingsById(ids)) {
+            saleItems.put(saleItem.getSaleItemId(), saleItem);
+        }
+        List<SaleItem> ordered = new ArrayList<>();
+        for (Long id : ids) {
+            if (saleItems.containsKey(id)) {
+                ordered.add(saleItems.get(id));
+            }
+        }
+        return new ArrayList<>(toListingJson(ordered));
+    }
+
+    /**
+     * Replaces the sale listings of a page of search results with their responses.
+     * @param result Page of sale listings found by saleItemSearchService.
+     * @return The same page, with ListingJson responses as its results.
+     */
+    private SearchResult toListings(SearchResult result) {
+        List<Long> ids = new ArrayList<>();
+        for (Searchable listing : result.getResult()) {
+            ids.add(listing.getId());
+        }
+        return new SearchResult(retrieveInOrder(ids), result.getResultsLength(), result.getNextCursor());
+    }
+
+    /**
+     * Builds the responses of sale listings, reading the images of their products with one query. Nothing else is
+     * read, so the listings must have been loaded with their inventory items, products and businesses, such as by
+     * SaleItemRepository.findListingsById. Likes are shown only as the count kept on each listing, so the users who
+     * liked them are never read.
+     * @param saleItems Sale listings.
+     * @return List of ListingJson responses, in the order of the sale listings.
+     */
+    private List<ListingJson> toListingJson(List<SaleItem> saleItems) {
+        List<ListingJson> listings = new ArrayList<>();
+        if (saleItems.isEmpty()) {
+            return listings;
+        }
+        Set<Long> rowIds = new HashSet<>();
+        for (SaleItem saleItem : saleItems) {
+            rowIds.add(saleItem.getInventoryItem().getProduct().getRowId());
+        }
+        Map<Long, List<ImageJson>> images = new HashMap<>();
+        for (ListingImage image : productImageRepository.findListingImages(rowIds)) {
+            images.computeIfAbsent(image.getRowId(), rowId -> new ArrayList<>())
+                    .add(new ImageJson(image.getProductImageId(), Boolean.TRUE.equals(image.getIsPrimary())));
+        }
+        for (SaleItem saleItem : saleItems) {
+            long rowId = saleItem.getInventoryItem().getProduct().getRowId();
+            listings.add(new ListingJson(saleItem, images.getOrDefault(rowId, new ArrayList<>())));
+        }
+        return listings;
+    }
+
+    /**
+     * Validates the input from the controller, then calls findAfter method on saleItemSearchService to retrieve the
+     * page of sale listings after the given cursor, as ListingJson responses. Unlike searchSaleListings, exact matches are always ranked above
+     * partial matches.
+     * @param tokens List of SearchTokens passed from web layer.
+     * @param filterQuery Instance of FilterQuery passed from web layer. Contains filter parameters.
+     * @param cursor Cursor returned with the previous page. An empty cursor requests the first page.
+     * @param perPage Number of items per page. Cannot be 0, otherwise the contents will be empty.
+     * @param sortBy String defining column to sort by. Assumed to not be null.
+     * @param orderBy String defining order to sort by. Assumed to not be null.
+     * @return Instance of SearchResult containing the page of results, total number of results (without pagination)
+     *          and the cursor of the next page
+     */
+    public SearchResult searchSaleListingsAfter(List<SearchToken> tokens,
+                                                FilterQuery filterQuery,
+                                                String cursor,
+                                                Integer perPage,
+                                                String sortBy,
+                                                String orderBy) {
+        validateFilters(filterQuery);
+        validatePagination(1, perPage);
+        SearchCursor after = cursor.isBlank() ? null : SearchCursor.decode(cursor);
+        return toListings(saleItemSearchService.findAfter(tokens, filterQuery, after, perPage, sortBy, orderBy));
     }
 
     /**
@@ -62,6 +260,18 @@ public class SaleItemService {
         }
     }
 
+    /**
+     * Throws an IllegalArgumentException if the number of listings requested from a feed is less than 1 or more than
+     * ListingPopularityService.MAX_FEED_SIZE.
+     * @param size Integer number of listings to validate.
+     */
+    private void validateFeedSize(int size) {
+        if (size < 1 || size > ListingPopularityService.MAX_FEED_SIZE) {
+            throw new IllegalArgumentException(
+                    "Feed size must be between 1 and " + ListingPopularityService.MAX_FEED_SIZE);
+        }
+    }
+
     /**
      * Checks earliestClosingDate,latestClosingDate. Throws an IllegalArgumentException if latest closing date is earlier than
      * earliest closing date, if both of them are defined. If either one is null, then does not check.
@@ -0,0 +1,151 @@
+package wasteless.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import wasteless.exception.BadRequestException;
+import wasteless.repository.SaleItemRepository;
+import wasteless.repository.SaleItemRepository.SoldListing;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Exports the sales history of a business.
+ *
+ * Sold listings are read from the database through a forward-only cursor as projections rather than entities, and
+ * written to the output as they are read, so the memory used does not grow with the number of sales.
+ */
+@Service
+public class SalesExportService {
+
+  /**
+   * The formats the sales history can be exported in.
+   */
+  public enum SalesExportFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+
+    private final String extension;
+
+    SalesExportFormat(String contentType, String extension) {
+      this.contentType = contentType;
+      this.extension = extension;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    public String getExtension() {
+      return extension;
+    }
+
+    /**
+     * Gets the format with the given name, ignoring case.
+     * @param name the name of the format
+     * @return the format
+     * @throws BadRequestException if there is no format with the name
+     */
+    public static SalesExportFormat fromName(String name) {
+      for (SalesExportFormat format : values()) {
+        if (format.name().equalsIgnoreCase(name)) {
+          return format;
+        }
+      }
+      throw new BadRequestException("format must be csv or ndjson");
+    }
+  }
+
+  private static final List<String> FIELDS =
+          List.of("saleItemId", "productId", "productName", "price", "quantity", "purchased");
+
+  private final SaleItemRepository saleItemRepository;
+
+  private final ObjectMapper objectMapper;
+
+  @Autowired
+  public SalesExportService(SaleItemRepository saleItemRepository, ObjectMapper objectMapper) {
+    this.saleItemRepository = saleItemRepository;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Writes every sold listing of a business to the output, in order of purchase.
+   * @param businessId the ID of the business
+   * @param format the format to write the sold listings in
+   * @param outputStream the output to write to. It is flushed but not closed.
+   * @throws IOException if the output cannot be written to
+   */
+  @Transactional(readOnly = true)
+  public void writeSales(long businessId, SalesExportFormat format, OutputStream outputStream) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    if (format == SalesExportFormat.CSV) {
+      writer.write(String.join(",", FIELDS));
+      writer.write("\r\n");
+    }
+    try (Stream<SoldListing> soldListings = saleItemRepository.streamSoldListingsByBusiness(businessId)) {
+      soldListings.forEach(soldListing -> {
+        try {
+          writeSoldListing(writer, format, soldListing);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    writer.flush();
+  }
+
+  private void writeSoldListing(Writer writer, SalesExportFormat format, SoldListing soldListing) throws IOException {
+    List<Object> values = Arrays.asList(
+            soldListing.getSaleItemId(),
+            soldListing.getProductId(),
+            soldListing.getProductName(),
+            soldListing.getPrice(),
+            soldListing.getQuantity(),
+            soldListing.getPurchased() == null ? null : soldListing.getPurchased().toString());
+    if (format == SalesExportFormat.CSV) {
+      writer.write(values.stream().map(SalesExportService::csvValue).collect(Collectors.joining(",")));
+      writer.write("\r\n");
+    } else {
+      Map<String, Object> row = new LinkedHashMap<>();
+      for (int i = 0; i < FIELDS.size(); i++) {
+        row.put(FIELDS.get(i), values.get(i));
+      }
+      writer.write(objectMapper.writeValueAsString(row));
+      writer.write("\n");
+    }
+  }
+
+  /**
+   * Formats a value as a CSV field, quoting it if it contains a separator, quote or line break.
+   * @param value the value
+   * @return the CSV field
+   */
+  private static String csvValue(Object value) {
+    if (value == null) {
+      return "";
+    }
+    String text = value.toString();
+    if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+      return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+    return text;
+  }
+}
@@ -0,0 +1,88 @@
+package wasteless.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import wasteless.model.DailySales;
+import wasteless.repository.DailySalesRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Maintains the daily sales rollup, which sales reports are summarised from.
+ *
+ * Each purchase is added to the total of its business for the day it was made. The rollup can also be rebuilt from
+ * the sold sale items, which backfills it when it is first deployed and corrects any sales made without going through
+ * BusinessService.purchaseSaleItem.
+ */
+@Service
+public class SalesRollupService {
+
+  private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+  private final DailySalesRepository dailySalesRepository;
+
+  @Autowired
+  public SalesRollupService(DailySalesRepository dailySalesRepository) {
+    this.dailySalesRepository = dailySalesRepository;
+  }
+
+  /**
+   * Adds a sale to the total of its business for the day it was made. Called in the transaction of the purchase, so
+   * the total is only changed if the purchase commits.
+   * @param businessId the ID of the business that made the sale
+   * @param salesDate the day of the sale
+   * @param value the price of the sale item sold
+   * @param units the quantity of the sale item sold
+   */
+  @Transactional
+  public void recordSale(long businessId, LocalDate salesDate, double value, long units) {
+    dailySalesRepository.upsertSale(businessId, salesDate, value, units);
+  }
+
+  /**
+   * Gets the daily sales totals of a business within a period.
+   * @param businessId the ID of the business
+   * @param periodStart the first day of the period
+   * @param periodEnd the last day of the period
+   * @return the totals of the days with sales, ordered by day
+   */
+  public List<DailySales> getDailySales(long businessId, LocalDate periodStart, LocalDate periodEnd) {
+    return dailySalesRepository.findByBusinessIdAndSalesDateBetweenOrderBySalesDate(businessId, periodStart, periodEnd);
+  }
+
+  /**
+   * @return whether the rollup holds no totals, as it does before it is first backfilled
+   */
+  public boolean isEmpty() {
+    return dailySalesRepository.count() == 0;
+  }
+
+  /**
+   * Rebuilds the totals of every business from the sold sale items.
+   * @return the number of daily totals created
+   */
+  @Transactional
+  public int rebuild() {
+    dailySalesRepository.deleteAllTotals();
+    int totals = dailySalesRepository.insertTotalsFromSoldListings();
+    logger.info("Rebuilt daily sales rollup with {} daily totals", totals);
+    return totals;
+  }
+
+  /**
+   * Rebuilds the totals of a business from its sold sale items.
+   * @param businessId the ID of the business
+   * @return the number of daily totals created
+   */
+  @Transactional
+  public int rebuild(long businessId) {
+    dailySalesRepository.deleteTotalsByBusiness(businessId);
+    int totals = dailySalesRepository.insertTotalsFromSoldListingsByBusiness(businessId);
+    logger.info("Rebuilt daily sales rollup of business {} with {} daily totals", businessId, totals);
+    return totals;
+  }
+}
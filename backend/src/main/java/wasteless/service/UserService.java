@@ -17,8 +17,11 @@ import wasteless.model.MarketplaceCard;
 import wasteless.model.User;
 import wasteless.repository.MarketplaceCardRepository;
 import wasteless.repository.UserRepository;
+import wasteless.security.PrincipalCache;
 import wasteless.service.searching_service.SearchParamsParser;
 import wasteless.service.searching_service.SearchToken;
+import wasteless.service.searching_service.SearchCursor;
+import wasteless.service.searching_service.KeysetSearchingService;
 import wasteless.service.searching_service.SearchingService;
 
 import javax.validation.Valid;
@@ -37,18 +40,22 @@ public class UserService {
 
   private final UserRepository userRepository;
 
-  private final SearchingService search;
+  private final KeysetSearchingService search;
 
   private final MarketplaceCardRepository marketplaceCardRepository;
 
+  private final PrincipalCache principalCache;
+
   @Autowired
   public UserService(PasswordEncoder passwordEncoder, UserRepository userRepository,
-                     SearchingService userSearchService,
-                     MarketplaceCardRepository marketplaceCardRepository) {
+                     KeysetSearchingService userSearchService,
+                     MarketplaceCardRepository marketplaceCardRepository,
+                     PrincipalCache principalCache) {
     this.passwordEncoder = passwordEncoder;
     this.marketplaceCardRepository = marketplaceCardRepository;
     this.userRepository = userRepository;
     this.search = userSearchService;
+    this.principalCache = principalCache;
   }
 
   /**
@@ -67,6 +74,27 @@ public class UserService {
     return search.find(searchParams, pageNum, perPage, sortBy, orderBy);
   }
 
+  /**
+   * Searches for users as findUsers does, returning the page of users after the given cursor instead of a numbered
+   * page.
+   *
+   * @param params String that can be divided into tokens.
+   * @param cursor Cursor returned with the previous page. An empty cursor requests the first page.
+   * @param perPage Total items each page will display. Must be more than 0.
+   * @param sortBy The field name that needs to be sorted.
+   * @param orderBy The order in asc or desc.
+   * @return The page of users found, and the cursor of the next page
+   */
+  public SearchingService.SearchResult findUsersAfter(String params, String cursor, long perPage, String sortBy,
+                                                      String orderBy) {
+    if (perPage <= 0) {
+      throw new IllegalArgumentException("Cannot return page with 0 or less contents");
+    }
+    List<SearchToken> searchParams = SearchParamsParser.parse(params);
+    SearchCursor after = cursor.isBlank() ? null : SearchCursor.decode(cursor);
+    return search.findAfter(searchParams, after, perPage, sortBy, orderBy);
+  }
+
   /**
    * Creates user from UserJson request body. With throw exception if request is invalid.
    *
@@ -140,7 +168,9 @@ public class UserService {
     user.setRole(existingUser.getRole());
     user.setPassword(passwordEncoder.encode(user.getPassword()));
     validateUser(user);
-    return userRepository.save(user);
+    User savedUser = userRepository.save(user);
+    principalCache.invalidate(id);
+    return savedUser;
   }
 
   /**
@@ -155,6 +185,7 @@ public class UserService {
     User user = getUserById(id);
     userIsPrimaryAdmin(user);
     userRepository.deleteById(id);
+    principalCache.invalidate(id);
   }
 
   /**
@@ -310,6 +341,7 @@ public class UserService {
         && !(user.getRole().equals("default_global_admin")))) {
       user.setRole("global_admin");
       userRepository.save(user);
+      principalCache.invalidate(id);
     }
   }
 
@@ -335,6 +367,7 @@ public class UserService {
     if (user.getRole().equals("global_admin")) {
       user.setRole("user");
       userRepository.save(user);
+      principalCache.invalidate(id);
     }
   }
 
@@ -0,0 +1,100 @@
+package wasteless.service.searching_service;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Listens to Hibernate for inserted, updated and deleted entities, and keeps search data derived from them up to date.
+ *
+ * Each written entity is passed to prepareChanges while it is being flushed, as that is when the entity and its lazy
+ * associations can be read safely. The changes returned are run once the transaction commits, so rolled back writes
+ * never reach the search data, or immediately if there is no transaction.
+ *
+ * Bulk updates made through JPQL or native queries bypass Hibernate's entity events, so must update the search data
+ * themselves.
+ */
+public abstract class AfterCommitEntityListener implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+
+    private final transient EntityManagerFactory entityManagerFactory;
+
+    protected AfterCommitEntityListener(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Registers this listener with Hibernate's entity event listeners.
+     */
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    /**
+     * Captures the changes a written entity makes to the search data.
+     * @param entity The inserted, updated or deleted entity.
+     * @param deleted Whether the entity was deleted.
+     * @return The changes to run once the write has committed. Null elements are skipped.
+     */
+    protected abstract List<Runnable> prepareChanges(Object entity, boolean deleted);
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        handle(event.getEntity(), false);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        handle(event.getEntity(), false);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        handle(event.getEntity(), true);
+    }
+
+    /**
+     * Changes are run through Spring's transaction synchronisation, rather than Hibernate's post commit events, as the
+     * written entity can only be read safely while it is being flushed.
+     */
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void handle(Object entity, boolean deleted) {
+        List<Runnable> changes = new ArrayList<>();
+        for (Runnable change : prepareChanges(entity, deleted)) {
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changes.forEach(Runnable::run);
+                }
+            });
+        } else {
+            changes.forEach(Runnable::run);
+        }
+    }
+}
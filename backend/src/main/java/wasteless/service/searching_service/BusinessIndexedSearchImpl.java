@@ -0,0 +1,92 @@
+package wasteless.service.searching_service;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.model.Business;
+import wasteless.model.Searchable;
+import wasteless.repository.BusinessRepository;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Searching service that answers business searches from an in-memory trigram index of business names, instead of
+ * querying the database with LIKE predicates. As with BusinessSearchImpl, businesses whose names match the tokens
+ * exactly are at the top of the results, and the results are not paginated.
+ *
+ * The index is built on startup and kept up to date by SearchIndexSynchroniser.
+ */
+public class BusinessIndexedSearchImpl extends SearchingService implements IndexedSearch {
+
+    private final BusinessRepository businessRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final NgramIndex<String> index = new NgramIndex<>(Collections::singletonList);
+
+    public BusinessIndexedSearchImpl(BusinessRepository businessRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.businessRepository = businessRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Main search method. Matches the tokens against the index of business names, and retrieves the matching
+     * businesses from the database, exact matches first.
+     *
+     * @param parameters The list of tokens.
+     * @return The combined list of Businesses found.
+     */
+    @Override
+    public SearchResult find(List<SearchToken> parameters, long pageNum, long perPage, String sortBy, String orderBy) {
+        NgramIndex.Matches<String> matches = index.search(parameters);
+        Set<Long> exactIds = matches.getExactIds();
+        List<Long> ids = matches.getPartial().keySet().stream()
+                .sorted(Comparator.comparing((Long id) -> !exactIds.contains(id)).thenComparing(id -> id))
+                .collect(Collectors.toList());
+
+        Map<Long, Business> businesses = new HashMap<>();
+        for (Business business : businessRepository.findAllById(ids)) {
+            businesses.put(business.getBusinessId(), business);
+        }
+        List<Searchable> results = ids.stream()
+                .map(businesses::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new SearchResult(results, 0);
+    }
+
+    /**
+     * Loads the name of every business from the database into the index.
+     */
+    @Override
+    public void rebuild() {
+        Map<Long, String> entries = transactionTemplate.execute(status -> {
+            Map<Long, String> loaded = new HashMap<>();
+            for (Business business : businessRepository.findAll()) {
+                loaded.put(business.getBusinessId(), business.getName());
+            }
+            return loaded;
+        });
+        index.rebuild(entries);
+    }
+
+    /**
+     * Captures the changes to the index made by a written business.
+     * @param entity The inserted, updated or deleted entity.
+     * @param deleted Whether the entity was deleted.
+     * @return The update to apply to the index, or null if the entity is not a business.
+     */
+    @Override
+    public Runnable prepareUpdate(Object entity, boolean deleted) {
+        if (!(entity instanceof Business)) {
+            return null;
+        }
+        long businessId = ((Business) entity).getBusinessId();
+        if (deleted) {
+            return () -> index.remove(businessId);
+        }
+        String name = ((Business) entity).getName();
+        return () -> index.put(businessId, name);
+    }
+}
@@ -21,16 +21,53 @@ public class BusinessSearchImpl extends SearchingService {
     private EntityManager entityManager;
 
     /**
-     * Criteria builder. This object calls methods such as like, or, and, orderBy, etc to construct
-     * queries.
+     * The Criteria API components of a single query. A new context is created for each search, so concurrent searches
+     * never share a builder or root.
      */
-    private CriteriaBuilder cb;
-
-    /**
-     * The root where queries search for results. The path to columns and its values can be specified
-     * using .get
-     */
-    private Root<Business> business;
+    private static class QueryContext implements MatchPredicates {
+
+        /**
+         * Criteria builder. This object calls methods such as like, or, and, orderBy, etc to construct
+         * queries.
+         */
+        private final CriteriaBuilder cb;
+
+        /**
+         * The root where queries search for results. The path to columns and its values can be specified
+         * using .get
+         */
+        private final Root<Business> business;
+
+        private QueryContext(CriteriaBuilder cb, CriteriaQuery<?> query) {
+            this.cb = cb;
+            this.business = query.from(Business.class);
+        }
+
+        /**
+         * Constructs a predicate to match the business's name exactly.
+         *
+         * @param lowerCaseToken A token (converted to lower case for case-insensitivity) for matching
+         * @return the constructed predicate
+         */
+        @Override
+        public Predicate exactMatchPredicate(String lowerCaseToken) {
+            Path<String> businessnamePath = business.get("name");
+
+            return cb.like(cb.lower(businessnamePath), lowerCaseToken);
+        }
+
+        /**
+         * Constructs a predicate to match the business's name partially.
+         *
+         * @param lowerCaseToken A token (converted to lower case for case-insensitivity) for matching
+         * @return the constructed predicate
+         */
+        @Override
+        public Predicate partialMatchPredicate(String lowerCaseToken) {
+            Path<String> businessNamePath = business.get("name");
+            return cb.like(cb.lower(businessNamePath), "%" + lowerCaseToken + "%");
+        }
+    }
 
     /**
      * wasteless.Main search method. Given the list of tokens, it runs through each token and calls constructPredicates
@@ -46,47 +83,23 @@ public class BusinessSearchImpl extends SearchingService {
      */
     @Override
     public SearchResult find(List<SearchToken> parameters, long pageNum, long perPage, String sortBy, String orderBy) {
-        cb = entityManager.getCriteriaBuilder();
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Business> query = cb.createQuery(Business.class);
-        business = query.from(Business.class);
+        QueryContext context = new QueryContext(cb, query);
 
-        Predicate partialMatch = constructPredicates(cb, parameters, false);
-        Predicate exactMatch = constructPredicates(cb, parameters, true);
+        Predicate partialMatch = constructPredicates(cb, parameters, false, context);
+        Predicate exactMatch = constructPredicates(cb, parameters, true, context);
 
         // Runs query and returns result
-        query.select(business).where(exactMatch);
+        query.select(context.business).where(exactMatch);
 
         List<Searchable> results = new ArrayList<>(entityManager.createQuery(query).getResultList());
 
-        query.select(business).where(partialMatch);
+        query.select(context.business).where(partialMatch);
 
         List<Searchable> results2 = new ArrayList<>(entityManager.createQuery(query).getResultList());
 
         return new SearchResult(SearchUtils.joinTwoLists(results, results2), 0);
 
     }
-
-    /**
-     * Constructs a predicate to match the business's name exactly.
-     *
-     * @param lowerCaseToken A token (converted to lower case for case-insensitivity) for matching
-     * @return the constructed predicate
-     */
-    protected Predicate exactMatchPredicate(String lowerCaseToken) {
-        Path<String> businessnamePath = business.get("name");
-
-        return cb.like(cb.lower(businessnamePath), lowerCaseToken);
-    }
-
-    /**
-     * Constructs a predicate to match the business's name partially.
-     *
-     * @param lowerCaseToken A token (converted to lower case for case-insensitivity) for matching
-     * @return the constructed predicate
-     */
-    protected Predicate partialMatchPredicate(String lowerCaseToken) {
-        Path<String> businessNamePath = business.get("name");
-        return cb.like(cb.lower(businessNamePath), "%" + lowerCaseToken + "%");
-    }
-
 }
@@ -0,0 +1,23 @@
+package wasteless.service.searching_service;
+
+/**
+ * Implemented by searching services that answer searches from an in-memory index rather than the database.
+ * The index is built on startup by rebuild, then kept up to date by SearchIndexSynchroniser, which passes every
+ * inserted, updated or deleted entity to prepareUpdate.
+ */
+public interface IndexedSearch {
+
+    /**
+     * Replaces the contents of the index with the current contents of the database.
+     */
+    void rebuild();
+
+    /**
+     * Captures the changes a written entity makes to the index. Called while the entity is being flushed, so lazy
+     * associations can still be read. The returned update is applied once the transaction has committed.
+     * @param entity The inserted, updated or deleted entity.
+     * @param deleted Whether the entity was deleted.
+     * @return The update to apply to the index, or null if the entity does not affect the index.
+     */
+    Runnable prepareUpdate(Object entity, boolean deleted);
+}
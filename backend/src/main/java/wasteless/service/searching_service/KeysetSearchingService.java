@@ -0,0 +1,64 @@
+package wasteless.service.searching_service;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import java.util.List;
+
+/**
+ * Searching service that can also page through its results by keyset pagination, where each page is found from the
+ * position of the last result of the previous page rather than by skipping the pages before it.
+ * Implemented by the user and sale item searches.
+ */
+public abstract class KeysetSearchingService extends SearchingService {
+
+    /**
+     * Finds the page of results ordered after the given cursor, using keyset pagination. Unlike find, the cost of a
+     * page does not depend on how many results come before it.
+     * @param parameters The list of tokens.
+     * @param cursor Position of the last result of the previous page, or null for the first page.
+     * @param perPage Total items each page will display.
+     * @param sortBy The field name that needs to be sorted.
+     * @param orderBy The order in asc or desc.
+     * @return SearchResult containing the page of results, the total number of results, and the cursor of the next
+     * page (null if this is the last page).
+     */
+    public abstract SearchResult findAfter(List<SearchToken> parameters, SearchCursor cursor, long perPage,
+                                           String sortBy, String orderBy);
+
+    /**
+     * Constructs the keyset condition selecting the results ordered after a cursor, where results are ordered by
+     * relevance (descending), then the sort key (ascending or descending), then id (ascending).
+     * As in the databases used, missing sort keys are ordered first when ascending and last when descending.
+     * @param cb Criteria Builder.
+     * @param relevance Relevance expression of the query, or null if results are not ordered by relevance.
+     * @param sortKey Sort key expression of the query.
+     * @param ascending Whether the sort key is ordered ascending.
+     * @param id Id expression of the query.
+     * @param cursor Position of the last result of the previous page.
+     * @return Predicate matching the results after the cursor.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected static Predicate keysetPredicate(CriteriaBuilder cb, Expression<Integer> relevance,
+                                               Expression<? extends Comparable> sortKey, boolean ascending,
+                                               Expression<Long> id, SearchCursor cursor) {
+        Comparable value = (Comparable) cursor.getSortValue();
+        Expression<Comparable> key = (Expression<Comparable>) sortKey;
+        Predicate sameKey;
+        Predicate afterKey;
+        if (value == null) {
+            sameKey = cb.isNull(key);
+            afterKey = ascending ? cb.isNotNull(key) : cb.disjunction();
+        } else {
+            sameKey = cb.equal(key, value);
+            afterKey = ascending ? cb.greaterThan(key, value) : cb.or(cb.lessThan(key, value), cb.isNull(key));
+        }
+        Predicate afterWithinRelevance = cb.or(afterKey, cb.and(sameKey, cb.greaterThan(id, cursor.getId())));
+        if (relevance == null) {
+            return afterWithinRelevance;
+        }
+        return cb.or(
+                cb.lessThan(relevance, cursor.getRelevance()),
+                cb.and(cb.equal(relevance, cursor.getRelevance()), afterWithinRelevance));
+    }
+}
@@ -0,0 +1,318 @@
+package wasteless.service.searching_service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory trigram inverted index over the searchable text fields of a set of entries.
+ *
+ * Each entry is stored under its id, along with its lowercase field values. Every trigram of every field value maps to
+ * the ids of the entries containing it, and every whole field value maps to the ids of the entries it belongs to.
+ * Partial matches (the equivalent of LIKE '%token%') intersect the posting lists of the token's trigrams and verify
+ * the remaining candidates, so only entries sharing every trigram with the token are ever inspected. Tokens shorter
+ * than a trigram fall back to verifying every entry. Exact matches (the equivalent of LIKE 'token') are a single
+ * lookup of the whole field value.
+ *
+ * Wildcard characters (% and _) within tokens are matched literally, rather than as LIKE wildcards.
+ *
+ * The index is safe for concurrent use. Searches share a read lock, and writes take the write lock, so a search always
+ * sees a consistent set of entries.
+ *
+ * @param <T> Type of the entries stored in the index. Entries should be immutable, as they are handed out to searches.
+ */
+public class NgramIndex<T> {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final Function<T, List<String>> textFields;
+
+    private final Map<Long, T> entries = new HashMap<>();
+    private final Map<Long, List<String>> entryFields = new HashMap<>();
+    private final Map<String, Set<Long>> grams = new HashMap<>();
+    private final Map<String, Set<Long>> values = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param textFields Function obtaining the searchable text fields of an entry. Null fields are ignored.
+     */
+    public NgramIndex(Function<T, List<String>> textFields) {
+        this.textFields = textFields;
+    }
+
+    /**
+     * Adds an entry to the index, replacing any entry previously stored under the same id.
+     * @param id Id of the entry.
+     * @param entry Entry to store.
+     */
+    public void put(long id, T entry) {
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+            index(id, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the entry stored under the given id, if there is one.
+     * @param id Id of the entry.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces every entry matching the condition with the result of the update function.
+     * Used when an entity that several entries were derived from is changed.
+     * @param condition Condition defining which entries are affected.
+     * @param update Function producing the replacement of an affected entry.
+     * @param idOf Function obtaining the id of an entry.
+     */
+    public void replaceWhere(Predicate<T> condition, UnaryOperator<T> update, Function<T, Long> idOf) {
+        lock.writeLock().lock();
+        try {
+            List<T> affected = new ArrayList<>();
+            for (T entry : entries.values()) {
+                if (condition.test(entry)) {
+                    affected.add(entry);
+                }
+            }
+            for (T entry : affected) {
+                long id = idOf.apply(entry);
+                unindex(id);
+                index(id, update.apply(entry));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces every entry in the index.
+     * @param newEntries Entries to store, by their id.
+     */
+    public void rebuild(Map<Long, T> newEntries) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            entryFields.clear();
+            grams.clear();
+            values.clear();
+            newEntries.forEach(this::index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of entries in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Evaluates the tokens against the index twice, once matching unquoted tokens exactly and once partially, under a
+     * single acquisition of the read lock, so both results are taken from the same set of entries.
+     * @param parameters List of search tokens.
+     * @return The entries matching the tokens partially, and the ids of those matching them exactly.
+     */
+    public Matches<T> search(List<SearchToken> parameters) {
+        lock.readLock().lock();
+        try {
+            Map<Long, T> partial = new HashMap<>();
+            for (Long id : matchingIds(parameters, false)) {
+                partial.put(id, entries.get(id));
+            }
+            return new Matches<>(partial, matchingIds(parameters, true));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Evaluates the tokens against the index with the same semantics as SearchingService.constructPredicates: tokens
+     * are joined by AND unless preceded by an unquoted "or", unquoted "and"/"or" tokens are consumed, quoted tokens
+     * always match exactly, and an empty list of tokens matches every entry. Must be called while holding the lock.
+     * @param parameters List of search tokens.
+     * @param exactMatch Whether unquoted tokens are matched exactly or partially.
+     * @return Ids of the matching entries.
+     */
+    private Set<Long> matchingIds(List<SearchToken> parameters, boolean exactMatch) {
+        Set<Long> match = new HashSet<>(entries.keySet());
+        int state = 0;
+        for (SearchToken token : parameters) {
+            String lowerCaseToken = token.getTerm().toLowerCase();
+            if (lowerCaseToken.equals("or") && Boolean.FALSE.equals(token.inQuotes())) {
+                state = 1;
+            } else if (lowerCaseToken.equals("and") && Boolean.FALSE.equals(token.inQuotes())) {
+                state = 0;
+            } else {
+                Set<Long> tokenMatch = exactMatch || Boolean.TRUE.equals(token.inQuotes())
+                        ? exactMatches(lowerCaseToken)
+                        : partialMatches(lowerCaseToken);
+                if (state == 1) {
+                    match.addAll(tokenMatch);
+                } else {
+                    match.retainAll(tokenMatch);
+                }
+                state = 0;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Finds the entries with a field equal to the token. Must be called while holding the lock.
+     * @param lowerCaseToken Token in lowercase.
+     * @return Ids of the matching entries.
+     */
+    private Set<Long> exactMatches(String lowerCaseToken) {
+        return values.getOrDefault(lowerCaseToken, Collections.emptySet());
+    }
+
+    /**
+     * Finds the entries with a field containing the token. Must be called while holding the lock.
+     * @param lowerCaseToken Token in lowercase.
+     * @return Ids of the matching entries.
+     */
+    private Set<Long> partialMatches(String lowerCaseToken) {
+        Collection<Long> candidates = entries.keySet();
+        if (lowerCaseToken.length() >= GRAM_LENGTH) {
+            Set<Long> smallest = null;
+            List<Set<Long>> postings = new ArrayList<>();
+            for (String gram : gramsOf(lowerCaseToken)) {
+                Set<Long> posting = grams.get(gram);
+                if (posting == null) {
+                    return Collections.emptySet();
+                }
+                postings.add(posting);
+                if (smallest == null || posting.size() < smallest.size()) {
+                    smallest = posting;
+                }
+            }
+            Set<Long> intersection = new HashSet<>(smallest);
+            for (Set<Long> posting : postings) {
+                if (posting != smallest) {
+                    intersection.retainAll(posting);
+                }
+            }
+            candidates = intersection;
+        }
+
+        Set<Long> matches = new HashSet<>();
+        for (Long id : candidates) {
+            for (String field : entryFields.get(id)) {
+                if (field.contains(lowerCaseToken)) {
+                    matches.add(id);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Stores and indexes an entry. Must be called while holding the write lock.
+     */
+    private void index(long id, T entry) {
+        List<String> fields = new ArrayList<>();
+        for (String field : textFields.apply(entry)) {
+            if (field != null) {
+                fields.add(field.toLowerCase());
+            }
+        }
+        entries.put(id, entry);
+        entryFields.put(id, fields);
+        for (String field : fields) {
+            values.computeIfAbsent(field, key -> new HashSet<>()).add(id);
+            for (String gram : gramsOf(field)) {
+                grams.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+            }
+        }
+    }
+
+    /**
+     * Removes an entry and its postings. Must be called while holding the write lock.
+     */
+    private void unindex(long id) {
+        entries.remove(id);
+        List<String> fields = entryFields.remove(id);
+        if (fields == null) {
+            return;
+        }
+        for (String field : fields) {
+            removePosting(values, field, id);
+            for (String gram : gramsOf(field)) {
+                removePosting(grams, gram, id);
+            }
+        }
+    }
+
+    private static void removePosting(Map<String, Set<Long>> postings, String key, long id) {
+        Set<Long> posting = postings.get(key);
+        if (posting != null) {
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @param text Lowercase text.
+     * @return The distinct trigrams of the text. Empty if the text is shorter than a trigram.
+     */
+    private static Set<String> gramsOf(String text) {
+        Set<String> textGrams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            textGrams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return textGrams;
+    }
+
+    /**
+     * The result of a search. Every exact match is also a partial match, as a field equal to a token contains it.
+     * @param <T> Type of the entries stored in the index.
+     */
+    public static class Matches<T> {
+
+        private final Map<Long, T> partial;
+        private final Set<Long> exactIds;
+
+        private Matches(Map<Long, T> partial, Set<Long> exactIds) {
+            this.partial = partial;
+            this.exactIds = exactIds;
+        }
+
+        /**
+         * @return The entries matching the tokens partially, by their id.
+         */
+        public Map<Long, T> getPartial() {
+            return partial;
+        }
+
+        /**
+         * @return The ids of the entries matching the tokens exactly.
+         */
+        public Set<Long> getExactIds() {
+            return exactIds;
+        }
+    }
+}
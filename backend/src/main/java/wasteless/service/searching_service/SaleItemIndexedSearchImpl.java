@@ -0,0 +1,469 @@
+package wasteless.service.searching_service;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.controller.SaleItemController;
+import wasteless.model.*;
+import wasteless.repository.SaleItemRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Child class of SaleItemSearchService that answers searches from an in-memory trigram index of the unsold sale
+ * listings, instead of querying the database with LIKE predicates.
+ *
+ * The index stores, for every unsold listing, the six searchable fields (business name, product name, suburb, city,
+ * region and country) along with the attributes needed to filter and sort. Searching, filtering, sorting and
+ * pagination are done in memory, and the database is only queried to retrieve the sale listings on the requested page.
+ * Exact matches are ranked above partial matches, as in the RANKED ranking mode of SaleItemSearchImpl.
+ *
+ * The index is built on startup and kept up to date by SearchIndexSynchroniser.
+ */
+public class SaleItemIndexedSearchImpl extends SaleItemSearchService implements IndexedSearch {
+
+    private final SaleItemRepository saleItemRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final NgramIndex<ListingEntry> index = new NgramIndex<>(entry -> Arrays.asList(
+            entry.getBusinessName(),
+            entry.getProductName(),
+            entry.getSuburb(),
+            entry.getCity(),
+            entry.getRegion(),
+            entry.getCountry()));
+
+    private static class SortOptions {
+        private static final String PRODUCT_NAME = "name";
+        private static final String BUSINESS_NAME = "seller";
+        private static final String SUBURB = "suburb";
+        private static final String CITY = "city";
+        private static final String COUNTRY = "country";
+        private static final String PRICE = "price";
+        private static final String EXPIRY_DATE = "expires";
+        private static final String QUANTITY = "quantity";
+    }
+
+    private static class Ordering {
+        private static final String ASCENDING = "asc";
+    }
+
+    public SaleItemIndexedSearchImpl(SaleItemRepository saleItemRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.saleItemRepository = saleItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Searchable and sortable attributes of an unsold sale listing, as stored in the index.
+     * Immutable, so that entries can be read by searches while the index is being updated.
+     */
+    @Getter
+    @Builder(toBuilder = true)
+    static class ListingEntry {
+        private final long saleItemId;
+        private final Long inventoryItemId;
+        private final Long productRowId;
+        private final Long businessId;
+        private final Long addressId;
+        private final String productName;
+        private final String businessName;
+        private final String businessType;
+        private final String suburb;
+        private final String city;
+        private final String region;
+        private final String country;
+        private final LocalDate expires;
+        private final Double price;
+        private final Integer quantity;
+        private final LocalDateTime created;
+        private final LocalDateTime closes;
+
+        /**
+         * Creates an entry from a sale listing and the inventory item, product, business and address it belongs to.
+         */
+        static ListingEntry of(SaleItem saleItem) {
+            return withInventoryItem(builder(), saleItem.getInventoryItem())
+                    .saleItemId(saleItem.getSaleItemId())
+                    .price(saleItem.getPrice())
+                    .quantity(saleItem.getQuantity())
+                    .created(saleItem.getCreated())
+                    .closes(saleItem.getCloses())
+                    .build();
+        }
+
+        /**
+         * Copies the attributes derived from an inventory item (and its product, business and address) into a builder.
+         */
+        static ListingEntryBuilder withInventoryItem(ListingEntryBuilder builder, InventoryItem inventoryItem) {
+            builder.inventoryItemId(inventoryItem.getInventoryItemId())
+                    .expires(inventoryItem.getExpires());
+            Product product = inventoryItem.getProduct();
+            if (product != null) {
+                builder.productRowId(product.getRowId())
+                        .productName(product.getName());
+            }
+            Business business = inventoryItem.getBusiness();
+            if (business != null) {
+                builder.businessId(business.getBusinessId())
+                        .businessName(business.getName())
+                        .businessType(business.getBusinessType());
+                Address address = business.getAddress();
+                if (address != null) {
+                    builder.addressId(address.getAddressId())
+                            .suburb(address.getSuburb())
+                            .city(address.getCity())
+                            .region(address.getRegion())
+                            .country(address.getCountry());
+                }
+            }
+            return builder;
+        }
+
+        /**
+         * @return A copy of the given entry, with every attribute not derived from the sale listing itself taken from
+         * this entry.
+         */
+        ListingEntry withListingOf(ListingEntry listing) {
+            return toBuilder()
+                    .saleItemId(listing.getSaleItemId())
+                    .price(listing.getPrice())
+                    .quantity(listing.getQuantity())
+                    .created(listing.getCreated())
+                    .closes(listing.getCloses())
+                    .build();
+        }
+    }
+
+    @Override
+    public RankingMode getDefaultRankingMode() {
+        return RankingMode.RANKED;
+    }
+
+    /**
+     * Implementation of find method defined by parent class.
+     * Matches the tokens against the index, applies the filters, then sorts exact matches above partial matches, by
+     * the sorting column and then by id. Only the sale listings on the requested page are retrieved from the database.
+     *
+     * The in-memory search never produces the overflowing pages of the EXACT_THEN_PARTIAL ranking mode, so both
+     * ranking modes return the RANKED results.
+     * @param parameters A list of search tokens; the search parameters.
+     * @param filterQuery A class containing the information to filter the results by.
+     * @param pageNum Starting page for pagination.
+     * @param perPage Defines how many items in the results are allowed per page.
+     * @param sortBy Defines the column to sort results by.
+     * @param orderBy Defines the ordering results are returned in.
+     * @param rankingMode Strategy used to rank exact matches above partial matches.
+     * @return SearchResult containing the page of results and the total length of the unpaginated results.
+     */
+    @Override
+    public SearchResult find(List<SearchToken> parameters,
+                             SaleItemController.FilterQuery filterQuery,
+                             Integer pageNum,
+                             Integer perPage,
+                             String sortBy,
+                             String orderBy,
+                             RankingMode rankingMode) {
+        List<ListingEntry> matches = rankedMatches(parameters, filterQuery, sortBy, orderBy).getEntries();
+
+        List<Long> pageIds = matches.stream()
+                .skip((long) (pageNum - 1) * perPage)
+                .limit(perPage)
+                .map(ListingEntry::getSaleItemId)
+                .collect(Collectors.toList());
+
+        return new SearchResult(retrieveInOrder(pageIds), matches.size());
+    }
+
+    /**
+     * Implementation of findAfter method defined by parent class.
+     * Orders the matching entries as find does, and takes the page from the first entry ordered after the cursor.
+     * @param parameters A list of search tokens; the search parameters.
+     * @param filterQuery A class containing the information to filter the results by.
+     * @param cursor Position of the last result of the previous page, or null for the first page.
+     * @param perPage Defines how many items in the results are allowed per page.
+     * @param sortBy Defines the column to sort results by.
+     * @param orderBy Defines the ordering results are returned in.
+     * @return SearchResult containing the page of results, the total length of the unpaginated results, and the
+     * cursor of the next page.
+     */
+    @Override
+    public SearchResult findAfter(List<SearchToken> parameters,
+                                  SaleItemController.FilterQuery filterQuery,
+                                  SearchCursor cursor,
+                                  Integer perPage,
+                                  String sortBy,
+                                  String orderBy) {
+        RankedMatches ranked = rankedMatches(parameters, filterQuery, sortBy, orderBy);
+        List<ListingEntry> matches = ranked.getEntries();
+
+        Function<ListingEntry, Object> sortKey = sortKey(sortBy);
+        boolean ascending = orderBy.equals(Ordering.ASCENDING);
+        int start = 0;
+        if (cursor != null) {
+            try {
+                while (start < matches.size()) {
+                    ListingEntry entry = matches.get(start);
+                    int comparison = Integer.compare(cursor.getRelevance(), ranked.relevance(entry));
+                    if (comparison == 0) {
+                        comparison = compareSortKeys(sortKey.apply(entry), cursor.getSortValue());
+                        comparison = ascending ? comparison : -comparison;
+                    }
+                    if (comparison == 0) {
+                        comparison = Long.compare(entry.getSaleItemId(), cursor.getId());
+                    }
+                    if (comparison > 0) {
+                        break;
+                    }
+                    start++;
+                }
+            } catch (ClassCastException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        List<ListingEntry> page = matches.subList(start, Math.min(start + perPage, matches.size()));
+        String nextCursor = null;
+        if (start + perPage < matches.size()) {
+            ListingEntry last = page.get(page.size() - 1);
+            nextCursor = new SearchCursor(ranked.relevance(last), sortKey.apply(last), last.getSaleItemId())
+                    .encode();
+        }
+
+        List<Long> pageIds = page.stream()
+                .map(ListingEntry::getSaleItemId)
+                .collect(Collectors.toList());
+        return new SearchResult(retrieveInOrder(pageIds), matches.size(), nextCursor);
+    }
+
+    /**
+     * The sale listings matching a search and its filters, exact matches first, then by the sorting column and by id.
+     */
+    private static class RankedMatches {
+        private final List<ListingEntry> entries;
+        private final Set<Long> exactIds;
+
+        private RankedMatches(List<ListingEntry> entries, Set<Long> exactIds) {
+            this.entries = entries;
+            this.exactIds = exactIds;
+        }
+
+        private List<ListingEntry> getEntries() {
+            return entries;
+        }
+
+        /**
+         * @return 1 if the entry matches the search exactly, otherwise 0, as in the relevance of SaleItemSearchImpl.
+         */
+        private int relevance(ListingEntry entry) {
+            return exactIds.contains(entry.getSaleItemId()) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Matches the tokens against the index, applies the filters, then sorts exact matches above partial matches, by
+     * the sorting column and then by id. The exact and partial matches are read from the index together.
+     * @param parameters A list of search tokens; the search parameters.
+     * @param filterQuery A class containing the information to filter the results by.
+     * @param sortBy Defines the column to sort results by.
+     * @param orderBy Defines the ordering results are returned in.
+     * @return The ordered matching entries, along with the ids of the exact matches.
+     */
+    private RankedMatches rankedMatches(List<SearchToken> parameters,
+                                        SaleItemController.FilterQuery filterQuery,
+                                        String sortBy,
+                                        String orderBy) {
+        NgramIndex.Matches<ListingEntry> matches = index.search(parameters);
+        Set<Long> exactIds = matches.getExactIds();
+        List<ListingEntry> entries = matches.getPartial().values().stream()
+                .filter(entry -> matchesFilters(entry, filterQuery))
+                .sorted(Comparator.comparing((ListingEntry entry) -> !exactIds.contains(entry.getSaleItemId()))
+                        .thenComparing(sortingComparator(sortBy, orderBy))
+                        .thenComparing(ListingEntry::getSaleItemId))
+                .collect(Collectors.toList());
+        return new RankedMatches(entries, exactIds);
+    }
+
+    /**
+     * Retrieves the sale listings with the given ids from the database, in the order of the ids.
+     * Listings that no longer exist are skipped.
+     * @param ids Ordered list of sale listing ids.
+     * @return List of sale listings, in the order of the ids.
+     */
+    private List<Searchable> retrieveInOrder(List<Long> ids) {
+        Map<Long, SaleItem> saleItems = new HashMap<>();
+        for (SaleItem saleItem : saleItemRepository.findAllById(ids)) {
+            saleItems.put(saleItem.getSaleItemId(), saleItem);
+        }
+        List<Searchable> results = new ArrayList<>();
+        for (Long id : ids) {
+            SaleItem saleItem = saleItems.get(id);
+            if (saleItem != null) {
+                results.add(saleItem);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Applies the same filtering conditions as SaleItemSearchImpl, to an index entry.
+     * @param entry Index entry of a sale listing.
+     * @param filters Instance of FilterQuery that contains (possibly null) values defining filter conditions.
+     * @return True if the entry satisfies every filter condition.
+     */
+    private static boolean matchesFilters(ListingEntry entry, SaleItemController.FilterQuery filters) {
+        return SearchUtils.matchesFilters(entry.getBusinessType(), entry.getPrice(), entry.getCloses(), filters);
+    }
+
+    /**
+     * Obtains a comparator ordering entries by the same columns as SaleItemSearchImpl. Text columns are compared in
+     * lowercase, and missing values are ordered first when ascending, as in SQL.
+     * @param sortBy A string defining the column to sort by. Defaults to the creation date.
+     * @param orderBy A string defining the ordering of results.
+     * @return Comparator of index entries.
+     */
+    private static Comparator<ListingEntry> sortingComparator(String sortBy, String orderBy) {
+        Function<ListingEntry, Object> sortKey = sortKey(sortBy);
+        Comparator<ListingEntry> comparator = (first, second) ->
+                compareSortKeys(sortKey.apply(first), sortKey.apply(second));
+        return orderBy.equals(Ordering.ASCENDING) ? comparator : comparator.reversed();
+    }
+
+    /**
+     * Obtains the value an entry is sorted by. Values have the same types as the values SaleItemSearchImpl sorts by,
+     * so cursors hold the same values whichever search engine is used.
+     * @param sortBy A string defining the column to sort by. Defaults to the creation date.
+     * @return Function from an index entry to its sort key.
+     */
+    private static Function<ListingEntry, Object> sortKey(String sortBy) {
+        switch (sortBy) {
+            case SortOptions.PRODUCT_NAME:
+                return entry -> lowerCase(entry.getProductName());
+            case SortOptions.SUBURB:
+                return entry -> lowerCase(entry.getSuburb());
+            case SortOptions.CITY:
+                return entry -> lowerCase(entry.getCity());
+            case SortOptions.COUNTRY:
+                return entry -> lowerCase(entry.getCountry());
+            case SortOptions.PRICE:
+                return ListingEntry::getPrice;
+            case SortOptions.QUANTITY:
+                return ListingEntry::getQuantity;
+            case SortOptions.EXPIRY_DATE:
+                return ListingEntry::getExpires;
+            case SortOptions.BUSINESS_NAME:
+                return entry -> lowerCase(entry.getBusinessName());
+            default:
+                return ListingEntry::getCreated;
+        }
+    }
+
+    /**
+     * Compares two sort keys of the same column, with missing values first.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareSortKeys(Object first, Object second) {
+        if (first == null || second == null) {
+            return first == null ? (second == null ? 0 : -1) : 1;
+        }
+        return ((Comparable<Object>) first).compareTo(second);
+    }
+
+    private static String lowerCase(String value) {
+        return value == null ? null : value.toLowerCase();
+    }
+
+    /**
+     * Loads every unsold sale listing from the database into the index.
+     */
+    @Override
+    public void rebuild() {
+        Map<Long, ListingEntry> entries = transactionTemplate.execute(status -> {
+            Map<Long, ListingEntry> loaded = new HashMap<>();
+            for (SaleItem saleItem : saleItemRepository.findAll()) {
+                if (!saleItem.isSold()) {
+                    loaded.put(saleItem.getSaleItemId(), ListingEntry.of(saleItem));
+                }
+            }
+            return loaded;
+        });
+        index.rebuild(entries);
+    }
+
+    /**
+     * Captures the changes to the index made by a written sale listing, or by a written inventory item, product,
+     * business or address that sale listings are derived from. Sold listings are removed from the index, as they
+     * are never search results.
+     * @param entity The inserted, updated or deleted entity.
+     * @param deleted Whether the entity was deleted.
+     * @return The update to apply to the index, or null if the entity does not affect the index.
+     */
+    @Override
+    public Runnable prepareUpdate(Object entity, boolean deleted) {
+        if (entity instanceof SaleItem) {
+            SaleItem saleItem = (SaleItem) entity;
+            long saleItemId = saleItem.getSaleItemId();
+            if (deleted || saleItem.isSold()) {
+                return () -> index.remove(saleItemId);
+            }
+            ListingEntry entry = ListingEntry.of(saleItem);
+            return () -> index.put(saleItemId, entry);
+        }
+        // Deleting an inventory item, product, business or address requires its sale listings to be deleted first
+        if (deleted) {
+            return null;
+        }
+        if (entity instanceof InventoryItem) {
+            InventoryItem inventoryItem = (InventoryItem) entity;
+            ListingEntry derived = ListingEntry.withInventoryItem(ListingEntry.builder(), inventoryItem).build();
+            return () -> index.replaceWhere(
+                    entry -> Objects.equals(entry.getInventoryItemId(), derived.getInventoryItemId()),
+                    derived::withListingOf,
+                    ListingEntry::getSaleItemId);
+        }
+        if (entity instanceof Product) {
+            long rowId = ((Product) entity).getRowId();
+            String name = ((Product) entity).getName();
+            return () -> index.replaceWhere(
+                    entry -> Objects.equals(entry.getProductRowId(), rowId),
+                    entry -> entry.toBuilder().productName(name).build(),
+                    ListingEntry::getSaleItemId);
+        }
+        if (entity instanceof Business) {
+            Business business = (Business) entity;
+            long businessId = business.getBusinessId();
+            String name = business.getName();
+            String businessType = business.getBusinessType();
+            return () -> index.replaceWhere(
+                    entry -> Objects.equals(entry.getBusinessId(), businessId),
+                    entry -> entry.toBuilder().businessName(name).businessType(businessType).build(),
+                    ListingEntry::getSaleItemId);
+        }
+        if (entity instanceof Address) {
+            Address address = (Address) entity;
+            long addressId = address.getAddressId();
+            ListingEntry derived = ListingEntry.builder()
+                    .suburb(address.getSuburb())
+                    .city(address.getCity())
+                    .region(address.getRegion())
+                    .country(address.getCountry())
+                    .build();
+            return () -> index.replaceWhere(
+                    entry -> Objects.equals(entry.getAddressId(), addressId),
+                    entry -> entry.toBuilder()
+                            .suburb(derived.getSuburb())
+                            .city(derived.getCity())
+                            .region(derived.getRegion())
+                            .country(derived.getCountry())
+                            .build(),
+                    ListingEntry::getSaleItemId);
+        }
+        return null;
+    }
+}
@@ -1,15 +1,20 @@
 package wasteless.service.searching_service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import wasteless.controller.SaleItemController;
 import wasteless.model.*;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -17,8 +22,9 @@ import java.util.List;
  * Implements the static methods required by SearchingService and SaleItemSearchingService.
  *
  * Implementation uses the Criteria API to construct a query to the SaleItem root, using the constructPredicate method
- * implemented in parent class SearchingService to obtain matching predicates. Implements partial and exact match
- * predicates defined by SearchingService.
+ * implemented in parent class SearchingService to obtain matching predicates. Partial and exact match predicates are
+ * constructed by a QueryContext, which holds the roots and joins of a single query. A new QueryContext is created for
+ * every query, so the component holds no per-search state and can run concurrent searches.
  */
 @Component
 public class SaleItemSearchImpl extends SaleItemSearchService {
@@ -26,17 +32,17 @@ public class SaleItemSearchImpl extends SaleItemSearchService {
     @PersistenceContext
     private EntityManager entityManager;
 
-    CriteriaBuilder cb;
-    CriteriaBuilder cbCount;
+    @Value("${search.listings.ranking:RANKED}")
+    private RankingMode defaultRankingMode;
 
-    private Integer pageNum;
-    private Integer perPage;
+    @Value("${search.count.mode:EXACT}")
+    private CountMode countMode;
 
-    private Root<SaleItem> saleRoot;
-    private Join<SaleItem, Product> productJoin;
-    private Join<SaleItem, InventoryItem> inventoryJoin;
-    private Join<SaleItem, Business> businessJoin;
-    private Join<SaleItem, Address> addressJoin;
+    @Value("${search.count.broad-term-length:3}")
+    private int broadTermLength;
+
+    @Autowired
+    private SearchCountCache listingCountCache;
 
     private static class Attribute {
         private static final String INVENTORY_ITEM = "inventoryItem";
@@ -75,306 +81,523 @@ public class SaleItemSearchImpl extends SaleItemSearchService {
     }
 
     /**
-     * Sets the root constants to derive from the given query.
-     * Not ideal, should look at fixing, but due to time constraints in sprint 5 may have to do.
-     * @param query Parameterized instance of CriteriaQuery, can be of type SaleItem or Long, depending on querying
-     *              for SaleItem results, or the length of the results.
+     * The Criteria API components of a single query: the builder, and the SaleItem root and joins derived from the
+     * query. Constructs the matching, filtering and ordering expressions of the query from them.
      */
-    private void setRoots(CriteriaQuery<?> query) {
-        saleRoot = query.from(SaleItem.class);
-        inventoryJoin = saleRoot
-                .join(Attribute.INVENTORY_ITEM);
-        productJoin = saleRoot
-                .join(Attribute.INVENTORY_ITEM)
-                .join(Attribute.PRODUCT);
-        businessJoin = saleRoot
-                .join(Attribute.INVENTORY_ITEM)
-                .join(Attribute.BUSINESS);
-        addressJoin = saleRoot
-                .join(Attribute.INVENTORY_ITEM)
-                .join(Attribute.BUSINESS)
-                .join(Attribute.ADDRESS);
+    private static class QueryContext implements MatchPredicates {
+        private final CriteriaBuilder cb;
+        private final Root<SaleItem> saleRoot;
+        private final Join<SaleItem, Product> productJoin;
+        private final Join<SaleItem, InventoryItem> inventoryJoin;
+        private final Join<SaleItem, Business> businessJoin;
+        private final Join<SaleItem, Address> addressJoin;
+
+        /**
+         * Derives the root and joins from the given query.
+         * @param cb Criteria builder used to construct the query.
+         * @param query Parameterized instance of CriteriaQuery, can be of type SaleItem or Long, depending on querying
+         *              for SaleItem results, or the length of the results.
+         */
+        private QueryContext(CriteriaBuilder cb, CriteriaQuery<?> query) {
+            this.cb = cb;
+            saleRoot = query.from(SaleItem.class);
+            inventoryJoin = saleRoot
+                    .join(Attribute.INVENTORY_ITEM);
+            productJoin = saleRoot
+                    .join(Attribute.INVENTORY_ITEM)
+                    .join(Attribute.PRODUCT);
+            businessJoin = saleRoot
+                    .join(Attribute.INVENTORY_ITEM)
+                    .join(Attribute.BUSINESS);
+            addressJoin = saleRoot
+                    .join(Attribute.INVENTORY_ITEM)
+                    .join(Attribute.BUSINESS)
+                    .join(Attribute.ADDRESS);
+        }
+
+        /**
+         * A conditional statement that applies a different sorting order to the criteria query depending on the
+         * parameter.
+         * @param orderBy A string defining the ordering of results. This is compared to the constant in the module,
+         *                and the appropriate ordering is applied.
+         * @param resultsQuery Instance of Criteria Query. Depending on the given ordering,
+         * @param orderingPath An expression defining the path to order the results by. Applied directly to query
+         *                     (lowercase)
+         * @param leadingOrders Orders applied before the ordering path, such as the relevance of a ranked search.
+         */
+        private void setResultOrdering(String orderBy, CriteriaQuery<SaleItem> resultsQuery,
+                                       Expression<String> orderingPath, Order... leadingOrders) {
+            List<Order> orders = new ArrayList<>(Arrays.asList(leadingOrders));
+            if (orderBy.equals(Ordering.ASCENDING)) {
+                orders.add(cb.asc(orderingPath));
+            } else {
+                orders.add(cb.desc(orderingPath));
+            }
+            orders.add(cb.asc(cb.lower(saleRoot.get(SortOptions.SALE_ITEM_ID))));
+            resultsQuery.orderBy(orders);
+        }
+
+        /**
+         * A conditional statement obtains a Path from different roots depending on the case.
+         * If no matches to valid sorting options are found, the default ordering path is set to the creation date of
+         * each sale listing.
+         * @param sortBy A string defining the ordering. It is compared to the valid options in a switch statement.
+         * @return A String instance of Expression, that defines the column that results are to be sorted by.
+         */
+        private Expression<String> getOrderingPath(String sortBy) {
+            Expression<String> orderingPath;
+            switch (sortBy) {
+                case SortOptions.PRODUCT_NAME:
+                    orderingPath = cb.lower(productJoin.get(Attribute.PRODUCT_NAME));
+                    break;
+                case SortOptions.SUBURB:
+                    orderingPath = cb.lower(addressJoin.get(Attribute.SUBURB));
+                    break;
+                case SortOptions.CITY:
+                    orderingPath = cb.lower(addressJoin.get(Attribute.CITY));
+                    break;
+                case SortOptions.COUNTRY:
+                    orderingPath = cb.lower(addressJoin.get(Attribute.COUNTRY));
+                    break;
+                case SortOptions.PRICE:
+                    orderingPath = saleRoot.get(Attribute.PRICE);
+                    break;
+                case SortOptions.QUANTITY:
+                    orderingPath = saleRoot.get(Attribute.QUANTITY);
+                    break;
+                case SortOptions.EXPIRY_DATE:
+                    orderingPath = inventoryJoin.get(Attribute.EXPIRY_DATE);
+                    break;
+                case SortOptions.BUSINESS_NAME:
+                    orderingPath = cb.lower(businessJoin.get(Attribute.BUSINESS_NAME));
+                    break;
+                default:
+                    orderingPath = saleRoot.get(SortOptions.CREATED_DATE);
+            }
+            return orderingPath;
+        }
+
+        /**
+         * Implementation of exactMatchPredicate defined by MatchPredicates.
+         * Constructs specific predicates for each possible property that can be searched:
+         *  - seller business name
+         *  - product name
+         *  - business address (suburb)
+         *  - business address (city)
+         *  - business address (region)
+         *  - business address (country)
+         *
+         *  Paths are obtained from the roots and joins of this context's query.
+         *
+         *  lowerCaseTokens are matched to lowercase path, so matches are not case sensitive. The path must match the
+         *  token exactly.
+         *
+         * @param lowerCaseToken A string containing lower-case characters.
+         * @return A conjoined Predicate of conditions.
+         */
+        @Override
+        public Predicate exactMatchPredicate(String lowerCaseToken) {
+            Path<String> businessName = businessJoin.get(Attribute.BUSINESS_NAME);
+            Predicate exactPredicate = cb.like(cb.lower(businessName), lowerCaseToken);
+
+            Path<String> productName = productJoin.get(Attribute.PRODUCT_NAME);
+            exactPredicate = cb.or(exactPredicate, cb.like(cb.lower(productName), lowerCaseToken));
+
+            Path<String> addressSuburb = addressJoin.get(Attribute.SUBURB);
+            exactPredicate = cb.or(exactPredicate, cb.like(cb.lower(addressSuburb), lowerCaseToken));
+
+            Path<String> addressCity = addressJoin.get(Attribute.CITY);
+            exactPredicate = cb.or(exactPredicate, cb.like(cb.lower(addressCity), lowerCaseToken));
+
+            Path<String> addressRegion = addressJoin.get(Attribute.REGION);
+            exactPredicate = cb.or(exactPredicate, cb.like(cb.lower(addressRegion), lowerCaseToken));
+
+            Path<String> addressCountry = addressJoin.get(Attribute.COUNTRY);
+            exactPredicate = cb.or(exactPredicate, cb.like(cb.lower(addressCountry), lowerCaseToken));
+
+            return exactPredicate;
+        }
+
+        /**
+         * Implementation of partialMatchPredicate method defined by MatchPredicates.
+         * Constructs specific predicates for each possible property that can be searched:
+         *  - seller business name
+         *  - product name
+         *  - business address (suburb)
+         *  - business address (city)
+         *  - business address (region)
+         *  - business address (country)
+         *
+         *  Paths are obtained from the roots and joins of this context's query.
+         *
+         *  lowerCaseTokens are matched to lowercase path, so matches are not case sensitive. The path may match as
+         *  long as the token is a substring i.e. it obtains rows that match the tokens partially.
+         *
+         *  This also includes full matches, duplicates obtained from this predicate are handled in the main find
+         *  function.
+         *
+         * @param lowerCaseToken A string containing lower-case characters.
+         * @return A conjoined Predicate of conditions.
+         */
+        @Override
+        public Predicate partialMatchPredicate(String lowerCaseToken) {
+            Path<String> businessName = businessJoin.get(Attribute.BUSINESS_NAME);
+            Predicate partialPredicate = cb.like(cb.lower(businessName), "%" + lowerCaseToken + "%");
+
+            Path<String> productName = productJoin.get(Attribute.PRODUCT_NAME);
+            partialPredicate = cb.or(partialPredicate, cb.like(cb.lower(productName), "%" + lowerCaseToken + "%"));
+
+            Path<String> addressSuburb = addressJoin.get(Attribute.SUBURB);
+            partialPredicate = cb.or(partialPredicate, cb.like(cb.lower(addressSuburb), "%" + lowerCaseToken + "%"));
+
+            Path<String> addressCity = addressJoin.get(Attribute.CITY);
+            partialPredicate = cb.or(partialPredicate, cb.like(cb.lower(addressCity), "%" + lowerCaseToken + "%"));
+
+            Path<String> addressRegion = addressJoin.get(Attribute.REGION);
+            partialPredicate = cb.or(partialPredicate, cb.like(cb.lower(addressRegion), "%" + lowerCaseToken + "%"));
+
+            Path<String> addressCountry = addressJoin.get(Attribute.COUNTRY);
+            partialPredicate = cb.or(partialPredicate, cb.like(cb.lower(addressCountry), "%" + lowerCaseToken + "%"));
+
+            return partialPredicate;
+        }
+
+        /**
+         * Constructs a predicate that defines filtering conditions based on the attributes of the given FilterQuery
+         * instance.
+         *
+         * Checks each attribute for null values. If a value exists for each attribute, constructs a predicate that
+         * applies that attribute as a filter condition, and conjoins it with an "and" to the main conjunction
+         * predicate.
+         *
+         * @param filters Instance of FilterQuery that contains (possibly null) values defining filter conditions.
+         * @return A Predicate defining filtering conditions to be applied to the query. This predicate is used by
+         * the find method.
+         */
+        private Predicate filtersPredicate(SaleItemController.FilterQuery filters) {
+            Predicate filterPredicate = cb.conjunction();
+            if (filters.getBusinessType() != null) {
+                Path<String> businessType = businessJoin.get(Attribute.BUSINESS_TYPE);
+                filterPredicate = cb.and(filterPredicate, cb.like(businessType, filters.getBusinessType()));
+            }
+
+            Path<Double> saleItemPrice = saleRoot.get(Attribute.PRICE);
+
+            if (filters.getMinPrice() != null) {
+                filterPredicate = cb.and(filterPredicate, cb.greaterThanOrEqualTo(saleItemPrice, filters.getMinPrice()));
+            }
+
+            if (filters.getMaxPrice() != null) {
+                filterPredicate = cb.and(filterPredicate, cb.lessThanOrEqualTo(saleItemPrice, filters.getMaxPrice()));
+            }
+
+            Path<LocalDateTime> saleItemClosingDate = saleRoot.get(Attribute.CLOSING_DATE);
+
+            if (filters.getEarliestClosingDate() != null) {
+                filterPredicate = cb.and(filterPredicate, cb.greaterThanOrEqualTo(saleItemClosingDate, filters.getEarliestClosingDate()));
+            }
+
+            if (filters.getLatestClosingDate() != null) {
+                filterPredicate = cb.and(filterPredicate, cb.lessThanOrEqualTo(saleItemClosingDate, filters.getLatestClosingDate()));
+            }
+
+            Path<Boolean> saleItemSold = saleRoot.get(Attribute.SOLD);
+            filterPredicate = cb.and(filterPredicate, cb.not(saleItemSold));
+
+            return filterPredicate;
+        }
+    }
+
+    @Override
+    public RankingMode getDefaultRankingMode() {
+        return defaultRankingMode == null ? RankingMode.RANKED : defaultRankingMode;
     }
 
     /**
      * Implementation of static find method defined by parent class.
-     * Assembles the Criteria API components (builder, query, root) and constructs predicates using the inherited
-     * constructPredicates method.
-     *
-     * Obtains the results using the constructed query and returns them.
+     * Delegates to the strategy given by the ranking mode. Each strategy assembles its own Criteria API components,
+     * so concurrent calls never share state.
      * @param parameters A list of search tokens; the search parameters.
      * @param filterQuery A class containing the information to filter the results by.
      * @param pageNum Starting page for pagination.
      * @param perPage Defines how many items in the results are allowed per page.
      * @param sortBy Defines the column to sort results by.
      * @param orderBy Defines the ordering results are returned in.
+     * @param rankingMode Strategy used to rank exact matches above partial matches.
      * @return A list of SearchResult objects, containing a list of paginated results
      *          and the total length of the unpaginated results.
      */
+    @Override
     public SearchResult find(List<SearchToken> parameters,
                              SaleItemController.FilterQuery filterQuery,
                              Integer pageNum,
                              Integer perPage,
                              String sortBy,
-                             String orderBy) {
-        this.pageNum = pageNum;
-        this.perPage = perPage;
-
-        cb = entityManager.getCriteriaBuilder();
-        cbCount = entityManager.getCriteriaBuilder();
+                             String orderBy,
+                             RankingMode rankingMode) {
+        if (rankingMode == RankingMode.EXACT_THEN_PARTIAL) {
+            return findExactThenPartial(parameters, filterQuery, pageNum, perPage, sortBy, orderBy);
+        }
+        return findRanked(parameters, filterQuery, pageNum, perPage, sortBy, orderBy);
+    }
 
+    /**
+     * Original search strategy. Constructs predicates using the inherited constructPredicates method, and obtains a
+     * page of exact matches and a page of partial matches, which are joined together. The total is obtained by a
+     * separate count query.
+     * @param parameters A list of search tokens; the search parameters.
+     * @param filterQuery A class containing the information to filter the results by.
+     * @param pageNum Starting page for pagination.
+     * @param perPage Defines how many items in the results are allowed per page.
+     * @param sortBy Defines the column to sort results by.
+     * @param orderBy Defines the ordering results are returned in.
+     * @return SearchResult containing the joined results and the total length of the unpaginated results.
+     */
+    private SearchResult findExactThenPartial(List<SearchToken> parameters,
+                                              SaleItemController.FilterQuery filterQuery,
+                                              Integer pageNum,
+                                              Integer perPage,
+                                              String sortBy,
+                                              String orderBy) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<SaleItem> saleQuery = cb.createQuery(SaleItem.class);
-        setRoots(saleQuery);
+        QueryContext context = new QueryContext(cb, saleQuery);
 
-        Predicate filtersPredicate = filtersPredicate(filterQuery);
+        Predicate filtersPredicate = context.filtersPredicate(filterQuery);
 
-        // Get Predicates and results, it might be possible that this is order-dependent to be before Get Count stage
-        Predicate exactMatch = constructPredicates(cb, parameters, true);
-        Predicate partialMatch = constructPredicates(cb, parameters, false);
+        Predicate exactMatch = constructPredicates(cb, parameters, true, context);
+        Predicate partialMatch = constructPredicates(cb, parameters, false, context);
 
         exactMatch = cb.and(exactMatch, filtersPredicate);
         partialMatch = cb.and(partialMatch, filtersPredicate);
 
-        List<Searchable> exactResults =  getSearchResults(saleQuery, exactMatch, sortBy, orderBy);
-        List<Searchable> partialResults = getSearchResults(saleQuery, partialMatch, sortBy, orderBy);
+        List<Searchable> exactResults =  getSearchResults(context, saleQuery, exactMatch, sortBy, orderBy, pageNum, perPage);
+        List<Searchable> partialResults = getSearchResults(context, saleQuery, partialMatch, sortBy, orderBy, pageNum, perPage);
 
-        // Get count
-        CriteriaQuery<Long> countQuery = cbCount.createQuery(Long.class);
-        setRoots(countQuery);
+        Long countResult = countResults(parameters, filterQuery);
 
-        Predicate countMatch = constructPredicates(cbCount, parameters, false);
-        Predicate countFilterPredicate = filtersPredicate(filterQuery);
-        countMatch = cbCount.and(countMatch, countFilterPredicate);
+        return new SearchResult(SearchUtils.joinTwoLists(exactResults, partialResults), countResult);
+    }
 
-        // At this point saleRoot is taken from countQuery, so we use the same variable
-        Long countResult = entityManager.createQuery(countQuery.select(cbCount.count(saleRoot)).where(countMatch))
-                .getSingleResult();
+    /**
+     * Ranked search strategy. Every exact match is also a partial match (each token's exact predicate implies its
+     * partial predicate, and tokens are only joined by AND/OR), so a single query over the partial predicate covers
+     * all results. Exactness is selected as a relevance score of 1 or 0, which the results are ordered by before the
+     * sorting column and the id tie-breaker. This gives a stable page of at most perPage results.
+     *
+     * The total count is derived from the page when the page is not full, as the page must then be the last one.
+     * Otherwise, a count query is run.
+     * @param parameters A list of search tokens; the search parameters.
+     * @param filterQuery A class containing the information to filter the results by.
+     * @param pageNum Starting page for pagination.
+     * @param perPage Defines how many items in the results are allowed per page.
+     * @param sortBy Defines the column to sort results by.
+     * @param orderBy Defines the ordering results are returned in.
+     * @return SearchResult containing the ranked page of results and the total length of the unpaginated results.
+     */
+    private SearchResult findRanked(List<SearchToken> parameters,
+                                    SaleItemController.FilterQuery filterQuery,
+                                    Integer pageNum,
+                                    Integer perPage,
+                                    String sortBy,
+                                    String orderBy) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<SaleItem> saleQuery = cb.createQuery(SaleItem.class);
+        QueryContext context = new QueryContext(cb, saleQuery);
 
-        return new SearchResult(SearchUtils.joinTwoLists(exactResults, partialResults), countResult);
+        Predicate filtersPredicate = context.filtersPredicate(filterQuery);
+        Predicate exactMatch = constructPredicates(cb, parameters, true, context);
+        Predicate partialMatch = cb.and(constructPredicates(cb, parameters, false, context), filtersPredicate);
+
+        Expression<Integer> relevance = cb.<Integer>selectCase()
+                .when(exactMatch, 1)
+                .otherwise(0);
+
+        CriteriaQuery<SaleItem> resultsQuery = saleQuery.select(context.saleRoot).where(partialMatch);
+        context.setResultOrdering(orderBy, resultsQuery, context.getOrderingPath(sortBy), cb.desc(relevance));
+        List<Searchable> results = new ArrayList<>(
+                setPagination(entityManager.createQuery(resultsQuery), pageNum, perPage).getResultList());
+
+        long countResult;
+        if (!results.isEmpty() && results.size() < perPage) {
+            countResult = (long) (pageNum - 1) * perPage + results.size();
+        } else {
+            countResult = countResults(parameters, filterQuery);
+        }
+        return new SearchResult(results, countResult);
     }
 
     /**
-     * Applies sorting, ordering and pagination. Uses entity manager to create query and gets the list of results.
-     * @param query Instance of CriteriaQuery to apply sorting, ordering and pagination to.
-     * @param predicate Predicate conditions to retrieve results by.
-     * @param sortBy Column to sort results by.
-     * @param orderBy Ordering of results (asc, or desc)
-     * @return ArrayList of type Searchable; the list of results retrieved by the assembled query.
+     * Keyset pagination strategy. Ranks results as findRanked does, but instead of skipping the results on earlier
+     * pages, selects the results ordered after the cursor. The relevance and sort key of each result are selected
+     * alongside it, so the cursor of the next page holds exactly the values the query orders by. One more result than
+     * the page size is retrieved to find whether there is a next page.
+     *
+     * Results are ordered by their numeric id last, rather than the lowercase id used by the other strategies, so the
+     * keyset condition can compare ids.
+     * @param parameters A list of search tokens; the search parameters.
+     * @param filterQuery A class containing the information to filter the results by.
+     * @param cursor Position of the last result of the previous page, or null for the first page.
+     * @param perPage Defines how many items in the results are allowed per page.
+     * @param sortBy Defines the column to sort results by.
+     * @param orderBy Defines the ordering results are returned in.
+     * @return SearchResult containing the page of results, the total length of the unpaginated results, and the
+     * cursor of the next page.
      */
-    public List<Searchable> getSearchResults(CriteriaQuery<SaleItem> query, Predicate predicate, String sortBy, String orderBy) {
-        TypedQuery<SaleItem> typedQuery;
-        CriteriaQuery<SaleItem> resultsQuery = query.select(saleRoot).where(predicate);
-        Expression<String> orderingPath = getOrderingPath(sortBy);
-        setResultOrdering(orderBy, resultsQuery, orderingPath);
-        typedQuery = setPagination(entityManager.createQuery(resultsQuery));
-        return new ArrayList<>(typedQuery.getResultList());
+    @Override
+    public SearchResult findAfter(List<SearchToken> parameters,
+                                  SaleItemController.FilterQuery filterQuery,
+                                  SearchCursor cursor,
+                                  Integer perPage,
+                                  String sortBy,
+                                  String orderBy) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> pageQuery = cb.createTupleQuery();
+        QueryContext context = new QueryContext(cb, pageQuery);
+
+        Predicate filtersPredicate = context.filtersPredicate(filterQuery);
+        Predicate exactMatch = constructPredicates(cb, parameters, true, context);
+        Predicate partialMatch = cb.and(constructPredicates(cb, parameters, false, context), filtersPredicate);
+
+        Expression<Integer> relevance = cb.<Integer>selectCase()
+                .when(exactMatch, 1)
+                .otherwise(0);
+        Expression<String> orderingPath = context.getOrderingPath(sortBy);
+        Path<Long> saleItemId = context.saleRoot.get(SortOptions.SALE_ITEM_ID);
+        boolean ascending = orderBy.equals(Ordering.ASCENDING);
+
+        Predicate pagePredicate = partialMatch;
+        if (cursor != null) {
+            pagePredicate = cb.and(partialMatch,
+                    keysetPredicate(cb, relevance, orderingPath, ascending, saleItemId, cursor));
+        }
+        pageQuery.multiselect(context.saleRoot, relevance, orderingPath)
+                .where(pagePredicate)
+                .orderBy(cb.desc(relevance),
+                        ascending ? cb.asc(orderingPath) : cb.desc(orderingPath),
+                        cb.asc(saleItemId));
+
+        List<Tuple> rows = entityManager.createQuery(pageQuery)
+                .setMaxResults(perPage + 1)
+                .getResultList();
+
+        List<Searchable> results = new ArrayList<>();
+        for (Tuple row : rows.subList(0, Math.min(perPage, rows.size()))) {
+            results.add(row.get(0, SaleItem.class));
+        }
+
+        String nextCursor = null;
+        if (rows.size() > perPage) {
+            Tuple last = rows.get(perPage - 1);
+            nextCursor = new SearchCursor(
+                    ((Number) last.get(1)).intValue(),
+                    last.get(2),
+                    last.get(0, SaleItem.class).getSaleItemId()).encode();
+        }
+        return new SearchResult(results, countResults(parameters, filterQuery), nextCursor);
     }
 
     /**
-     * A conditional statement that applies a different sorting order to the criteria query depending on the parameter.
-     * @param orderBy A string defining the ordering of results. This is compared to the constant in the module,
-     *                and the appropriate ordering is applied.
-     * @param resultsQuery Instance of Criteria Query. Depending on the given ordering,
-     * @param orderingPath An expression defining the path to order the results by. Applied directly to query (lowercase)
+     * Counts the total number of results that partially match the parameters, after filters are applied.
+     * Counts are cached by listingCountCache. In the ESTIMATED count mode, broad searches are counted by
+     * estimateResults instead.
+     * @param parameters A list of search tokens; the search parameters.
+     * @param filterQuery A class containing the information to filter the results by.
+     * @return The total length of the unpaginated results, or an upper bound of it for estimated broad searches.
      */
-    private void setResultOrdering(String orderBy, CriteriaQuery<SaleItem> resultsQuery, Expression<String> orderingPath) {
-        if (orderBy.equals(Ordering.ASCENDING)) {
-            resultsQuery.orderBy(
-                    cb.asc(orderingPath),
-                    cb.asc(cb.lower(saleRoot.get(SortOptions.SALE_ITEM_ID)))
-            );
-        } else {
-            resultsQuery.orderBy(
-                    cb.desc(orderingPath),
-                    cb.asc(cb.lower(saleRoot.get(SortOptions.SALE_ITEM_ID)))
-            );
+    private Long countResults(List<SearchToken> parameters, SaleItemController.FilterQuery filterQuery) {
+        if (countMode == CountMode.ESTIMATED && isBroadSearch(parameters, broadTermLength)) {
+            // Every broad search shares the estimate of its filters
+            return listingCountCache.count(Collections.emptyList(), filterQuery, true,
+                    () -> estimateResults(filterQuery));
         }
+        return listingCountCache.count(parameters, filterQuery, false, () -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+            QueryContext context = new QueryContext(cb, countQuery);
+
+            Predicate countMatch = constructPredicates(cb, parameters, false, context);
+            Predicate countFilterPredicate = context.filtersPredicate(filterQuery);
+            countMatch = cb.and(countMatch, countFilterPredicate);
+
+            return entityManager.createQuery(countQuery.select(cb.count(context.saleRoot)).where(countMatch))
+                    .getSingleResult();
+        });
     }
 
     /**
-     * A conditional statement obtains a Path from different roots depending on the case.
-     * If no matches to valid sorting options are found, the default ordering path is set to the creation date of
-     * each sale listing.
-     * @param sortBy A string defining the ordering. It is compared to the valid options in a switch statement.
-     * @return A String instance of Expression, that defines the column that results are to be sorted by.
+     * Obtains an upper bound of the number of results of a broad search, by counting the unsold sale listings within
+     * the price and closing date filters. The search tokens and the business type filter are ignored, so the count is
+     * run on the sale listing table alone, without joins.
+     * @param filterQuery A class containing the information to filter the results by.
+     * @return An upper bound of the total length of the unpaginated results.
      */
-    private Expression<String> getOrderingPath(String sortBy) {
-        Expression<String> orderingPath;
-        switch (sortBy) {
-            case SortOptions.PRODUCT_NAME:
-                orderingPath = cb.lower(productJoin.get(Attribute.PRODUCT_NAME));
-                break;
-            case SortOptions.SUBURB:
-                orderingPath = cb.lower(addressJoin.get(Attribute.SUBURB));
-                break;
-            case SortOptions.CITY:
-                orderingPath = cb.lower(addressJoin.get(Attribute.CITY));
-                break;
-            case SortOptions.COUNTRY:
-                orderingPath = cb.lower(addressJoin.get(Attribute.COUNTRY));
-                break;
-            case SortOptions.PRICE:
-                orderingPath = saleRoot.get(Attribute.PRICE);
-                break;
-            case SortOptions.QUANTITY:
-                orderingPath = saleRoot.get(Attribute.QUANTITY);
-                break;
-            case SortOptions.EXPIRY_DATE:
-                orderingPath = inventoryJoin.get(Attribute.EXPIRY_DATE);
-                break;
-            case SortOptions.BUSINESS_NAME:
-                orderingPath = cb.lower(businessJoin.get(Attribute.BUSINESS_NAME));
-                break;
-            default:
-                orderingPath = saleRoot.get(SortOptions.CREATED_DATE);
+    private long estimateResults(SaleItemController.FilterQuery filterQuery) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<SaleItem> saleRoot = countQuery.from(SaleItem.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        Path<Double> price = saleRoot.get(Attribute.PRICE);
+        if (filterQuery.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(price, filterQuery.getMinPrice()));
         }
-        return orderingPath;
+        if (filterQuery.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(price, filterQuery.getMaxPrice()));
+        }
+        Path<LocalDateTime> closes = saleRoot.get(Attribute.CLOSING_DATE);
+        if (filterQuery.getEarliestClosingDate() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(closes, filterQuery.getEarliestClosingDate()));
+        }
+        if (filterQuery.getLatestClosingDate() != null) {
+            predicates.add(cb.lessThanOrEqualTo(closes, filterQuery.getLatestClosingDate()));
+        }
+        Path<Boolean> sold = saleRoot.get(Attribute.SOLD);
+        predicates.add(cb.not(sold));
+
+        return entityManager.createQuery(countQuery.select(cb.count(saleRoot))
+                .where(predicates.toArray(new Predicate[0])))
+                .getSingleResult();
+    }
+
+    /**
+     * Applies sorting, ordering and pagination. Uses entity manager to create query and gets the list of results.
+     * @param context Query context the query and predicate were constructed from.
+     * @param query Instance of CriteriaQuery to apply sorting, ordering and pagination to.
+     * @param predicate Predicate conditions to retrieve results by.
+     * @param sortBy Column to sort results by.
+     * @param orderBy Ordering of results (asc, or desc)
+     * @param pageNum Starting page for pagination.
+     * @param perPage Defines how many items in the results are allowed per page.
+     * @return ArrayList of type Searchable; the list of results retrieved by the assembled query.
+     */
+    private List<Searchable> getSearchResults(QueryContext context, CriteriaQuery<SaleItem> query, Predicate predicate,
+                                              String sortBy, String orderBy, Integer pageNum, Integer perPage) {
+        TypedQuery<SaleItem> typedQuery;
+        CriteriaQuery<SaleItem> resultsQuery = query.select(context.saleRoot).where(predicate);
+        Expression<String> orderingPath = context.getOrderingPath(sortBy);
+        context.setResultOrdering(orderBy, resultsQuery, orderingPath);
+        typedQuery = setPagination(entityManager.createQuery(resultsQuery), pageNum, perPage);
+        return new ArrayList<>(typedQuery.getResultList());
     }
 
     /**
      * Sets the typedQuery's first result and maximum result to paginate the selected rows when the results are obtained
      * from the query.
-     * The perPage and pageNum variables are obtained as parameters from the initial find() call.
      *
      * Pagination starts as 0, but page number from the client-side starts at 1. Hence, this function subtracts 1 from
      * the pageNum before setting the first result property of query. It assumes that the client will always send
      * a positive, non-zero value as the page number.
      *
      * @param query Instance of TypedQuery to set the first result and max result properties.
+     * @param pageNum Starting page for pagination.
+     * @param perPage Defines how many items in the results are allowed per page.
      * @return SaleItem instance of TypedQuery, with pagination properties pageNum and perPage applied for pagination.
      */
-    private TypedQuery<SaleItem> setPagination(TypedQuery<SaleItem> query) {
+    private static TypedQuery<SaleItem> setPagination(TypedQuery<SaleItem> query, Integer pageNum, Integer perPage) {
         int firstResultIndex = (pageNum - 1) * perPage;
         query.setFirstResult(firstResultIndex);
         query.setMaxResults(perPage);
         return query;
     }
-
-    /**
-     * Implementation of abstract exactMatchPredicate defined in parent class.
-     * Constructs specific predicates for each possible property that can be searched:
-     *  - seller business name
-     *  - product name
-     *  - business address (suburb)
-     *  - business address (city)
-     *  - business address (region)
-     *  - business address (country)
-     *
-     *  Paths are obtained from specific roots and joins. It assumes that roots and joins are consistent with each other
-     *  i.e. They are derived from the same set of criteria builder and query.
-     *
-     *  lowerCaseTokens are matched to lowercase path, so matches are not case sensitive. The path must match the
-     *  token exactly.
-     *
-     * @param lowerCaseToken A string containing lower-case characters.
-     * @return A conjoined Predicate of conditions.
-     */
-    protected Predicate exactMatchPredicate(String lowerCaseToken) {
-        Path<String> businessName = businessJoin.get(Attribute.BUSINESS_NAME);
-        Predicate exactPredicate = cb.like(cb.lower(businessName), lowerCaseToken);
-
-        Path<String> productName = productJoin.get(Attribute.PRODUCT_NAME);
-        exactPredicate = cb.or(exactPredicate, cb.like(cb.lower(productName), lowerCaseToken));
-
-        Path<String> addressSuburb = addressJoin.get(Attribute.SUBURB);
-        exactPredicate = cb.or(exactPredicate, cb.like(cb.lower(addressSuburb), lowerCaseToken));
-
-        Path<String> addressCity = addressJoin.get(Attribute.CITY);
-        exactPredicate = cb.or(exactPredicate, cb.like(cb.lower(addressCity), lowerCaseToken));
-
-        Path<String> addressRegion = addressJoin.get(Attribute.REGION);
-        exactPredicate = cb.or(exactPredicate, cb.like(cb.lower(addressRegion), lowerCaseToken));
-
-        Path<String> addressCountry = addressJoin.get(Attribute.COUNTRY);
-        exactPredicate = cb.or(exactPredicate, cb.like(cb.lower(addressCountry), lowerCaseToken));
-
-        return exactPredicate;
-    }
-
-    /**
-     * Implementation of abstract partialMatchPredicate method defined in parent class.
-     * Constructs specific predicates for each possible property that can be searched:
-     *  - seller business name
-     *  - product name
-     *  - business address (suburb)
-     *  - business address (city)
-     *  - business address (region)
-     *  - business address (country)
-     *
-     *  Paths are obtained from specific roots and joins. It assumes that roots and joins are consistent with each other
-     *  i.e. They are derived from the same set of criteria builder and query.
-     *
-     *  lowerCaseTokens are matched to lowercase path, so matches are not case sensitive. The path may match as long
-     *  as the token is a substring i.e. it obtains rows that match the tokens partially.
-     *
-     *  This also includes full matches, duplicates obtained from this predicate are handled in the main find function.
-     *
-     * @param lowerCaseToken A string containing lower-case characters.
-     * @return A conjoined Predicate of conditions.
-     */
-    protected Predicate partialMatchPredicate(String lowerCaseToken) {
-        Path<String> businessName = businessJoin.get(Attribute.BUSINESS_NAME);
-        Predicate partialPredicate = cb.like(cb.lower(businessName), "%" + lowerCaseToken + "%");
-
-        Path<String> productName = productJoin.get(Attribute.PRODUCT_NAME);
-        partialPredicate = cb.or(partialPredicate, cb.like(cb.lower(productName), "%" + lowerCaseToken + "%"));
-
-        Path<String> addressSuburb = addressJoin.get(Attribute.SUBURB);
-        partialPredicate = cb.or(partialPredicate, cb.like(cb.lower(addressSuburb), "%" + lowerCaseToken + "%"));
-
-        Path<String> addressCity = addressJoin.get(Attribute.CITY);
-        partialPredicate = cb.or(partialPredicate, cb.like(cb.lower(addressCity), "%" + lowerCaseToken + "%"));
-
-        Path<String> addressRegion = addressJoin.get(Attribute.REGION);
-        partialPredicate = cb.or(partialPredicate, cb.like(cb.lower(addressRegion), "%" + lowerCaseToken + "%"));
-
-        Path<String> addressCountry = addressJoin.get(Attribute.COUNTRY);
-        partialPredicate = cb.or(partialPredicate, cb.like(cb.lower(addressCountry), "%" + lowerCaseToken + "%"));
-
-        return partialPredicate;
-    }
-
-    /**
-     * Constructs a predicate that defines filtering conditions based on the attributes of the given FilterQuery
-     * instance.
-     *
-     * Checks each attribute for null values. If a value exists for each attribute, constructs a predicate that applies
-     * that attribute as a filter condition, and conjoins it with an "and" to the main conjunction predicate.
-     *
-     * @param filters Instance of FilterQuery that contains (possibly null) values defining filter conditions.
-     * @return A Predicate defining filtering conditions to be applied to the query. This predicate is used by
-     * the find method. 
-     */
-    private Predicate filtersPredicate(SaleItemController.FilterQuery filters) {
-        Predicate filterPredicate = cb.conjunction();
-        if (filters.getBusinessType() != null) {
-            Path<String> businessType = businessJoin.get(Attribute.BUSINESS_TYPE);
-            filterPredicate = cb.and(filterPredicate, cb.like(businessType, filters.getBusinessType()));
-        }
-
-        Path<Double> saleItemPrice = saleRoot.get(Attribute.PRICE);
-
-        if (filters.getMinPrice() != null) {
-            filterPredicate = cb.and(filterPredicate, cb.greaterThanOrEqualTo(saleItemPrice, filters.getMinPrice()));
-        }
-
-        if (filters.getMaxPrice() != null) {
-            filterPredicate = cb.and(filterPredicate, cb.lessThanOrEqualTo(saleItemPrice, filters.getMaxPrice()));
-        }
-
-        Path<LocalDateTime> saleItemClosingDate = saleRoot.get(Attribute.CLOSING_DATE);
-
-        if (filters.getEarliestClosingDate() != null) {
-            filterPredicate = cb.and(filterPredicate, cb.greaterThanOrEqualTo(saleItemClosingDate, filters.getEarliestClosingDate()));
-        }
-
-        if (filters.getLatestClosingDate() != null) {
-            filterPredicate = cb.and(filterPredicate, cb.lessThanOrEqualTo(saleItemClosingDate, filters.getLatestClosingDate()));
-        }
-
-        Path<Boolean> saleItemSold = saleRoot.get(Attribute.SOLD);
-        filterPredicate = cb.and(filterPredicate, cb.not(saleItemSold));
-
-        return filterPredicate;
-    }
 }
@@ -9,7 +9,19 @@ import java.util.List;
  * contains a parameter for filtering specifications which the static find method defined in SearchingService does not
  * include.
  */
-public abstract class SaleItemSearchService extends SearchingService {
+public abstract class SaleItemSearchService extends KeysetSearchingService {
+
+    /**
+     * Strategies for combining exact and partial matches into a single page of results.
+     *  - EXACT_THEN_PARTIAL: the original strategy. Queries a page of exact matches and a page of partial matches
+     *    separately, joins them in memory, then queries the total count.
+     *  - RANKED: a single query, where exactness is a computed relevance score that results are ordered by before the
+     *    sorting column. The count is only queried when it cannot be derived from the page itself.
+     */
+    public enum RankingMode {
+        EXACT_THEN_PARTIAL,
+        RANKED
+    }
 
     /**
      * Overrides inherited find method, which does not contain the necessary filtering parameters to find sale listings
@@ -36,6 +48,61 @@ public abstract class SaleItemSearchService extends SearchingService {
                 orderBy);
     }
 
+    /**
+     * Overrides inherited findAfter method, passing in a new FilterQuery instance with all of its attributes null.
+     * @param parameters List of SearchTokens to search sale listings by.
+     * @param cursor Position of the last result of the previous page, or null for the first page.
+     * @param perPage Long perPage number. Converted into integer.
+     * @param sortBy String to sort results by.
+     * @param orderBy String to order results by.
+     * @return Instance of SearchResult containing the page of results, total number of results and next cursor.
+     */
+    @Override
+    public SearchResult findAfter(List<SearchToken> parameters, SearchCursor cursor, long perPage, String sortBy,
+                                  String orderBy) {
+        return findAfter(parameters,
+                new SaleItemController.FilterQuery(
+                        null,
+                        null,
+                        null,
+                        null,
+                        null),
+                cursor,
+                Integer.parseInt(String.valueOf(perPage)),
+                sortBy,
+                orderBy);
+    }
+
+    /**
+     * Defines abstract keyset pagination method for child components to implement. Results are ranked as in the
+     * RANKED ranking mode: exact matches first, then by the sorting column, then by id.
+     * @param parameters List of SearchTokens to search sale listings by.
+     * @param filterQuery Instance of FilterQuery containing attributes to filter search results by.
+     * @param cursor Position of the last result of the previous page, or null for the first page.
+     * @param perPage Integer per page number, defining the number of results allowed per page.
+     * @param sortBy String defining the column attribute to sort search results by.
+     * @param orderBy String defining the order to return sorted search results in.
+     * @return Instance of SearchResult containing the page of results, total number of results, and the cursor of
+     * the next page (null if this is the last page).
+     */
+    public abstract SearchResult findAfter(List<SearchToken> parameters, SaleItemController.FilterQuery filterQuery,
+                                           SearchCursor cursor, Integer perPage, String sortBy, String orderBy);
+
+    /**
+     * Finds sale listings using the default ranking mode of the implementing component.
+     * @param parameters List of SearchTokens to search sale listings by.
+     * @param filterQuery Instance of FilterQuery containing attributes to filter search results by.
+     * @param pageNum Integer page number, defining page number to retrieve for pagination.
+     * @param perPage Integer per page number, defining the number of results allowed per page. Used for pagination.
+     * @param sortBy String defining the column attribute to sort search results by.
+     * @param orderBy String defining the order to return sorted search results in.
+     * @return Instance of SearchResult containing paginated list of results, and total number of results.
+     */
+    public SearchResult find(List<SearchToken> parameters, SaleItemController.FilterQuery filterQuery,
+                             Integer pageNum, Integer perPage, String sortBy, String orderBy) {
+        return find(parameters, filterQuery, pageNum, perPage, sortBy, orderBy, getDefaultRankingMode());
+    }
+
     /**
      * Defines abstract find method for child components to implement.
      * @param parameters List of SearchTokens to search sale listings by.
@@ -44,8 +111,15 @@ public abstract class SaleItemSearchService extends SearchingService {
      * @param perPage Integer per page number, defining the number of results allowed per page. Used for pagination.
      * @param sortBy String defining the column attribute to sort search results by.
      * @param orderBy String defining the order to return sorted search results in.
+     * @param rankingMode Strategy used to rank exact matches above partial matches.
      * @return Instance of SearchResult containing paginated list of results, and total number of results.
      */
     public abstract SearchResult find(List<SearchToken> parameters, SaleItemController.FilterQuery filterQuery,
-                                      Integer pageNum, Integer perPage, String sortBy, String orderBy);
+                                      Integer pageNum, Integer perPage, String sortBy, String orderBy,
+                                      RankingMode rankingMode);
+
+    /**
+     * @return The ranking mode used when none is given to find.
+     */
+    public abstract RankingMode getDefaultRankingMode();
 }
@@ -0,0 +1,16 @@
+package wasteless.service.searching_service;
+
+/**
+ * Implemented by caches of search results or counts, which SearchCacheInvalidator keeps up to date by passing them
+ * every inserted, updated or deleted entity.
+ */
+public interface SearchCache {
+
+    /**
+     * Captures the invalidation a written entity causes. Called while the entity is being flushed, so lazy
+     * associations can still be read. The returned invalidation is run once the transaction has committed.
+     * @param entity The inserted, updated or deleted entity.
+     * @return The invalidation to run, or null if the entity does not affect the cache.
+     */
+    Runnable prepareInvalidation(Object entity);
+}
@@ -0,0 +1,28 @@
+package wasteless.service.searching_service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Invalidates the search caches when an entity that can change their contents is inserted, updated or deleted.
+ *
+ * Each written entity is passed to the caches while it is being flushed, and the resulting invalidations are run once
+ * the transaction commits, or immediately if there is no transaction.
+ */
+public class SearchCacheInvalidator extends AfterCommitEntityListener {
+
+    private final transient List<SearchCache> caches;
+
+    public SearchCacheInvalidator(EntityManagerFactory entityManagerFactory, List<SearchCache> caches) {
+        super(entityManagerFactory);
+        this.caches = caches;
+    }
+
+    @Override
+    protected List<Runnable> prepareChanges(Object entity, boolean deleted) {
+        return caches.stream()
+                .map(cache -> cache.prepareInvalidation(entity))
+                .collect(Collectors.toList());
+    }
+}
@@ -1,22 +1,106 @@
 package wasteless.service.searching_service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import wasteless.model.*;
+import wasteless.repository.BusinessRepository;
+import wasteless.repository.SaleItemRepository;
+import wasteless.repository.UserRepository;
 
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+/**
+ * Defines the searching services. The search.engine property selects between the services querying the database
+ * (database, the default) and the services backed by in-memory indexes (index).
+ *
+ * Also defines the caches of the result counts of the services querying the database, sized by the
+ * search.count.cache.size and search.count.cache.ttl (seconds) properties, and the cache of the pages of sale listing
+ * search results, sized by the search.listings.cache.size and search.listings.cache.ttl (seconds) properties.
+ */
 @Configuration
 @ComponentScan
 public class SearchConfig {
+
+    private static final String ENGINE_PROPERTY = "search.engine";
+    private static final String DATABASE_ENGINE = "database";
+    private static final String INDEX_ENGINE = "index";
+
+    @Value("${search.count.cache.size:1000}")
+    private int countCacheSize;
+
+    @Value("${search.count.cache.ttl:60}")
+    private long countCacheTtlSeconds;
+
+    @Bean
+    public SearchCountCache listingCountCache() {
+        return new SearchCountCache(countCacheSize, countCacheTtlSeconds * 1000, List.of(
+                SaleItem.class, InventoryItem.class, Product.class, Business.class, Address.class));
+    }
+
+    @Bean
+    public SearchCountCache userCountCache() {
+        return new SearchCountCache(countCacheSize, countCacheTtlSeconds * 1000, List.of(User.class));
+    }
+
     @Bean
+    public SearchResultCache listingResultCache(@Value("${search.listings.cache.size:1000}") int size,
+                                                @Value("${search.listings.cache.ttl:60}") long ttlSeconds) {
+        return new SearchResultCache(size, ttlSeconds * 1000);
+    }
+
+    @Bean
+    public SearchCacheInvalidator searchCacheInvalidator(EntityManagerFactory entityManagerFactory,
+                                                         List<SearchCache> caches) {
+        return new SearchCacheInvalidator(entityManagerFactory, caches);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENGINE_PROPERTY, havingValue = DATABASE_ENGINE, matchIfMissing = true)
     public UserSearchImpl userSearchService() {
         return new UserSearchImpl();
     }
 
     @Bean
+    @ConditionalOnProperty(name = ENGINE_PROPERTY, havingValue = DATABASE_ENGINE, matchIfMissing = true)
     public BusinessSearchImpl businessSearchService() {
         return new BusinessSearchImpl();
     }
 
     @Bean
+    @ConditionalOnProperty(name = ENGINE_PROPERTY, havingValue = DATABASE_ENGINE, matchIfMissing = true)
     public SaleItemSearchImpl saleItemSearchService() { return new SaleItemSearchImpl(); }
+
+    @Configuration
+    @ConditionalOnProperty(name = ENGINE_PROPERTY, havingValue = INDEX_ENGINE)
+    static class IndexedSearchConfig {
+
+        @Bean(name = "userSearchService")
+        public UserIndexedSearchImpl userIndexedSearchService(UserRepository userRepository,
+                                                              PlatformTransactionManager transactionManager) {
+            return new UserIndexedSearchImpl(userRepository, transactionManager);
+        }
+
+        @Bean(name = "businessSearchService")
+        public BusinessIndexedSearchImpl businessIndexedSearchService(BusinessRepository businessRepository,
+                                                                      PlatformTransactionManager transactionManager) {
+            return new BusinessIndexedSearchImpl(businessRepository, transactionManager);
+        }
+
+        @Bean(name = "saleItemSearchService")
+        public SaleItemIndexedSearchImpl saleItemIndexedSearchService(SaleItemRepository saleItemRepository,
+                                                                      PlatformTransactionManager transactionManager) {
+            return new SaleItemIndexedSearchImpl(saleItemRepository, transactionManager);
+        }
+
+        @Bean
+        public SearchIndexSynchroniser searchIndexSynchroniser(EntityManagerFactory entityManagerFactory,
+                                                               List<IndexedSearch> indexedSearches) {
+            return new SearchIndexSynchroniser(entityManagerFactory, indexedSearches);
+        }
+    }
 }
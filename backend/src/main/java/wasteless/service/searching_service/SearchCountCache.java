@@ -0,0 +1,156 @@
+package wasteless.service.searching_service;
+
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of the total number of results of searches, so the count query of a popular search is not run again
+ * for every page.
+ *
+ * Counts are keyed by the normalised search tokens and the filters of the search. The least recently used count is
+ * evicted once the cache is full, and counts expire once they are older than the time to live. Every count is
+ * discarded when an entity that can change the counts is written, which SearchCacheInvalidator reports through
+ * invalidate once the write has committed. Writes made through bulk queries bypass SearchCacheInvalidator, so must
+ * invalidate the cache themselves; the time to live bounds how stale a count can be otherwise.
+ *
+ * The cache is safe for concurrent use. Counts are computed outside of the lock, and a count computed while the cache
+ * was being invalidated is never stored.
+ */
+public class SearchCountCache implements SearchCache {
+
+    private final int maximumSize;
+    private final long timeToLiveMillis;
+    private final Set<Class<?>> countedEntities;
+
+    private final Map<Key, Entry> entries;
+    private long generation = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param maximumSize Maximum number of counts held. A size of 0 disables the cache.
+     * @param timeToLiveMillis Time a count is held for, in milliseconds.
+     * @param countedEntities Entity types whose writes can change the counts.
+     */
+    public SearchCountCache(int maximumSize, long timeToLiveMillis, Collection<Class<?>> countedEntities) {
+        this.maximumSize = maximumSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.countedEntities = new HashSet<>(countedEntities);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > SearchCountCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Cache key. Tokens are compared in lowercase, as searches are case insensitive.
+     */
+    private static class Key {
+        private final List<List<Object>> tokens;
+        private final Object filters;
+        private final boolean estimated;
+
+        private Key(List<SearchToken> tokens, Object filters, boolean estimated) {
+            this.tokens = SearchUtils.normaliseTokens(tokens);
+            this.filters = filters;
+            this.estimated = estimated;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return estimated == key.estimated && tokens.equals(key.tokens) && Objects.equals(filters, key.filters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tokens, filters, estimated);
+        }
+    }
+
+    private static class Entry {
+        private final long count;
+        private final long expiresAt;
+
+        private Entry(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Obtains the count of a search from the cache, or computes and caches it if it is missing or has expired.
+     * @param tokens Search tokens of the search.
+     * @param filters Filters of the search, or null if it has none. Must implement equals and hashCode.
+     * @param estimated Whether the count is an estimate rather than an exact count.
+     * @param counter Computes the count.
+     * @return The count of the search.
+     */
+    public long count(List<SearchToken> tokens, Object filters, boolean estimated, LongSupplier counter) {
+        if (maximumSize <= 0) {
+            return counter.getAsLong();
+        }
+        Key key = new Key(tokens, filters, estimated);
+        long generationBefore;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits++;
+                return entry.count;
+            }
+            misses++;
+            generationBefore = generation;
+        }
+
+        long count = counter.getAsLong();
+        synchronized (this) {
+            if (generation == generationBefore) {
+                entries.put(key, new Entry(count, System.currentTimeMillis() + timeToLiveMillis));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writing any of the counted entities can change any count, so invalidates the whole cache.
+     * @param entity The inserted, updated or deleted entity.
+     * @return The invalidation to run, or null if the entity is not one of the counted entities.
+     */
+    @Override
+    public Runnable prepareInvalidation(Object entity) {
+        for (Class<?> countedEntity : countedEntities) {
+            if (countedEntity.isInstance(entity)) {
+                return this::invalidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Discards every count held by the cache.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
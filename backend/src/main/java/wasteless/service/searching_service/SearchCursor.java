@@ -0,0 +1,131 @@
+package wasteless.service.searching_service;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last result of a page, used for keyset (seek) pagination.
+ *
+ * Searches order their results by relevance (descending), then by a sort key, then by id. The next page contains the
+ * results ordered after the position of the last result on the previous page, so it can be found by a condition on
+ * those three values instead of skipping every earlier result.
+ *
+ * Cursors are sent to the client as opaque tokens. The relevance, the type and value of the sort key, and the id are
+ * joined and encoded with URL-safe Base64.
+ */
+@Getter
+public class SearchCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private static class SortValueType {
+        private static final String NULL = "N";
+        private static final String STRING = "S";
+        private static final String DOUBLE = "D";
+        private static final String INTEGER = "I";
+        private static final String LONG = "L";
+        private static final String DATE = "T";
+        private static final String DATE_TIME = "DT";
+    }
+
+    /** Relevance of the last result; 1 for an exact match, 0 for a partial match. */
+    private final int relevance;
+
+    /** Sort key of the last result. A String, Double, Integer, Long, LocalDate, LocalDateTime or null. */
+    private final Object sortValue;
+
+    /** Id of the last result. */
+    private final long id;
+
+    public SearchCursor(int relevance, Object sortValue, long id) {
+        this.relevance = relevance;
+        this.sortValue = sortValue;
+        this.id = id;
+    }
+
+    /**
+     * Encodes the cursor as an opaque token for the client.
+     * @return URL-safe token representing the cursor.
+     */
+    public String encode() {
+        String type;
+        String value;
+        if (sortValue == null) {
+            type = SortValueType.NULL;
+            value = "";
+        } else if (sortValue instanceof String) {
+            type = SortValueType.STRING;
+            value = (String) sortValue;
+        } else if (sortValue instanceof Double) {
+            type = SortValueType.DOUBLE;
+            value = sortValue.toString();
+        } else if (sortValue instanceof Integer) {
+            type = SortValueType.INTEGER;
+            value = sortValue.toString();
+        } else if (sortValue instanceof Long) {
+            type = SortValueType.LONG;
+            value = sortValue.toString();
+        } else if (sortValue instanceof LocalDate) {
+            type = SortValueType.DATE;
+            value = sortValue.toString();
+        } else if (sortValue instanceof LocalDateTime) {
+            type = SortValueType.DATE_TIME;
+            value = sortValue.toString();
+        } else {
+            throw new IllegalStateException("Cannot encode sort value of type " + sortValue.getClass());
+        }
+        String encodedValue = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        String joined = relevance + SEPARATOR + type + SEPARATOR + encodedValue + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by encode.
+     * @param token Token received from the client.
+     * @return The cursor represented by the token.
+     * @throws IllegalArgumentException If the token is not a valid cursor.
+     */
+    public static SearchCursor decode(String token) {
+        try {
+            String joined = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = joined.split(SEPARATOR, -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            int relevance = Integer.parseInt(parts[0]);
+            String value = new String(Base64.getUrlDecoder().decode(parts[2]), StandardCharsets.UTF_8);
+            long id = Long.parseLong(parts[3]);
+            return new SearchCursor(relevance, decodeSortValue(parts[1], value), id);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            // NumberFormatException is an IllegalArgumentException
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static Object decodeSortValue(String type, String value) {
+        switch (type) {
+            case SortValueType.NULL:
+                return null;
+            case SortValueType.STRING:
+                return value;
+            case SortValueType.DOUBLE:
+                return Double.valueOf(value);
+            case SortValueType.INTEGER:
+                return Integer.valueOf(value);
+            case SortValueType.LONG:
+                return Long.valueOf(value);
+            case SortValueType.DATE:
+                return LocalDate.parse(value);
+            case SortValueType.DATE_TIME:
+                return LocalDateTime.parse(value);
+            default:
+                throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package wasteless.service.searching_service;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the indexes of the indexed searching services up to date.
+ *
+ * Builds every index once the application has started, then passes each inserted, updated and deleted entity to the
+ * indexed searching services while it is being flushed. The resulting index updates are applied once the transaction
+ * commits, so rolled back writes never reach an index.
+ */
+public class SearchIndexSynchroniser extends AfterCommitEntityListener {
+
+    private final transient List<IndexedSearch> indexedSearches;
+
+    public SearchIndexSynchroniser(EntityManagerFactory entityManagerFactory, List<IndexedSearch> indexedSearches) {
+        super(entityManagerFactory);
+        this.indexedSearches = indexedSearches;
+    }
+
+    /**
+     * Builds every index from the database once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndexes() {
+        indexedSearches.forEach(IndexedSearch::rebuild);
+    }
+
+    @Override
+    protected List<Runnable> prepareChanges(Object entity, boolean deleted) {
+        return indexedSearches.stream()
+                .map(indexedSearch -> indexedSearch.prepareUpdate(entity, deleted))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,211 @@
+package wasteless.service.searching_service;
+
+import wasteless.controller.SaleItemController;
+import wasteless.model.*;
+import wasteless.service.searching_service.SearchingService.SearchResult;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded cache of the pages of sale listing search results, so the most popular searches are not run again for every
+ * request.
+ *
+ * Pages are keyed by the normalised search tokens, the filters, the sorting column and order, and the page number and
+ * size. Only the ids of the listings on each page and the total number of results are held; the listings themselves
+ * are retrieved by id for every request, so changes to a listing that do not affect which listings match (such as
+ * likes) are never served stale. The least recently used page is evicted once the cache is full, and pages expire once
+ * they are older than the time to live.
+ *
+ * Pages are invalidated by SearchCacheInvalidator once a write has committed. Adding, purchasing or otherwise writing
+ * a sale listing only invalidates the pages of searches whose filters admit the listing, as every other search is
+ * unaffected by it; the search tokens are not checked, so some unaffected pages are invalidated too. Writes to the
+ * inventory items, products, businesses and addresses that listings are searched by invalidate every page. Writes made
+ * through bulk queries bypass SearchCacheInvalidator, so must invalidate the cache themselves.
+ *
+ * The cache is safe for concurrent use. Searches are run outside of the lock, and a page found while the cache was
+ * being invalidated is never stored.
+ */
+public class SearchResultCache implements SearchCache {
+
+    private final int maximumSize;
+    private final long timeToLiveMillis;
+
+    private final Map<Key, Entry> entries;
+    private long generation = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    /**
+     * @param maximumSize Maximum number of pages held. A size of 0 disables the cache.
+     * @param timeToLiveMillis Time a page is held for, in milliseconds.
+     */
+    public SearchResultCache(int maximumSize, long timeToLiveMillis) {
+        this.maximumSize = maximumSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                boolean full = size() > SearchResultCache.this.maximumSize;
+                if (full) {
+                    evictions++;
+                }
+                return full;
+            }
+        };
+    }
+
+    private static class Key {
+        private final List<Object> values;
+
+        private Key(List<SearchToken> tokens, SaleItemController.FilterQuery filters, String sortBy, String orderBy,
+                    int pageNum, int perPage) {
+            this.values = Arrays.asList(SearchUtils.normaliseTokens(tokens), filters, sortBy, orderBy, pageNum,
+                    perPage);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Key && values.equals(((Key) o).values));
+        }
+
+        @Override
+        public int hashCode() {
+            return values.hashCode();
+        }
+    }
+
+    private static class Entry {
+        private final SaleItemController.FilterQuery filters;
+        private final List<Long> ids;
+        private final long resultsLength;
+        private final long expiresAt;
+
+        private Entry(SaleItemController.FilterQuery filters, List<Long> ids, long resultsLength, long expiresAt) {
+            this.filters = filters;
+            this.ids = ids;
+            this.resultsLength = resultsLength;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Obtains a page of search results from the cache, or runs the search and caches its page if it is missing or has
+     * expired.
+     * @param tokens Search tokens of the search.
+     * @param filters Filters of the search.
+     * @param sortBy Column the results are sorted by.
+     * @param orderBy Order the results are sorted in.
+     * @param pageNum Page number.
+     * @param perPage Number of results per page.
+     * @param search Runs the search.
+     * @param retrieve Retrieves the listings with the given ids, in the order of the ids.
+     * @return The page of search results.
+     */
+    public SearchResult find(List<SearchToken> tokens, SaleItemController.FilterQuery filters, String sortBy,
+                             String orderBy, int pageNum, int perPage, Supplier<SearchResult> search,
+                             Function<List<Long>, List<Searchable>> retrieve) {
+        if (maximumSize <= 0) {
+            return search.get();
+        }
+        Key key = new Key(tokens, filters, sortBy, orderBy, pageNum, perPage);
+        Entry cached;
+        synchronized (this) {
+            cached = entries.get(key);
+            if (cached != null && cached.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(key);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            List<Searchable> results = retrieve.apply(cached.ids);
+            // A listing missing from the database was deleted after the page was cached
+            if (results.size() == cached.ids.size()) {
+                synchronized (this) {
+                    hits++;
+                }
+                return new SearchResult(results, cached.resultsLength);
+            }
+        }
+
+        long generationBefore;
+        synchronized (this) {
+            misses++;
+            generationBefore = generation;
+        }
+        SearchResult result = search.get();
+        List<Long> ids = result.getResult().stream()
+                .map(Searchable::getId)
+                .collect(Collectors.toList());
+        synchronized (this) {
+            if (generation == generationBefore) {
+                entries.put(key, new Entry(filters, ids, result.getResultsLength(),
+                        System.currentTimeMillis() + timeToLiveMillis));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Captures the invalidation caused by a written entity. A sale listing only invalidates the pages of searches
+     * whose filters admit it. The entities listings are searched by invalidate every page.
+     * @param entity The inserted, updated or deleted entity.
+     * @return The invalidation to run, or null if the entity does not affect the cache.
+     */
+    @Override
+    public Runnable prepareInvalidation(Object entity) {
+        if (entity instanceof SaleItem) {
+            SaleItem saleItem = (SaleItem) entity;
+            Double price = saleItem.getPrice();
+            LocalDateTime closes = saleItem.getCloses();
+            String businessType = saleItem.getInventoryItem() == null
+                    || saleItem.getInventoryItem().getBusiness() == null
+                    ? null : saleItem.getInventoryItem().getBusiness().getBusinessType();
+            return () -> invalidateMatching(filters -> SearchUtils.matchesFilters(businessType, price, closes, filters));
+        }
+        if (entity instanceof InventoryItem || entity instanceof Product || entity instanceof Business
+                || entity instanceof Address) {
+            return this::invalidate;
+        }
+        return null;
+    }
+
+    /**
+     * Discards the pages of the searches whose filters match.
+     * @param filtersMatch Tests the filters of a search.
+     */
+    public synchronized void invalidateMatching(Predicate<SaleItemController.FilterQuery> filtersMatch) {
+        generation++;
+        int sizeBefore = entries.size();
+        entries.values().removeIf(entry -> filtersMatch.test(entry.filters));
+        invalidations += sizeBefore - entries.size();
+    }
+
+    /**
+     * Discards every page held by the cache.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    /**
+     * @return The hit, miss, eviction and invalidation counts of the cache, and the number of pages it holds.
+     */
+    public synchronized Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("hits", hits);
+        statistics.put("misses", misses);
+        statistics.put("evictions", evictions);
+        statistics.put("invalidations", invalidations);
+        statistics.put("size", (long) entries.size());
+        return statistics;
+    }
+}
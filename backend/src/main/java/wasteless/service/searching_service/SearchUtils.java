@@ -1,8 +1,13 @@
 package wasteless.service.searching_service;
 
+import wasteless.controller.SaleItemController;
 import wasteless.model.Searchable;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class SearchUtils {
 
@@ -22,6 +27,64 @@ public class SearchUtils {
         return list1;
     }
 
+    /**
+     * Normalises search tokens for use in cache keys. Terms are lowercased, as searches are case insensitive.
+     * @param tokens List of search tokens.
+     * @return List of the lowercase term and quotation of each token, comparable with equals.
+     */
+    public static List<List<Object>> normaliseTokens(List<SearchToken> tokens) {
+        return tokens.stream()
+                .map(token -> Arrays.<Object>asList(token.getTerm().toLowerCase(), token.inQuotes()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Applies the filtering conditions of a sale listing search to the attributes of a sale listing, as
+     * SaleItemSearchImpl does in SQL. As in SQL, a comparison against a missing value never matches.
+     * @param businessType Type of the business selling the listing.
+     * @param price Price of the listing.
+     * @param closes Closing date of the listing.
+     * @param filters Instance of FilterQuery that contains (possibly null) values defining filter conditions.
+     * @return True if the listing satisfies every filter condition.
+     */
+    public static boolean matchesFilters(String businessType, Double price, LocalDateTime closes,
+                                         SaleItemController.FilterQuery filters) {
+        if (filters.getBusinessType() != null
+                && (businessType == null || !like(businessType, filters.getBusinessType()))) {
+            return false;
+        }
+        if (filters.getMinPrice() != null && (price == null || price < filters.getMinPrice())) {
+            return false;
+        }
+        if (filters.getMaxPrice() != null && (price == null || price > filters.getMaxPrice())) {
+            return false;
+        }
+        if (filters.getEarliestClosingDate() != null
+                && (closes == null || closes.isBefore(filters.getEarliestClosingDate()))) {
+            return false;
+        }
+        return filters.getLatestClosingDate() == null
+                || (closes != null && !closes.isAfter(filters.getLatestClosingDate()));
+    }
+
+    /**
+     * Matches a value against an SQL LIKE pattern, where % matches any sequence of characters and _ matches any
+     * single character.
+     */
+    public static boolean like(String value, String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL).matcher(value).matches();
+    }
+
     private SearchUtils() {
         throw new IllegalStateException("Utility Class");
     }
@@ -11,8 +11,21 @@ import java.util.List;
  * Abstract searching service that defines a find method for classes to implement.
  * Used by classes to query a repository of objects that implement Searchable, such as User or Business,
  * by passing in a list of parameters.
+ *
+ * Searching services are singletons shared by concurrent requests, so must not keep any per-search state in fields.
+ * Criteria API components (builder, roots and joins) belong to a MatchPredicates instance created for each query.
  */
 public abstract class SearchingService {
+
+    /**
+     * How the total number of results is counted. EXACT always counts the matching results. ESTIMATED returns a
+     * cheaper upper bound instead for broad searches, whose tokens match most results anyway.
+     */
+    public enum CountMode {
+        EXACT,
+        ESTIMATED
+    }
+
     public abstract SearchResult find(List<SearchToken> parameters, long pageNum, long perPage, String sortBy, String orderBy);
 
     /**
@@ -28,9 +41,11 @@ public abstract class SearchingService {
      * @param cb Criteria Builder.
      * @param parameters The list of tokens.
      * @param exactMatch Boolean to tell method whether it is a exact match or partial match.
+     * @param matchPredicates Constructs the predicate of each token, from the roots of the query being built.
      * @return Processed match.
      */
-    protected Predicate constructPredicates(CriteriaBuilder cb, List<SearchToken> parameters, Boolean exactMatch) {
+    protected Predicate constructPredicates(CriteriaBuilder cb, List<SearchToken> parameters, Boolean exactMatch,
+                                            MatchPredicates matchPredicates) {
         int state = 0;
 
         Predicate match = cb.conjunction();
@@ -47,7 +62,7 @@ public abstract class SearchingService {
                 // If token is AND, consume and set state to 0
                 state = 0;
             } else {
-                Predicate predicate = getPredicate(exactMatch, token, lowerCaseToken);
+                Predicate predicate = getPredicate(exactMatch, token, lowerCaseToken, matchPredicates);
 
                 // Joins predicate to previous predicate with conjunction, based on the state set by the
                 // previous token
@@ -64,41 +79,68 @@ public abstract class SearchingService {
     }
 
     /**
-     * Calls abstract exactMatchPredicate or partialMatchPredicate depending on if the function is set to exact match.
+     * Calls exactMatchPredicate or partialMatchPredicate depending on if the function is set to exact match.
      * If the token is in quotes, always calls exactMatchPredicate.
      *
      * @param exactMatch Boolean variable defining if normal tokens are to be matched partially or exactly.
      * @param token Instance of SearchToken.
      * @param lowerCaseToken Contents of SearchToken, converted to lowercase
+     * @param matchPredicates Constructs the predicate of the token.
      * @return Predicate set by return value of exactMatchPredicate() or partialMatchPredicate()
      */
-    private Predicate getPredicate(Boolean exactMatch, SearchToken token, String lowerCaseToken) {
+    private Predicate getPredicate(Boolean exactMatch, SearchToken token, String lowerCaseToken,
+                                   MatchPredicates matchPredicates) {
         Predicate predicate;
         if (Boolean.TRUE.equals(exactMatch) || Boolean.TRUE.equals(token.inQuotes())){
-            predicate = exactMatchPredicate(lowerCaseToken);
+            predicate = matchPredicates.exactMatchPredicate(lowerCaseToken);
         } else {
-            predicate = partialMatchPredicate(lowerCaseToken);
+            predicate = matchPredicates.partialMatchPredicate(lowerCaseToken);
         }
         return predicate;
     }
 
     /**
-     * Defines a static function for matching the token to attribute values exactly.
-     * Which attributes are matched are delegated to the child classes to implement.
-     *
-     * @param lowerCaseToken Search token, in lowercase to match.
-     * @return Instance of Predicate, defining exact match conditions for query.
+     * Checks whether a search is broad, meaning that it has no search terms, or only unquoted terms too short to
+     * narrow down the results much. Conjunctions are not counted as terms.
+     * @param parameters The list of tokens.
+     * @param broadTermLength Terms shorter than this length are considered broad.
+     * @return Whether every term of the search is broad.
      */
-    protected abstract Predicate exactMatchPredicate(String lowerCaseToken);
+    protected static boolean isBroadSearch(List<SearchToken> parameters, int broadTermLength) {
+        for (SearchToken token : parameters) {
+            String lowerCaseToken = token.getTerm().toLowerCase();
+            boolean conjunction = (lowerCaseToken.equals("or") || lowerCaseToken.equals("and"))
+                    && Boolean.FALSE.equals(token.inQuotes());
+            if (!conjunction && (Boolean.TRUE.equals(token.inQuotes()) || lowerCaseToken.length() >= broadTermLength)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     /**
-     * Defines a static function for matching the token to attribute values partially.
-     * Which attributes are matched are delegated to the child classes to implement.
-     *
-     * @param lowerCaseToken Search token, in lowercase to match.
-     * @return Instance of Predicate, defining partial match conditions for query.
+     * Constructs the predicates matching a single token, from the roots and joins of one query.
+     * Implemented by the query contexts of child classes, which are created for each query so that concurrent
+     * searches never share Criteria API components.
      */
-    protected abstract Predicate partialMatchPredicate(String lowerCaseToken);
+    protected interface MatchPredicates {
+
+        /**
+         * Defines a function for matching the token to attribute values exactly.
+         *
+         * @param lowerCaseToken Search token, in lowercase to match.
+         * @return Instance of Predicate, defining exact match conditions for query.
+         */
+        Predicate exactMatchPredicate(String lowerCaseToken);
+
+        /**
+         * Defines a function for matching the token to attribute values partially.
+         *
+         * @param lowerCaseToken Search token, in lowercase to match.
+         * @return Instance of Predicate, defining partial match conditions for query.
+         */
+        Predicate partialMatchPredicate(String lowerCaseToken);
+    }
 
     /**
      * Companion class for controller to retrieve searching result and resultsLength.
@@ -107,10 +149,17 @@ public abstract class SearchingService {
     public static class SearchResult {
         private final List<Searchable> result;
         private final long resultsLength;
+        /** Token of the cursor for the next page when keyset pagination is used, null otherwise or on the last page */
+        private final String nextCursor;
 
         public SearchResult(List<Searchable> result, long resultsLength){
+            this(result, resultsLength, null);
+        }
+
+        public SearchResult(List<Searchable> result, long resultsLength, String nextCursor) {
             this.result = result;
             this.resultsLength = resultsLength;
+            this.nextCursor = nextCursor;
         }
     }
 }
@@ -0,0 +1,264 @@
+package wasteless.service.searching_service;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.model.Searchable;
+import wasteless.model.User;
+import wasteless.repository.UserRepository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Searching service that answers user searches from an in-memory trigram index of the users' names, instead of
+ * querying the database with LIKE predicates. Only the users on the requested page are retrieved from the database.
+ *
+ * Follows the ordering rules of UserSearchImpl: when sorting by a valid sort option, results are ordered by that
+ * column only; otherwise, exact matches are ranked above partial matches, ordered by first name.
+ *
+ * The index is built on startup and kept up to date by SearchIndexSynchroniser.
+ */
+public class UserIndexedSearchImpl extends KeysetSearchingService implements IndexedSearch {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final NgramIndex<UserEntry> index = new NgramIndex<>(entry -> Arrays.asList(
+            entry.getFirstName(),
+            entry.getMiddleName(),
+            entry.getLastName(),
+            entry.getNickname()));
+
+    private static final Map<String, Function<UserEntry, String>> SORT_OPTIONS = Map.of(
+            "nickname", UserEntry::getNickname,
+            "firstName", UserEntry::getFirstName,
+            "middleName", UserEntry::getMiddleName,
+            "lastName", UserEntry::getLastName,
+            "email", UserEntry::getEmail,
+            "role", UserEntry::getRole);
+
+    public UserIndexedSearchImpl(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Searchable and sortable attributes of a user, as stored in the index.
+     */
+    @Getter
+    @Builder
+    static class UserEntry {
+        private final long userId;
+        private final String firstName;
+        private final String middleName;
+        private final String lastName;
+        private final String nickname;
+        private final String email;
+        private final String role;
+
+        static UserEntry of(User user) {
+            return builder()
+                    .userId(user.getUserId())
+                    .firstName(user.getFirstName())
+                    .middleName(user.getMiddleName())
+                    .lastName(user.getLastName())
+                    .nickname(user.getNickname())
+                    .email(user.getEmail())
+                    .role(user.getRole())
+                    .build();
+        }
+    }
+
+    /**
+     * Main search method. Matches the tokens against the index, orders and paginates the matching users in memory,
+     * and retrieves the users on the requested page from the database.
+     *
+     * @param parameters The list of tokens.
+     * @param pageNum The current page that frontend will display.
+     * @param perPage Total items each page will display.
+     * @param sortBy The field name that needs to be sorted.
+     * @param orderBy The order in asc or desc.
+     * @return The page of users found, and the total number of users matching partially.
+     */
+    @Override
+    public SearchResult find(List<SearchToken> parameters, long pageNum, long perPage, String sortBy, String orderBy) {
+        List<UserEntry> matches = orderedMatches(parameters, sortBy, orderBy).matches;
+
+        List<Long> pageIds = matches.stream()
+                .skip((pageNum - 1) * perPage)
+                .limit(perPage)
+                .map(UserEntry::getUserId)
+                .collect(Collectors.toList());
+        return new SearchResult(retrieveInOrder(pageIds), matches.size());
+    }
+
+    /**
+     * Keyset pagination search. Orders the matching users as find does, and takes the page from the first user
+     * ordered after the cursor.
+     *
+     * @param parameters The list of tokens.
+     * @param cursor Position of the last user of the previous page, or null for the first page.
+     * @param perPage Total items each page will display.
+     * @param sortBy The field name that needs to be sorted.
+     * @param orderBy The order in asc or desc.
+     * @return The page of users found, the total number of users matching partially, and the cursor of the next page.
+     */
+    @Override
+    public SearchResult findAfter(List<SearchToken> parameters, SearchCursor cursor, long perPage, String sortBy,
+                                  String orderBy) {
+        OrderedMatches ordered = orderedMatches(parameters, sortBy, orderBy);
+        List<UserEntry> matches = ordered.matches;
+
+        int start = 0;
+        if (cursor != null) {
+            try {
+                while (start < matches.size() && ordered.compareToCursor(matches.get(start), cursor) <= 0) {
+                    start++;
+                }
+            } catch (ClassCastException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        List<UserEntry> page = matches.subList(start, (int) Math.min(start + perPage, matches.size()));
+        String nextCursor = null;
+        if (start + perPage < matches.size()) {
+            UserEntry last = page.get(page.size() - 1);
+            nextCursor = new SearchCursor(ordered.relevance(last), ordered.sortKey.apply(last), last.getUserId())
+                    .encode();
+        }
+
+        List<Long> pageIds = page.stream()
+                .map(UserEntry::getUserId)
+                .collect(Collectors.toList());
+        return new SearchResult(retrieveInOrder(pageIds), matches.size(), nextCursor);
+    }
+
+    /**
+     * The users matching a search, in the order they are returned, along with the values they are ordered by.
+     */
+    private static class OrderedMatches {
+        private final List<UserEntry> matches;
+        private final Set<Long> exactIds;
+        private final Function<UserEntry, String> sortKey;
+        private final boolean ascending;
+
+        private OrderedMatches(Collection<UserEntry> partialMatches, Set<Long> exactIds,
+                               Function<UserEntry, String> sortKey, boolean ascending) {
+            this.exactIds = exactIds;
+            this.sortKey = sortKey;
+            this.ascending = ascending;
+            this.matches = partialMatches.stream()
+                    .sorted((first, second) -> compare(
+                            relevance(first), sortKey.apply(first), first.getUserId(),
+                            relevance(second), sortKey.apply(second), second.getUserId()))
+                    .collect(Collectors.toList());
+        }
+
+        /**
+         * @return 1 if the user matches the search exactly and users are ranked by relevance, otherwise 0.
+         */
+        private int relevance(UserEntry entry) {
+            return exactIds.contains(entry.getUserId()) ? 1 : 0;
+        }
+
+        private int compareToCursor(UserEntry entry, SearchCursor cursor) {
+            return compare(relevance(entry), sortKey.apply(entry), entry.getUserId(),
+                    cursor.getRelevance(), (String) cursor.getSortValue(), cursor.getId());
+        }
+
+        /**
+         * Orders by relevance (descending), then by the sort key with missing values first when ascending, then by id.
+         */
+        private int compare(int relevance, String key, long id, int otherRelevance, String otherKey, long otherId) {
+            int comparison = Integer.compare(otherRelevance, relevance);
+            if (comparison == 0) {
+                comparison = Comparator.nullsFirst(Comparator.<String>naturalOrder()).compare(key, otherKey);
+                comparison = ascending ? comparison : -comparison;
+            }
+            if (comparison == 0) {
+                comparison = Long.compare(id, otherId);
+            }
+            return comparison;
+        }
+    }
+
+    /**
+     * Matches the tokens against the index and orders the matching users. When sorting by a valid sort option, users
+     * are ordered by that column only; otherwise, exact matches are ranked above partial matches, ordered by first
+     * name.
+     */
+    private OrderedMatches orderedMatches(List<SearchToken> parameters, String sortBy, String orderBy) {
+        NgramIndex.Matches<UserEntry> matches = index.search(parameters);
+        Collection<UserEntry> partialMatches = matches.getPartial().values();
+        if (SORT_OPTIONS.containsKey(sortBy)) {
+            return new OrderedMatches(partialMatches, Collections.emptySet(), lowerCase(SORT_OPTIONS.get(sortBy)),
+                    !orderBy.equals("desc"));
+        }
+        return new OrderedMatches(partialMatches, matches.getExactIds(), lowerCase(UserEntry::getFirstName), true);
+    }
+
+    /**
+     * Retrieves the users with the given ids from the database, in the order of the ids.
+     * Users that no longer exist are skipped.
+     */
+    private List<Searchable> retrieveInOrder(List<Long> ids) {
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(ids)) {
+            users.put(user.getUserId(), user);
+        }
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return A function obtaining the lowercase value of a column, or null if the value is missing.
+     */
+    private static Function<UserEntry, String> lowerCase(Function<UserEntry, String> column) {
+        return entry -> {
+            String value = column.apply(entry);
+            return value == null ? null : value.toLowerCase();
+        };
+    }
+
+    /**
+     * Loads every user from the database into the index.
+     */
+    @Override
+    public void rebuild() {
+        Map<Long, UserEntry> entries = transactionTemplate.execute(status -> {
+            Map<Long, UserEntry> loaded = new HashMap<>();
+            for (User user : userRepository.findAll()) {
+                loaded.put(user.getUserId(), UserEntry.of(user));
+            }
+            return loaded;
+        });
+        index.rebuild(entries);
+    }
+
+    /**
+     * Captures the changes to the index made by a written user.
+     * @param entity The inserted, updated or deleted entity.
+     * @param deleted Whether the entity was deleted.
+     * @return The update to apply to the index, or null if the entity is not a user.
+     */
+    @Override
+    public Runnable prepareUpdate(Object entity, boolean deleted) {
+        if (!(entity instanceof User)) {
+            return null;
+        }
+        User user = (User) entity;
+        long userId = user.getUserId();
+        if (deleted) {
+            return () -> index.remove(userId);
+        }
+        UserEntry entry = UserEntry.of(user);
+        return () -> index.put(userId, entry);
+    }
+}
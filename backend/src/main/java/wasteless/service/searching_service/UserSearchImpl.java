@@ -1,15 +1,19 @@
 package wasteless.service.searching_service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import wasteless.model.Searchable;
 import wasteless.model.User;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -17,29 +21,25 @@ import java.util.List;
  * find. This class implements the function to search a repository for users given an ordered
  * list of strings called tokens. It does so by constructing a query that selects from the user
  * table given a set of criteria joined by conjunctions OR and AND.
+ *
+ * <p>The component is shared by concurrent requests, so the criteria builder and root of each query are kept in a
+ * QueryContext created for that query, rather than in fields.
  */
 @Component
-public class UserSearchImpl extends SearchingService {
+public class UserSearchImpl extends KeysetSearchingService {
 
   /** Entity manager object */
   @PersistenceContext private EntityManager entityManager;
 
-  /**
-   * Criteria builder. This object calls methods such as like, or, and, orderBy, etc to construct
-   * queries.
-   */
-  private CriteriaBuilder cb;
+  @Value("${search.count.mode:EXACT}")
+  private CountMode countMode;
 
-  /**
-   * The root where queries search for results. The path to columns and its values can be specified
-   * using .get
-   */
-  private Root<User> user;
+  @Value("${search.count.broad-term-length:3}")
+  private int broadTermLength;
 
-  private final String[] sortOption = new String[] {"nickname", "firstName", "middleName", "lastName", "email", "role"};
+  @Autowired private SearchCountCache userCountCache;
 
-  private long pageNum;
-  private long perPage;
+  private final String[] sortOption = new String[] {"nickname", "firstName", "middleName", "lastName", "email", "role"};
 
   private static class Attribute {
     private static final String FIRST_NAME = "firstName";
@@ -49,6 +49,84 @@ public class UserSearchImpl extends SearchingService {
     private static final String NICKNAME = "nickname";
   }
 
+  /**
+   * The Criteria API components of a single query. A new context is created for each query, so concurrent searches
+   * never share a builder or root.
+   */
+  private static class QueryContext implements MatchPredicates {
+
+    /**
+     * Criteria builder. This object calls methods such as like, or, and, orderBy, etc to construct
+     * queries.
+     */
+    private final CriteriaBuilder cb;
+
+    /**
+     * The root where queries search for results. The path to columns and its values can be specified
+     * using .get
+     */
+    private final Root<User> user;
+
+    private QueryContext(CriteriaBuilder cb, CriteriaQuery<?> query) {
+      this.cb = cb;
+      this.user = query.from(User.class);
+    }
+
+    /**
+     * Constructs a predicate to match the user's name exactly; first name, last name and middle name.
+     *
+     * @param lowerCaseToken A token (converted to lower case for case-insensitivity) for matching
+     * @return the constructed predicate
+     */
+    @Override
+    public Predicate exactMatchPredicate(String lowerCaseToken) {
+      // First name
+      Path<String> firstNamePath = user.get(Attribute.FIRST_NAME);
+      Predicate p2 = cb.like(cb.lower(firstNamePath), lowerCaseToken);
+
+      // Middle name
+      Path<String> middleNamePath = user.get(Attribute.MIDDLE_NAME);
+      p2 = cb.or(p2, cb.like(cb.lower(middleNamePath), lowerCaseToken));
+
+      // Last name
+      Path<String> lastNamePath = user.get(Attribute.LAST_NAME);
+      p2 = cb.or(p2, cb.like(cb.lower(lastNamePath), lowerCaseToken));
+
+      // Nickname
+      Path<String> nicknamePath = user.get(Attribute.NICKNAME);
+      p2 = cb.or(p2, cb.like(cb.lower(nicknamePath), lowerCaseToken));
+
+      return p2;
+    }
+
+    /**
+     * Constructs a predicate to match the user's name partially; first name, last name and middle
+     * name
+     *
+     * @param lowerCaseToken A token (converted to lower case for case-insensitivity) for matching
+     * @return the constructed predicate
+     */
+    @Override
+    public Predicate partialMatchPredicate(String lowerCaseToken) {
+      // First name
+      Path<String> firstNamePath = user.get(Attribute.FIRST_NAME);
+      Predicate p2 = cb.like(cb.lower(firstNamePath), "%" + lowerCaseToken + "%");
+
+      // Middle name
+      Path<String> middleNamePath = user.get(Attribute.MIDDLE_NAME);
+      p2 = cb.or(p2, cb.like(cb.lower(middleNamePath), "%" + lowerCaseToken + "%"));
+
+      // Last name
+      Path<String> lastNamePath = user.get(Attribute.LAST_NAME);
+      p2 = cb.or(p2, cb.like(cb.lower(lastNamePath), "%" + lowerCaseToken + "%"));
+
+      // Nickname
+      Path<String> nicknamePath = user.get(Attribute.NICKNAME);
+      p2 = cb.or(p2, cb.like(cb.lower(nicknamePath), "%" + lowerCaseToken + "%"));
+      return p2;
+    }
+  }
+
   /**
    * Main search method. Given the list of tokens, it runs through each token and constructs two
    * main predicates: - Exact matches - Partial matches For each token, a new predicate within the
@@ -70,24 +148,16 @@ public class UserSearchImpl extends SearchingService {
    */
   @Override
   public SearchResult find(List<SearchToken> parameters, long pageNum, long perPage, String sortBy, String orderBy) {
-    this.pageNum = pageNum;
-    this.perPage = perPage;
-
-    cb = entityManager.getCriteriaBuilder();
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
     CriteriaQuery<User> query = cb.createQuery(User.class);
-    user = query.from(User.class);
+    QueryContext context = new QueryContext(cb, query);
 
-    CriteriaBuilder countBuilder = entityManager.getCriteriaBuilder();
-    CriteriaQuery<Long> countQuery = countBuilder.createQuery(Long.class);
-    Root<User> countRoot = countQuery.from(User.class);
+    Predicate exactMatch = constructPredicates(cb, parameters, true, context);
+    Predicate partialMatch = constructPredicates(cb, parameters, false, context);
 
-    Predicate exactMatch = constructPredicates(cb, parameters, true);
-    Predicate partialMatch = constructPredicates(cb, parameters, false);
-    Predicate count = constructPredicates(cb, parameters, false);
-
-    List<Searchable> exactResults =  getSearchResults(query, exactMatch, sortBy, orderBy);
-    List<Searchable> partialResults = getSearchResults(query, partialMatch, sortBy, orderBy);
-    long resultsLength = entityManager.createQuery(countQuery.select(countBuilder.count(countRoot)).where(count)).getSingleResult();
+    List<Searchable> exactResults =  getSearchResults(context, query, exactMatch, sortBy, orderBy, pageNum, perPage);
+    List<Searchable> partialResults = getSearchResults(context, query, partialMatch, sortBy, orderBy, pageNum, perPage);
+    long resultsLength = countResults(parameters);
 
     if(Arrays.asList(sortOption).contains(sortBy)){
       return new SearchResult(partialResults, resultsLength);
@@ -96,27 +166,130 @@ public class UserSearchImpl extends SearchingService {
     }
   }
 
+  /**
+   * Keyset pagination search. Orders users as find does, except that users are ordered by their numeric id last,
+   * and selects the users ordered after the cursor instead of skipping earlier pages. When sorting by a valid sort
+   * option, users are ordered by that column only; otherwise, exact matches are ranked above partial matches, ordered
+   * by first name. One more user than the page size is retrieved to find whether there is a next page.
+   *
+   * @param parameters The list of tokens.
+   * @param cursor Position of the last user of the previous page, or null for the first page.
+   * @param perPage Total items each page will display.
+   * @param sortBy The field name that needs to be sorted.
+   * @param orderBy The order in asc or desc.
+   * @return The page of users found, the total number of users matching partially, and the cursor of the next page.
+   */
+  @Override
+  public SearchResult findAfter(List<SearchToken> parameters, SearchCursor cursor, long perPage, String sortBy,
+                                String orderBy) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = cb.createTupleQuery();
+    QueryContext context = new QueryContext(cb, query);
+    Root<User> user = context.user;
+
+    Predicate partialMatch = constructPredicates(cb, parameters, false, context);
+    Path<Long> userId = user.get(Attribute.USER_ID);
+
+    Expression<Integer> relevance;
+    Expression<String> sortKey;
+    boolean ascending;
+    if (Arrays.asList(sortOption).contains(sortBy)) {
+      // Users are not ranked by relevance when sorting by a column
+      relevance = null;
+      sortKey = cb.lower(user.get(sortBy));
+      ascending = !orderBy.equals("desc");
+    } else {
+      relevance = cb.<Integer>selectCase()
+              .when(constructPredicates(cb, parameters, true, context), 1)
+              .otherwise(0);
+      sortKey = cb.lower(user.get(Attribute.FIRST_NAME));
+      ascending = true;
+    }
+
+    Predicate predicate = partialMatch;
+    if (cursor != null) {
+      predicate = cb.and(partialMatch, keysetPredicate(cb, relevance, sortKey, ascending, userId, cursor));
+    }
+    List<Selection<?>> selections = new ArrayList<>();
+    selections.add(user);
+    selections.add(sortKey);
+    List<Order> orders = new ArrayList<>();
+    if (relevance != null) {
+      selections.add(relevance);
+      orders.add(cb.desc(relevance));
+    }
+    orders.add(ascending ? cb.asc(sortKey) : cb.desc(sortKey));
+    orders.add(cb.asc(userId));
+    query.multiselect(selections)
+            .where(predicate)
+            .orderBy(orders);
+    List<Tuple> rows = entityManager.createQuery(query)
+            .setMaxResults((int) perPage + 1)
+            .getResultList();
+
+    List<Searchable> results = new ArrayList<>();
+    for (Tuple row : rows.subList(0, (int) Math.min(perPage, rows.size()))) {
+      results.add(row.get(0, User.class));
+    }
+    String nextCursor = null;
+    if (rows.size() > perPage) {
+      Tuple last = rows.get((int) perPage - 1);
+      int lastRelevance = relevance != null ? ((Number) last.get(2)).intValue() : 0;
+      nextCursor = new SearchCursor(lastRelevance, last.get(1), last.get(0, User.class).getId()).encode();
+    }
+    return new SearchResult(results, countResults(parameters), nextCursor);
+  }
+
+  /**
+   * Counts the users that partially match the parameters. Counts are cached by userCountCache. In the ESTIMATED count
+   * mode, broad searches are counted as the total number of users instead, an upper bound that needs no predicates.
+   *
+   * @param parameters The list of tokens.
+   * @return The number of users matching partially, or an upper bound of it for estimated broad searches.
+   */
+  private long countResults(List<SearchToken> parameters) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+    QueryContext countContext = new QueryContext(cb, countQuery);
+    countQuery.select(cb.count(countContext.user));
+
+    if (countMode == CountMode.ESTIMATED && isBroadSearch(parameters, broadTermLength)) {
+      return userCountCache.count(Collections.emptyList(), null, true,
+              () -> entityManager.createQuery(countQuery).getSingleResult());
+    }
+    return userCountCache.count(parameters, null, false, () -> {
+      Predicate count = constructPredicates(cb, parameters, false, countContext);
+      return entityManager.createQuery(countQuery.where(count)).getSingleResult();
+    });
+  }
+
   /**
    * Runs the query to select user based on given predicate and returns the results.
+   * @param context Query context the query and predicate were constructed from.
    * @param query CriteriaQuery used to select users from database.
    * @param predicate Predicate instance defining criteria to select users by.
    * @param sortBy The field name that needs to be sorted.
    * @param orderBy The order in asc or desc.
+   * @param pageNum The current page that frontend will display.
+   * @param perPage Total items each page will display.
    * @return List of selected Users
    */
-  private List<Searchable> getSearchResults(CriteriaQuery<User> query, Predicate predicate, String sortBy, String orderBy) {
+  private List<Searchable> getSearchResults(QueryContext context, CriteriaQuery<User> query, Predicate predicate,
+                                            String sortBy, String orderBy, long pageNum, long perPage) {
+    CriteriaBuilder cb = context.cb;
+    Root<User> user = context.user;
     TypedQuery<User> typedQuery;
     if (Arrays.asList(sortOption).contains(sortBy)){
       if (orderBy.equals("desc")){
         typedQuery = setPagination(entityManager.createQuery(query.select(user).where(predicate)
-                .orderBy(cb.desc(cb.lower(user.get(sortBy))), cb.asc(cb.lower(user.get(Attribute.USER_ID))))));
+                .orderBy(cb.desc(cb.lower(user.get(sortBy))), cb.asc(cb.lower(user.get(Attribute.USER_ID))))), pageNum, perPage);
       } else {
         typedQuery = setPagination(entityManager.createQuery(query.select(user).where(predicate)
-                .orderBy(cb.asc(cb.lower(user.get(sortBy))), cb.asc(cb.lower(user.get(Attribute.USER_ID))))));
+                .orderBy(cb.asc(cb.lower(user.get(sortBy))), cb.asc(cb.lower(user.get(Attribute.USER_ID))))), pageNum, perPage);
       }
     } else {
       typedQuery = setPagination(entityManager.createQuery(query.select(user).where(predicate)
-              .orderBy(cb.asc(cb.lower(user.get(Attribute.FIRST_NAME))), cb.asc(cb.lower(user.get(Attribute.USER_ID))))));
+              .orderBy(cb.asc(cb.lower(user.get(Attribute.FIRST_NAME))), cb.asc(cb.lower(user.get(Attribute.USER_ID))))), pageNum, perPage);
     }
     return new ArrayList<>(typedQuery.getResultList());
   }
@@ -124,64 +297,14 @@ public class UserSearchImpl extends SearchingService {
   /**
    * Sets typedQuery first result and max result for pagination.
    * @param paginationQuery TypedQuery to set first result and max result for pagination.
+   * @param pageNum The current page that frontend will display.
+   * @param perPage Total items each page will display.
    * @return TypedQuery with first result and max result set.
    */
-  private TypedQuery<User> setPagination (TypedQuery<User> paginationQuery){
+  private static TypedQuery<User> setPagination(TypedQuery<User> paginationQuery, long pageNum, long perPage){
     long firstResultIndex = (pageNum - 1) * perPage;
     paginationQuery.setFirstResult((int) firstResultIndex);
     paginationQuery.setMaxResults((int) perPage);
     return paginationQuery;
   }
-
-  /**
-   * Constructs a predicate to match the user's name exactly; first name, last name and middle name.
-   *
-   * @param lowerCaseToken A token (converted to lower case for case-insensitivity) for matching
-   * @return the constructed predicate
-   */
-  protected Predicate exactMatchPredicate(String lowerCaseToken) {
-    // First name
-    Path<String> firstNamePath = user.get(Attribute.FIRST_NAME);
-    Predicate p2 = cb.like(cb.lower(firstNamePath), lowerCaseToken);
-
-    // Middle name
-    Path<String> middleNamePath = user.get(Attribute.MIDDLE_NAME);
-    p2 = cb.or(p2, cb.like(cb.lower(middleNamePath), lowerCaseToken));
-
-    // Last name
-    Path<String> lastNamePath = user.get(Attribute.LAST_NAME);
-    p2 = cb.or(p2, cb.like(cb.lower(lastNamePath), lowerCaseToken));
-
-    // Nickname
-    Path<String> nicknamePath = user.get(Attribute.NICKNAME);
-    p2 = cb.or(p2, cb.like(cb.lower(nicknamePath), lowerCaseToken));
-
-    return p2;
-  }
-
-  /**
-   * Constructs a predicate to match the user's name partially; first name, last name and middle
-   * name
-   *
-   * @param lowerCaseToken A token (converted to lower case for case-insensitivity) for matching
-   * @return the constructed predicate
-   */
-  protected Predicate partialMatchPredicate(String lowerCaseToken) {
-    // First name
-    Path<String> firstNamePath = user.get(Attribute.FIRST_NAME);
-    Predicate p2 = cb.like(cb.lower(firstNamePath), "%" + lowerCaseToken + "%");
-
-    // Middle name
-    Path<String> middleNamePath = user.get(Attribute.MIDDLE_NAME);
-    p2 = cb.or(p2, cb.like(cb.lower(middleNamePath), "%" + lowerCaseToken + "%"));
-
-    // Last name
-    Path<String> lastNamePath = user.get(Attribute.LAST_NAME);
-    p2 = cb.or(p2, cb.like(cb.lower(lastNamePath), "%" + lowerCaseToken + "%"));
-
-    // Nickname
-    Path<String> nicknamePath = user.get(Attribute.NICKNAME);
-    p2 = cb.or(p2, cb.like(cb.lower(nicknamePath), "%" + lowerCaseToken + "%"));
-    return p2;
-  }
 }
@@ -1,153 +1,129 @@
 package wasteless;
 
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.params.ParameterizedTest;
-import org.junit.jupiter.params.provider.CsvSource;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
-import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
-import wasteless.model.MarketplaceCard;
-import wasteless.model.User;
-import wasteless.repository.MarketplaceCardRepository;
-import wasteless.service.NotificationService;
-import wasteless.test_helpers.MarketplaceDataCreator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.model.NotificationCategory;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
-@SpringBootTest
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/CreateUserData.sql"})
+@SpringBootTest(properties = "marketplace.expired.batch-size=2")
 class CardExpiryIntegrationTest {
 
     @Autowired
     private CardExpiryRunner cardExpiryRunner;
 
-    @MockBean
-    private MarketplaceCardRepository marketplaceCardRepository;
-
-    @MockBean
-    private NotificationService notificationService;
-
-    @Captor
-    ArgumentCaptor<LocalDateTime> currentDate;
-
-    @Captor
-    ArgumentCaptor<LocalDateTime> oneDayAgo;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
-    @Captor
-    ArgumentCaptor<ApplicationArguments> appArgs;
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.update("DELETE FROM notification");
+        jdbcTemplate.update("INSERT INTO marketplace_keyword (name, created) VALUES ('Fruit', ?)",
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
 
-    private void mockToDeleteCards(List<MarketplaceCard> fakeCards) {
-        Mockito.when(marketplaceCardRepository.findAllByDisplayPeriodEndBefore(Mockito.any(LocalDateTime.class)))
-                .thenReturn(fakeCards);
+    /**
+     * Creates a card with a keyword whose display period ended some hours ago.
+     * @return the ID of the card
+     */
+    private int createCard(long creatorId, int hoursExpired, boolean notifiedExpiring) {
+        jdbcTemplate.update("INSERT INTO marketplace_card (creator_id, section, created, display_period_end, title, "
+                        + "description, notified_expiring) VALUES (?, 'ForSale', ?, ?, 'Apples', 'Red', ?)",
+                creatorId, Timestamp.valueOf(LocalDateTime.now().minusWeeks(2)),
+                Timestamp.valueOf(LocalDateTime.now().minusHours(hoursExpired)), notifiedExpiring);
+        int cardId = jdbcTemplate.queryForObject("SELECT MAX(marketplace_card_id) FROM marketplace_card", Integer.class);
+        jdbcTemplate.update("INSERT INTO card_keywords (marketplace_card_id, marketplace_keyword_id) "
+                + "SELECT ?, MAX(marketplace_keyword_id) FROM marketplace_keyword", cardId);
+        return cardId;
     }
 
-    private void mockExpiredCards(List<MarketplaceCard> fakeCards) {
-        Mockito.when(marketplaceCardRepository
-                .findAllByDisplayPeriodEndBetween(Mockito.any(LocalDateTime.class), Mockito.any(LocalDateTime.class)))
-                .thenReturn(fakeCards);
+    private List<Integer> notifiedCardIds(long userId, NotificationCategory category) {
+        return jdbcTemplate.queryForList("SELECT action_id FROM notification WHERE user_id = ? AND category = ? "
+                + "ORDER BY action_id", Integer.class, userId, category.ordinal());
     }
 
-    @Test
-    void beanIsLoadedIntoContext_findExtendableCardCalls_isGreaterThanZero() {
-        cardExpiryRunner.run(Mockito.eq(appArgs.capture()));
-        Mockito.verify(marketplaceCardRepository, Mockito.atLeast(1))
-                .findAllByDisplayPeriodEndBetween(oneDayAgo.capture(), currentDate.capture());
+    private boolean isNotifiedExpiring(int cardId) {
+        return jdbcTemplate.queryForObject("SELECT notified_expiring FROM marketplace_card "
+                + "WHERE marketplace_card_id = ?", Boolean.class, cardId);
     }
 
-    @Test
-    void beanIsLoadedIntoContext_findInExtensibleCardCalls_isGreaterThanZero() {
-        cardExpiryRunner.run(Mockito.eq(appArgs.capture()));
-        Mockito.verify(marketplaceCardRepository, Mockito.atLeast(1))
-                .findAllByDisplayPeriodEndBefore(oneDayAgo.capture());
+    private long countRows(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
     }
 
     @Test
-    void scheduledMethodIsCalled_findExtendableCardCalls_isGreaterThanZero() {
+    void run_cardExpiredWithinDay_notifiesCreatorOnce() {
+        int cardId = createCard(1L, 2, false);
+
+        cardExpiryRunner.run(null);
         cardExpiryRunner.periodicCheck();
-        Mockito.verify(marketplaceCardRepository, Mockito.atLeast(1))
-                .findAllByDisplayPeriodEndBetween(oneDayAgo.capture(), currentDate.capture());
+
+        Assertions.assertEquals(List.of(cardId), notifiedCardIds(1L, NotificationCategory.CARD_EXPIRY_WARNING));
+        Assertions.assertTrue(isNotifiedExpiring(cardId));
     }
 
     @Test
-    void scheduledMethodIsCalled_findInextensibleCardCalls_isGreaterThanZero() {
+    void periodicCheck_cardAlreadyNotified_noNotificationCreated() {
+        createCard(1L, 2, true);
+
         cardExpiryRunner.periodicCheck();
-        Mockito.verify(marketplaceCardRepository, Mockito.atLeast(1))
-                .findAllByDisplayPeriodEndBefore(oneDayAgo.capture());
+
+        Assertions.assertEquals(0, countRows("SELECT COUNT(*) FROM notification"));
     }
 
     @Test
-    void checkExpiredCardsIsCalled_repositoryReturnsOneDeletableCard_deleteCardIsCalledForCard() {
-        MarketplaceCard fakeCard = MarketplaceDataCreator
-                .createCard(1, MarketplaceDataCreator.createUser(2L, "email@email.com", "user"));
-        mockToDeleteCards(List.of(fakeCard));
+    void periodicCheck_cardNotExpired_untouched() {
+        int cardId = createCard(1L, -2, false);
+
         cardExpiryRunner.periodicCheck();
-        Mockito.verify(marketplaceCardRepository).delete(fakeCard);
+
+        Assertions.assertEquals(0, countRows("SELECT COUNT(*) FROM notification"));
+        Assertions.assertFalse(isNotifiedExpiring(cardId));
     }
 
     @Test
-    void checkExpiredCardsIsCalled_repositoryReturnsOneDeletableCard_notificationIsCreated() {
-        MarketplaceCard fakeCard = MarketplaceDataCreator
-                .createCard(1, MarketplaceDataCreator.createUser(2L, "email@email.com", "user"));
-        mockToDeleteCards(List.of(fakeCard));
-        cardExpiryRunner.periodicCheck();
-        Mockito.verify(notificationService).createDeletionNotification(fakeCard);
-    }
+    void periodicCheck_cardExpiredMoreThanDayAgo_deletedWithKeywordsAndCreatorNotified() {
+        int cardId = createCard(2L, 30, true);
+        jdbcTemplate.update("INSERT INTO notification (user_id, notification_read, created, category, title, "
+                        + "message, action_id) VALUES (2, FALSE, ?, ?, 'Card Expired', 'Message', ?)",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(29)),
+                NotificationCategory.CARD_EXPIRY_WARNING.ordinal(), cardId);
 
-    @ParameterizedTest
-    @CsvSource({"0", "1", "2", "100"})
-    void checkExpiredCardsIsCalled_repositoryReturnsInextensibleCards_deleteCardIsCalledForEach(int numberCardsToDelete) {
-        ArrayList<MarketplaceCard> cardsToDelete = new ArrayList<>();
-        for (int i=0; i < numberCardsToDelete; i++) {
-            User fakeUser = MarketplaceDataCreator.createUser(i, i + "@email.com", "user");
-            MarketplaceCard fakeCard = MarketplaceDataCreator.createCard(i, fakeUser);
-            cardsToDelete.add(fakeCard);
-        }
-        mockToDeleteCards(cardsToDelete);
         cardExpiryRunner.periodicCheck();
-        Mockito.verify(marketplaceCardRepository, Mockito.times(numberCardsToDelete)).delete(Mockito.any(MarketplaceCard.class));
-    }
 
-    @ParameterizedTest
-    @CsvSource({"0", "1", "2", "100"})
-    void checkExpiredCardsIsCalled_repositoryReturnsInextensibleCards_notificationIsCreatedForEach(int numberCardsToDelete) {
-        ArrayList<MarketplaceCard> cardsToDelete = new ArrayList<>();
-        for (int i=0; i < numberCardsToDelete; i++) {
-            User fakeUser = MarketplaceDataCreator.createUser(i, i + "@email.com", "user");
-            MarketplaceCard fakeCard = MarketplaceDataCreator.createCard(i, fakeUser);
-            cardsToDelete.add(fakeCard);
-        }
-        mockToDeleteCards(cardsToDelete);
-        cardExpiryRunner.periodicCheck();
-        Mockito.verify(notificationService, Mockito.times(numberCardsToDelete))
-                .createDeletionNotification(Mockito.any(MarketplaceCard.class));
+        Assertions.assertEquals(0, countRows("SELECT COUNT(*) FROM marketplace_card WHERE marketplace_card_id = ?",
+                cardId));
+        Assertions.assertEquals(0, countRows("SELECT COUNT(*) FROM card_keywords WHERE marketplace_card_id = ?",
+                cardId));
+        Assertions.assertEquals(List.of(cardId), notifiedCardIds(2L, NotificationCategory.CARD_EXPIRED));
+        Assertions.assertEquals(0, countRows("SELECT COUNT(*) FROM notification WHERE notification_read = FALSE "
+                + "AND category = ?", NotificationCategory.CARD_EXPIRY_WARNING.ordinal()));
     }
 
     @Test
-    void checkExpiredCardsIsCalled_repositoryReturnsOneExpiredCard_notificationIsCreated() {
-        MarketplaceCard fakeCard = MarketplaceDataCreator
-                .createCard(1, MarketplaceDataCreator.createUser(2L, "email@email.com", "user"));
-        mockExpiredCards(List.of(fakeCard));
-        cardExpiryRunner.periodicCheck();
-        Mockito.verify(notificationService).createCardExpiryNotification(fakeCard);
-    }
+    void periodicCheck_moreCardsThanBatchSize_everyCardSwept() {
+        int first = createCard(1L, 1, false);
+        int second = createCard(2L, 3, false);
+        int third = createCard(1L, 5, false);
+        int fourth = createCard(2L, 30, false);
+        int fifth = createCard(1L, 40, false);
+        int sixth = createCard(2L, 50, false);
 
-    @ParameterizedTest
-    @CsvSource({"0", "1", "2", "100"})
-    void checkExpiredCardIsCalled_repositoryReturnsExpiredCards_notificationIsCreatedForEach(int numberExpiredCards) {
-        ArrayList<MarketplaceCard> expiredCards = new ArrayList<>();
-        for (int i=0; i < numberExpiredCards; i++) {
-            User fakeUser = MarketplaceDataCreator.createUser(i, i + "@email.com", "user");
-            MarketplaceCard fakeCard = MarketplaceDataCreator.createCard(i, fakeUser);
-            expiredCards.add(fakeCard);
-        }
-        mockExpiredCards(expiredCards);
         cardExpiryRunner.periodicCheck();
-        Mockito.verify(notificationService, Mockito.times(numberExpiredCards))
-                .createCardExpiryNotification(Mockito.any(MarketplaceCard.class));
+
+        Assertions.assertEquals(List.of(first, third), notifiedCardIds(1L, NotificationCategory.CARD_EXPIRY_WARNING));
+        Assertions.assertEquals(List.of(second), notifiedCardIds(2L, NotificationCategory.CARD_EXPIRY_WARNING));
+        Assertions.assertEquals(List.of(fifth), notifiedCardIds(1L, NotificationCategory.CARD_EXPIRED));
+        Assertions.assertEquals(List.of(fourth, sixth), notifiedCardIds(2L, NotificationCategory.CARD_EXPIRED));
+        Assertions.assertEquals(3, countRows("SELECT COUNT(*) FROM marketplace_card"));
+        Assertions.assertEquals(3, countRows("SELECT COUNT(*) FROM card_keywords"));
     }
 }
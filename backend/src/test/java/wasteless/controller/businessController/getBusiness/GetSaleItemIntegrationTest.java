@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
@@ -28,6 +29,9 @@ class GetSaleItemIntegrationTest {
   private MockMvc mockMvc;
   private MvcResult mvcResult;
 
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
   SaleItem expectedSaleItem = new SaleItem();
 
   @BeforeEach
@@ -127,4 +131,35 @@ class GetSaleItemIntegrationTest {
             .perform(MockMvcRequestBuilders.get("/businesses/1/listings?isSold=false"))
             .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
   }
+
+  @WithMockUser("test@test.com")
+  @Test
+  void getListingById_likedByOtherUser_countShownWithoutLikers() throws Exception {
+    jdbcTemplate.update("INSERT INTO SALE_LISTING_LIKE (SALE_ITEM_ID, USER_ID) VALUES (1, 2)");
+    jdbcTemplate.update("UPDATE SALE_ITEM SET LIKE_COUNT = 1 WHERE SALE_ITEM_ID = 1");
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/listings/1"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.numberOfLikes").value(1))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.likedByCurrentUser").value(false))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.likedByUsers").doesNotExist());
+  }
+
+  @WithMockUser("test@test.com")
+  @Test
+  void getListingById_likedByCurrentUser_likedByCurrentUserTrue() throws Exception {
+    jdbcTemplate.update("INSERT INTO SALE_LISTING_LIKE (SALE_ITEM_ID, USER_ID) VALUES (1, 1)");
+    jdbcTemplate.update("UPDATE SALE_ITEM SET LIKE_COUNT = 1 WHERE SALE_ITEM_ID = 1");
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/listings/1"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.likedByCurrentUser").value(true));
+  }
+
+  @WithMockUser("test@test.com")
+  @Test
+  void getSaleItems_loggedIn_likedByCurrentUserNotShown() throws Exception {
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/businesses/1/listings?isSold=false"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.[0].likedByCurrentUser").doesNotExist())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.[0].likedByUsers").doesNotExist());
+  }
 }
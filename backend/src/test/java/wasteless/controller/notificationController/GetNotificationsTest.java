@@ -14,9 +14,12 @@ import wasteless.model.Notification;
 import wasteless.model.User;
 import wasteless.security.AuthUtil;
 import wasteless.service.NotificationService;
+import wasteless.service.NotificationService.NotificationPage;
 import wasteless.test_helpers.NotificationDataCreator;
 import wasteless.test_helpers.UserDataCreator;
 
+import java.util.List;
+
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -59,4 +62,25 @@ class GetNotificationsTest {
                 .perform(MockMvcRequestBuilders.get("/notifications/1"))
                 .andExpect(MockMvcResultMatchers.status().isOk());
     }
+
+    @Test
+    @WithMockUser
+    void getNotifications_withPageSize_sends200WithNextCursor() throws Exception {
+        when(notificationService.getNotificationPage(1L, null, null, 1))
+                .thenReturn(new NotificationPage(List.of(notification), 7L));
+        mockMvc
+                .perform(MockMvcRequestBuilders.get("/notifications/1").param("size", "1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Next-Cursor", "7"));
+    }
+
+    @Test
+    @WithMockUser
+    void countUnreadNotifications_sends200WithCount() throws Exception {
+        when(notificationService.countUnreadNotifications(1L)).thenReturn(3L);
+        mockMvc
+                .perform(MockMvcRequestBuilders.get("/notifications/1/unreadCount"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.unreadCount").value(3));
+    }
 }
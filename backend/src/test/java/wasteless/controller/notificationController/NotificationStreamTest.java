@@ -0,0 +1,132 @@
+package wasteless.controller.notificationController;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import wasteless.model.NotificationCategory;
+import wasteless.model.User;
+import wasteless.repository.UserRepository;
+import wasteless.service.NotificationDispatcher;
+import wasteless.service.NotificationDispatcher.FanOut;
+import wasteless.service.NotificationService;
+import wasteless.service.NotificationStreamService;
+
+import java.util.List;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/CreateUserData.sql"})
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(username = "test@test.com")
+class NotificationStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.update("DELETE FROM notification");
+    }
+
+    private MvcResult openStream(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+    }
+
+    private void createNotification(long userId, String title) {
+        User user = userRepository.findById((Long) userId).orElseThrow();
+        notificationService.createNotification(title, "Message", NotificationCategory.NO_ACTION, user, null);
+    }
+
+    private long newestId() {
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM notification", Long.class);
+    }
+
+    private static MockHttpServletRequestBuilder stream() {
+        return MockMvcRequestBuilders.get("/notifications/1/stream");
+    }
+
+    @Test
+    void streamNotifications_notificationCreated_sentToUsersStream() throws Exception {
+        createNotification(1L, "Before");
+        MvcResult result = openStream(stream());
+
+        createNotification(1L, "After");
+        createNotification(2L, "Someone else's");
+
+        String content = result.getResponse().getContentAsString();
+        Assertions.assertTrue(content.contains("event:notification"), content);
+        Assertions.assertTrue(content.contains("id:" + (newestId() - 1)), content);
+        Assertions.assertTrue(content.contains("\"title\":\"After\""), content);
+        Assertions.assertFalse(content.contains("Before"), content);
+        Assertions.assertFalse(content.contains("Someone else's"), content);
+    }
+
+    @Test
+    void streamNotifications_lastEventId_replaysNewerNotificationsInOrder() throws Exception {
+        createNotification(1L, "First");
+        long firstId = newestId();
+        createNotification(1L, "Second");
+        createNotification(1L, "Third");
+
+        MvcResult result = openStream(stream().header("Last-Event-ID", firstId));
+
+        String content = result.getResponse().getContentAsString();
+        Assertions.assertFalse(content.contains("First"), content);
+        Assertions.assertTrue(content.indexOf("Second") < content.indexOf("Third"), content);
+        Assertions.assertTrue(content.indexOf("Second") > 0, content);
+    }
+
+    @Test
+    void streamNotifications_fanOutWritten_sentToUsersStream() throws Exception {
+        MvcResult result = openStream(stream().param("since", "0"));
+
+        notificationDispatcher.dispatch(new FanOut(List.of(1L, 2L), NotificationCategory.LIKED_LISTING_SOLD,
+                "Sold", "Message", 5));
+
+        String content = result.getResponse().getContentAsString();
+        Assertions.assertTrue(content.contains("\"title\":\"Sold\""), content);
+        Assertions.assertEquals(content.indexOf("Sold"), content.lastIndexOf("Sold"), content);
+    }
+
+    @Test
+    void sendHeartbeats_openStream_sendsComment() throws Exception {
+        MvcResult result = openStream(stream());
+
+        notificationStreamService.sendHeartbeats();
+
+        Assertions.assertTrue(result.getResponse().getContentAsString().contains(":heartbeat"));
+    }
+
+    @Test
+    void streamNotifications_otherUser_sends403() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/notifications/2/stream"))
+                .andExpect(MockMvcResultMatchers.status().isForbidden());
+    }
+}
@@ -0,0 +1,142 @@
+package wasteless.model;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.type.LongType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates sale item ids with blocks of more than one id, as in production. The other tests reserve one id at a time,
+ * so that ids never skip past the rows their SQL scripts insert.
+ *
+ * Each test configures its own generators, so no block reserved by an earlier test is handed out.
+ */
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/CreateUserData.sql"})
+@SpringBootTest(properties = "spring.jpa.properties." + PooledIdGenerator.ALLOCATION_SIZE_SETTING + "="
+        + PooledIdGeneratorTest.ALLOCATION_SIZE)
+class PooledIdGeneratorTest {
+
+    static final int ALLOCATION_SIZE = 5;
+
+    private static final String TABLE = "sale_item";
+
+    // Largest sale item id inserted by CreateUserData.sql
+    private static final long MAX_ID = 4;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.update("DELETE FROM id_block WHERE block_name = ?", TABLE);
+    }
+
+    private PooledIdGenerator createGenerator() {
+        Properties params = new Properties();
+        params.setProperty(PersistentIdentifierGenerator.TABLE, TABLE);
+        params.setProperty(PersistentIdentifierGenerator.PK, "sale_item_id");
+        PooledIdGenerator generator = new PooledIdGenerator();
+        generator.configure(LongType.INSTANCE, params,
+                entityManagerFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry());
+        return generator;
+    }
+
+    /**
+     * Generates ids from a session of its own, as each request has.
+     */
+    private List<Long> generate(PooledIdGenerator generator, int count) {
+        List<Long> ids = new ArrayList<>();
+        try (Session session = entityManagerFactory.unwrap(SessionFactory.class).openSession()) {
+            for (int i = 0; i < count; i++) {
+                ids.add((Long) generator.generate((SharedSessionContractImplementor) session, null));
+            }
+        }
+        return ids;
+    }
+
+    private long storedNextVal() {
+        return jdbcTemplate.queryForObject("SELECT next_val FROM id_block WHERE block_name = ?", Long.class, TABLE);
+    }
+
+    @Test
+    void generate_moreIdsThanAllocationSize_rollsOverIntoNextBlock() {
+        List<Long> ids = generate(createGenerator(), 2 * ALLOCATION_SIZE + 2);
+
+        List<Long> expected = new ArrayList<>();
+        for (long id = MAX_ID + 1; id <= MAX_ID + 2 * ALLOCATION_SIZE + 2; id++) {
+            expected.add(id);
+        }
+        Assertions.assertEquals(expected, ids);
+        // Three blocks were reserved, the last only partly used
+        Assertions.assertEquals(MAX_ID + 1 + 3 * ALLOCATION_SIZE, storedNextVal());
+    }
+
+    @Test
+    void generate_rowInsertedWithExplicitIdAboveStoredBlock_firstBlockStartsAboveMaximum() {
+        jdbcTemplate.update("INSERT INTO id_block (block_name, next_val) VALUES (?, ?)", TABLE, MAX_ID + 1);
+        jdbcTemplate.update("INSERT INTO SALE_ITEM (SALE_ITEM_ID, INVENTORY_ITEM_ID, SOLD, QUANTITY, PRICE, CLOSES, "
+                + "CREATED) VALUES (100, 1, FALSE, 1, 1.0, sysdate(), sysdate())");
+
+        List<Long> ids = generate(createGenerator(), ALLOCATION_SIZE + 1);
+
+        Assertions.assertEquals(List.of(101L, 102L, 103L, 104L, 105L, 106L), ids);
+        Assertions.assertEquals(101 + 2 * ALLOCATION_SIZE, storedNextVal());
+    }
+
+    @Test
+    void generate_sessionsAllocatingConcurrently_noIdHandedOutTwice() throws Exception {
+        int idsPerSession = 10 * ALLOCATION_SIZE;
+        // Two sessions share each generator, as requests in one application instance do, and the two generators
+        // stand in for two application instances sharing the database
+        List<PooledIdGenerator> generators = List.of(createGenerator(), createGenerator());
+        int sessions = 2 * generators.size();
+        ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Long>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < sessions; i++) {
+                PooledIdGenerator generator = generators.get(i % generators.size());
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return generate(generator, idsPerSession);
+                }));
+            }
+            start.countDown();
+
+            Set<Long> ids = new HashSet<>();
+            for (Future<List<Long>> result : results) {
+                for (Long id : result.get(30, TimeUnit.SECONDS)) {
+                    Assertions.assertTrue(id > MAX_ID, "id " + id + " collides with an existing row");
+                    Assertions.assertTrue(ids.add(id), "id " + id + " was handed out twice");
+                }
+            }
+            Assertions.assertEquals(sessions * idsPerSession, ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
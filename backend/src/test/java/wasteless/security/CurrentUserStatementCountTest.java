@@ -0,0 +1,142 @@
+package wasteless.security;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Set;
+
+/**
+ * Counts the statements run to resolve the current user as a request does, calling getCurrentUser and
+ * isCurrentUserGlobalAdmin several times. Each request runs in one transaction, standing in for the persistence
+ * context a request keeps open, and requests share a session when they are given the same one.
+ */
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SalesReportData.sql"})
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@WithMockUser(username = "test@test.com")
+class CurrentUserStatementCountTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrentUserStatementCountTest.class);
+
+    private static final int CALLS_PER_REQUEST = 5;
+
+    @Autowired
+    private AuthUtil authUtil;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    /**
+     * Runs work as one request in the given session.
+     * @return the number of statements run
+     */
+    private long countStatements(MockHttpSession session, Runnable work) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setSession(session);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        try {
+            return transactionTemplate.execute(status -> {
+                statistics.clear();
+                work.run();
+                return statistics.getPrepareStatementCount();
+            });
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private void resolveCurrentUser() {
+        for (int i = 0; i < CALLS_PER_REQUEST; i++) {
+            Assertions.assertEquals(1L, authUtil.getCurrentUser().getUserId());
+            Assertions.assertFalse(authUtil.isCurrentUserGlobalAdmin());
+        }
+    }
+
+    private void lookUpByEmail() {
+        for (int i = 0; i < CALLS_PER_REQUEST * 2; i++) {
+            authUtil.getUserFromAuthentication(SecurityContextHolder.getContext().getAuthentication());
+        }
+    }
+
+    @Test
+    void getCurrentUser_repeatedInOneRequest_looksUpUserOnce() {
+        long oneLookup = countStatements(new MockHttpSession(),
+                () -> authUtil.getUserFromAuthentication(SecurityContextHolder.getContext().getAuthentication()));
+        long uncached = countStatements(new MockHttpSession(), this::lookUpByEmail);
+        long firstRequest = countStatements(new MockHttpSession(), this::resolveCurrentUser);
+
+        logger.info("{} lookups of the current user: {} statements looked up by email each time, {} cached",
+                CALLS_PER_REQUEST * 2, uncached, firstRequest);
+        // One lookup by email, then one query for the businesses the user administers
+        Assertions.assertTrue(firstRequest <= oneLookup + 1, "first request ran " + firstRequest + " statements");
+        Assertions.assertTrue(firstRequest < uncached);
+    }
+
+    @Test
+    void getCurrentUser_laterRequestInSession_readsPrincipalFromSession() {
+        MockHttpSession session = new MockHttpSession();
+        long oneLookup = countStatements(new MockHttpSession(),
+                () -> authUtil.getUserFromAuthentication(SecurityContextHolder.getContext().getAuthentication()));
+        countStatements(session, this::resolveCurrentUser);
+
+        long laterRequest = countStatements(session, this::resolveCurrentUser);
+        long adminCheckOnly = countStatements(session, () -> authUtil.isCurrentUserGlobalAdmin());
+
+        // Only the user itself is found, by ID
+        Assertions.assertTrue(laterRequest <= oneLookup, "later request ran " + laterRequest + " statements");
+        Assertions.assertEquals(0, adminCheckOnly);
+    }
+
+    @Test
+    void getCurrentPrincipal_administeredBusinesses_included() {
+        AuthenticatedPrincipal principal = transactionTemplate.execute(status -> authUtil.getCurrentPrincipal());
+
+        Assertions.assertEquals(1L, principal.getUserId());
+        Assertions.assertEquals(Set.of(1L, 2L), principal.getAdministeredBusinessIds());
+        Assertions.assertTrue(principal.isAdminOf(1L));
+        Assertions.assertFalse(principal.isAdminOf(3L));
+    }
+
+    @Test
+    void isCurrentUserGlobalAdmin_roleChanged_staleUntilInvalidated() {
+        MockHttpSession session = new MockHttpSession();
+        countStatements(session, this::resolveCurrentUser);
+        jdbcTemplate.update("UPDATE USER SET ROLE = 'global_admin' WHERE USER_ID = 1");
+
+        countStatements(session, () -> Assertions.assertFalse(authUtil.isCurrentUserGlobalAdmin()));
+        principalCache.invalidate(1L);
+
+        countStatements(session, () -> Assertions.assertTrue(authUtil.isCurrentUserGlobalAdmin()));
+    }
+}
@@ -0,0 +1,149 @@
+package wasteless.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.controller.jsonobjects.InventoryImportReport;
+import wasteless.controller.jsonobjects.InventoryImportReport.RowResult;
+import wasteless.exception.BadRequestException;
+import wasteless.model.InventoryItem;
+import wasteless.repository.InventoryItemRepository;
+import wasteless.service.InventoryImportService.InventoryImportFormat;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SalesReportData.sql"})
+@SpringBootTest(properties = "inventory.import.batch-size=2")
+class InventoryImportServiceTest {
+
+    private static final String HEADER = "productId,quantity,pricePerItem,totalPrice,manufactured,sellBy,bestBefore,expires\n";
+
+    @Autowired
+    private InventoryImportService inventoryImportService;
+
+    @Autowired
+    private InventoryItemRepository inventoryItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private InventoryImportReport importInventory(InventoryImportFormat format, String file) throws IOException {
+        return inventoryImportService.importInventory(1L, format,
+                new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private long countInventory(long businessId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventory_item WHERE business_id = ?", Long.class,
+                businessId);
+    }
+
+    private List<String> statuses(InventoryImportReport report) {
+        return report.getRows().stream().map(RowResult::getStatus).collect(Collectors.toList());
+    }
+
+    @Test
+    void importInventory_validCsv_createsEveryRow() throws IOException {
+        InventoryImportReport report = importInventory(InventoryImportFormat.CSV, HEADER
+                + "testOne,5,2.0,10.0,2021-01-01,,,2030-01-01\n"
+                + "testOne,3,,,,,,2030-02-01\r\n"
+                + "testOne,1,4.5,4.5,,2029-12-01,2029-12-15,2030-03-01");
+
+        Assertions.assertEquals(3, report.getCreated());
+        Assertions.assertEquals(0, report.getRejected());
+        Assertions.assertEquals(List.of(1L, 2L, 3L),
+                report.getRows().stream().map(RowResult::getRow).collect(Collectors.toList()));
+        Assertions.assertEquals(4, countInventory(1L));
+
+        InventoryItem item = inventoryItemRepository.findById(report.getRows().get(0).getInventoryItemId())
+                .orElseThrow();
+        Assertions.assertEquals(5, item.getQuantity());
+        Assertions.assertEquals(2.0, item.getPricePerItem());
+        Assertions.assertEquals("testOne", item.getProductId());
+        Assertions.assertEquals(1L, item.getBusiness().getBusinessId());
+        Assertions.assertEquals(1L, item.getProduct().getRowId());
+        Assertions.assertNotNull(item.getCreated());
+    }
+
+    @Test
+    void importInventory_invalidCsvRows_rejectsOnlyInvalidRows() throws IOException {
+        InventoryImportReport report = importInventory(InventoryImportFormat.CSV, HEADER
+                + "testOne,5,,,,,,2030-01-01\n"
+                + "testTwo,5,,,,,,2030-01-01\n"
+                + "testOne,5,,,,,,\n"
+                + "testOne,lots,,,,,,2030-01-01\n"
+                + "testOne,-1,,,,,,2030-01-01\n"
+                + "testOne,5\n"
+                + "testOne,2,,,,,,2030-01-01\n");
+
+        Assertions.assertEquals(List.of("created", "rejected", "rejected", "rejected", "rejected", "rejected",
+                "created"), statuses(report));
+        Assertions.assertEquals(2, report.getCreated());
+        Assertions.assertEquals(5, report.getRejected());
+        Assertions.assertEquals(
+                List.of("Inventory item's product code does not exist in the specified business"),
+                report.getRows().get(1).getErrors());
+        Assertions.assertEquals(List.of("Expiry date is required"), report.getRows().get(2).getErrors());
+        Assertions.assertEquals(List.of("Invalid value for quantity"), report.getRows().get(3).getErrors());
+        Assertions.assertEquals(List.of("Quantity must be greater or equal 0"), report.getRows().get(4).getErrors());
+        Assertions.assertEquals(List.of("Row has 2 columns but the header has 8"),
+                report.getRows().get(5).getErrors());
+        Assertions.assertEquals(3, countInventory(1L));
+        Assertions.assertEquals(1, countInventory(2L));
+    }
+
+    @Test
+    void importInventory_rowWithInventoryItemId_createsNewItem() throws IOException {
+        InventoryImportReport report = importInventory(InventoryImportFormat.CSV,
+                "inventoryItemId,productId,quantity,expires\n1,testOne,99,2030-01-01\n");
+
+        Assertions.assertEquals(1, report.getCreated());
+        Assertions.assertNotEquals(1L, report.getRows().get(0).getInventoryItemId());
+        Assertions.assertEquals(10, inventoryItemRepository.findById(1L).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void importInventory_ndjson_createsValidRowsAndRejectsOthers() throws IOException {
+        InventoryImportReport report = importInventory(InventoryImportFormat.NDJSON,
+                "{\"productId\":\"testOne\",\"quantity\":4,\"pricePerItem\":1.5,\"expires\":\"2030-01-01\"}\n"
+                        + "\n"
+                        + "not json\n"
+                        + "{\"productId\":\"testOne\",\"quantity\":4}\n");
+
+        Assertions.assertEquals(List.of("created", "rejected", "rejected"), statuses(report));
+        Assertions.assertEquals(List.of(1L, 3L, 4L),
+                report.getRows().stream().map(RowResult::getRow).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of("Row is not a JSON object"), report.getRows().get(1).getErrors());
+        Assertions.assertEquals(List.of("Expiry date is required"), report.getRows().get(2).getErrors());
+        Assertions.assertEquals(2, countInventory(1L));
+    }
+
+    @Test
+    void importInventory_emptyCsv_throwsBadRequestException() {
+        Assertions.assertThrows(BadRequestException.class,
+                () -> importInventory(InventoryImportFormat.CSV, ""));
+    }
+
+    @Test
+    void readCsvRecord_quotedFields_readsSeparatorsQuotesAndLineBreaks() throws IOException {
+        Reader reader = new BufferedReader(new StringReader("a,\"b, \"\"c\"\"\",\"d\r\ne\"\r\nf,,\n"));
+
+        Assertions.assertEquals(List.of("a", "b, \"c\"", "d\r\ne"), InventoryImportService.readCsvRecord(reader));
+        Assertions.assertEquals(List.of("f", "", ""), InventoryImportService.readCsvRecord(reader));
+        Assertions.assertNull(InventoryImportService.readCsvRecord(reader));
+    }
+
+    @Test
+    void fromName_unknownFormat_throwsBadRequestException() {
+        Assertions.assertThrows(BadRequestException.class, () -> InventoryImportFormat.fromName("xml"));
+    }
+}
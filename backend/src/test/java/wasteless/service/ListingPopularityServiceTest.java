@@ -0,0 +1,179 @@
+package wasteless.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.repository.SaleItemRepository;
+import wasteless.repository.SaleItemRepository.ListingLikes;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ListingPopularityServiceTest {
+
+    private static final Instant START = Instant.parse("2021-06-01T00:00:00Z");
+
+    /**
+     * A clock that only moves when told to.
+     */
+    private static class TestClock extends Clock {
+        private Instant instant = START;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+    }
+
+    private SaleItemRepository saleItemRepository;
+
+    private TestClock clock;
+
+    private ListingPopularityService listingPopularityService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        saleItemRepository = mock(SaleItemRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        clock = new TestClock();
+        listingPopularityService = new ListingPopularityService(saleItemRepository, transactionTemplate, 24, clock);
+    }
+
+    private static ListingLikes listingLikes(long saleItemId, int likeCount, LocalDateTime created) {
+        ListingLikes listingLikes = mock(ListingLikes.class);
+        when(listingLikes.getSaleItemId()).thenReturn(saleItemId);
+        when(listingLikes.getLikeCount()).thenReturn(likeCount);
+        when(listingLikes.getCreated()).thenReturn(created);
+        return listingLikes;
+    }
+
+    private void like(long saleItemId, int times) {
+        for (int i = 0; i < times; i++) {
+            listingPopularityService.recordLike(saleItemId);
+        }
+    }
+
+    @Test
+    void getMostLikedIds_likedListings_rankedByLikesThenId() {
+        like(3, 2);
+        like(1, 1);
+        like(2, 2);
+
+        Assertions.assertEquals(List.of(2L, 3L, 1L), listingPopularityService.getMostLikedIds(10));
+        Assertions.assertEquals(List.of(2L, 3L), listingPopularityService.getMostLikedIds(2));
+    }
+
+    @Test
+    void getTrendingIds_olderLikes_rankedBelowRecentLikes() {
+        like(1, 3);
+        clock.advance(Duration.ofHours(48));
+        like(2, 1);
+
+        // Three likes two half-lives old weigh 0.75 of one like made now
+        Assertions.assertEquals(List.of(2L, 1L), listingPopularityService.getTrendingIds(10));
+        Assertions.assertEquals(List.of(1L, 2L), listingPopularityService.getMostLikedIds(10));
+    }
+
+    @Test
+    void getTrendingIds_oneHalfLifeApart_olderListingStillAheadWithMoreLikes() {
+        like(1, 3);
+        clock.advance(Duration.ofHours(24));
+        like(2, 1);
+
+        Assertions.assertEquals(List.of(1L, 2L), listingPopularityService.getTrendingIds(10));
+    }
+
+    @Test
+    void recordUnlike_lastLike_removesListingFromFeeds() {
+        like(1, 1);
+        like(2, 2);
+
+        listingPopularityService.recordUnlike(1);
+        listingPopularityService.recordUnlike(2);
+
+        Assertions.assertEquals(List.of(2L), listingPopularityService.getMostLikedIds(10));
+        Assertions.assertEquals(List.of(2L), listingPopularityService.getTrendingIds(10));
+    }
+
+    @Test
+    void recordUnlike_unrankedListing_doesNothing() {
+        listingPopularityService.recordUnlike(1);
+
+        Assertions.assertEquals(List.of(), listingPopularityService.getMostLikedIds(10));
+    }
+
+    @Test
+    void recordPurchase_likedListing_removesListingFromFeeds() {
+        like(1, 5);
+        like(2, 1);
+
+        listingPopularityService.recordPurchase(1);
+
+        Assertions.assertEquals(List.of(2L), listingPopularityService.getMostLikedIds(10));
+        Assertions.assertEquals(List.of(2L), listingPopularityService.getTrendingIds(10));
+    }
+
+    @Test
+    void remove_likedListing_removesListingFromFeeds() {
+        like(1, 5);
+        like(2, 1);
+
+        listingPopularityService.remove(2);
+
+        Assertions.assertEquals(List.of(1L), listingPopularityService.getMostLikedIds(10));
+        Assertions.assertEquals(List.of(1L), listingPopularityService.getTrendingIds(10));
+    }
+
+    @Test
+    void recordLike_manyHalfLivesLater_keepsRankingAfterEpochMoves() {
+        like(1, 2);
+        like(2, 1);
+        clock.advance(Duration.ofDays(600));
+        like(3, 1);
+
+        Assertions.assertEquals(List.of(3L, 1L, 2L), listingPopularityService.getTrendingIds(10));
+    }
+
+    @Test
+    void rebuild_likeCounts_replacesRankings() {
+        like(9, 1);
+        LocalDateTime now = LocalDateTime.ofInstant(START, ZoneOffset.UTC);
+        when(saleItemRepository.findLikedListings()).thenReturn(List.of(
+                listingLikes(1, 4, now.minusDays(3)),
+                listingLikes(2, 2, now),
+                listingLikes(3, 1, null)));
+
+        Assertions.assertEquals(3, listingPopularityService.rebuild());
+
+        Assertions.assertEquals(List.of(1L, 2L, 3L), listingPopularityService.getMostLikedIds(10));
+        // Four likes three half-lives old weigh as much as half a like made now
+        Assertions.assertEquals(List.of(2L, 3L, 1L), listingPopularityService.getTrendingIds(10));
+    }
+}
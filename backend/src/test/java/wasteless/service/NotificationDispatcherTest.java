@@ -0,0 +1,156 @@
+package wasteless.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.model.Notification;
+import wasteless.model.NotificationCategory;
+import wasteless.model.User;
+import wasteless.repository.NotificationRepository;
+import wasteless.repository.UserRepository;
+import wasteless.service.NotificationDispatcher.FanOut;
+import wasteless.service.NotificationDispatcher.OverflowPolicy;
+
+import java.util.List;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/CreateUserData.sql"})
+@SpringBootTest
+class NotificationDispatcherTest {
+
+    private static final List<Long> RECIPIENTS = List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.update("DELETE FROM notification");
+    }
+
+    private NotificationDispatcher dispatcher(int workers, int queueCapacity, OverflowPolicy overflowPolicy) {
+        return new NotificationDispatcher(jdbcTemplate, transactionTemplate, notificationStreamService, workers,
+                queueCapacity, 3, 2, 0, overflowPolicy, 10);
+    }
+
+    private FanOut fanOut(List<Long> recipientIds, int actionId) {
+        return new FanOut(recipientIds, NotificationCategory.LIKED_LISTING_SOLD, "Title " + actionId,
+                "Message " + actionId, actionId);
+    }
+
+    private long countNotifications(int actionId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification WHERE action_id = ?", Long.class,
+                actionId);
+    }
+
+    @Test
+    void dispatch_withWorkers_writesNotificationForEachRecipient() {
+        NotificationDispatcher dispatcher = dispatcher(2, 10, OverflowPolicy.CALLER_RUNS);
+        dispatcher.start();
+        dispatcher.dispatch(fanOut(RECIPIENTS, 1));
+        dispatcher.dispatch(fanOut(List.of(1L), 2));
+        dispatcher.shutdown();
+
+        Assertions.assertEquals(RECIPIENTS.size(), countNotifications(1));
+        Assertions.assertEquals(1, countNotifications(2));
+        Assertions.assertEquals(RECIPIENTS.size() + 1L, dispatcher.getStatistics().get("notificationsWritten"));
+        Assertions.assertEquals(0L, dispatcher.getStatistics().get("queueDepth"));
+    }
+
+    @Test
+    void dispatch_withWorkers_writtenNotificationsCanBeRetrieved() {
+        NotificationDispatcher dispatcher = dispatcher(1, 10, OverflowPolicy.CALLER_RUNS);
+        dispatcher.start();
+        dispatcher.dispatch(fanOut(List.of(5L), 3));
+        dispatcher.shutdown();
+
+        User user = userRepository.findById(5L).orElseThrow();
+        List<Notification> notifications = notificationRepository.findAllByRelatedUser(user);
+        Assertions.assertEquals(1, notifications.size());
+        Notification notification = notifications.get(0);
+        Assertions.assertEquals(NotificationCategory.LIKED_LISTING_SOLD, notification.getCategory());
+        Assertions.assertEquals("Title 3", notification.getTitle());
+        Assertions.assertEquals("Message 3", notification.getMessage());
+        Assertions.assertEquals(3, notification.getActionId());
+        Assertions.assertFalse(notification.isNotificationRead());
+        Assertions.assertNotNull(notification.getCreated());
+    }
+
+    @Test
+    void dispatch_noWorkers_writesNotificationsBeforeReturning() {
+        NotificationDispatcher dispatcher = dispatcher(0, 10, OverflowPolicy.CALLER_RUNS);
+        dispatcher.dispatch(fanOut(RECIPIENTS, 4));
+
+        Assertions.assertEquals(RECIPIENTS.size(), countNotifications(4));
+    }
+
+    @Test
+    void dispatch_noRecipients_isIgnored() {
+        NotificationDispatcher dispatcher = dispatcher(0, 10, OverflowPolicy.CALLER_RUNS);
+        dispatcher.dispatch(fanOut(List.of(), 5));
+
+        Assertions.assertEquals(0L, dispatcher.getStatistics().get("fanOutsDispatched"));
+    }
+
+    @Test
+    void dispatch_queueFullCallerRuns_writesNotificationsOnCallingThread() {
+        // The workers are not started, so the first fan-out stays queued
+        NotificationDispatcher dispatcher = dispatcher(1, 1, OverflowPolicy.CALLER_RUNS);
+        dispatcher.dispatch(fanOut(RECIPIENTS, 6));
+        dispatcher.dispatch(fanOut(RECIPIENTS, 7));
+
+        Assertions.assertEquals(0, countNotifications(6));
+        Assertions.assertEquals(RECIPIENTS.size(), countNotifications(7));
+        Assertions.assertEquals(1L, dispatcher.getStatistics().get("fanOutsRunByCaller"));
+        Assertions.assertEquals(1L, dispatcher.getStatistics().get("maximumQueueDepth"));
+
+        dispatcher.start();
+        dispatcher.shutdown();
+        Assertions.assertEquals(RECIPIENTS.size(), countNotifications(6));
+    }
+
+    @Test
+    void dispatch_queueFullDrop_discardsNotifications() {
+        NotificationDispatcher dispatcher = dispatcher(1, 1, OverflowPolicy.DROP);
+        dispatcher.dispatch(fanOut(RECIPIENTS, 8));
+        dispatcher.dispatch(fanOut(RECIPIENTS, 9));
+        dispatcher.start();
+        dispatcher.shutdown();
+
+        Assertions.assertEquals(RECIPIENTS.size(), countNotifications(8));
+        Assertions.assertEquals(0, countNotifications(9));
+        Assertions.assertEquals(1L, dispatcher.getStatistics().get("fanOutsDropped"));
+        Assertions.assertEquals((long) RECIPIENTS.size(), dispatcher.getStatistics().get("notificationsDropped"));
+    }
+
+    @Test
+    void dispatch_publishingFails_notificationsWrittenOnce() {
+        NotificationStreamService failingStreamService = Mockito.mock(NotificationStreamService.class);
+        Mockito.doThrow(new QueryTimeoutException("Feed could not be read"))
+                .when(failingStreamService).publishWritten(Mockito.anyCollection());
+        NotificationDispatcher dispatcher = new NotificationDispatcher(jdbcTemplate, transactionTemplate,
+                failingStreamService, 0, 10, 3, 2, 0, OverflowPolicy.CALLER_RUNS, 10);
+        dispatcher.dispatch(fanOut(RECIPIENTS, 10));
+
+        Assertions.assertEquals(RECIPIENTS.size(), countNotifications(10));
+        Assertions.assertEquals(0L, dispatcher.getStatistics().get("batchesRetried"));
+    }
+}
@@ -0,0 +1,179 @@
+package wasteless.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.exception.BadRequestException;
+import wasteless.exception.ForbiddenException;
+import wasteless.model.Notification;
+import wasteless.model.NotificationCategory;
+import wasteless.service.NotificationService.NotificationPage;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/CreateUserData.sql"})
+@SpringBootTest
+@WithMockUser(username = "test@test.com")
+class NotificationFeedTest {
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.update("DELETE FROM notification");
+    }
+
+    /**
+     * Creates notifications for a user, the first read and the rest unread.
+     * @return the IDs of the notifications, oldest first
+     */
+    private List<Long> createNotifications(long userId, int count, int read) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            jdbcTemplate.update("INSERT INTO notification (user_id, notification_read, created, category, title, "
+                            + "message, action_id) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    userId, i < read, Timestamp.valueOf(LocalDateTime.now().minusMinutes(count - i)),
+                    NotificationCategory.LIKED_A_LISTING.ordinal(), "Title " + i, "Message " + i, i);
+            ids.add(jdbcTemplate.queryForObject("SELECT MAX(id) FROM notification", Long.class));
+        }
+        return ids;
+    }
+
+    private long countUnread(long userId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM notification WHERE user_id = ? AND notification_read = FALSE", Long.class, userId);
+    }
+
+    private static List<Long> ids(NotificationPage page) {
+        return page.getNotifications().stream().map(Notification::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void getNotificationPage_firstPage_newestFirstWithCursor() {
+        List<Long> ids = createNotifications(1L, 5, 0);
+        createNotifications(2L, 3, 0);
+
+        NotificationPage page = notificationService.getNotificationPage(1L, null, null, 2);
+
+        Assertions.assertEquals(List.of(ids.get(4), ids.get(3)), ids(page));
+        Assertions.assertEquals(ids.get(3), page.getNextCursor());
+    }
+
+    @Test
+    void getNotificationPage_followingCursors_readsEveryNotificationOnce() {
+        List<Long> ids = createNotifications(1L, 5, 0);
+
+        List<Long> read = new ArrayList<>();
+        Long cursor = null;
+        do {
+            NotificationPage page = notificationService.getNotificationPage(1L, cursor, null, 2);
+            read.addAll(ids(page));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        Assertions.assertEquals(List.of(ids.get(4), ids.get(3), ids.get(2), ids.get(1), ids.get(0)), read);
+    }
+
+    @Test
+    void getNotificationPage_sinceCursor_onlyNewerNotifications() {
+        List<Long> ids = createNotifications(1L, 5, 0);
+
+        NotificationPage page = notificationService.getNotificationPage(1L, null, ids.get(2), 10);
+
+        Assertions.assertEquals(List.of(ids.get(4), ids.get(3)), ids(page));
+        Assertions.assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getNotificationPage_invalidSize_throwsBadRequestException() {
+        Assertions.assertThrows(BadRequestException.class,
+                () -> notificationService.getNotificationPage(1L, null, null, 0));
+        Assertions.assertThrows(BadRequestException.class,
+                () -> notificationService.getNotificationPage(1L, null, null, NotificationService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void getNotificationPage_otherUser_throwsForbiddenException() {
+        Assertions.assertThrows(ForbiddenException.class,
+                () -> notificationService.getNotificationPage(2L, null, null, 10));
+    }
+
+    @Test
+    @WithMockUser(username = "test1@test.com")
+    void getNotificationPage_globalAdmin_readsOtherUser() {
+        List<Long> ids = createNotifications(1L, 1, 0);
+
+        Assertions.assertEquals(ids, ids(notificationService.getNotificationPage(1L, null, null, 10)));
+    }
+
+    @Test
+    void countUnreadNotifications_readAndUnread_countsOnlyUnread() {
+        createNotifications(1L, 5, 2);
+        createNotifications(2L, 4, 0);
+
+        Assertions.assertEquals(3, notificationService.countUnreadNotifications(1L));
+    }
+
+    @Test
+    void markAllAsRead_upToCursor_marksOnlyOlderNotificationsOfUser() {
+        List<Long> ids = createNotifications(1L, 5, 0);
+        createNotifications(2L, 2, 0);
+
+        Assertions.assertEquals(3, notificationService.markAllAsRead(1L, ids.get(2), null, null));
+
+        Assertions.assertEquals(2, countUnread(1L));
+        Assertions.assertEquals(2, countUnread(2L));
+        Assertions.assertEquals(2, notificationService.markAllAsRead(1L, null, null, null));
+        Assertions.assertEquals(0, countUnread(1L));
+    }
+
+    @Test
+    void markAllAsRead_categoryAndActionId_marksOnlyMatchingNotifications() {
+        createNotifications(1L, 3, 0);
+        jdbcTemplate.update("UPDATE notification SET category = ? WHERE action_id = 0",
+                NotificationCategory.CARD_EXPIRY_WARNING.ordinal());
+
+        Assertions.assertEquals(1,
+                notificationService.markAllAsRead(1L, null, NotificationCategory.LIKED_A_LISTING, 1));
+        Assertions.assertEquals(1,
+                notificationService.markAllAsRead(1L, null, NotificationCategory.LIKED_A_LISTING, null));
+        Assertions.assertEquals(1, countUnread(1L));
+    }
+
+    @Test
+    void markAllAsRead_actionIdWithoutCategory_throwsBadRequestException() {
+        Assertions.assertThrows(BadRequestException.class,
+                () -> notificationService.markAllAsRead(1L, null, null, 1));
+    }
+
+    @Test
+    void markAllAsRead_otherUser_throwsForbiddenException() {
+        Assertions.assertThrows(ForbiddenException.class,
+                () -> notificationService.markAllAsRead(2L, null, null, null));
+    }
+
+    @Test
+    void markAsRead_ownNotification_marksOnlyThatNotification() {
+        List<Long> ids = createNotifications(1L, 2, 0);
+
+        notificationService.markAsRead(1L, ids.get(0));
+        notificationService.markAsRead(1L, ids.get(0));
+
+        Assertions.assertEquals(1, countUnread(1L));
+        Assertions.assertThrows(ForbiddenException.class, () -> notificationService.markAsRead(2L, ids.get(1)));
+        Assertions.assertEquals(1, countUnread(1L));
+    }
+}
@@ -0,0 +1,104 @@
+package wasteless.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.model.NotificationCategory;
+import wasteless.service.NotificationRetentionService.RetentionReport;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/CreateUserData.sql"})
+@SpringBootTest(properties = {
+        "notifications.retention.read-max-age-days=30",
+        "notifications.retention.batch-size=2",
+        "notifications.retention.max-batches=2"
+})
+class NotificationRetentionServiceTest {
+
+    @Autowired
+    private NotificationRetentionService notificationRetentionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.update("DELETE FROM notification");
+    }
+
+    private long createNotification(long userId, NotificationCategory category, Integer actionId, boolean read,
+                                    int daysOld) {
+        jdbcTemplate.update("INSERT INTO notification (user_id, notification_read, created, category, title, message, "
+                        + "action_id) VALUES (?, ?, ?, ?, 'Title', 'Message', ?)",
+                userId, read, Timestamp.valueOf(LocalDateTime.now().minusDays(daysOld)), category.ordinal(), actionId);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM notification", Long.class);
+    }
+
+    private List<Long> remainingIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM notification ORDER BY id", Long.class);
+    }
+
+    @Test
+    void purge_oldReadNotifications_deletedAndOthersKept() {
+        createNotification(1L, NotificationCategory.NO_ACTION, null, true, 40);
+        long unread = createNotification(1L, NotificationCategory.NO_ACTION, null, false, 40);
+        long recent = createNotification(1L, NotificationCategory.NO_ACTION, null, true, 5);
+        createNotification(2L, NotificationCategory.PURCHASE_OF_LISTING, 3, true, 31);
+
+        RetentionReport report = notificationRetentionService.purge();
+
+        Assertions.assertEquals(2, report.getExpiredDeleted());
+        Assertions.assertEquals(0, report.getLikesCollapsed());
+        Assertions.assertEquals(List.of(unread, recent), remainingIds());
+    }
+
+    @Test
+    void purge_repeatedLikeNotifications_collapsedToNewestPerUserAndListing() {
+        createNotification(1L, NotificationCategory.LIKED_A_LISTING, 7, false, 0);
+        createNotification(1L, NotificationCategory.LIKED_A_LISTING, 7, false, 0);
+        long newest = createNotification(1L, NotificationCategory.LIKED_A_LISTING, 7, false, 0);
+        long otherListing = createNotification(1L, NotificationCategory.LIKED_A_LISTING, 8, false, 0);
+        long otherUser = createNotification(2L, NotificationCategory.LIKED_A_LISTING, 7, false, 0);
+        long sold = createNotification(1L, NotificationCategory.LIKED_LISTING_SOLD, 7, false, 0);
+
+        RetentionReport report = notificationRetentionService.purge();
+
+        Assertions.assertEquals(2, report.getLikesCollapsed());
+        Assertions.assertEquals(2, report.getTotalDeleted());
+        Assertions.assertEquals(List.of(newest, otherListing, otherUser, sold), remainingIds());
+    }
+
+    @Test
+    void purge_supersededLikesOverSeveralBatches_eachBatchContinuesFromPrevious() {
+        List<Long> newest = new ArrayList<>();
+        for (int listing = 1; listing <= 3; listing++) {
+            createNotification(1L, NotificationCategory.LIKED_A_LISTING, listing, false, 0);
+        }
+        for (int listing = 1; listing <= 3; listing++) {
+            newest.add(createNotification(1L, NotificationCategory.LIKED_A_LISTING, listing, false, 0));
+        }
+
+        Assertions.assertEquals(3, notificationRetentionService.purge().getLikesCollapsed());
+        Assertions.assertEquals(newest, remainingIds());
+    }
+
+    @Test
+    void purge_moreThanMaxBatches_deletesRestInNextPurge() {
+        for (int i = 0; i < 5; i++) {
+            createNotification(1L, NotificationCategory.NO_ACTION, null, true, 40);
+        }
+
+        Assertions.assertEquals(4, notificationRetentionService.purge().getExpiredDeleted());
+        Assertions.assertEquals(1, remainingIds().size());
+        Assertions.assertEquals(1, notificationRetentionService.purge().getExpiredDeleted());
+        Assertions.assertEquals(List.of(), remainingIds());
+    }
+}
@@ -109,12 +109,23 @@ class NotificationServiceTest {
     }
 
     @Test
-    void markAsRead_validInputs_callsRepositorySave() {
+    void markAsRead_validInputs_marksReadInOneUpdate() {
+        when(authUtil.getCurrentUser()).thenReturn(recipient);
+        Mockito.when(notificationRepository.markRead(recipient.getUserId(), 5L)).thenReturn(1);
+        notificationService.markAsRead(recipient.getUserId(), 5L);
+        Mockito.verify(notificationRepository).markRead(recipient.getUserId(), 5L);
+        Mockito.verify(notificationRepository, Mockito.never()).findById(Mockito.any(long.class));
+        Mockito.verify(notificationRepository, Mockito.never()).save(Mockito.any(Notification.class));
+    }
+
+    @Test
+    void markAsRead_alreadyRead_doesNotThrow() {
         when(authUtil.getCurrentUser()).thenReturn(recipient);
         Notification notification = NotificationDataCreator.createGenericNotification(recipient);
+        notification.setNotificationRead(true);
         Mockito.when(notificationRepository.findById(Mockito.any(long.class))).thenReturn(Optional.of(notification));
-        notificationService.markAsRead(recipient.getUserId(), notification.getId());
-        Mockito.verify(notificationRepository).save(notification);
+        Assertions.assertDoesNotThrow(() -> notificationService.markAsRead(recipient.getUserId(), notification.getId()));
+        Mockito.verify(notificationRepository, Mockito.never()).save(Mockito.any(Notification.class));
     }
 
     @Test
@@ -149,13 +160,6 @@ class NotificationServiceTest {
                 () -> notificationService.markAsRead(100, notificationId));
     }
 
-    @Test
-    void createLikedItemPurchaseNotification_givenValidInputs_callsRepositorySave() {
-        SaleItem saleItem = BusinessDataCreator.createSaleItem(17L);
-        notificationService.createLikedItemPurchaseNotification(saleItem, recipient);
-        Mockito.verify(notificationRepository).save(notificationArgumentCaptor.capture());
-    }
-
     @Test
     void createPurchaseNotification_givenValidSaleItem_callsRepository() {
         SaleItem saleItem = BusinessDataCreator.createSaleItem(1L);
@@ -178,52 +182,13 @@ class NotificationServiceTest {
     }
 
     @Test
-    void deleteExpiryWarningNotifications_givenPreviousNotificationsExist_callsRepositorySave() {
-        Notification prevNotification = NotificationDataCreator
-                .createNotification(recipient, NotificationCategory.CARD_EXPIRY_WARNING, 1);
-        List<Notification> notifications = List.of(prevNotification);
-        Mockito.when(notificationRepository
-                .findNotificationsByRelatedUserAndActionIdAndCategoryAndNotificationReadFalse(
-                        recipient, 1, NotificationCategory.CARD_EXPIRY_WARNING))
-                .thenReturn(notifications);
-
-        notificationService.readExpiryWarningNotifications(recipient, 1);
-        Mockito.verify(notificationRepository, Mockito.times(1))
-                .save(notificationArgumentCaptor.capture());
-    }
-
-    @Test
-    void deleteExpiryWarningNotifications_givenPreviousNotificationExist_callsRepositorySaveMultipleTimes() {
-        Notification prevNotification1 = NotificationDataCreator
-                .createNotification(recipient, NotificationCategory.CARD_EXPIRY_WARNING, 1);
-        Notification prevNotification2 = NotificationDataCreator
-                .createNotification(recipient, NotificationCategory.CARD_EXPIRY_WARNING, 1);
-        Mockito.when(notificationRepository
-                .findNotificationsByRelatedUserAndActionIdAndCategoryAndNotificationReadFalse(
-                        recipient, 1, NotificationCategory.CARD_EXPIRY_WARNING))
-                .thenReturn(List.of(prevNotification1, prevNotification2));
-
+    void readExpiryWarningNotifications_givenCard_marksReadInOneUpdate() {
         notificationService.readExpiryWarningNotifications(recipient, 1);
-        Mockito.verify(notificationRepository, Mockito.times(2))
-                .save(notificationArgumentCaptor.capture());
-    }
-
-    @Test
-    void deleteExpiryWarningNotifications_givenPreviousNotificationsExist_savesCorrectNotification() {
-        Notification prevNotification = NotificationDataCreator.createNotification(recipient, NotificationCategory.CARD_EXPIRY_WARNING, 1);
-        List<Notification> notifications = List.of(prevNotification);
-        Mockito.when(notificationRepository
+        Mockito.verify(notificationRepository, Mockito.times(1)).markReadByCategoryAndActionId(
+                recipient.getUserId(), NotificationCategory.CARD_EXPIRY_WARNING, 1, Long.MAX_VALUE);
+        Mockito.verify(notificationRepository, Mockito.never())
                 .findNotificationsByRelatedUserAndActionIdAndCategoryAndNotificationReadFalse(
-                        recipient, 1, NotificationCategory.CARD_EXPIRY_WARNING))
-                .thenReturn(notifications);
-
-        notificationService.readExpiryWarningNotifications(recipient, 1);
-
-        prevNotification.setNotificationRead(true);
-
-        Mockito.verify(notificationRepository).save(notificationArgumentCaptor.capture());
-        Notification savedNotification = notificationArgumentCaptor.getValue();
-        Assertions.assertEquals(prevNotification, savedNotification);
+                        Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     @Test
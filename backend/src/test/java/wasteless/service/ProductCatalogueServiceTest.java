@@ -0,0 +1,124 @@
+package wasteless.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.controller.jsonobjects.ProductUpsertResult;
+import wasteless.exception.BadRequestException;
+import wasteless.model.Product;
+import wasteless.repository.BusinessRepository;
+import wasteless.repository.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SalesReportData.sql"})
+@SpringBootTest(properties = "products.upsert.batch-size=2")
+class ProductCatalogueServiceTest {
+
+    @Autowired
+    private ProductCatalogueService productCatalogueService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private BusinessRepository businessRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static Product product(String productId, String name, double price) {
+        return new Product(null, productId, name, "Manufacturer", "Description", price, null);
+    }
+
+    private long countProducts(long businessId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product WHERE business_id = ?", Long.class,
+                businessId);
+    }
+
+    private Product findProduct(long businessId, String productId) {
+        return productRepository.findByBusinessBusinessIdAndProductIdIn(businessId, List.of(productId)).get(0);
+    }
+
+    @Test
+    void upsertProducts_newAndExistingCodes_createsAndUpdates() {
+        ProductUpsertResult result = productCatalogueService.upsertProducts(1L, List.of(
+                product("testOne", "New name", 12.5),
+                product("new-1", "First", 1.0),
+                product("new-2", "Second", 2.0),
+                product("testTwo", "Third", 3.0)));
+
+        Assertions.assertEquals(3, result.getCreated());
+        Assertions.assertEquals(1, result.getUpdated());
+        Assertions.assertEquals(4, countProducts(1L));
+
+        Product updated = findProduct(1L, "testOne");
+        Assertions.assertEquals(1L, updated.getRowId());
+        Assertions.assertEquals("New name", updated.getName());
+        Assertions.assertEquals(12.5, updated.getRecommendedRetailPrice());
+
+        Product created = findProduct(1L, "new-2");
+        Assertions.assertEquals("Second", created.getName());
+        Assertions.assertNotNull(created.getCreated());
+    }
+
+    @Test
+    void upsertProducts_codeOfAnotherBusiness_doesNotChangeOtherBusiness() {
+        String before = findProduct(2L, "testTwo").getName();
+
+        productCatalogueService.upsertProducts(1L, List.of(product("testTwo", "Mine now", 1.0)));
+
+        Assertions.assertEquals(before, findProduct(2L, "testTwo").getName());
+        Assertions.assertEquals("Mine now", findProduct(1L, "testTwo").getName());
+    }
+
+    @Test
+    void upsertProducts_sameProductsTwice_onlyUpdatesTheSecondTime() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            products.add(product("code-" + i, "Product " + i, i));
+        }
+
+        Assertions.assertEquals(5, productCatalogueService.upsertProducts(1L, products).getCreated());
+        ProductUpsertResult second = productCatalogueService.upsertProducts(1L, products);
+
+        Assertions.assertEquals(0, second.getCreated());
+        Assertions.assertEquals(5, second.getUpdated());
+        Assertions.assertEquals(6, countProducts(1L));
+    }
+
+    @Test
+    void upsertProducts_invalidProduct_writesNothing() {
+        List<Product> products = List.of(product("valid", "Valid", 1.0), product("invalid", "", 1.0));
+
+        BadRequestException exception = Assertions.assertThrows(BadRequestException.class,
+                () -> productCatalogueService.upsertProducts(1L, products));
+
+        Assertions.assertEquals("Product 2: Name cannot be empty", exception.getMessage());
+        Assertions.assertEquals(1, countProducts(1L));
+    }
+
+    @Test
+    void upsertProducts_duplicateCode_throwsBadRequestException() {
+        List<Product> products = List.of(product("same", "First", 1.0), product("same", "Second", 1.0));
+
+        BadRequestException exception = Assertions.assertThrows(BadRequestException.class,
+                () -> productCatalogueService.upsertProducts(1L, products));
+
+        Assertions.assertEquals("Product 2: Product code same appears more than once", exception.getMessage());
+    }
+
+    @Test
+    void save_duplicateCodeInBusiness_violatesUniqueIndex() {
+        Product duplicate = product("testOne", "Duplicate", 1.0);
+        duplicate.setBusiness(businessRepository.findById(1L).orElseThrow());
+
+        Assertions.assertThrows(DataIntegrityViolationException.class,
+                () -> productRepository.saveAndFlush(duplicate));
+    }
+}
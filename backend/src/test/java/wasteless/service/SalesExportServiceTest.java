@@ -0,0 +1,66 @@
+package wasteless.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.exception.BadRequestException;
+import wasteless.service.SalesExportService.SalesExportFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SalesReportData.sql"})
+@SpringBootTest
+class SalesExportServiceTest {
+
+    @Autowired
+    private SalesExportService salesExportService;
+
+    private String writeSales(long businessId, SalesExportFormat format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        salesExportService.writeSales(businessId, format, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writeSales_csv_writesSoldListingsInOrderOfPurchase() throws IOException {
+        Assertions.assertEquals(
+                "saleItemId,productId,productName,price,quantity,purchased\r\n"
+                        + "1,testOne,Watties Baked Beans - 420g can,4.0,2,2020-09-19T00:00\r\n"
+                        + "2,testOne,Watties Baked Beans - 420g can,6.5,3,2020-09-30T00:00\r\n"
+                        + "3,testOne,Watties Baked Beans - 420g can,2.0,1,2020-11-10T00:00\r\n"
+                        + "4,testOne,Watties Baked Beans - 420g can,8.0,4,2021-01-05T00:00\r\n",
+                writeSales(1L, SalesExportFormat.CSV));
+    }
+
+    @Test
+    void writeSales_csvValueWithSeparatorAndQuotes_quotesValue() throws IOException {
+        Assertions.assertEquals(
+                "saleItemId,productId,productName,price,quantity,purchased\r\n"
+                        + "6,testTwo,\"Beans, \"\"Baked\"\"\",7.0,1,2020-09-20T00:00\r\n",
+                writeSales(2L, SalesExportFormat.CSV));
+    }
+
+    @Test
+    void writeSales_ndjson_writesOneJsonObjectPerLine() throws IOException {
+        Assertions.assertEquals(
+                "{\"saleItemId\":6,\"productId\":\"testTwo\",\"productName\":\"Beans, \\\"Baked\\\"\","
+                        + "\"price\":7.0,\"quantity\":1,\"purchased\":\"2020-09-20T00:00\"}\n",
+                writeSales(2L, SalesExportFormat.NDJSON));
+    }
+
+    @Test
+    void writeSales_businessWithoutSales_csvOnlyHasHeader() throws IOException {
+        Assertions.assertEquals("saleItemId,productId,productName,price,quantity,purchased\r\n",
+                writeSales(3L, SalesExportFormat.CSV));
+    }
+
+    @Test
+    void fromName_unknownFormat_throwsBadRequestException() {
+        Assertions.assertThrows(BadRequestException.class, () -> SalesExportFormat.fromName("xml"));
+        Assertions.assertEquals(SalesExportFormat.NDJSON, SalesExportFormat.fromName("NDJson"));
+    }
+}
@@ -0,0 +1,87 @@
+package wasteless.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.model.DailySales;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SalesReportData.sql"})
+@SpringBootTest
+class SalesRollupServiceTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.parse("2020-01-01");
+
+    private static final LocalDate LAST_DAY = LocalDate.parse("2021-12-31");
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    /**
+     * @return the daily totals of the business, each as "date sales value units"
+     */
+    private List<String> dailySales(long businessId) {
+        return salesRollupService.getDailySales(businessId, FIRST_DAY, LAST_DAY).stream()
+                .map(day -> String.format("%s %d %.2f %d", day.getSalesDate(), day.getNumberOfSales(),
+                        day.getValueOfSales(), day.getUnitsSold()))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void rebuild_soldListings_totalsSoldListingsOfEachBusinessByDay() {
+        Assertions.assertEquals(5, salesRollupService.rebuild());
+        Assertions.assertEquals(List.of(
+                "2020-09-19 1 4.00 2",
+                "2020-09-30 1 6.50 3",
+                "2020-11-10 1 2.00 1",
+                "2021-01-05 1 8.00 4"), dailySales(1L));
+        Assertions.assertEquals(List.of("2020-09-20 1 7.00 1"), dailySales(2L));
+    }
+
+    @Test
+    void rebuild_rebuiltTwice_doesNotCountSalesTwice() {
+        salesRollupService.rebuild();
+        salesRollupService.rebuild();
+        Assertions.assertEquals(List.of("2020-09-20 1 7.00 1"), dailySales(2L));
+    }
+
+    @Test
+    void rebuild_singleBusiness_onlyReplacesTotalsOfThatBusiness() {
+        salesRollupService.rebuild();
+        salesRollupService.recordSale(1L, LocalDate.parse("2020-09-19"), 1.00, 1);
+        salesRollupService.recordSale(2L, LocalDate.parse("2020-09-20"), 1.00, 1);
+
+        Assertions.assertEquals(4, salesRollupService.rebuild(1L));
+        Assertions.assertEquals("2020-09-19 1 4.00 2", dailySales(1L).get(0));
+        Assertions.assertEquals(List.of("2020-09-20 2 8.00 2"), dailySales(2L));
+    }
+
+    @Test
+    void recordSale_dayWithSales_addsToTotalOfDay() {
+        salesRollupService.rebuild();
+        salesRollupService.recordSale(1L, LocalDate.parse("2020-09-19"), 5.50, 3);
+        Assertions.assertEquals("2020-09-19 2 9.50 5", dailySales(1L).get(0));
+    }
+
+    @Test
+    void recordSale_dayWithoutSales_createsTotalOfDay() {
+        salesRollupService.rebuild();
+        salesRollupService.recordSale(2L, LocalDate.parse("2021-03-01"), 5.50, 3);
+        Assertions.assertEquals(List.of("2020-09-20 1 7.00 1", "2021-03-01 1 5.50 3"), dailySales(2L));
+    }
+
+    @Test
+    void getDailySales_partialPeriod_onlyReturnsDaysInPeriod() {
+        salesRollupService.rebuild();
+        List<LocalDate> days = salesRollupService.getDailySales(1L, LocalDate.parse("2020-09-30"),
+                LocalDate.parse("2020-11-10")).stream()
+                .map(DailySales::getSalesDate)
+                .collect(Collectors.toList());
+        Assertions.assertEquals(List.of(LocalDate.parse("2020-09-30"), LocalDate.parse("2020-11-10")), days);
+    }
+}
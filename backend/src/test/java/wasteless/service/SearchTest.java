@@ -8,6 +8,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.jdbc.Sql;
 import wasteless.model.Searchable;
 import wasteless.repository.UserRepository;
+import wasteless.service.searching_service.SearchingService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -543,4 +544,36 @@ class SearchTest {
 
     Assertions.assertEquals(5, resultsLength);
   }
+
+  @Test
+  void findUsersAfter_pagingByCursor_returnsSameUsersAsSinglePage() {
+    for (String sortBy : Arrays.asList("email", "default")) {
+      List<Long> singlePage = new ArrayList<>();
+      for (Searchable user : userService.findUsersAfter("John or Neil", "", 1000, sortBy, "desc").getResult()) {
+        singlePage.add(user.getId());
+      }
+
+      String cursor = "";
+      do {
+        SearchingService.SearchResult page = userService.findUsersAfter("John or Neil", cursor, 2, sortBy, "desc");
+        Assertions.assertEquals(5, page.getResultsLength());
+        for (Searchable user : page.getResult()) {
+          actualUserIds.add(user.getId());
+        }
+        cursor = page.getNextCursor();
+      } while (cursor != null);
+
+      Assertions.assertEquals(singlePage, actualUserIds);
+      actualUserIds.clear();
+    }
+  }
+
+  @Test
+  void findUsersAfter_sortByEmailOrderByDesc_findNameInCorrectOrder() {
+    expectedUserIds = Arrays.asList(15L, 2L, 6L, 5L, 3L);
+    for (Searchable user : userService.findUsersAfter("John or Neil", "", 1000, "email", "desc").getResult()) {
+      actualUserIds.add(user.getId());
+    }
+    Assertions.assertEquals(expectedUserIds, actualUserIds);
+  }
 }
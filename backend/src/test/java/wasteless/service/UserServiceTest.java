@@ -21,7 +21,7 @@ import wasteless.model.MarketplaceCard;
 import wasteless.model.User;
 import wasteless.repository.UserRepository;
 import wasteless.service.searching_service.SearchToken;
-import wasteless.service.searching_service.SearchingService;
+import wasteless.service.searching_service.KeysetSearchingService;
 import wasteless.test_helpers.MarketplaceDataCreator;
 import wasteless.repository.MarketplaceCardRepository;
 
@@ -44,7 +44,7 @@ class UserServiceTest {
 
   @MockBean
   @Qualifier("userSearchService")
-  private SearchingService userRepositorySearch;
+  private KeysetSearchingService userRepositorySearch;
 
   private UserJson userJson;
   private User user;
@@ -0,0 +1,139 @@
+package wasteless.service;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.model.*;
+import wasteless.repository.InventoryItemRepository;
+import wasteless.repository.NotificationRepository;
+import wasteless.repository.ProductRepository;
+import wasteless.repository.UserRepository;
+import wasteless.service.NotificationDispatcher.FanOut;
+import wasteless.service.NotificationDispatcher.OverflowPolicy;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the rows per second written by the notification fan-out and by inventory imports, one row per statement
+ * (as IDENTITY ids forced) and with batched statements. Only run when the benchmark system property is true:
+ * ./gradlew test --tests '*WriteBatchingBenchmarkTest' -Dbenchmark=true
+ *
+ * The tests run against the in-memory H2 database, where a statement costs no network round trip, so the gains are
+ * far smaller than against MariaDB.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/PurchaseConcurrencyData.sql"})
+@SpringBootTest(properties = "spring.jpa.properties.wasteless.id.allocation_size=50")
+class WriteBatchingBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBatchingBenchmarkTest.class);
+
+    private static final int ROWS = 5000;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InventoryItemRepository inventoryItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private double rowsPerSecond(long startNanos) {
+        return ROWS / ((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    @Test
+    void notificationFanOut_rowsPerSecond() {
+        jdbcTemplate.update("DELETE FROM notification");
+        User user = userRepository.findById(1L).orElseThrow();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            notificationRepository.save(new Notification(user, NotificationCategory.LIKED_LISTING_SOLD, "Title",
+                    "Message", 1));
+        }
+        double unbatched = rowsPerSecond(start);
+
+        List<Long> recipientIds = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            recipientIds.add(user.getUserId());
+        }
+        NotificationDispatcher dispatcher = new NotificationDispatcher(jdbcTemplate, transactionTemplate,
+                notificationStreamService, 0, 1,
+                500, 0, 0, OverflowPolicy.CALLER_RUNS, 10);
+        start = System.nanoTime();
+        dispatcher.dispatch(new FanOut(recipientIds, NotificationCategory.LIKED_LISTING_SOLD, "Title", "Message", 2));
+        double batched = rowsPerSecond(start);
+
+        logger.info("Notification fan-out: {} rows/s saved one at a time, {} rows/s batch inserted",
+                Math.round(unbatched), Math.round(batched));
+        Assertions.assertEquals(2L * ROWS, notificationRepository.count());
+    }
+
+    private List<InventoryItem> inventoryItems(Product product) {
+        List<InventoryItem> items = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            InventoryItem item = new InventoryItem(product, product.getProductId(), 10, 1.0, 10.0, null, null, null,
+                    LocalDate.now().plusDays(10));
+            item.setBusiness(product.getBusiness());
+            items.add(item);
+        }
+        return items;
+    }
+
+    private double importInventory(Product product, int jdbcBatchSize) {
+        List<InventoryItem> items = inventoryItems(product);
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            for (int i = 0; i < items.size(); i += BATCH_SIZE) {
+                inventoryItemRepository.saveAll(items.subList(i, Math.min(i + BATCH_SIZE, items.size())));
+                entityManager.flush();
+                entityManager.clear();
+            }
+        });
+        return rowsPerSecond(start);
+    }
+
+    @Test
+    void inventoryImport_rowsPerSecond() {
+        Product product = productRepository.findAll().get(0);
+        long before = inventoryItemRepository.count();
+
+        double unbatched = importInventory(product, 1);
+        double batched = importInventory(product, BATCH_SIZE);
+
+        logger.info("Inventory import: {} rows/s inserted one at a time, {} rows/s batch inserted",
+                Math.round(unbatched), Math.round(batched));
+        Assertions.assertEquals(before + 2L * ROWS, inventoryItemRepository.count());
+    }
+}
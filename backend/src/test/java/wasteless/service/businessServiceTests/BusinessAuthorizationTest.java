@@ -0,0 +1,103 @@
+package wasteless.service.businessServiceTests;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import wasteless.exception.ForbiddenException;
+import wasteless.model.Business;
+import wasteless.model.User;
+import wasteless.repository.BusinessRepository;
+import wasteless.repository.UserRepository;
+import wasteless.security.AuthUtil;
+import wasteless.security.PrincipalCache;
+import wasteless.service.BusinessAuthorizationService;
+import wasteless.service.BusinessService;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SaleItemSearchTestData.sql"})
+@SpringBootTest
+class BusinessAuthorizationTest {
+
+  @Autowired private BusinessAuthorizationService businessAuthorizationService;
+
+  @Autowired private BusinessService businessService;
+
+  @Autowired private BusinessRepository businessRepository;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private AuthUtil authUtil;
+
+  @Autowired private PrincipalCache principalCache;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  void resetRequest() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  /**
+   * Checks a user may administer a business as a business-scoped endpoint does.
+   *
+   * @return whether the business's administrators were loaded to check it
+   */
+  private boolean requireAdminOrGAA(long userId, long businessId) {
+    return transactionTemplate.execute(
+        status -> {
+          User user = userRepository.findById((Long) userId).orElseThrow();
+          Business business = businessRepository.findById(businessId).orElseThrow();
+          businessService.requireAdminOrGAA(user, business);
+          return Hibernate.isInitialized(business.getAdmins());
+        });
+  }
+
+  @Test
+  void isAdmin_adminsAndPrimaryAdmins_answeredByQuery() {
+    Assertions.assertTrue(businessAuthorizationService.isAdmin(1L, 1L));
+    Assertions.assertTrue(businessAuthorizationService.isAdmin(5L, 2L));
+    Assertions.assertTrue(businessAuthorizationService.isAdmin(7L, 3L));
+    Assertions.assertFalse(businessAuthorizationService.isAdmin(5L, 1L));
+    Assertions.assertFalse(businessAuthorizationService.isAdmin(2L, 3L));
+  }
+
+  @Test
+  void requireAdminOrGAA_admin_doesNotLoadAdministrators() {
+    Assertions.assertFalse(requireAdminOrGAA(5L, 2L));
+  }
+
+  @Test
+  void requireAdminOrGAA_globalAdmin_allowed() {
+    Assertions.assertFalse(requireAdminOrGAA(3L, 1L));
+  }
+
+  @Test
+  void requireAdminOrGAA_notAdmin_throwsForbiddenException() {
+    Assertions.assertThrows(ForbiddenException.class, () -> requireAdminOrGAA(2L, 1L));
+  }
+
+  @Test
+  @WithMockUser(username = "test@test.com")
+  void isAdmin_currentUser_answeredFromPrincipalUntilInvalidated() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    transactionTemplate.execute(status -> authUtil.getCurrentUser());
+    jdbcTemplate.update("DELETE FROM ADMINS WHERE USER_ID = 1 AND BUSINESS_ID = 2");
+
+    Assertions.assertTrue(businessAuthorizationService.isAdmin(1L, 2L));
+    principalCache.invalidate(1L);
+
+    Assertions.assertFalse(businessAuthorizationService.isAdmin(1L, 2L));
+  }
+}
@@ -0,0 +1,120 @@
+package wasteless.service.businessServiceTests;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.exception.BadRequestException;
+import wasteless.model.InventoryItem;
+import wasteless.model.Product;
+import wasteless.service.BusinessService;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SalesReportData.sql"})
+@SpringBootTest
+class CatalogueAndInventoryPageTest {
+
+  @Autowired private BusinessService businessService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setup() {
+    jdbcTemplate.update(
+        "INSERT INTO PRODUCT (ROW_ID, PRODUCT_ID, CREATED, NAME, MANUFACTURER, RECOMMENDED_RETAIL_PRICE, BUSINESS_ID)"
+            + " VALUES (3, 'apple', '2020-01-01', 'Apple', 'Orchard', 2.0, 1),"
+            + " (4, 'banana', '2020-01-01', 'Banana', 'Plantation', 1.0, 1),"
+            + " (5, 'cherry', '2020-01-01', 'Cherry 100%', 'Orchard', 5.0, 1)");
+    jdbcTemplate.update(
+        "INSERT INTO PRODUCT_IMAGE (PRODUCT_IMAGE_ID, FILENAME, THUMBNAIL_FILENAME, IS_PRIMARY, ROW_ID)"
+            + " VALUES (1, 'a.png', 'a_thumbnail.png', TRUE, 3), (2, 'b.png', 'b_thumbnail.png', FALSE, 3)");
+    jdbcTemplate.update(
+        "INSERT INTO INVENTORY_ITEM (INVENTORY_ITEM_ID, EXPIRES, QUANTITY, ROW_ID, PRODUCT_ID, BUSINESS_ID)"
+            + " VALUES (3, '2023-01-01', 5, 3, 'apple', 1), (4, '2021-01-01', 7, 4, 'banana', 1)");
+  }
+
+  private static List<String> productIds(Page<Product> page) {
+    return page.getContent().stream().map(Product::getProductId).collect(Collectors.toList());
+  }
+
+  @Test
+  @WithMockUser(username = "test@test.com")
+  void getProductsPage_sortedByName_returnsPageAndTotal() {
+    Page<Product> page = businessService.getProductsPage(1L, 0, 2, "name", "asc", null);
+
+    Assertions.assertEquals(List.of("apple", "banana"), productIds(page));
+    Assertions.assertEquals(4, page.getTotalElements());
+
+    Page<Product> last = businessService.getProductsPage(1L, 1, 2, "name", "asc", null);
+    Assertions.assertEquals(List.of("cherry", "testOne"), productIds(last));
+  }
+
+  @Test
+  @WithMockUser(username = "test@test.com")
+  void getProductsPage_withFilter_onlyReturnsMatchingProducts() {
+    Page<Product> page = businessService.getProductsPage(1L, 0, 10, "id", "desc", "ORCHARD");
+
+    Assertions.assertEquals(List.of("cherry", "apple"), productIds(page));
+    Assertions.assertEquals(2, page.getTotalElements());
+  }
+
+  @Test
+  @WithMockUser(username = "test@test.com")
+  void getProductsPage_filterWithWildcard_matchesWildcardLiterally() {
+    Page<Product> page = businessService.getProductsPage(1L, 0, 10, "id", "asc", "0%");
+
+    Assertions.assertEquals(List.of("cherry"), productIds(page));
+  }
+
+  @Test
+  @WithMockUser(username = "test@test.com")
+  void getProductsPage_loadsImagesOfPage() {
+    Product apple = businessService.getProductsPage(1L, 0, 1, "name", "asc", null).getContent().get(0);
+
+    Assertions.assertTrue(Hibernate.isInitialized(apple.getImages()));
+    Assertions.assertEquals(2, apple.getImages().size());
+  }
+
+  @Test
+  @WithMockUser(username = "test@test.com")
+  void getProductsPage_invalidParameters_throwsBadRequestException() {
+    Assertions.assertThrows(BadRequestException.class,
+        () -> businessService.getProductsPage(1L, -1, 10, "id", "asc", null));
+    Assertions.assertThrows(BadRequestException.class,
+        () -> businessService.getProductsPage(1L, 0, 101, "id", "asc", null));
+    Assertions.assertThrows(BadRequestException.class,
+        () -> businessService.getProductsPage(1L, 0, 10, "description", "asc", null));
+    Assertions.assertThrows(BadRequestException.class,
+        () -> businessService.getProductsPage(1L, 0, 10, "id", "up", null));
+  }
+
+  @Test
+  @WithMockUser(username = "test@test.com")
+  void retrieveInventoryPage_sortedByExpiry_returnsItemsWithProducts() {
+    Page<InventoryItem> page = businessService.retrieveInventoryPage(1L, 0, 2, "expires", "asc", null);
+
+    Assertions.assertEquals(List.of(4L, 1L),
+        page.getContent().stream().map(InventoryItem::getInventoryItemId).collect(Collectors.toList()));
+    Assertions.assertEquals(3, page.getTotalElements());
+    Assertions.assertEquals("Banana", page.getContent().get(0).getProduct().getName());
+    Assertions.assertTrue(Hibernate.isInitialized(page.getContent().get(0).getProduct().getImages()));
+  }
+
+  @Test
+  @WithMockUser(username = "test@test.com")
+  void retrieveInventoryPage_withFilter_matchesProductName() {
+    Page<InventoryItem> page = businessService.retrieveInventoryPage(1L, 0, 10, "name", "desc", "apple");
+
+    Assertions.assertEquals(1, page.getTotalElements());
+    Assertions.assertEquals(3L, page.getContent().get(0).getInventoryItemId());
+    Assertions.assertEquals(2, page.getContent().get(0).getProduct().getImages().size());
+  }
+}
@@ -8,13 +8,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import wasteless.controller.jsonobjects.SalesReportJson;
 import wasteless.controller.jsonobjects.SalesReportSection;
+import wasteless.exception.BadRequestException;
 import wasteless.exception.ForbiddenException;
 import wasteless.model.Business;
+import wasteless.model.DailySales;
 import wasteless.model.SaleItem;
 import wasteless.model.User;
 import wasteless.repository.SaleItemRepository;
 import wasteless.security.AuthUtil;
 import wasteless.service.BusinessService;
+import wasteless.service.SalesRollupService;
 import wasteless.test_helpers.BusinessDataCreator;
 import wasteless.test_helpers.UserDataCreator;
 
@@ -35,58 +38,57 @@ class GetSalesReportTest {
     @MockBean
     private AuthUtil authUtil;
 
+    @MockBean
+    private SalesRollupService salesRollupService;
+
+
+    /**
+     * Gets a sales report of business 1 as its primary administrator from the given daily sales rollup, and checks it
+     * has the expected sections.
+     */
+    private void assertSalesReport(LocalDate periodStart, LocalDate periodEnd, String granularity,
+                                   List<DailySales> dailySales, SalesReportSection... expectedSections) {
+        Business business = BusinessDataCreator.createBusiness(1L);
+        User admin = UserDataCreator.createUser();
+        admin.setUserId(business.getPrimaryAdminId());
+        Mockito.when(authUtil.getCurrentUser()).thenReturn(admin);
+        Mockito.when(salesRollupService.getDailySales(1L, periodStart, periodEnd)).thenReturn(dailySales);
+
+        SalesReportJson actualSalesReport = businessService.getSalesReport(business, periodStart, periodEnd, granularity);
+        SalesReportJson expectedSalesReport =
+                new SalesReportJson(periodStart, periodEnd, List.of(expectedSections), business);
+
+        Assertions.assertEquals(expectedSalesReport.toString(), actualSalesReport.toString());
+    }
 
     @Test
-    void getSectionsTotalGranularity_emptyListings_returnsZeroSales() {
-        List<SaleItem> noItems = Collections.emptyList();
+    void getSalesReport_totalGranularityNoSales_returnsZeroSales() {
         LocalDate periodStart = LocalDate.parse("2020-12-19");
         LocalDate periodEnd = LocalDate.parse("2021-12-19");
-        List<SalesReportSection> actualSections = businessService.getSectionsTotalGranularity(noItems, periodStart, periodEnd);
-        int expectedSectionsLength = 1;
-        SalesReportSection expectedSection = new SalesReportSection("TOTAL", periodStart, periodEnd, 0, 0.00);
-        Assertions.assertEquals(expectedSectionsLength, actualSections.size());
-        Assertions.assertEquals(expectedSection.toString(), actualSections.get(0).toString());
+        assertSalesReport(periodStart, periodEnd, "TOTAL", Collections.emptyList(),
+                new SalesReportSection("TOTAL", periodStart, periodEnd, 0, 0.00));
     }
 
     @Test
-    void getSectionsTotalGranularity_noDateOverlap_returnsNoSections() {
-        SaleItem item = BusinessDataCreator.createSaleItem(1L);
-        item.setPurchased(LocalDateTime.parse("2022-06-03T10:15:30"));
-        List<SaleItem> items = List.of(item);
+    void getSalesReport_totalGranularityPeriodEndsBeforeStart_returnsZeroSales() {
         LocalDate periodStart = LocalDate.parse("2022-12-19");
         LocalDate periodEnd = LocalDate.parse("2021-12-19");
-        List<SalesReportSection> actualSections = businessService.getSectionsTotalGranularity(items, periodStart, periodEnd);
-        int expectedSectionsLength = 1;
-        SalesReportSection expectedSection = new SalesReportSection("TOTAL", periodStart, periodEnd, 0, 0.00);
-        Assertions.assertEquals(expectedSectionsLength, actualSections.size());
-        Assertions.assertEquals(expectedSection.toString(), actualSections.get(0).toString());
+        assertSalesReport(periodStart, periodEnd, "TOTAL",
+                List.of(new DailySales(1L, LocalDate.parse("2022-06-03"), 1, 4.00, 1)),
+                new SalesReportSection("TOTAL", periodStart, periodEnd, 0, 0.00));
+        Mockito.verify(salesRollupService, Mockito.never())
+                .getDailySales(Mockito.anyLong(), Mockito.any(), Mockito.any());
     }
 
     @Test
-    void getSectionsTotalGranularity_validInputs_returnsCorrectSections() {
-        // Create list of SaleItems with different purchase dates
-        SaleItem item1 = BusinessDataCreator.createSaleItem(1L);
-        item1.setPurchased(LocalDateTime.parse("2020-12-18T10:15:30"));
-        SaleItem item2 = BusinessDataCreator.createSaleItem(2L);
-        item2.setPurchased(LocalDateTime.parse("2020-12-19T10:15:30"));
-        SaleItem item3 = BusinessDataCreator.createSaleItem(3L);
-        item3.setPurchased(LocalDateTime.parse("2021-12-19T10:15:30"));
-        SaleItem item4 = BusinessDataCreator.createSaleItem(34L);
-        item4.setPurchased(LocalDateTime.parse("2021-12-20T10:15:30"));
-        List<SaleItem> items = List.of(item1, item2, item3, item4);
-
+    void getSalesReport_totalGranularitySalesOnFirstAndLastDay_totalsBothDays() {
         LocalDate periodStart = LocalDate.parse("2020-12-19");
         LocalDate periodEnd = LocalDate.parse("2021-12-19");
-        List<SalesReportSection> actualSections = businessService.getSectionsTotalGranularity(items, periodStart, periodEnd);
-
-        int expectedSectionsLength = 1;
-        int expectedNumberOfSales = 2;
-        double expectedValueOfSales = item2.getPrice() + item3.getPrice();
-        SalesReportSection expectedSection =
-                new SalesReportSection("TOTAL", periodStart, periodEnd, expectedNumberOfSales, expectedValueOfSales);
-
-        Assertions.assertEquals(expectedSectionsLength, actualSections.size());
-        Assertions.assertEquals(expectedSection.toString(), actualSections.get(0).toString());
+        List<DailySales> dailySales = List.of(
+                new DailySales(1L, periodStart, 1, 4.00, 1),
+                new DailySales(1L, periodEnd, 1, 4.00, 1));
+        assertSalesReport(periodStart, periodEnd, "TOTAL", dailySales,
+                new SalesReportSection("TOTAL", periodStart, periodEnd, 2, 8.00));
     }
 
     @Test
@@ -113,8 +115,8 @@ class GetSalesReportTest {
         nonAdmin.setUserId(business.getPrimaryAdminId()); // make sure that this user's ID is not the primary admin ID
         Mockito.when(authUtil.getCurrentUser()).thenReturn(nonAdmin);
 
-        Mockito.when(saleItemRepository.findSoldListingsByBusiness(Mockito.anyLong()))
-                .thenReturn(List.of(saleItem));
+        Mockito.when(salesRollupService.getDailySales(Mockito.anyLong(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(new DailySales(1L, LocalDate.parse("2019-12-12"), 1, saleItem.getPrice(), 5)));
 
         SalesReportJson actualSalesReport = businessService.getSalesReport(business, periodStart, periodEnd, "TOTAL");
         SalesReportJson expectedSalesReport = new SalesReportJson(periodStart, periodEnd, List.of(section), business);
@@ -123,73 +125,119 @@ class GetSalesReportTest {
 
     }
 
+    /**
+     * Gets a sales report from a rollup of one sale on 2020-09-19, two on 2020-09-30, three on 2020-11-10 and one on
+     * 2021-01-05, and checks it has the expected sections.
+     */
+    private void assertSalesReportFromRollup(LocalDate periodStart, LocalDate periodEnd, String granularity,
+                                             SalesReportSection... expectedSections) {
+        List<DailySales> dailySales = List.of(
+                new DailySales(1L, LocalDate.parse("2020-09-19"), 1, 4.00, 2),
+                new DailySales(1L, LocalDate.parse("2020-09-30"), 2, 6.50, 3),
+                new DailySales(1L, LocalDate.parse("2020-11-10"), 3, 12.50, 3),
+                new DailySales(1L, LocalDate.parse("2021-01-05"), 1, 8.00, 1));
+        assertSalesReport(periodStart, periodEnd, granularity, dailySales, expectedSections);
+        Mockito.verify(saleItemRepository, Mockito.never()).findSoldListingsByBusiness(Mockito.anyLong());
+    }
+
+    @Test
+    void getSalesReport_totalGranularity_totalsDailySales() {
+        LocalDate periodStart = LocalDate.parse("2020-09-19");
+        LocalDate periodEnd = LocalDate.parse("2021-01-05");
+        assertSalesReportFromRollup(periodStart, periodEnd, "TOTAL",
+                new SalesReportSection("TOTAL", periodStart, periodEnd, 7, 31.00));
+    }
+
+    @Test
+    void getSalesReport_dailyGranularity_returnsSectionForEachDay() {
+        LocalDate periodStart = LocalDate.parse("2020-09-29");
+        LocalDate periodEnd = LocalDate.parse("2020-10-01");
+        assertSalesReportFromRollup(periodStart, periodEnd, "DAILY",
+                new SalesReportSection("29/9/2020", periodStart, periodStart, 0, 0.00),
+                new SalesReportSection("30/9/2020", LocalDate.parse("2020-09-30"), LocalDate.parse("2020-09-30"), 2, 6.50),
+                new SalesReportSection("1/10/2020", periodEnd, periodEnd, 0, 0.00));
+    }
+
+    @Test
+    void getSalesReport_weeklyGranularity_returnsSectionForEachWeekStartingSunday() {
+        // 2020-09-16 is a Wednesday
+        LocalDate periodStart = LocalDate.parse("2020-09-16");
+        LocalDate periodEnd = LocalDate.parse("2020-09-30");
+        assertSalesReportFromRollup(periodStart, periodEnd, "WEEKLY",
+                new SalesReportSection("Week of 13/9/2020", periodStart, LocalDate.parse("2020-09-19"), 1, 4.00),
+                new SalesReportSection("Week of 20/9/2020", LocalDate.parse("2020-09-20"), LocalDate.parse("2020-09-26"), 0, 0.00),
+                new SalesReportSection("Week of 27/9/2020", LocalDate.parse("2020-09-27"), periodEnd, 2, 6.50));
+    }
+
+    @Test
+    void getSalesReport_monthlyGranularity_returnsSectionForEachMonth() {
+        LocalDate periodStart = LocalDate.parse("2020-09-19");
+        LocalDate periodEnd = LocalDate.parse("2020-11-10");
+        assertSalesReportFromRollup(periodStart, periodEnd, "MONTHLY",
+                new SalesReportSection("9/2020", periodStart, LocalDate.parse("2020-09-30"), 3, 10.50),
+                new SalesReportSection("10/2020", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"), 0, 0.00),
+                new SalesReportSection("11/2020", LocalDate.parse("2020-11-01"), periodEnd, 3, 12.50));
+    }
+
     @Test
-    void getSectionsMonthlyGranularity_emptyListings_returnsZeroSales() {
-        List<SaleItem> noItems = Collections.emptyList();
+    void getSalesReport_yearlyGranularity_returnsSectionForEachYear() {
+        LocalDate periodStart = LocalDate.parse("2020-09-19");
+        LocalDate periodEnd = LocalDate.parse("2021-01-05");
+        assertSalesReportFromRollup(periodStart, periodEnd, "YEARLY",
+                new SalesReportSection("2020", periodStart, LocalDate.parse("2020-12-31"), 6, 23.00),
+                new SalesReportSection("2021", LocalDate.parse("2021-01-01"), periodEnd, 1, 8.00));
+    }
+
+    @Test
+    void getSalesReport_unknownGranularity_throwsBadRequestException() {
+        Business business = BusinessDataCreator.createBusiness(1L);
+        User admin = UserDataCreator.createUser();
+        admin.setUserId(business.getPrimaryAdminId());
+        Mockito.when(authUtil.getCurrentUser()).thenReturn(admin);
+        LocalDate localDate = LocalDate.now();
+        Assertions.assertThrows(BadRequestException.class,
+                () -> businessService.getSalesReport(business, localDate, localDate, "HOURLY"));
+    }
+
+    @Test
+    void getSalesReport_monthlyGranularityNoSales_returnsZeroSales() {
         LocalDate periodStart = LocalDate.parse("2021-11-01");
         LocalDate periodEnd = LocalDate.parse("2021-11-30");
-        List<SalesReportSection> actualSections = businessService.getSectionsMonthlyGranularity(noItems, periodStart, periodEnd);
-        String expectedSectionName1 = "11/2021";
-        int expectedNumberOfSections = 1;
-        SalesReportSection expectedSection1 = new SalesReportSection(expectedSectionName1, periodStart, periodEnd, 0, 0.00);
-        Assertions.assertEquals(expectedNumberOfSections, actualSections.size());
-        Assertions.assertEquals(expectedSection1.toString(), actualSections.get(0).toString());
+        assertSalesReport(periodStart, periodEnd, "MONTHLY", Collections.emptyList(),
+                new SalesReportSection("11/2021", periodStart, periodEnd, 0, 0.00));
     }
 
     @Test
-    void getSectionsMonthlyGranularity_septemberToDecemberPeriod_returnsCorrectNumberOfListings() {
-        List<SaleItem> noItems = Collections.emptyList();
+    void getSalesReport_monthlyGranularitySeptemberToDecemberPeriod_returnsSectionForEachMonth() {
         LocalDate periodStart = LocalDate.parse("2020-09-01");
         LocalDate periodEnd = LocalDate.parse("2020-12-31");
-        List<SalesReportSection> actualSections = businessService.getSectionsMonthlyGranularity(noItems, periodStart, periodEnd);
-        int expectedNumberOfSections = 4;
-        SalesReportSection expectedSection1 = new SalesReportSection("9/2020", periodStart, LocalDate.parse("2020-09-30"), 0, 0.00);
-        SalesReportSection expectedSection2 = new SalesReportSection("10/2020", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"), 0, 0.00);
-        SalesReportSection expectedSection3 = new SalesReportSection("11/2020", LocalDate.parse("2020-11-01"), LocalDate.parse("2020-11-30"), 0, 0.00);
-        SalesReportSection expectedSection4 = new SalesReportSection("12/2020", LocalDate.parse("2020-12-01"), periodEnd, 0, 0.00);
-        Assertions.assertEquals(expectedNumberOfSections, actualSections.size());
-        Assertions.assertEquals(expectedSection1.toString(), actualSections.get(0).toString());
-        Assertions.assertEquals(expectedSection2.toString(), actualSections.get(1).toString());
-        Assertions.assertEquals(expectedSection3.toString(), actualSections.get(2).toString());
-        Assertions.assertEquals(expectedSection4.toString(), actualSections.get(3).toString());
+        assertSalesReport(periodStart, periodEnd, "MONTHLY", Collections.emptyList(),
+                new SalesReportSection("9/2020", periodStart, LocalDate.parse("2020-09-30"), 0, 0.00),
+                new SalesReportSection("10/2020", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"), 0, 0.00),
+                new SalesReportSection("11/2020", LocalDate.parse("2020-11-01"), LocalDate.parse("2020-11-30"), 0, 0.00),
+                new SalesReportSection("12/2020", LocalDate.parse("2020-12-01"), periodEnd, 0, 0.00));
     }
 
-
-
     @Test
-    void getSectionsMonthlyGranularity_fourSoldListingsInPeriod_returnsCorrectSections() {
+    void getSalesReport_monthlyGranularityFourSalesInPeriod_returnsCorrectSections() {
         LocalDate periodStart = LocalDate.parse("2020-09-19");
         LocalDate periodEnd = LocalDate.parse("2020-12-29");
-        SaleItem item1 = BusinessDataCreator.createSaleItem(1L);
-        item1.setPurchased(LocalDateTime.parse("2020-09-23T10:15:30"));
-        SaleItem item2 = BusinessDataCreator.createSaleItem(2L);
-        item2.setPurchased(LocalDateTime.parse("2020-11-19T10:15:30"));
-        SaleItem item3 = BusinessDataCreator.createSaleItem(3L);
-        item3.setPurchased(LocalDateTime.parse("2020-11-19T10:15:30"));
-        SaleItem item4 = BusinessDataCreator.createSaleItem(4L);
-        item4.setPurchased(LocalDateTime.parse("2020-12-20T10:15:30"));
-        List<SaleItem> items = List.of(item1, item2, item3, item4);
-        SalesReportSection expectedSection1 = new SalesReportSection("9/2020", periodStart, LocalDate.parse("2020-09-30"), 1, 4.00);
-        SalesReportSection expectedSection2 = new SalesReportSection("10/2020", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"), 0, 0.00);
-        SalesReportSection expectedSection3 = new SalesReportSection("11/2020", LocalDate.parse("2020-11-01"), LocalDate.parse("2020-11-30"), 2, 8.00);
-        SalesReportSection expectedSection4 = new SalesReportSection("12/2020", LocalDate.parse("2020-12-01"), periodEnd, 1, 4.00);
-
-        List<SalesReportSection> actualSections = businessService.getSectionsMonthlyGranularity(items, periodStart, periodEnd);
-        Assertions.assertEquals(expectedSection1.toString(), actualSections.get(0).toString());
-        Assertions.assertEquals(expectedSection2.toString(), actualSections.get(1).toString());
-        Assertions.assertEquals(expectedSection3.toString(), actualSections.get(2).toString());
-        Assertions.assertEquals(expectedSection4.toString(), actualSections.get(3).toString());
+        List<DailySales> dailySales = List.of(
+                new DailySales(1L, LocalDate.parse("2020-09-23"), 1, 4.00, 1),
+                new DailySales(1L, LocalDate.parse("2020-11-19"), 2, 8.00, 2),
+                new DailySales(1L, LocalDate.parse("2020-12-20"), 1, 4.00, 1));
+        assertSalesReport(periodStart, periodEnd, "MONTHLY", dailySales,
+                new SalesReportSection("9/2020", periodStart, LocalDate.parse("2020-09-30"), 1, 4.00),
+                new SalesReportSection("10/2020", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"), 0, 0.00),
+                new SalesReportSection("11/2020", LocalDate.parse("2020-11-01"), LocalDate.parse("2020-11-30"), 2, 8.00),
+                new SalesReportSection("12/2020", LocalDate.parse("2020-12-01"), periodEnd, 1, 4.00));
     }
 
     @Test
-    void getSectionsMonthlyGranularity_noDateOverlap_returnsNoSections() {
-        SaleItem item = BusinessDataCreator.createSaleItem(1L);
-        item.setPurchased(LocalDateTime.parse("2022-06-03T10:15:30"));
-        List<SaleItem> items = List.of(item);
+    void getSalesReport_monthlyGranularityPeriodEndsBeforeStart_returnsNoSections() {
         LocalDate periodStart = LocalDate.parse("2022-12-19");
         LocalDate periodEnd = LocalDate.parse("2021-12-19");
-        List<SalesReportSection> actualSections = businessService.getSectionsMonthlyGranularity(items, periodStart, periodEnd);
-        int expectedSectionsLength = 0;
-        Assertions.assertEquals(expectedSectionsLength, actualSections.size());
+        assertSalesReport(periodStart, periodEnd, "MONTHLY",
+                List.of(new DailySales(1L, LocalDate.parse("2022-06-03"), 1, 4.00, 1)));
     }
 }
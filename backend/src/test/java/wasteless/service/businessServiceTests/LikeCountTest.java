@@ -0,0 +1,69 @@
+package wasteless.service.businessServiceTests;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.repository.SaleItemRepository;
+import wasteless.service.BusinessService;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SaleItemSearchTestData.sql"})
+@SpringBootTest
+class LikeCountTest {
+
+  @Autowired private BusinessService businessService;
+
+  @Autowired private SaleItemRepository saleItemRepository;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private int likeCount(long saleItemId) {
+    return jdbcTemplate.queryForObject(
+        "SELECT LIKE_COUNT FROM SALE_ITEM WHERE SALE_ITEM_ID = ?", Integer.class, saleItemId);
+  }
+
+  private int likeRows(long saleItemId) {
+    return jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM SALE_LISTING_LIKE WHERE SALE_ITEM_ID = ?", Integer.class, saleItemId);
+  }
+
+  @Test
+  @WithMockUser(username = "test@test.com")
+  void likeSaleItem_likedTwice_countedOnce() {
+    businessService.likeSaleItem(1L, 1L);
+    businessService.likeSaleItem(1L, 1L);
+
+    Assertions.assertEquals(1, likeCount(1L));
+    Assertions.assertEquals(1, likeRows(1L));
+    Assertions.assertEquals(1, saleItemRepository.findById(1L).orElseThrow().getNumberOfLikes());
+  }
+
+  @Test
+  @WithMockUser(username = "test@test.com")
+  void unlikeSaleItem_afterLike_countReturnsToZero() {
+    businessService.likeSaleItem(1L, 1L);
+    businessService.unlikeSaleItem(1L, 1L);
+    businessService.unlikeSaleItem(1L, 1L);
+
+    Assertions.assertEquals(0, likeCount(1L));
+    Assertions.assertEquals(0, likeRows(1L));
+  }
+
+  @Test
+  void recountLikes_countsOutOfStep_correctsOnlyThoseCounts() {
+    jdbcTemplate.update("INSERT INTO SALE_LISTING_LIKE (SALE_ITEM_ID, USER_ID) VALUES (1, 1), (1, 2), (2, 1)");
+    jdbcTemplate.update("UPDATE SALE_ITEM SET LIKE_COUNT = 1 WHERE SALE_ITEM_ID = 2");
+
+    Integer corrected = transactionTemplate.execute(status -> saleItemRepository.recountLikes());
+
+    Assertions.assertEquals(1, corrected);
+    Assertions.assertEquals(2, likeCount(1L));
+    Assertions.assertEquals(1, likeCount(2L));
+  }
+}
@@ -2,10 +2,10 @@ package wasteless.service.businessServiceTests;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.server.NotAcceptableStatusException;
 import wasteless.model.Business;
 import wasteless.model.SaleItem;
@@ -22,6 +22,7 @@ import java.util.HashSet;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -75,33 +76,32 @@ class LikingSaleItemTest {
     }
 
     @Test
-    void likeSaleItem_correctParameters_saveCalledWithCorrectAttributes() {
+    void likeSaleItem_correctParameters_likeInsertedAndCounted() {
         when(authUtil.getCurrentUser()).thenReturn(user);
         when(saleItemRepository.findById(anyLong())).thenReturn(Optional.of(saleItem));
         when(businessRepository.findByBusinessId(anyLong())).thenReturn(Optional.of(business));
+        when(saleItemRepository.insertLike(1L, user.getUserId())).thenReturn(1);
 
         businessService.likeSaleItem(1L, 1L);
 
-        ArgumentCaptor<SaleItem> saleItemArgumentCaptor = ArgumentCaptor.forClass(SaleItem.class);
-        verify(saleItemRepository).save(saleItemArgumentCaptor.capture());
-        SaleItem saveCalledWith = saleItemArgumentCaptor.getValue();
-        assertEquals(1, saveCalledWith.getLikedByUsers().size());
+        verify(saleItemRepository).insertLike(1L, user.getUserId());
+        verify(saleItemRepository).changeLikeCount(1L, 1);
+        verify(notificationService).createLikedAnItemNotification(saleItem, user);
+        verify(saleItemRepository, never()).save(any(SaleItem.class));
     }
 
     @Test
-    void unlikeSaleItem_correctParameters_saveCalledWithCorrectAttributes() {
-        saleItem.getLikedByUsers().add(user);
-
+    void unlikeSaleItem_correctParameters_likeDeletedAndCounted() {
         when(authUtil.getCurrentUser()).thenReturn(user);
         when(saleItemRepository.findById(anyLong())).thenReturn(Optional.of(saleItem));
         when(businessRepository.findByBusinessId(anyLong())).thenReturn(Optional.of(business));
+        when(saleItemRepository.deleteLike(1L, user.getUserId())).thenReturn(1);
 
         businessService.unlikeSaleItem(1L, 1L);
 
-        ArgumentCaptor<SaleItem> saleItemArgumentCaptor = ArgumentCaptor.forClass(SaleItem.class);
-        verify(saleItemRepository).save(saleItemArgumentCaptor.capture());
-        SaleItem saveCalledWith = saleItemArgumentCaptor.getValue();
-        assertEquals(0, saveCalledWith.getLikedByUsers().size());
+        verify(saleItemRepository).changeLikeCount(1L, -1);
+        verify(notificationService).createUnlikedAnItemNotification(saleItem, user);
+        verify(saleItemRepository, never()).save(any(SaleItem.class));
     }
 
     @Test
@@ -141,28 +141,39 @@ class LikingSaleItemTest {
         when(authUtil.getCurrentUser()).thenReturn(user);
         when(saleItemRepository.findById(anyLong())).thenReturn(Optional.of(saleItem));
         when(businessRepository.findByBusinessId(anyLong())).thenReturn(Optional.of(business));
+        when(saleItemRepository.deleteLike(1L, user.getUserId())).thenReturn(0);
 
         businessService.unlikeSaleItem(1L, 1L);
 
-        ArgumentCaptor<SaleItem> saleItemArgumentCaptor = ArgumentCaptor.forClass(SaleItem.class);
-        verify(saleItemRepository).save(saleItemArgumentCaptor.capture());
-        SaleItem saveCalledWith = saleItemArgumentCaptor.getValue();
-        assertEquals(0, saveCalledWith.getLikedByUsers().size());
+        verify(saleItemRepository, never()).changeLikeCount(anyLong(), anyInt());
+        verify(notificationService, never()).createUnlikedAnItemNotification(any(SaleItem.class), any(User.class));
     }
 
     @Test
     void likeSaleItem_thatIsAlreadyLiked_noActionTaken() {
-        saleItem.getLikedByUsers().add(user);
-
         when(authUtil.getCurrentUser()).thenReturn(user);
         when(saleItemRepository.findById(anyLong())).thenReturn(Optional.of(saleItem));
         when(businessRepository.findByBusinessId(anyLong())).thenReturn(Optional.of(business));
+        when(saleItemRepository.countLikesByUser(1L, user.getUserId())).thenReturn(1L);
 
         businessService.likeSaleItem(1L, 1L);
 
-        ArgumentCaptor<SaleItem> saleItemArgumentCaptor = ArgumentCaptor.forClass(SaleItem.class);
-        verify(saleItemRepository).save(saleItemArgumentCaptor.capture());
-        SaleItem saveCalledWith = saleItemArgumentCaptor.getValue();
-        assertEquals(1, saveCalledWith.getLikedByUsers().size());
+        verify(saleItemRepository, never()).insertLike(anyLong(), anyLong());
+        verify(saleItemRepository, never()).changeLikeCount(anyLong(), anyInt());
+        verify(notificationService, never()).createLikedAnItemNotification(any(SaleItem.class), any(User.class));
+    }
+
+    @Test
+    void likeSaleItem_likedConcurrently_noActionTaken() {
+        when(authUtil.getCurrentUser()).thenReturn(user);
+        when(saleItemRepository.findById(anyLong())).thenReturn(Optional.of(saleItem));
+        when(businessRepository.findByBusinessId(anyLong())).thenReturn(Optional.of(business));
+        when(saleItemRepository.insertLike(1L, user.getUserId()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate like"));
+
+        assertDoesNotThrow(() -> businessService.likeSaleItem(1L, 1L));
+
+        verify(saleItemRepository, never()).changeLikeCount(anyLong(), anyInt());
+        verify(notificationService, never()).createLikedAnItemNotification(any(SaleItem.class), any(User.class));
     }
 }
@@ -0,0 +1,134 @@
+package wasteless.service.businessServiceTests;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.exception.BadRequestException;
+import wasteless.exception.ConflictException;
+import wasteless.model.DailySales;
+import wasteless.repository.InventoryItemRepository;
+import wasteless.repository.SaleItemRepository;
+import wasteless.repository.UserRepository;
+import wasteless.security.AuthUtil;
+import wasteless.service.BusinessService;
+import wasteless.service.NotificationService;
+import wasteless.service.SalesRollupService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/PurchaseConcurrencyData.sql"})
+@SpringBootTest
+class PurchaseConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private static final String LOCK_TIMEOUT_MESSAGE = "Sale listing is being purchased by another user.";
+
+    @Autowired
+    private BusinessService businessService;
+
+    @Autowired
+    private SaleItemRepository saleItemRepository;
+
+    @Autowired
+    private InventoryItemRepository inventoryItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @MockBean
+    private AuthUtil authUtil;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @BeforeEach
+    void setup() {
+        Mockito.when(authUtil.getCurrentUser()).thenReturn(userRepository.findById(1L).orElseThrow());
+    }
+
+    /**
+     * Purchases the listings concurrently, one purchase per listing id given.
+     * @return the number of successful purchases
+     */
+    private int purchaseConcurrently(List<Long> saleItemIds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> outcomes = new ArrayList<>();
+            for (long saleItemId : saleItemIds) {
+                outcomes.add(executor.submit(() -> {
+                    start.await();
+                    while (true) {
+                        try {
+                            businessService.purchaseSaleItem(1L, saleItemId);
+                            return true;
+                        } catch (ConflictException e) {
+                            // A purchase that timed out waiting for a lock is retried, as a client would
+                            if (!LOCK_TIMEOUT_MESSAGE.equals(e.getMessage())) {
+                                return false;
+                            }
+                        } catch (BadRequestException e) {
+                            // Read the listing after another purchase of it had committed
+                            return false;
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+
+            int purchases = 0;
+            for (Future<Boolean> outcome : outcomes) {
+                if (outcome.get(60, TimeUnit.SECONDS)) {
+                    purchases++;
+                }
+            }
+            return purchases;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long rollupNumberOfSales() {
+        return salesRollupService.getDailySales(1L, LocalDate.now(), LocalDate.now()).stream()
+                .mapToLong(DailySales::getNumberOfSales)
+                .sum();
+    }
+
+    @Test
+    void purchaseSaleItem_manyConcurrentPurchasesOfOneListing_onlyOneSucceeds() throws Exception {
+        List<Long> saleItemIds = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            saleItemIds.add(21L);
+        }
+
+        Assertions.assertEquals(1, purchaseConcurrently(saleItemIds));
+        Assertions.assertTrue(saleItemRepository.findById(21L).orElseThrow().isSold());
+        Assertions.assertEquals(99, inventoryItemRepository.findByInventoryItemId(2L).orElseThrow().getQuantity());
+        Assertions.assertEquals(1, rollupNumberOfSales());
+    }
+
+    @Test
+    void purchaseSaleItem_moreListingsThanInventory_neverOversells() throws Exception {
+        List<Long> saleItemIds = new ArrayList<>();
+        for (long saleItemId = 1; saleItemId <= 20; saleItemId++) {
+            saleItemIds.add(saleItemId);
+        }
+
+        Assertions.assertEquals(10, purchaseConcurrently(saleItemIds));
+        Assertions.assertEquals(0, inventoryItemRepository.findByInventoryItemId(1L).orElseThrow().getQuantity());
+        Assertions.assertEquals(10, saleItemRepository.findSoldListingsByBusiness(1L).size());
+        Assertions.assertEquals(10, rollupNumberOfSales());
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.web.server.NotAcceptableStatusException;
 import org.springframework.web.server.ResponseStatusException;
 import wasteless.controller.jsonobjects.SaleItemJson;
 import wasteless.exception.BadRequestException;
+import wasteless.exception.ConflictException;
 import wasteless.model.InventoryItem;
 import wasteless.model.SaleItem;
 import wasteless.model.User;
@@ -135,9 +136,7 @@ class SaleItemServiceTest {
   void purchaseSaleItem_saleItemExistsAndNotSold_saleItemSetToSold() {
     businessService = Mockito.spy(businessService);
     when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
-    when(saleItemRepository.findById(7L)).thenReturn(Optional.of(unsoldSaleItem));
-    when(saleItemRepository.save(any(SaleItem.class))).
-            thenReturn(BusinessDataCreator.createSaleItem(7L));
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(unsoldSaleItem));
     Mockito.doNothing().when(businessService).decrementInventoryItemQuantity(any(), any());
     businessService.purchaseSaleItem(1L, 7L);
     Assertions.assertTrue(unsoldSaleItem.isSold());
@@ -147,9 +146,7 @@ class SaleItemServiceTest {
   void purchaseSaleItem_saleItemExistsAndNotSold_purchaseTimeSet() {
     businessService = Mockito.spy(businessService);
     when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
-    when(saleItemRepository.findById(7L)).thenReturn(Optional.of(unsoldSaleItem));
-    when(saleItemRepository.save(any(SaleItem.class))).
-            thenReturn(BusinessDataCreator.createSaleItem(7L));
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(unsoldSaleItem));
     Mockito.doNothing().when(businessService).decrementInventoryItemQuantity(any(), any());
     businessService.purchaseSaleItem(1L,7L);
     Assertions.assertEquals(LocalDateTime.now().withNano(0), unsoldSaleItem.getPurchased().withNano(0));
@@ -159,9 +156,7 @@ class SaleItemServiceTest {
   void purchaseSaleItem_SaleItemExistsAndNotSold_PurchaserIdSet() {
     businessService = Mockito.spy(businessService);
     when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
-    when(saleItemRepository.findById(7L)).thenReturn(Optional.of(unsoldSaleItem));
-    when(saleItemRepository.save(any(SaleItem.class))).
-            thenReturn(BusinessDataCreator.createSaleItem(7L));
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(unsoldSaleItem));
     Mockito.doNothing().when(businessService).decrementInventoryItemQuantity(any(), any());
     businessService.purchaseSaleItem(1L,7L);
     Assertions.assertEquals(defaultAdmin.getId(), unsoldSaleItem.getPurchaser().getId());
@@ -169,17 +164,62 @@ class SaleItemServiceTest {
 
   @Test
   void purchaseSaleItem_saleItemExistsAndNotSold_notificationCreated() {
-    SaleItem purchasedItem = BusinessDataCreator.createSaleItem(7L);
-    purchasedItem.setSold(true);
+    businessService = Mockito.spy(businessService);
+    when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(unsoldSaleItem));
+    Mockito.doNothing().when(businessService).decrementInventoryItemQuantity(any(), any());
 
+    businessService.purchaseSaleItem(1L, 7L);
+    verify(notificationService).createPurchaseNotification(unsoldSaleItem);
+  }
+
+  @Test
+  void purchaseSaleItem_notificationFails_purchaseStillReturned() {
     businessService = Mockito.spy(businessService);
     when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
-    when(saleItemRepository.findById(7L)).thenReturn(Optional.of(unsoldSaleItem));
-    when(saleItemRepository.save(any(SaleItem.class))).thenReturn(purchasedItem);
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(unsoldSaleItem));
+    Mockito.doNothing().when(businessService).decrementInventoryItemQuantity(any(), any());
+    Mockito.doThrow(new IllegalStateException("Notification could not be saved"))
+        .when(notificationService).createPurchaseNotification(any(SaleItem.class));
+
+    Assertions.assertEquals(unsoldSaleItem, businessService.purchaseSaleItem(1L, 7L));
+    Assertions.assertTrue(unsoldSaleItem.isSold());
+  }
+
+  @Test
+  void purchaseSaleItem_saleItemSoldBeforeLockAcquired_throwsBadRequestWithoutDecrementing() {
+    businessService = Mockito.spy(businessService);
+    when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
+    // Another purchase sold the sale item while this one waited for its row lock
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(soldSaleItem));
+
+    Assertions.assertThrows(BadRequestException.class, () -> businessService.purchaseSaleItem(1L, 7L));
+    verify(businessService, never()).decrementInventoryItemQuantity(any(), any());
+    verify(notificationService, never()).createPurchaseNotification(any(SaleItem.class));
+  }
+
+  @Test
+  void purchaseSaleItem_saleItemExistsAndNotSold_readsSaleItemWithLock() {
+    businessService = Mockito.spy(businessService);
+    when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(unsoldSaleItem));
     Mockito.doNothing().when(businessService).decrementInventoryItemQuantity(any(), any());
 
     businessService.purchaseSaleItem(1L, 7L);
-    verify(notificationService).createPurchaseNotification(purchasedItem);
+    verify(saleItemRepository).findByIdForUpdate(7L);
+    verify(saleItemRepository, never()).findById(7L);
+  }
+
+  @Test
+  void purchaseSaleItem_insufficientInventory_throwsConflictException() {
+    when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(unsoldSaleItem));
+    when(inventoryItemRepository.decrementQuantity(anyLong(), anyInt())).thenReturn(0);
+
+    Exception exception = Assertions.assertThrows(
+            ConflictException.class, () -> businessService.purchaseSaleItem(1L, 7L));
+    Assertions.assertEquals("Insufficient inventory to make purchase.", exception.getMessage());
+    verify(notificationService, never()).createPurchaseNotification(any(SaleItem.class));
   }
 
   @Test
@@ -189,7 +229,7 @@ class SaleItemServiceTest {
 
     businessService = Mockito.spy(businessService);
     when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
-    when(saleItemRepository.findById(7L)).thenReturn(Optional.of(soldSaleItem));
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(soldSaleItem));
     when(saleItemRepository.save(any(SaleItem.class))).thenReturn(purchasedItem);
 
     Mockito.doNothing().when(businessService).decrementInventoryItemQuantity(any(), any());
@@ -212,7 +252,7 @@ class SaleItemServiceTest {
   void purchaseSaleItem_saleItemExistsAndSold_throwsBadRequest() {
     businessService = Mockito.spy(businessService);
     when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
-    when(saleItemRepository.findById(7L)).thenReturn(Optional.of(soldSaleItem));
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(soldSaleItem));
     Mockito.doNothing().when(businessService).decrementInventoryItemQuantity(any(), any());
     Assertions.assertThrows(
             BadRequestException.class, () -> businessService.purchaseSaleItem(1L,7L));
@@ -222,7 +262,7 @@ class SaleItemServiceTest {
   void purchaseSaleItem_saleItemExistsAndSold_returnsCorrectErrorMessage() {
     businessService = Mockito.spy(businessService);
     when(authUtil.getCurrentUser()).thenReturn(defaultAdmin);
-    when(saleItemRepository.findById(7L)).thenReturn(Optional.of(soldSaleItem));
+    when(saleItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(soldSaleItem));
     Mockito.doNothing().when(businessService).decrementInventoryItemQuantity(any(), any());
     Exception exception = Assertions.assertThrows(
             BadRequestException.class, () -> businessService.purchaseSaleItem(1L,7L));
@@ -276,23 +316,23 @@ class SaleItemServiceTest {
   @Test
   void sendPurchaseNotificationToOtherUsers_saleItemExists_callsNotificationServiceCorrectTimes() {
     when(saleItemRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(soldSaleItem));
-    Set<User> likedUsers = new HashSet<>(List.of(user, defaultAdmin));
-    soldSaleItem.setLikedByUsers(likedUsers);
-    // check that the notification service is called once (since it should not be called for the purchaser)
-    Mockito.doNothing().when(notificationService).createLikedItemPurchaseNotification(any(SaleItem.class), any(User.class));
+    user.setUserId(2L);
+    when(saleItemRepository.findLikedUserIds(Mockito.anyLong())).thenReturn(List.of(user.getUserId(), defaultAdmin.getUserId()));
+    // check that the notification is sent to every user except the purchaser
+    Mockito.doNothing().when(notificationService).createLikedItemPurchaseNotifications(any(SaleItem.class), Mockito.anyList());
     soldSaleItem.setPurchaser(defaultAdmin);
     businessService.sendPurchaseNotificationToOtherUsers(soldSaleItem.getSaleItemId());
-    Mockito.verify(notificationService).createLikedItemPurchaseNotification(any(SaleItem.class), any(User.class));
+    Mockito.verify(notificationService).createLikedItemPurchaseNotifications(soldSaleItem, List.of(user.getUserId()));
   }
 
   @Test
   void sendPurchaseNotificationToOtherUsers_saleItemExistsNoLikes_doesNotCallNotificationService() {
     when(saleItemRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(soldSaleItem));
-    soldSaleItem.setLikedByUsers(new HashSet<>());
+    when(saleItemRepository.findLikedUserIds(Mockito.anyLong())).thenReturn(List.of());
+    soldSaleItem.setPurchaser(defaultAdmin);
     // check that the notification service is not called
-    Mockito.doNothing().when(notificationService).createLikedItemPurchaseNotification(any(SaleItem.class), any(User.class));
     businessService.sendPurchaseNotificationToOtherUsers(soldSaleItem.getSaleItemId());
-    Mockito.verify(notificationService, times(0)).createLikedItemPurchaseNotification(any(SaleItem.class), any(User.class));
+    Mockito.verify(notificationService, times(0)).createLikedItemPurchaseNotifications(any(SaleItem.class), Mockito.anyList());
   }
 
   @Test
@@ -0,0 +1,154 @@
+package wasteless.service.saleItemServiceTests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+import wasteless.controller.SaleItemController;
+import wasteless.model.SaleItem;
+import wasteless.model.Searchable;
+import wasteless.repository.SaleItemRepository;
+import wasteless.service.SaleItemService;
+import wasteless.service.searching_service.SearchParamsParser;
+import wasteless.service.searching_service.SearchingService.SearchResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+/**
+ * Counts the statements run to search for a page of listings and serialize it, as the listing search endpoint does.
+ * Each test runs in one transaction, standing in for the persistence context a request keeps open until its response
+ * has been written.
+ */
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SaleItemSearchTestData.sql"})
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ListingReadStatementCountTest {
+
+    private static final long MAX_STATEMENTS_PER_PAGE = 15;
+
+    private static final int MANY_LIKES = 200;
+
+    @Autowired
+    private SaleItemService saleItemService;
+
+    @Autowired
+    private SaleItemRepository saleItemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final SaleItemController.FilterQuery noFilters =
+            new SaleItemController.FilterQuery(null, null, null, null, null);
+
+    @BeforeEach
+    void likeEveryListing() {
+        // Every user likes every listing, which must not add the users to the statements or the response
+        jdbcTemplate.update("INSERT INTO SALE_LISTING_LIKE (SALE_ITEM_ID, USER_ID) "
+                + "SELECT s.SALE_ITEM_ID, u.USER_ID FROM SALE_ITEM s CROSS JOIN USER u");
+        jdbcTemplate.update("UPDATE SALE_ITEM SET LIKE_COUNT = 7");
+        jdbcTemplate.update("INSERT INTO PRODUCT_IMAGE (FILENAME, THUMBNAIL_FILENAME, IS_PRIMARY, ROW_ID) "
+                + "VALUES ('a.png', 'a_thumbnail.png', FALSE, 1), ('b.png', 'b_thumbnail.png', TRUE, 1)");
+    }
+
+    /**
+     * Searches for the first page of listings and serializes it.
+     * @return the number of statements run
+     */
+    private long countStatements(int perPage) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return transactionTemplate.execute(status -> {
+            statistics.clear();
+            SearchResult result = saleItemService.searchSaleListings(SearchParamsParser.parse(""), noFilters, 1,
+                    perPage, "default", "asc");
+            Assertions.assertEquals(perPage, result.getResult().size());
+            try {
+                String json = objectMapper.writeValueAsString(result.getResult());
+                Assertions.assertTrue(json.contains("\"numberOfLikes\":7"));
+                Assertions.assertFalse(json.contains("\"likedByUsers\""));
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+            return statistics.getPrepareStatementCount();
+        });
+    }
+
+    @Test
+    void searchSaleListings_serializedPage_statementCountDoesNotGrowWithPageSize() {
+        // Builds anything the search builds on first use, such as its index
+        countStatements(1);
+
+        long smallPage = countStatements(2);
+        long fullPage = countStatements(6);
+
+        Assertions.assertEquals(smallPage, fullPage);
+        Assertions.assertTrue(fullPage <= MAX_STATEMENTS_PER_PAGE,
+                "Serializing a page of listings ran " + fullPage + " statements");
+    }
+
+    @Test
+    void searchSaleListings_serializedPage_sameJsonAsSaleItemEntities() {
+        transactionTemplate.executeWithoutResult(status -> {
+            SearchResult result = saleItemService.searchSaleListings(SearchParamsParser.parse(""), noFilters, 1, 6,
+                    "default", "asc");
+            Assertions.assertEquals(6, result.getResult().size());
+            for (Searchable listing : result.getResult()) {
+                SaleItem saleItem = saleItemRepository.findById(listing.getId()).orElseThrow();
+                Assertions.assertEquals(objectMapper.valueToTree(saleItem), objectMapper.valueToTree(listing));
+            }
+        });
+    }
+
+    /**
+     * Reads every listing with findListingsById and serializes them.
+     * @return the number of entities loaded
+     */
+    private long countEntitiesLoaded(List<Long> ids) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return transactionTemplate.execute(status -> {
+            statistics.clear();
+            List<SaleItem> listings = saleItemRepository.findListingsById(ids);
+            // One row, and one SaleItem, per listing however many likes it has
+            Assertions.assertEquals(ids.size(), listings.size());
+            try {
+                Assertions.assertFalse(objectMapper.writeValueAsString(listings).contains("\"likedByUsers\""));
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+            return statistics.getEntityLoadCount();
+        });
+    }
+
+    @Test
+    void findListingsById_listingWithManyLikes_entitiesLoadedDoNotGrowWithLikes() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT SALE_ITEM_ID FROM SALE_ITEM ORDER BY SALE_ITEM_ID",
+                Long.class);
+        long fewLikes = countEntitiesLoaded(ids);
+
+        for (int i = 0; i < MANY_LIKES; i++) {
+            long userId = 1000L + i;
+            jdbcTemplate.update("INSERT INTO USER (USER_ID, FIRST_NAME, LAST_NAME, EMAIL, DATE_OF_BIRTH, ADDRESS_ID, "
+                    + "ROLE) VALUES (?, 'Liker', 'Liker', ?, '2001-01-01', 1, 'user')", userId, userId + "@test.com");
+            jdbcTemplate.update("INSERT INTO SALE_LISTING_LIKE (SALE_ITEM_ID, USER_ID) VALUES (?, ?)", ids.get(0),
+                    userId);
+        }
+        long manyLikes = countEntitiesLoaded(ids);
+
+        Assertions.assertEquals(fewLikes, manyLikes);
+    }
+}
@@ -0,0 +1,106 @@
+package wasteless.service.saleItemServiceTests;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.controller.SaleItemController;
+import wasteless.model.Product;
+import wasteless.model.SaleItem;
+import wasteless.model.Searchable;
+import wasteless.repository.ProductRepository;
+import wasteless.repository.SaleItemRepository;
+import wasteless.service.searching_service.IndexedSearch;
+import wasteless.service.searching_service.SaleItemIndexedSearchImpl;
+import wasteless.service.searching_service.SaleItemSearchService;
+import wasteless.service.searching_service.SearchParamsParser;
+import wasteless.service.searching_service.SearchingService.SearchResult;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SaleItemSearchTestData.sql"})
+@SpringBootTest(properties = "search.engine=index")
+class SaleItemIndexedSearchTest {
+
+    @Autowired
+    private SaleItemSearchService saleItemSearchService;
+
+    @Autowired
+    private SaleItemRepository saleItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final SaleItemController.FilterQuery noFilters =
+            new SaleItemController.FilterQuery(null, null, null, null, null);
+
+    @BeforeEach
+    void setUp() {
+        // Test data is inserted by SQL scripts, which bypass the index synchronisation
+        ((IndexedSearch) saleItemSearchService).rebuild();
+    }
+
+    private List<Long> findIds(String searchTerms) {
+        SearchResult result = saleItemSearchService.find(
+                SearchParamsParser.parse(searchTerms), noFilters, 1, 1000, "default", "asc");
+        return result.getResult().stream().map(Searchable::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void saleItemSearchService_indexEngine_isIndexedSearch() {
+        Assertions.assertTrue(saleItemSearchService instanceof SaleItemIndexedSearchImpl);
+    }
+
+    @ParameterizedTest
+    @MethodSource("wasteless.service.saleItemServiceTests.SaleItemSearchTest#findSaleItems_withSearchParams_retrievesExpectedItems")
+    void findSaleItems_withSearchParams_retrievesSameItemsAsDatabaseSearch(String searchTerms,
+                                                                           SaleItemController.FilterQuery filterQuery,
+                                                                           Integer pageNum,
+                                                                           Integer perPage,
+                                                                           String sorting,
+                                                                           String ordering,
+                                                                           List<Long> expectedIds) {
+        List<Searchable> searchResults = saleItemSearchService.find(
+                SearchParamsParser.parse(searchTerms), filterQuery, pageNum, perPage, sorting, ordering).getResult();
+
+        Assertions.assertEquals(expectedIds,
+                searchResults.stream().map(Searchable::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void findSaleItems_emptySearch_countsAllUnsoldListings() {
+        SearchResult result = saleItemSearchService.find(SearchParamsParser.parse(""), noFilters, 1, 2, "default", "asc");
+
+        Assertions.assertEquals(2, result.getResult().size());
+        Assertions.assertEquals(6L, result.getResultsLength());
+    }
+
+    @Test
+    void findSaleItems_shortToken_matchesWithoutTrigram() {
+        Assertions.assertEquals(List.of(4L, 2L, 1L), findIds("uc"));
+    }
+
+    @Test
+    void findSaleItems_productRenamed_indexUpdated() {
+        Product product = productRepository.findByRowId(4).get(0);
+        product.setName("Gadget");
+        productRepository.save(product);
+
+        Assertions.assertEquals(List.of(6L), findIds("gadget"));
+        Assertions.assertEquals(List.of(), findIds("thing"));
+    }
+
+    @Test
+    void findSaleItems_listingSold_removedFromIndex() {
+        SaleItem saleItem = saleItemRepository.findById(6L).orElseThrow();
+        saleItem.setSold(true);
+        saleItemRepository.save(saleItem);
+
+        Assertions.assertEquals(List.of(), findIds("thing"));
+    }
+}
@@ -0,0 +1,103 @@
+package wasteless.service.saleItemServiceTests;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.controller.SaleItemController;
+import wasteless.model.Searchable;
+import wasteless.service.SaleItemService;
+import wasteless.service.searching_service.SaleItemSearchService;
+import wasteless.service.searching_service.SaleItemSearchService.RankingMode;
+import wasteless.service.searching_service.SearchParamsParser;
+import wasteless.service.searching_service.SearchingService.SearchResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SaleItemSearchTestData.sql"})
+@SpringBootTest
+class SaleItemKeysetSearchTest {
+
+    @Autowired
+    private SaleItemSearchService saleItemSearchService;
+
+    @Autowired
+    private SaleItemService saleItemService;
+
+    private final SaleItemController.FilterQuery noFilters =
+            new SaleItemController.FilterQuery(null, null, null, null, null);
+
+    private List<Long> ids(SearchResult searchResult) {
+        return searchResult.getResult().stream().map(Searchable::getId).collect(Collectors.toList());
+    }
+
+    public static Stream<Arguments> findAfter_pagingThroughResults_returnsEveryResultOnce() {
+        return Stream.of(
+                Arguments.of("", "default", "asc"),
+                Arguments.of("", "price", "desc"),
+                Arguments.of("", "expires", "asc"),
+                Arguments.of("", "quantity", "desc"),
+                Arguments.of("thing or chrome", "default", "asc"),
+                Arguments.of("beans or chrome", "name", "desc"),
+                Arguments.of("\"B Region\"", "seller", "asc"),
+                Arguments.of("this product name must never exist", "default", "asc")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void findAfter_pagingThroughResults_returnsEveryResultOnce(String searchTerms, String sortBy, String orderBy) {
+        SearchResult singlePage = saleItemSearchService.findAfter(SearchParamsParser.parse(searchTerms), noFilters,
+                null, 1000, sortBy, orderBy);
+        Assertions.assertNull(singlePage.getNextCursor());
+
+        List<Long> pagedIds = new ArrayList<>();
+        String cursor = "";
+        do {
+            SearchResult page = saleItemService.searchSaleListingsAfter(SearchParamsParser.parse(searchTerms),
+                    noFilters, cursor, 2, sortBy, orderBy);
+            Assertions.assertTrue(page.getResult().size() <= 2);
+            Assertions.assertEquals(singlePage.getResultsLength(), page.getResultsLength());
+            pagedIds.addAll(ids(page));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        Assertions.assertEquals(ids(singlePage), pagedIds);
+    }
+
+    @ParameterizedTest
+    @MethodSource("findAfter_pagingThroughResults_returnsEveryResultOnce")
+    void findAfter_singlePage_returnsRankedResults(String searchTerms, String sortBy, String orderBy) {
+        SearchResult keyset = saleItemSearchService.findAfter(SearchParamsParser.parse(searchTerms), noFilters,
+                null, 1000, sortBy, orderBy);
+        SearchResult ranked = saleItemSearchService.find(SearchParamsParser.parse(searchTerms), noFilters,
+                1, 1000, sortBy, orderBy, RankingMode.RANKED);
+
+        Assertions.assertEquals(new HashSet<>(ids(ranked)), new HashSet<>(ids(keyset)));
+        Assertions.assertEquals(ranked.getResultsLength(), keyset.getResultsLength());
+    }
+
+    @Test
+    void findAfter_thingOrChrome_ranksExactMatchesFirst() {
+        SearchResult keyset = saleItemSearchService.findAfter(SearchParamsParser.parse("thing or chrome"), noFilters,
+                null, 1000, "default", "asc");
+        Assertions.assertEquals(List.of(6L, 4L, 2L, 5L, 3L), ids(keyset));
+    }
+
+    @Test
+    void searchSaleListingsAfter_invalidCursor_throwsIllegalArgumentException() {
+        List<String> invalidCursors = List.of("not a cursor", "bm90IGEgY3Vyc29y", "MTpYOjox");
+        for (String cursor : invalidCursors) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> saleItemService.searchSaleListingsAfter(
+                    SearchParamsParser.parse(""), noFilters, cursor, 2, "default", "asc"));
+        }
+    }
+}
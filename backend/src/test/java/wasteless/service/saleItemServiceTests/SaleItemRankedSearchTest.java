@@ -0,0 +1,107 @@
+package wasteless.service.saleItemServiceTests;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.controller.SaleItemController;
+import wasteless.model.Searchable;
+import wasteless.service.searching_service.SaleItemSearchService;
+import wasteless.service.searching_service.SaleItemSearchService.RankingMode;
+import wasteless.service.searching_service.SearchParamsParser;
+import wasteless.service.searching_service.SearchingService.SearchResult;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SaleItemSearchTestData.sql"})
+@SpringBootTest
+class SaleItemRankedSearchTest {
+
+    @Autowired
+    private SaleItemSearchService saleItemSearchService;
+
+    private final SaleItemController.FilterQuery noFilters =
+            new SaleItemController.FilterQuery(null, null, null, null, null);
+
+    private SearchResult find(String searchTerms, Integer pageNum, Integer perPage, String sortBy, String orderBy,
+                              RankingMode rankingMode) {
+        return saleItemSearchService.find(SearchParamsParser.parse(searchTerms), noFilters, pageNum, perPage,
+                sortBy, orderBy, rankingMode);
+    }
+
+    private List<Long> ids(SearchResult searchResult) {
+        return searchResult.getResult().stream().map(Searchable::getId).collect(Collectors.toList());
+    }
+
+    public static Stream<Arguments> findRanked_singlePage_matchesExactThenPartial() {
+        return Stream.of(
+                Arguments.of("", "default", "asc"),
+                Arguments.of("bean", "default", "asc"),
+                Arguments.of("chrome AND beans", "name", "desc"),
+                Arguments.of("beans or chrome", "price", "asc"),
+                Arguments.of("thing or chrome", "default", "asc"),
+                Arguments.of("\"B Region\"", "seller", "desc"),
+                Arguments.of("this product name must never exist", "default", "asc")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void findRanked_singlePage_matchesExactThenPartial(String searchTerms, String sortBy, String orderBy) {
+        SearchResult ranked = find(searchTerms, 1, 1000, sortBy, orderBy, RankingMode.RANKED);
+        SearchResult legacy = find(searchTerms, 1, 1000, sortBy, orderBy, RankingMode.EXACT_THEN_PARTIAL);
+
+        Assertions.assertEquals(ids(legacy), ids(ranked));
+        Assertions.assertEquals(legacy.getResultsLength(), ranked.getResultsLength());
+    }
+
+    @Test
+    void findRanked_exactMatch_rankedBeforePartialMatches() {
+        SearchResult result = find("thing or chrome", 1, 1000, "default", "asc", RankingMode.RANKED);
+
+        Assertions.assertEquals(List.of(6L, 4L, 2L, 5L, 3L), ids(result));
+        Assertions.assertEquals(5L, result.getResultsLength());
+    }
+
+    @Test
+    void findRanked_firstPage_neverExceedsPerPage() {
+        SearchResult legacy = find("thing or chrome", 1, 2, "default", "asc", RankingMode.EXACT_THEN_PARTIAL);
+        SearchResult ranked = find("thing or chrome", 1, 2, "default", "asc", RankingMode.RANKED);
+
+        // The joined exact and partial pages overflow the page size
+        Assertions.assertEquals(3, legacy.getResult().size());
+        Assertions.assertEquals(List.of(6L, 4L), ids(ranked));
+        Assertions.assertEquals(5L, ranked.getResultsLength());
+    }
+
+    @Test
+    void findRanked_pagingThroughResults_returnsEachResultOnce() {
+        Assertions.assertEquals(List.of(2L, 5L), ids(find("thing or chrome", 2, 2, "default", "asc", RankingMode.RANKED)));
+
+        SearchResult lastPage = find("thing or chrome", 3, 2, "default", "asc", RankingMode.RANKED);
+        Assertions.assertEquals(List.of(3L), ids(lastPage));
+        Assertions.assertEquals(5L, lastPage.getResultsLength());
+    }
+
+    @Test
+    void findRanked_pageAfterLastPage_returnsEmptyPageWithTotal() {
+        SearchResult result = find("thing or chrome", 4, 2, "default", "asc", RankingMode.RANKED);
+
+        Assertions.assertTrue(result.getResult().isEmpty());
+        Assertions.assertEquals(5L, result.getResultsLength());
+    }
+
+    @Test
+    void find_withoutRankingMode_usesDefaultRankingMode() {
+        Assertions.assertEquals(RankingMode.RANKED, saleItemSearchService.getDefaultRankingMode());
+        Assertions.assertEquals(List.of(6L, 4L),
+                ids(saleItemSearchService.find(SearchParamsParser.parse("thing or chrome"), noFilters, 1, 2,
+                        "default", "asc")));
+    }
+}
@@ -14,7 +14,9 @@ import wasteless.service.SaleItemService;
 import wasteless.service.searching_service.SaleItemSearchService;
 import wasteless.service.searching_service.SearchParamsParser;
 import wasteless.service.searching_service.SearchToken;
+import wasteless.service.searching_service.SearchingService.SearchResult;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -198,6 +200,8 @@ public class SaleItemServiceTest {
                                                              String orderBy,
                                                              Integer timesCalled) {
         List<SearchToken> tokens = SearchParamsParser.parse(searchString);
+        Mockito.when(saleItemSearchService.find(tokens, filterQuery, pageNum, perPage, sortBy, orderBy))
+                .thenReturn(new SearchResult(new ArrayList<>(), 0));
         saleItemService.searchSaleListings(tokens, filterQuery, pageNum, perPage, sortBy, orderBy);
         Mockito.verify(saleItemSearchService, Mockito.times(timesCalled))
                 .find(tokens, filterQuery, pageNum, perPage, sortBy, orderBy);
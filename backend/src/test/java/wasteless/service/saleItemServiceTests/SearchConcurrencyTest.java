@@ -0,0 +1,130 @@
+package wasteless.service.saleItemServiceTests;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.provider.Arguments;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.controller.SaleItemController;
+import wasteless.model.Searchable;
+import wasteless.service.searching_service.SaleItemSearchService;
+import wasteless.service.searching_service.SearchParamsParser;
+import wasteless.service.searching_service.SearchingService;
+import wasteless.service.searching_service.SearchingService.SearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SaleItemSearchTestData.sql"})
+@SpringBootTest
+class SearchConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int SEARCHES = 480;
+
+    @Autowired
+    private SaleItemSearchService saleItemSearchService;
+
+    @Autowired
+    private SearchingService userSearchService;
+
+    @Autowired
+    private SearchingService businessSearchService;
+
+    /**
+     * A search, along with the result it is expected to produce.
+     */
+    private static class SearchCase {
+        private final Callable<SearchResult> search;
+        private final List<Long> expectedIds;
+        private final Long expectedLength;
+
+        private SearchCase(Callable<SearchResult> search, List<Long> expectedIds, Long expectedLength) {
+            this.search = search;
+            this.expectedIds = expectedIds;
+            this.expectedLength = expectedLength;
+        }
+    }
+
+    private static List<Long> ids(SearchResult result) {
+        return result.getResult().stream().map(Searchable::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Builds the search cases. Listing searches are expected to return the results asserted by SaleItemSearchTest.
+     * User and business searches are expected to return the same results as when run on their own.
+     */
+    private List<SearchCase> searchCases() throws Exception {
+        List<SearchCase> cases = new ArrayList<>();
+        for (Arguments arguments : SaleItemSearchTest.findSaleItems_withSearchParams_retrievesExpectedItems()
+                .collect(Collectors.toList())) {
+            Object[] args = arguments.get();
+            @SuppressWarnings("unchecked")
+            List<Long> expectedIds = (List<Long>) args[6];
+            cases.add(new SearchCase(() -> saleItemSearchService.find(
+                    SearchParamsParser.parse((String) args[0]),
+                    (SaleItemController.FilterQuery) args[1],
+                    (Integer) args[2],
+                    (Integer) args[3],
+                    (String) args[4],
+                    (String) args[5]), expectedIds, null));
+        }
+
+        for (String terms : List.of("David", "Heron OR Michael", "michelle", "DAE", "nobody at all")) {
+            for (String sortBy : List.of("default", "email", "lastName")) {
+                Callable<SearchResult> search = () -> userSearchService.find(
+                        SearchParamsParser.parse(terms), 1, 3, sortBy, "desc");
+                SearchResult expected = search.call();
+                cases.add(new SearchCase(search, ids(expected), expected.getResultsLength()));
+            }
+        }
+
+        for (String terms : List.of("Mc", "UC", "\"Mc Ronalds\"", "ronalds or donalds")) {
+            Callable<SearchResult> search = () -> businessSearchService.find(
+                    SearchParamsParser.parse(terms), 1, 1000, "default", "asc");
+            cases.add(new SearchCase(search, ids(search.call()), null));
+        }
+        return cases;
+    }
+
+    @Test
+    void find_manyConcurrentSearches_eachSearchReturnsItsOwnResults() throws Exception {
+        List<SearchCase> cases = searchCases();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> outcomes = new ArrayList<>();
+            for (int i = 0; i < SEARCHES; i++) {
+                SearchCase searchCase = cases.get(i % cases.size());
+                int caseNumber = i % cases.size();
+                outcomes.add(executor.submit(() -> {
+                    start.await();
+                    SearchResult result = searchCase.search.call();
+                    if (!searchCase.expectedIds.equals(ids(result))) {
+                        return "Case " + caseNumber + ": expected " + searchCase.expectedIds + " but got " + ids(result);
+                    }
+                    if (searchCase.expectedLength != null && searchCase.expectedLength != result.getResultsLength()) {
+                        return "Case " + caseNumber + ": expected length " + searchCase.expectedLength
+                                + " but got " + result.getResultsLength();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            List<String> failures = new ArrayList<>();
+            for (Future<String> outcome : outcomes) {
+                String failure = outcome.get(60, TimeUnit.SECONDS);
+                if (failure != null) {
+                    failures.add(failure);
+                }
+            }
+            Assertions.assertEquals(List.of(), failures);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package wasteless.service.saleItemServiceTests;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.controller.SaleItemController;
+import wasteless.model.SaleItem;
+import wasteless.repository.SaleItemRepository;
+import wasteless.service.searching_service.SaleItemSearchService;
+import wasteless.service.searching_service.SearchCountCache;
+import wasteless.service.searching_service.SearchParamsParser;
+import wasteless.service.searching_service.SearchToken;
+
+import java.util.List;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SaleItemSearchTestData.sql"})
+@SpringBootTest(properties = {"search.count.cache.size=100", "search.count.mode=ESTIMATED"})
+class SearchCountCacheTest {
+
+    @Autowired
+    private SaleItemSearchService saleItemSearchService;
+
+    @Autowired
+    private SearchCountCache listingCountCache;
+
+    @Autowired
+    private SaleItemRepository saleItemRepository;
+
+    private final SaleItemController.FilterQuery noFilters =
+            new SaleItemController.FilterQuery(null, null, null, null, null);
+
+    @BeforeEach
+    void setUp() {
+        // Test data is inserted by SQL scripts, which bypass the cache invalidation
+        listingCountCache.invalidate();
+    }
+
+    private long count(String searchTerms, SaleItemController.FilterQuery filterQuery) {
+        // A page size of 1 makes every page full, so the count is never derived from the page
+        return saleItemSearchService.find(SearchParamsParser.parse(searchTerms), filterQuery, 1, 1, "default", "asc")
+                .getResultsLength();
+    }
+
+    @Test
+    void find_sameSearchTwice_countIsCached() {
+        long firstCount = count("chrome", noFilters);
+        long misses = listingCountCache.getMisses();
+        long hits = listingCountCache.getHits();
+
+        Assertions.assertEquals(firstCount, count("CHROME", noFilters));
+        Assertions.assertEquals(misses, listingCountCache.getMisses());
+        Assertions.assertEquals(hits + 1, listingCountCache.getHits());
+    }
+
+    @Test
+    void find_differentFilters_countedSeparately() {
+        long unfiltered = count("chrome", noFilters);
+        long filtered = count("chrome", new SaleItemController.FilterQuery(null, 12.0, null, null, null));
+
+        Assertions.assertEquals(4, unfiltered);
+        Assertions.assertEquals(1, filtered);
+    }
+
+    @Test
+    void find_listingWrittenAfterCounting_countIsRecomputed() {
+        Assertions.assertEquals(4, count("chrome", noFilters));
+        Assertions.assertTrue(listingCountCache.size() > 0);
+
+        SaleItem saleItem = saleItemRepository.findById(2L).orElseThrow();
+        saleItem.setSold(true);
+        saleItemRepository.save(saleItem);
+
+        Assertions.assertEquals(0, listingCountCache.size());
+        Assertions.assertEquals(3, count("chrome", noFilters));
+    }
+
+    @Test
+    void find_broadSearchInEstimatedMode_returnsUpperBound() {
+        List<SearchToken> broad = SearchParamsParser.parse("ch");
+        long exact = saleItemSearchService.find(broad, noFilters, 1, 1000, "default", "asc").getResult().size();
+        long estimated = count("ch", noFilters);
+
+        Assertions.assertTrue(estimated >= exact);
+        Assertions.assertEquals(6, estimated);
+    }
+
+    @Test
+    void find_narrowSearchInEstimatedMode_returnsExactCount() {
+        Assertions.assertEquals(4, count("chrome", noFilters));
+    }
+}
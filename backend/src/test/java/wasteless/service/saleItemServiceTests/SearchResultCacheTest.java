@@ -0,0 +1,92 @@
+package wasteless.service.saleItemServiceTests;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import wasteless.controller.SaleItemController;
+import wasteless.model.SaleItem;
+import wasteless.model.Searchable;
+import wasteless.repository.SaleItemRepository;
+import wasteless.service.SaleItemService;
+import wasteless.service.searching_service.SearchParamsParser;
+import wasteless.service.searching_service.SearchResultCache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Sql(scripts = {"classpath:/testData/CreateDBTables.sql", "classpath:/testData/SaleItemSearchTestData.sql"})
+@SpringBootTest(properties = "search.listings.cache.size=100")
+class SearchResultCacheTest {
+
+    @Autowired
+    private SaleItemService saleItemService;
+
+    @Autowired
+    private SearchResultCache listingResultCache;
+
+    @Autowired
+    private SaleItemRepository saleItemRepository;
+
+    private final SaleItemController.FilterQuery noFilters =
+            new SaleItemController.FilterQuery(null, null, null, null, null);
+
+    private final SaleItemController.FilterQuery belowFivePrice =
+            new SaleItemController.FilterQuery(null, 5.0, null, null, null);
+
+    @BeforeEach
+    void setUp() {
+        // Test data is inserted by SQL scripts, which bypass the cache invalidation
+        listingResultCache.invalidate();
+    }
+
+    private List<Long> search(String searchTerms, SaleItemController.FilterQuery filterQuery) {
+        return saleItemService.searchSaleListings(SearchParamsParser.parse(searchTerms), filterQuery, 1, 100,
+                "default", "asc").getResult().stream().map(Searchable::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void searchSaleListings_sameSearchTwice_secondSearchIsCacheHit() {
+        List<Long> first = search("chrome", noFilters);
+        Map<String, Long> statistics = listingResultCache.getStatistics();
+
+        Assertions.assertEquals(first, search("Chrome", noFilters));
+        Map<String, Long> after = listingResultCache.getStatistics();
+        Assertions.assertEquals(statistics.get("hits") + 1, after.get("hits"));
+        Assertions.assertEquals(statistics.get("misses"), after.get("misses"));
+    }
+
+    @Test
+    void searchSaleListings_listingPurchased_invalidatesPagesAdmittingListing() {
+        Assertions.assertTrue(search("chrome", noFilters).contains(2L));
+        List<Long> cheapListings = search("", belowFivePrice);
+        Assertions.assertEquals(2L, listingResultCache.getStatistics().get("size"));
+
+        // Listing 2 is priced at 10.0, so cannot be in the results of searches below 5.0
+        SaleItem saleItem = saleItemRepository.findById(2L).orElseThrow();
+        saleItem.setSold(true);
+        saleItemRepository.save(saleItem);
+
+        Assertions.assertEquals(1L, listingResultCache.getStatistics().get("size"));
+        Assertions.assertFalse(search("chrome", noFilters).contains(2L));
+
+        long hits = listingResultCache.getStatistics().get("hits");
+        Assertions.assertEquals(cheapListings, search("", belowFivePrice));
+        Assertions.assertEquals(hits + 1, listingResultCache.getStatistics().get("hits"));
+    }
+
+    @Test
+    void searchSaleListings_differentPages_cachedSeparately() {
+        List<Long> firstPage = saleItemService.searchSaleListings(SearchParamsParser.parse(""), noFilters, 1, 2,
+                "default", "asc").getResult().stream().map(Searchable::getId).collect(Collectors.toList());
+        List<Long> secondPage = saleItemService.searchSaleListings(SearchParamsParser.parse(""), noFilters, 2, 2,
+                "default", "asc").getResult().stream().map(Searchable::getId).collect(Collectors.toList());
+
+        Assertions.assertEquals(2, firstPage.size());
+        Assertions.assertNotEquals(firstPage, secondPage);
+        Assertions.assertEquals(2L, listingResultCache.getStatistics().get("size"));
+    }
+}
@@ -10,6 +10,7 @@ DROP TABLE IF EXISTS CARD_KEYWORDS CASCADE;
 DROP TABLE IF EXISTS MARKETPLACE_KEYWORD CASCADE;
 DROP TABLE IF EXISTS MARKETPLACE_CARD CASCADE;
 DROP TABLE IF EXISTS SALE_LISTING_LIKE CASCADE;
+DROP TABLE IF EXISTS DAILY_SALES CASCADE;
 
 CREATE TABLE ADDRESS
 (
@@ -58,7 +59,8 @@ CREATE TABLE ADMINS
     USER_ID     INT NOT NULL,
     BUSINESS_ID INT NOT NULL,
     FOREIGN KEY (USER_ID) REFERENCEs USER (USER_ID),
-    FOREIGN KEY (BUSINESS_ID) REFERENCES BUSINESS (BUSINESS_ID)
+    FOREIGN KEY (BUSINESS_ID) REFERENCES BUSINESS (BUSINESS_ID),
+    CONSTRAINT UK_ADMINS_BUSINESS_USER UNIQUE (BUSINESS_ID, USER_ID)
 );
 
 CREATE TABLE PRODUCT
@@ -72,7 +74,7 @@ CREATE TABLE PRODUCT
     RECOMMENDED_RETAIL_PRICE DOUBLE,
     BUSINESS_ID              INT,
     FOREIGN KEY (BUSINESS_ID) REFERENCES BUSINESS (BUSINESS_ID),
-    UNIQUE (PRODUCT_ID, BUSINESS_ID)
+    CONSTRAINT UK_PRODUCT_BUSINESS_PRODUCT_ID UNIQUE (BUSINESS_ID, PRODUCT_ID)
 );
 
 CREATE TABLE PRODUCT_IMAGE
@@ -116,6 +118,7 @@ CREATE TABLE SALE_ITEM
     CREATED           DATE,
     PURCHASED         DATE,
     PURCHASER_ID      INTEGER,
+    LIKE_COUNT        INTEGER NOT NULL DEFAULT 0,
     FOREIGN KEY (INVENTORY_ITEM_ID) REFERENCES INVENTORY_ITEM (INVENTORY_ITEM_ID),
     FOREIGN KEY (PURCHASER_ID) REFERENCES USER (USER_ID)
 );
@@ -125,7 +128,8 @@ CREATE TABLE SALE_LISTING_LIKE
     SALE_ITEM_ID INT NOT NULL,
     USER_ID INT NOT NULL,
     FOREIGN KEY (SALE_ITEM_ID) REFERENCES SALE_ITEM (SALE_ITEM_ID),
-    FOREIGN KEY (USER_ID) REFERENCES USER (USER_ID)
+    FOREIGN KEY (USER_ID) REFERENCES USER (USER_ID),
+    CONSTRAINT UK_SALE_LISTING_LIKE UNIQUE (SALE_ITEM_ID, USER_ID)
 );
 
 CREATE TABLE MARKETPLACE_KEYWORD
@@ -154,4 +158,16 @@ CREATE TABLE CARD_KEYWORDS
     MARKETPLACE_KEYWORD_ID INT,
     FOREIGN KEY (MARKETPLACE_CARD_ID) REFERENCES MARKETPLACE_CARD (MARKETPLACE_CARD_ID),
     FOREIGN KEY (MARKETPLACE_KEYWORD_ID) REFERENCES MARKETPLACE_KEYWORD (MARKETPLACE_KEYWORD_ID)
-);
\ No newline at end of file
+);
+
+CREATE TABLE DAILY_SALES
+(
+    BUSINESS_ID     INT    NOT NULL,
+    SALES_DATE      DATE   NOT NULL,
+    NUMBER_OF_SALES BIGINT NOT NULL,
+    VALUE_OF_SALES  DOUBLE NOT NULL,
+    UNITS_SOLD      BIGINT NOT NULL,
+    PRIMARY KEY (BUSINESS_ID, SALES_DATE)
+);
+
+CREATE INDEX IF NOT EXISTS IDX_NOTIFICATION_CATEGORY_USER_ACTION ON NOTIFICATION (CATEGORY, USER_ID, ACTION_ID, ID);
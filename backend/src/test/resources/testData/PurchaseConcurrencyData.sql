@@ -0,0 +1,48 @@
+INSERT INTO ADDRESS (ADDRESS_ID, CITY, COUNTRY, POSTCODE, REGION, STREET_NAME, STREET_NUMBER, SUBURB)
+VALUES  (1, 'Metairie', 'United States of America', '70001', 'Louisiana', 'Paul Wayne Haggerty Road', '2176', 'Ilam');
+
+INSERT INTO USER (USER_ID, FIRST_NAME, MIDDLE_NAME, LAST_NAME, NICKNAME, BIO, EMAIL, DATE_OF_BIRTH, PHONE_NUMBER, ADDRESS_ID,
+                  PASSWORD, ROLE, CREATED)
+VALUES (1, 'David', 'adama', 'Enyang', 'DAE', 'Definitely a real person', 'test@test.com', '1990-03-01', '0800 838383',
+        1, 'test1234', 'user', sysdate());
+
+INSERT INTO BUSINESS(BUSINESS_ID, BUSINESS_TYPE, DESCRIPTION, NAME, PRIMARY_ADMIN_ID,
+                     REGISTRATION_DATE, ADDRESS_ID)
+VALUES  (1, 'Accommodation and Food Services', 'UNIVERSITY', 'UC', 1, '2020-01-01', 1);
+
+INSERT INTO PRODUCT (ROW_ID, PRODUCT_ID, CREATED, DESCRIPTION, MANUFACTURER, NAME, RECOMMENDED_RETAIL_PRICE,
+                     BUSINESS_ID)
+VALUES (1, 'testOne', '2020-01-01', 'Baked Beans as they should be.', 'this is MANUFACTURER',
+        'Watties Baked Beans - 420g can', 10.0, 1);
+
+-- Inventory item 1 has 10 units, but 20 listings of 1 unit each.
+-- Inventory item 2 has 100 units and one listing of 1 unit.
+INSERT INTO INVENTORY_ITEM (INVENTORY_ITEM_ID, BEST_BEFORE, SELL_BY, EXPIRES, MANUFACTURED, PRICE_PER_ITEM, QUANTITY, TOTAL_PRICE,
+                            ROW_ID, PRODUCT_ID, BUSINESS_ID)
+VALUES (1, sysdate() + interval 1 year, sysdate() + interval 2 year, sysdate() + interval 3 year,
+        sysdate() - interval 1 year, 10.00, 10, 100.00, 1, 'testOne', 1),
+       (2, sysdate() + interval 1 year, sysdate() + interval 2 year, sysdate() + interval 3 year,
+        sysdate() - interval 1 year, 10.00, 100, 1000.00, 1, 'testOne', 1);
+
+INSERT INTO SALE_ITEM (SALE_ITEM_ID, INVENTORY_ITEM_ID, SOLD, QUANTITY, PRICE, MORE_INFO, CLOSES, CREATED)
+VALUES (1, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (2, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (3, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (4, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (5, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (6, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (7, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (8, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (9, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (10, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (11, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (12, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (13, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (14, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (15, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (16, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (17, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (18, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (19, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (20, 1, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate()),
+       (21, 2, FALSE, 1, 10.0, '', sysdate() + interval 1 year, sysdate());
@@ -0,0 +1,35 @@
+INSERT INTO ADDRESS (ADDRESS_ID, CITY, COUNTRY, POSTCODE, REGION, STREET_NAME, STREET_NUMBER, SUBURB)
+VALUES  (1, 'Metairie', 'United States of America', '70001', 'Louisiana', 'Paul Wayne Haggerty Road', '2176', 'Ilam');
+
+INSERT INTO USER (USER_ID, FIRST_NAME, MIDDLE_NAME, LAST_NAME, NICKNAME, BIO, EMAIL, DATE_OF_BIRTH, PHONE_NUMBER, ADDRESS_ID,
+                  PASSWORD, ROLE, CREATED)
+VALUES (1, 'David', 'adama', 'Enyang', 'DAE', 'Definitely a real person', 'test@test.com', '1990-03-01', '0800 838383',
+        1, 'test1234', 'user', sysdate());
+
+INSERT INTO BUSINESS(BUSINESS_ID, BUSINESS_TYPE, DESCRIPTION, NAME, PRIMARY_ADMIN_ID,
+                     REGISTRATION_DATE, ADDRESS_ID)
+VALUES  (1, 'Accommodation and Food Services', 'UNIVERSITY', 'UC', 1, '2020-01-01', 1),
+        (2, 'Accommodation and Food Services', 'UNIVERSITY', 'UC', 1, '2020-01-01', 1);
+
+INSERT INTO PRODUCT (ROW_ID, PRODUCT_ID, CREATED, DESCRIPTION, MANUFACTURER, NAME, RECOMMENDED_RETAIL_PRICE,
+                     BUSINESS_ID)
+VALUES (1, 'testOne', '2020-01-01', 'Baked Beans as they should be.', 'this is MANUFACTURER',
+        'Watties Baked Beans - 420g can', 10.0, 1),
+       (2, 'testTwo', '2020-01-01', 'Baked Beans as they should be.', 'this is MANUFACTURER',
+        'Beans, "Baked"', 10.0, 2);
+
+INSERT INTO INVENTORY_ITEM (INVENTORY_ITEM_ID, BEST_BEFORE, SELL_BY, EXPIRES, MANUFACTURED, PRICE_PER_ITEM, QUANTITY, TOTAL_PRICE,
+                            ROW_ID, PRODUCT_ID, BUSINESS_ID)
+VALUES (1, '2022-01-01', '2022-01-01', '2022-01-01', '2019-01-01', 10.00, 10, 100.00, 1, 'testOne', 1),
+       (2, '2022-01-01', '2022-01-01', '2022-01-01', '2019-01-01', 10.00, 10, 100.00, 2, 'testTwo', 2);
+
+-- Business 1 sold listings 1 and 2 in September 2020, 3 in November 2020 and 4 in January 2021.
+-- Listing 5 is unsold, and listing 6 was sold by business 2.
+INSERT INTO SALE_ITEM (SALE_ITEM_ID, INVENTORY_ITEM_ID, SOLD, QUANTITY, PRICE, MORE_INFO, CLOSES, CREATED, PURCHASED,
+                       PURCHASER_ID)
+VALUES (1, 1, TRUE, 2, 4.0, '', '2021-06-01', '2020-01-01', '2020-09-19', 1),
+       (2, 1, TRUE, 3, 6.5, '', '2021-06-01', '2020-01-01', '2020-09-30', 1),
+       (3, 1, TRUE, 1, 2.0, '', '2021-06-01', '2020-01-01', '2020-11-10', 1),
+       (4, 1, TRUE, 4, 8.0, '', '2021-06-01', '2020-01-01', '2021-01-05', 1),
+       (5, 1, FALSE, 1, 9.0, '', '2021-06-01', '2020-01-01', NULL, NULL),
+       (6, 2, TRUE, 1, 7.0, '', '2021-06-01', '2020-01-01', '2020-09-20', 1);
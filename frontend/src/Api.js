@@ -237,5 +237,7 @@ export default {
 
     getNotifications: (userId) => instance.get('/notifications/' + userId),
 
+    getNotificationStreamUrl: (userId, since) => SERVER_URL + '/notifications/' + userId + '/stream?since=' + since,
+
     markNotificationAsRead: (userId, notificationId) => instance.patch('/notifications/' + userId + '/read/' + notificationId),
 }
\ No newline at end of file
@@ -54,7 +54,7 @@ const sampleData = {
         "sold": false,
         "businessId": 1,
         "country": "United States",
-        "likedByUsers": []
+        "numberOfLikes": 0
     },
     "currency": {
         "symbol": currencySymbol,
@@ -98,7 +98,7 @@ const fakeListing = {
     quantity: 2,
     price: 10,
     totalPrice: 10,
-    likedByUsers: ["user"],
+    numberOfLikes: 1,
     created: "2021-05-21T15:23:48.845892",
     closes: "2021-07-21T23:59:00",
     moreInfo: "More Info"
@@ -103,7 +103,7 @@ const testSoldListing = {
     purchased: "2021-07-21T23:56:00",
     moreInfo: "More Info",
     sold: true,
-    likedByUsers: ["hello"],
+    numberOfLikes: 1,
 };
 const testUnsoldListing = {
     id: 2,